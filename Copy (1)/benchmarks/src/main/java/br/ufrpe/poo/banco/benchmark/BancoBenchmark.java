@@ -0,0 +1,87 @@
+package br.ufrpe.poo.banco.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ufrpe.poo.banco.negocio.Banco;
+import br.ufrpe.poo.banco.negocio.Conta;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * <code>Banco.transferir</code> de ponta a ponta, com os repositorios
+ * <code>ArquivoBin</code> de <code>Banco.getInstance()</code>. Cada
+ * transferencia regrava o arquivo de contas, por isso o custo cresce com o
+ * numero de contas cadastradas.
+ *
+ * Os repositorios usam <code>contas.dat</code> e <code>clientes.dat</code> no
+ * diretorio atual; o benchmark deve ser executado num diretorio vazio e se
+ * recusa a comecar se os arquivos ja existirem.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BancoBenchmark {
+
+	@Param({ "10", "1000" })
+	public int contas;
+
+	private final File arquivoContas = new File("contas.dat");
+
+	private final File arquivoClientes = new File("clientes.dat");
+
+	private Banco banco;
+
+	private ContaAbstrata origem;
+
+	private ContaAbstrata destino;
+
+	private boolean ida;
+
+	@Setup(Level.Trial)
+	public void criarBanco() throws Exception {
+		if (this.arquivoContas.exists() || this.arquivoClientes.exists())
+			throw new IllegalStateException(
+					"Execute o benchmark num diretorio sem contas.dat e clientes.dat");
+		this.banco = Banco.getInstance();
+		for (int i = 0; i < this.contas; i++) {
+			this.banco.cadastrar(new Conta(Carga.numero(i), 1e9));
+		}
+		this.origem = this.banco.procurarConta(Carga.numero(0));
+		this.destino = this.banco.procurarConta(Carga.numero(this.contas - 1));
+	}
+
+	@TearDown(Level.Trial)
+	public void apagarArquivos() {
+		this.arquivoContas.delete();
+		this.arquivoClientes.delete();
+	}
+
+	/**
+	 * Alterna o sentido para manter os saldos estaveis.
+	 */
+	@Benchmark
+	public void transferir() throws Exception {
+		this.ida = !this.ida;
+		if (this.ida)
+			this.banco.transferir(this.origem, this.destino, 1);
+		else
+			this.banco.transferir(this.destino, this.origem, 1);
+	}
+}
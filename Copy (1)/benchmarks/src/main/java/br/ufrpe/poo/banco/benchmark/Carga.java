@@ -0,0 +1,54 @@
+package br.ufrpe.poo.banco.benchmark;
+
+import java.lang.reflect.Field;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesArray;
+import br.ufrpe.poo.banco.dados.RepositorioContasArray;
+import br.ufrpe.poo.banco.negocio.Cliente;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Preenche os repositorios de array usados nos benchmarks.
+ *
+ * O <code>inserir</code> dos repositorios de array verifica a existencia com
+ * uma busca linear, entao carregar 1M de entradas por ele levaria minutos a
+ * cada fork. Como o que se mede e a busca, o array e preenchido diretamente.
+ */
+final class Carga {
+
+	private Carga() {
+	}
+
+	/** Numero da i-esima conta gerada. */
+	static String numero(int i) {
+		return String.format("%08d", i);
+	}
+
+	/** Cpf do i-esimo cliente gerado. */
+	static String cpf(int i) {
+		return String.format("%011d", i);
+	}
+
+	static void preencher(RepositorioContasArray repositorio,
+			ContaAbstrata[] contas) {
+		definir(repositorio, "contas", contas);
+		definir(repositorio, "indice", contas.length);
+	}
+
+	static void preencher(RepositorioClientesArray repositorio,
+			Cliente[] clientes) {
+		definir(repositorio, "clientes", clientes);
+		definir(repositorio, "indice", clientes.length);
+	}
+
+	private static void definir(Object alvo, String campo, Object valor) {
+		try {
+			Field f = alvo.getClass().getDeclaredField(campo);
+			f.setAccessible(true);
+			f.set(alvo, valor);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Campo " + campo
+					+ " nao encontrado em " + alvo.getClass().getName(), e);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package br.ufrpe.poo.banco.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+import br.ufrpe.poo.banco.negocio.ContaImposto;
+
+/**
+ * Vazao de <code>ContaImposto.debitar</code>. O saldo e recomposto a cada
+ * iteracao para que nenhum debito seja recusado.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ContaImpostoBenchmark {
+
+	private static final double SALDO = 1e15;
+
+	private ContaImposto conta;
+
+	@Setup(Level.Iteration)
+	public void recompor() {
+		this.conta = new ContaImposto("1", SALDO);
+	}
+
+	@Benchmark
+	public double debitar() throws SaldoInsuficienteException {
+		this.conta.debitar(1);
+		return this.conta.getSaldo();
+	}
+}
@@ -0,0 +1,114 @@
+package br.ufrpe.poo.banco.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ufrpe.poo.banco.dados.IRepositorioClientes;
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.RepositorioClientesArray;
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasArray;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.negocio.Cliente;
+import br.ufrpe.poo.banco.negocio.Conta;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Busca de contas e clientes por numero e cpf. As chaves procuradas sao
+ * sorteadas entre as existentes; <code>hash</code> serve de referencia para
+ * os repositorios de array.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositorioBenchmark {
+
+	private static final int CHAVES = 4096;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int tamanho;
+
+	@Param({ "array", "hash" })
+	public String repositorio;
+
+	private IRepositorioContas contas;
+
+	private IRepositorioClientes clientes;
+
+	private String[] numeros;
+
+	private String[] cpfs;
+
+	private int proxima;
+
+	@Setup(Level.Trial)
+	public void carregar() throws Exception {
+		ContaAbstrata[] c = new ContaAbstrata[this.tamanho];
+		Cliente[] cl = new Cliente[this.tamanho];
+		for (int i = 0; i < this.tamanho; i++) {
+			c[i] = new Conta(Carga.numero(i), i);
+			cl[i] = new Cliente("Cliente " + i, Carga.cpf(i));
+		}
+		if ("array".equals(this.repositorio)) {
+			RepositorioContasArray rc = new RepositorioContasArray();
+			Carga.preencher(rc, c);
+			RepositorioClientesArray rcl = new RepositorioClientesArray();
+			Carga.preencher(rcl, cl);
+			this.contas = rc;
+			this.clientes = rcl;
+		} else {
+			RepositorioContasHash rc = new RepositorioContasHash(this.tamanho);
+			RepositorioClientesHash rcl = new RepositorioClientesHash();
+			for (int i = 0; i < this.tamanho; i++) {
+				rc.inserir(c[i]);
+				rcl.inserir(cl[i]);
+			}
+			this.contas = rc;
+			this.clientes = rcl;
+		}
+		SplittableRandom r = new SplittableRandom(42);
+		this.numeros = new String[CHAVES];
+		this.cpfs = new String[CHAVES];
+		for (int i = 0; i < CHAVES; i++) {
+			int k = r.nextInt(this.tamanho);
+			this.numeros[i] = Carga.numero(k);
+			this.cpfs[i] = Carga.cpf(k);
+		}
+	}
+
+	private int proxima() {
+		this.proxima = (this.proxima + 1) & (CHAVES - 1);
+		return this.proxima;
+	}
+
+	@Benchmark
+	public ContaAbstrata procurarConta() {
+		return this.contas.procurar(this.numeros[this.proxima()]);
+	}
+
+	@Benchmark
+	public Cliente procurarCliente() {
+		return this.clientes.procurar(this.cpfs[this.proxima()]);
+	}
+
+	@Benchmark
+	public boolean existeContaInexistente() {
+		return this.contas.existe("X");
+	}
+}
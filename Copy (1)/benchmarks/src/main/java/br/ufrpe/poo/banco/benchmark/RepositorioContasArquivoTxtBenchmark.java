@@ -0,0 +1,63 @@
+package br.ufrpe.poo.banco.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoTxt;
+
+/**
+ * Tempo de carga de <code>RepositorioContasArquivoTxt</code> a partir de um
+ * arquivo com contas dos quatro tipos.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositorioContasArquivoTxtBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int contas;
+
+	private File arquivo;
+
+	@Setup(Level.Trial)
+	public void gerarArquivo() throws IOException {
+		this.arquivo = File.createTempFile("contas", ".txt");
+		try (BufferedWriter w = new BufferedWriter(new FileWriter(this.arquivo))) {
+			for (int i = 0; i < this.contas; i++) {
+				int tipo = i % 4;
+				w.write(tipo + " " + Carga.numero(i) + " " + (i * 1.5)
+						+ (tipo == 3 ? " " + (i * 0.01) : "") + "\n");
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void apagarArquivo() {
+		this.arquivo.delete();
+	}
+
+	@Benchmark
+	public RepositorioContasArquivoTxt carregar() throws Exception {
+		return new RepositorioContasArquivoTxt(this.arquivo);
+	}
+}
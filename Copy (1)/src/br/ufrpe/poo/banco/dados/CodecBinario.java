@@ -0,0 +1,321 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorCliente;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.negocio.Cliente;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Codificacao binaria de contas e clientes, alternativa a serializacao do
+ * Java nos repositorios em arquivo.
+ *
+ * O arquivo comeca com um cabecalho <code>[MAGICO][versao][conteudo]</code>,
+ * seguido dos registros ate o fim do arquivo:
+ * <ul>
+ * <li>conta: tipo (codigo de <code>TiposConta</code>), numero, saldo e, para
+ * contas especiais, o bonus;</li>
+ * <li>cliente: nome, cpf, quantidade de contas e o numero de cada conta.</li>
+ * </ul>
+ * Textos sao gravados com <code>writeUTF</code> (tamanho seguido dos bytes).
+ * Apenas o tipo e o estado das contas sao gravados; cada classe de conta,
+ * inclusive as variantes concorrentes, tem seu proprio codigo.
+ */
+public final class CodecBinario {
+
+	/** Inicio de todo arquivo no formato binario ("BANC"). */
+	public static final int MAGICO = 0x42414E43;
+
+	/** Versao atual do formato. */
+	public static final byte VERSAO = 1;
+
+	/** Conteudo de um arquivo de contas. */
+	public static final byte CONTAS = 'C';
+
+	/** Conteudo de um arquivo de clientes. */
+	public static final byte CLIENTES = 'L';
+
+	private CodecBinario() {
+	}
+
+	/**
+	 * Retorna o formato de um arquivo a partir do seu inicio.
+	 *
+	 * @param arquivo
+	 *            arquivo de contas ou clientes.
+	 * @return formato do arquivo, ou <code>null</code> se o arquivo estiver
+	 *         vazio ou nao existir.
+	 * @throws IOException
+	 *             levantada em caso de erro na leitura do arquivo.
+	 */
+	public static FormatoArquivo detectar(File arquivo) throws IOException {
+		if (!arquivo.exists() || arquivo.length() == 0)
+			return null;
+		try (DataInputStream dis = new DataInputStream(new FileInputStream(
+				arquivo))) {
+			if (arquivo.length() >= 4 && dis.readInt() == MAGICO)
+				return FormatoArquivo.BINARIO;
+		}
+		return FormatoArquivo.SERIALIZACAO;
+	}
+
+	/**
+	 * Escreve uma conta.
+	 *
+	 * @param saida
+	 *            fluxo de saida.
+	 * @param conta
+	 *            conta a ser escrita.
+	 * @throws IOException
+	 *             levantada em caso de erro na escrita.
+	 * @throws RepositorioException
+	 *             levantada caso o tipo de conta nao seja suportado.
+	 */
+	public static void escreverConta(DataOutputStream saida,
+			ContaAbstrata conta) throws IOException, RepositorioException {
+		byte tipo = TiposConta.tipo(conta);
+		saida.writeByte(tipo);
+		saida.writeUTF(conta.getNumero());
+		saida.writeDouble(conta.getSaldo());
+		if (TiposConta.especial(tipo))
+			saida.writeDouble(TiposConta.bonus(conta));
+	}
+
+	/**
+	 * Le uma conta.
+	 *
+	 * @param entrada
+	 *            fluxo de entrada.
+	 * @param versao
+	 *            versao do arquivo.
+	 * @return conta lida, ou <code>null</code> no fim do arquivo.
+	 * @throws IOException
+	 *             levantada em caso de erro na leitura.
+	 * @throws RepositorioException
+	 *             levantada caso o tipo de conta nao exista.
+	 */
+	public static ContaAbstrata lerConta(DataInputStream entrada, int versao)
+			throws IOException, RepositorioException {
+		int tipo = entrada.read();
+		if (tipo < 0)
+			return null;
+		String numero = entrada.readUTF();
+		double saldo = entrada.readDouble();
+		double bonus = TiposConta.especial(tipo) ? entrada.readDouble() : 0;
+		return TiposConta.criar(tipo, numero, saldo, bonus);
+	}
+
+	/**
+	 * Escreve um cliente.
+	 *
+	 * @param saida
+	 *            fluxo de saida.
+	 * @param cliente
+	 *            cliente a ser escrito.
+	 * @throws IOException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public static void escreverCliente(DataOutputStream saida, Cliente cliente)
+			throws IOException {
+		saida.writeUTF(cliente.getNome());
+		saida.writeUTF(cliente.getCpf());
+		saida.writeInt(cliente.getContas().size());
+		for (String numero : cliente.getContas()) {
+			saida.writeUTF(numero);
+		}
+	}
+
+	/**
+	 * Le um cliente.
+	 *
+	 * @param entrada
+	 *            fluxo de entrada.
+	 * @param versao
+	 *            versao do arquivo.
+	 * @return cliente lido, ou <code>null</code> no fim do arquivo.
+	 * @throws IOException
+	 *             levantada em caso de erro na leitura.
+	 */
+	public static Cliente lerCliente(DataInputStream entrada, int versao)
+			throws IOException {
+		String nome;
+		try {
+			nome = entrada.readUTF();
+		} catch (EOFException e) {
+			return null;
+		}
+		Cliente cliente = new Cliente(nome, entrada.readUTF());
+		int contas = entrada.readInt();
+		for (int i = 0; i < contas; i++) {
+			cliente.getContas().add(entrada.readUTF());
+		}
+		return cliente;
+	}
+
+	/**
+	 * Escreve o cabecalho do arquivo.
+	 */
+	private static void escreverCabecalho(DataOutputStream saida,
+			byte conteudo) throws IOException {
+		saida.writeInt(MAGICO);
+		saida.writeByte(VERSAO);
+		saida.writeByte(conteudo);
+	}
+
+	/**
+	 * Le e valida o cabecalho do arquivo.
+	 *
+	 * @return versao do arquivo.
+	 */
+	private static int lerCabecalho(DataInputStream entrada, byte conteudo)
+			throws IOException {
+		if (entrada.readInt() != MAGICO)
+			throw new IOException("Arquivo nao esta no formato binario!");
+		int versao = entrada.readByte();
+		if (versao < 1 || versao > VERSAO)
+			throw new IOException("Versao " + versao
+					+ " do formato binario nao suportada!");
+		if (entrada.readByte() != conteudo)
+			throw new IOException("Conteudo do arquivo inesperado!");
+		return versao;
+	}
+
+	/**
+	 * Grava as contas num arquivo, substituindo seu conteudo.
+	 *
+	 * @param arquivo
+	 *            arquivo de destino.
+	 * @param contas
+	 *            contas a serem gravadas.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public static void gravarContas(File arquivo, IteratorContaAbstrata contas)
+			throws RepositorioException {
+		try (DataOutputStream saida = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(arquivo, false),
+						1 << 16))) {
+			escreverContas(saida, contas);
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Escreve o cabecalho de um arquivo de contas seguido das contas.
+	 *
+	 * @param saida
+	 *            fluxo de saida.
+	 * @param contas
+	 *            contas a serem escritas.
+	 * @throws IOException
+	 *             levantada em caso de erro na escrita.
+	 * @throws RepositorioException
+	 *             levantada caso o tipo de uma conta nao seja suportado.
+	 */
+	public static void escreverContas(DataOutputStream saida,
+			IteratorContaAbstrata contas) throws IOException,
+			RepositorioException {
+		escreverCabecalho(saida, CONTAS);
+		while (contas.hasNext()) {
+			escreverConta(saida, contas.next());
+		}
+	}
+
+	/**
+	 * Le as contas de um arquivo e as insere num repositorio.
+	 *
+	 * @param arquivo
+	 *            arquivo de origem.
+	 * @param contas
+	 *            repositorio onde as contas sao inseridas.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura.
+	 */
+	public static void lerContas(File arquivo, IRepositorioContas contas)
+			throws RepositorioException {
+		try (DataInputStream entrada = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(arquivo), 1 << 16))) {
+			int versao = lerCabecalho(entrada, CONTAS);
+			ContaAbstrata conta;
+			while ((conta = lerConta(entrada, versao)) != null) {
+				contas.inserir(conta);
+			}
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Grava os clientes num arquivo, substituindo seu conteudo.
+	 *
+	 * @param arquivo
+	 *            arquivo de destino.
+	 * @param clientes
+	 *            clientes a serem gravados.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public static void gravarClientes(File arquivo, IteratorCliente clientes)
+			throws RepositorioException {
+		try (DataOutputStream saida = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(arquivo, false),
+						1 << 16))) {
+			escreverClientes(saida, clientes);
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Escreve o cabecalho de um arquivo de clientes seguido dos clientes.
+	 *
+	 * @param saida
+	 *            fluxo de saida.
+	 * @param clientes
+	 *            clientes a serem escritos.
+	 * @throws IOException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public static void escreverClientes(DataOutputStream saida,
+			IteratorCliente clientes) throws IOException {
+		escreverCabecalho(saida, CLIENTES);
+		while (clientes.hasNext()) {
+			escreverCliente(saida, clientes.next());
+		}
+	}
+
+	/**
+	 * Le os clientes de um arquivo e os insere num repositorio.
+	 *
+	 * @param arquivo
+	 *            arquivo de origem.
+	 * @param clientes
+	 *            repositorio onde os clientes sao inseridos.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura.
+	 */
+	public static void lerClientes(File arquivo, IRepositorioClientes clientes)
+			throws RepositorioException {
+		try (DataInputStream entrada = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(arquivo), 1 << 16))) {
+			int versao = lerCabecalho(entrada, CLIENTES);
+			Cliente cliente;
+			while ((cliente = lerCliente(entrada, versao)) != null) {
+				clientes.inserir(cliente);
+			}
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package br.ufrpe.poo.banco.dados;
+
+/**
+ * Marca repositorios que aceitam escritas de varias threads ao mesmo tempo.
+ * <code>BancoConcorrente</code> nao serializa as escritas desses
+ * repositorios, o que permite, por exemplo, que alteracoes concorrentes sejam
+ * gravadas juntas por <code>GravacaoEmGrupo</code>.
+ *
+ * As leituras (<code>procurar</code>, <code>existe</code>) continuam sem
+ * trava, como nos demais repositorios.
+ *
+ * Como as contas devolvidas por <code>procurar</code> sao alteradas pelo banco
+ * antes de <code>atualizar</code>, esses repositorios devem gravar os valores
+ * recebidos em <code>inserir</code>, <code>atualizar</code> e
+ * <code>atualizarLote</code> (ver <code>TiposConta.copiar</code>), e nao os
+ * objetos atuais, que podem estar no meio de outra operacao.
+ */
+public interface EscritaConcorrente {
+}
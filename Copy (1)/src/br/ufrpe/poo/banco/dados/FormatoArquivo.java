@@ -0,0 +1,14 @@
+package br.ufrpe.poo.banco.dados;
+
+/**
+ * Formato dos arquivos de <code>RepositorioContasArquivoBin</code> e
+ * <code>RepositorioClientesArquivoBin</code>.
+ */
+public enum FormatoArquivo {
+
+	/** Serializacao padrao do Java (<code>ObjectOutputStream</code>). */
+	SERIALIZACAO,
+
+	/** Formato binario proprio, ver <code>CodecBinario</code>. */
+	BINARIO
+}
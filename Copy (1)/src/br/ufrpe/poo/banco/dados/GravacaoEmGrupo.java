@@ -0,0 +1,247 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+/**
+ * Confirmacao em grupo (group commit) das alteracoes de um repositorio em
+ * arquivo.
+ *
+ * Cada alteracao, ja aplicada em memoria, chama <code>confirmar</code>, que so
+ * retorna quando o arquivo gravado com <code>sync</code> inclui a alteracao.
+ * Apenas uma gravacao acontece por vez: a thread que encontra o gravador livre
+ * passa a lider do lote, espera ate <code>janela</code> milissegundos para que
+ * outras alteracoes entrem no lote e faz uma unica gravacao por todas. As
+ * alteracoes que chegam durante a gravacao formam o proximo lote. Assim, com
+ * varias threads alterando o repositorio, o custo de regravar o arquivo e de
+ * sincroniza-lo com o disco e dividido pelo lote, e nenhuma alteracao espera
+ * mais do que a janela e duas gravacoes.
+ *
+ * Se a gravacao falhar, todas as alteracoes do lote recebem a excecao.
+ */
+public class GravacaoEmGrupo {
+
+	/**
+	 * Grava no arquivo o estado atual do repositorio e o sincroniza com o
+	 * disco.
+	 */
+	public interface Gravacao {
+		void gravar() throws RepositorioException;
+	}
+
+	/**
+	 * Alteracoes gravadas juntas.
+	 */
+	private static final class Lote {
+
+		boolean concluido;
+
+		RepositorioException erro;
+
+		int alteracoes;
+	}
+
+	/** Janela padrao: grava assim que o gravador fica livre. */
+	public static final long JANELA_PADRAO = 0;
+
+	private final Gravacao gravacao;
+
+	/** Espera maxima do lider por outras alteracoes, em milissegundos. */
+	private final long janela;
+
+	/** Lote que ainda aceita alteracoes. */
+	private Lote aberto = new Lote();
+
+	/** Se ha um lote sendo gravado (ou esperando a janela). */
+	private boolean gravando;
+
+	/** Lotes gravados, para estatistica. */
+	private long lotes;
+
+	/** Alteracoes confirmadas, para estatistica. */
+	private long alteracoes;
+
+	/**
+	 * Cria o gravador.
+	 *
+	 * @param gravacao
+	 *            grava e sincroniza o estado do repositorio. Deve tomar um
+	 *            retrato consistente do repositorio, pois outras threads podem
+	 *            altera-lo durante a gravacao.
+	 * @param janela
+	 *            tempo maximo, em milissegundos, que uma gravacao espera por
+	 *            outras alteracoes antes de comecar; 0 grava imediatamente,
+	 *            agrupando apenas as alteracoes feitas durante a gravacao
+	 *            anterior.
+	 */
+	public GravacaoEmGrupo(Gravacao gravacao, long janela) {
+		if (janela < 0)
+			throw new IllegalArgumentException("Janela negativa: " + janela);
+		this.gravacao = gravacao;
+		this.janela = janela;
+	}
+
+	/**
+	 * Espera ate que uma gravacao iniciada depois desta chamada termine. Deve
+	 * ser chamado depois de aplicar a alteracao em memoria e sem manter travas
+	 * que a gravacao precise.
+	 *
+	 * @throws RepositorioException
+	 *             levantada se a gravacao do lote falhar.
+	 */
+	public void confirmar() throws RepositorioException {
+		Lote lote;
+		synchronized (this) {
+			lote = this.aberto;
+			lote.alteracoes++;
+			while (this.gravando && !lote.concluido) {
+				this.esperar(0);
+			}
+			if (lote.concluido) {
+				if (lote.erro != null)
+					throw lote.erro;
+				return;
+			}
+			// gravador livre: esta thread grava o lote
+			this.gravando = true;
+			this.esperarJanela();
+			this.aberto = new Lote();
+		}
+		try {
+			this.gravacao.gravar();
+		} catch (RepositorioException e) {
+			lote.erro = e;
+		} catch (RuntimeException e) {
+			lote.erro = new RepositorioException(e);
+		} finally {
+			synchronized (this) {
+				lote.concluido = true;
+				this.gravando = false;
+				this.lotes++;
+				this.alteracoes += lote.alteracoes;
+				this.notifyAll();
+			}
+		}
+		if (lote.erro != null)
+			throw lote.erro;
+	}
+
+	private void esperar(long milissegundos) throws RepositorioException {
+		try {
+			this.wait(milissegundos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Espera a janela do lote. Uma interrupcao apenas antecipa a gravacao,
+	 * pois o lote ja tem alteracoes de outras threads.
+	 */
+	private void esperarJanela() {
+		long fim = System.nanoTime() + this.janela * 1000000L;
+		long resta;
+		while ((resta = (fim - System.nanoTime()) / 1000000L) > 0) {
+			try {
+				this.wait(resta);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Retorna o numero de gravacoes feitas.
+	 */
+	public synchronized long getLotes() {
+		return this.lotes;
+	}
+
+	/**
+	 * Retorna o numero de alteracoes confirmadas.
+	 */
+	public synchronized long getAlteracoes() {
+		return this.alteracoes;
+	}
+
+	/**
+	 * Substitui o conteudo de um arquivo de forma atomica: os dados sao
+	 * gravados e sincronizados num arquivo temporario, que entao e renomeado
+	 * sobre o original, e o diretorio e sincronizado para que a troca de nome
+	 * tambem esteja no disco quando o metodo retorna. Uma queda durante a
+	 * gravacao preserva o arquivo anterior.
+	 *
+	 * @param arquivo
+	 *            arquivo a ser substituido.
+	 * @param dados
+	 *            novo conteudo.
+	 * @throws IOException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public static void substituir(File arquivo, ByteArrayOutputStream dados)
+			throws IOException {
+		File temporario = new File(arquivo.getPath() + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(temporario)) {
+			dados.writeTo(fos);
+			fos.getFD().sync();
+		}
+		Files.move(temporario.toPath(), arquivo.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		sincronizarDiretorio(arquivo);
+	}
+
+	/**
+	 * Sincroniza com o disco o diretorio de um arquivo, gravando criacoes e
+	 * trocas de nome feitas nele. Nada e feito nos sistemas que nao abrem
+	 * diretorios para leitura, como o Windows.
+	 *
+	 * @param arquivo
+	 *            arquivo cujo diretorio e sincronizado.
+	 * @throws IOException
+	 *             levantada em caso de erro na sincronizacao.
+	 */
+	public static void sincronizarDiretorio(File arquivo) throws IOException {
+		File diretorio = arquivo.getAbsoluteFile().getParentFile();
+		if (diretorio == null)
+			return;
+		FileChannel canal;
+		try {
+			canal = FileChannel.open(diretorio.toPath(),
+					StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+		try (FileChannel c = canal) {
+			c.force(true);
+		}
+	}
+
+	/**
+	 * Acrescenta dados ao fim de um arquivo e o sincroniza com o disco.
+	 *
+	 * @param arquivo
+	 *            arquivo de destino.
+	 * @param dados
+	 *            dados a acrescentar.
+	 * @throws IOException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public static void acrescentar(File arquivo, ByteArrayOutputStream dados)
+			throws IOException {
+		try (FileOutputStream fos = new FileOutputStream(arquivo, true)) {
+			dados.writeTo(fos);
+			fos.getFD().sync();
+		}
+	}
+}
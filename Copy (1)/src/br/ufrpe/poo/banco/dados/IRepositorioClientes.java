@@ -1,5 +1,9 @@
 package br.ufrpe.poo.banco.dados;
 
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.iterator.IteratorCliente;
 import br.ufrpe.poo.banco.negocio.Cliente;
@@ -73,6 +77,16 @@ public interface IRepositorioClientes {
 	 */
 	boolean existe(String cpf);
 
+	/**
+	 * Procura pelo cliente titular de uma conta.
+	 * 
+	 * @param numeroConta
+	 *            Numero da conta associada ao cliente.
+	 * @return cliente que possui a conta. Retorna <code>null</code> se nenhum
+	 *         cliente possui a conta.
+	 */
+	Cliente procurarTitular(String numeroConta);
+
 	/**
 	 * Retorna um iterador para acessar sequencialmente os clientes do
 	 * repositorio.
@@ -83,4 +97,32 @@ public interface IRepositorioClientes {
 	 */
 	IteratorCliente getIterator();
 
+	/**
+	 * Retorna um <code>Spliterator</code> sobre os clientes do repositorio. Para
+	 * repositorios em array ele e SIZED e SUBSIZED e percorre o proprio array,
+	 * sem copia. O repositorio nao deve ser alterado durante o percurso.
+	 * 
+	 * @return spliterator sobre os clientes.
+	 */
+	default Spliterator<Cliente> spliterator() {
+		return this.getIterator().spliterator();
+	}
+
+	/**
+	 * Retorna um stream sequencial sobre os clientes do repositorio.
+	 * 
+	 * @return stream sobre os clientes.
+	 */
+	default Stream<Cliente> stream() {
+		return StreamSupport.stream(this.spliterator(), false);
+	}
+
+	/**
+	 * Retorna um stream paralelo sobre os clientes do repositorio.
+	 * 
+	 * @return stream paralelo sobre os clientes.
+	 */
+	default Stream<Cliente> parallelStream() {
+		return StreamSupport.stream(this.spliterator(), true);
+	}
 }
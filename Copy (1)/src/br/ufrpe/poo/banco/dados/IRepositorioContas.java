@@ -1,5 +1,10 @@
 package br.ufrpe.poo.banco.dados;
 
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
@@ -58,6 +63,27 @@ public interface IRepositorioContas {
 	 */
 	boolean atualizar(ContaAbstrata conta) throws RepositorioException;
 
+	/**
+	 * Atualiza varias contas no repositorio. Repositorios em arquivo devem
+	 * sobrescrever este metodo para gravar o arquivo uma unica vez.
+	 * 
+	 * @param contas
+	 *            contas a serem atualizadas.
+	 * @return quantidade de contas atualizadas. Contas que nao existem sao
+	 *         ignoradas.
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro no repositorio.
+	 */
+	default int atualizarLote(Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		int atualizadas = 0;
+		for (ContaAbstrata conta : contas) {
+			if (this.atualizar(conta))
+				atualizadas++;
+		}
+		return atualizadas;
+	}
+
 	/**
 	 * Indica se existe uma conta no repositorio.
 	 * 
@@ -78,4 +104,33 @@ public interface IRepositorioContas {
 	 *             levantada quando ocorre erro no repositorio.
 	 */
 	IteratorContaAbstrata getIterator();
+
+	/**
+	 * Retorna um <code>Spliterator</code> sobre as contas do repositorio. Para
+	 * repositorios em array ele e SIZED e SUBSIZED e percorre o proprio array,
+	 * sem copia. O repositorio nao deve ser alterado durante o percurso.
+	 * 
+	 * @return spliterator sobre as contas.
+	 */
+	default Spliterator<ContaAbstrata> spliterator() {
+		return this.getIterator().spliterator();
+	}
+
+	/**
+	 * Retorna um stream sequencial sobre as contas do repositorio.
+	 * 
+	 * @return stream sobre as contas.
+	 */
+	default Stream<ContaAbstrata> stream() {
+		return StreamSupport.stream(this.spliterator(), false);
+	}
+
+	/**
+	 * Retorna um stream paralelo sobre as contas do repositorio.
+	 * 
+	 * @return stream paralelo sobre as contas.
+	 */
+	default Stream<ContaAbstrata> parallelStream() {
+		return StreamSupport.stream(this.spliterator(), true);
+	}
 }
@@ -0,0 +1,52 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.List;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.negocio.Lancamento;
+
+/**
+ * Interface que representa um repositorio de lancamentos (extrato) das
+ * contas. Lancamentos sao apenas acrescentados, nunca alterados.
+ */
+public interface IRepositorioLancamentos {
+
+	/**
+	 * Registra um lancamento. O instante do lancamento e definido pelo
+	 * repositorio e nunca e anterior ao do lancamento registrado antes.
+	 *
+	 * @param conta
+	 *            numero da conta.
+	 * @param tipo
+	 *            tipo do lancamento.
+	 * @param valor
+	 *            valor da operacao.
+	 * @param saldo
+	 *            saldo da conta depois da operacao.
+	 * @param contrapartida
+	 *            conta do outro lado de uma transferencia, ou
+	 *            <code>null</code>.
+	 * @return lancamento registrado.
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro no repositorio.
+	 */
+	Lancamento registrar(String conta, Lancamento.Tipo tipo, double valor,
+			double saldo, String contrapartida) throws RepositorioException;
+
+	/**
+	 * Retorna os lancamentos de uma conta num intervalo de tempo, em ordem
+	 * cronologica.
+	 *
+	 * @param conta
+	 *            numero da conta.
+	 * @param inicio
+	 *            instante inicial, inclusive.
+	 * @param fim
+	 *            instante final, inclusive.
+	 * @return lancamentos da conta no intervalo.
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro no repositorio.
+	 */
+	List<Lancamento> extrato(String conta, long inicio, long fim)
+			throws RepositorioException;
+}
@@ -0,0 +1,400 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+/**
+ * Persistencia por log de alteracoes (journal) com snapshot.
+ *
+ * Cada alteracao e acrescentada ao fim do log como um registro binario
+ * <code>[tamanho][dados]</code>, com custo de escrita constante. De tempos em
+ * tempos o repositorio pede a compactacao: o log atual e renomeado, um novo
+ * log vazio e aberto e, em segundo plano, o estado completo e gravado num novo
+ * snapshot, que substitui o anterior, e o log antigo e apagado.
+ *
+ * A recuperacao le o snapshot, o log antigo (caso uma compactacao tenha sido
+ * interrompida) e o log atual. Por isso os registros devem ser idempotentes
+ * (guardar o estado final do objeto e nao a diferenca). Um registro
+ * incompleto no fim de um log (queda durante a escrita) e descartado.
+ *
+ * Um erro na gravacao do snapshot em segundo plano nao perde dados (o log
+ * antigo continua no disco e entra na proxima compactacao) e nao e levantado
+ * nas escritas seguintes: fica disponivel em <code>getErroCompactacao</code> e
+ * e levantado por <code>fechar</code>.
+ */
+public class JournalArquivo {
+
+	/**
+	 * Interpreta um registro lido do snapshot ou do log.
+	 */
+	public interface LeitorRegistro {
+		void ler(DataInputStream registro) throws IOException,
+				RepositorioException;
+	}
+
+	/**
+	 * Escreve o estado completo do repositorio num snapshot, um registro por
+	 * vez.
+	 */
+	public interface EscritorSnapshot {
+
+		/** Quantidade de registros do snapshot. */
+		int total();
+
+		/** Escreve o i-esimo registro do snapshot. */
+		void escrever(int i, DataOutputStream registro) throws IOException;
+	}
+
+	/** Arquivo com o ultimo snapshot. */
+	private final File snapshot;
+
+	/** Arquivo de log atual. */
+	private final File log;
+
+	/** Log renomeado durante uma compactacao. */
+	private final File logAntigo;
+
+	/** Fluxo de escrita no fim do log. */
+	private FileOutputStream saida;
+
+	/** Buffer reutilizado para montar o registro atual. */
+	private final ByteArrayOutputStream buffer;
+
+	/** Escrita tipada sobre o buffer do registro atual. */
+	private final DataOutputStream registro;
+
+	/**
+	 * Registros no log desde a ultima compactacao, inclusive os lidos na
+	 * recuperacao.
+	 */
+	private int registrosNoLog;
+
+	/** Momento da ultima compactacao ou da recuperacao, em milissegundos. */
+	private long ultimaCompactacao;
+
+	/** Executa as compactacoes fora da thread que altera o repositorio. */
+	private final ExecutorService compactador;
+
+	/** Compactacao em andamento, se houver. */
+	private Future<?> compactacao;
+
+	/** Erro da ultima compactacao terminada, ou null se ela terminou bem. */
+	private volatile Exception erroCompactacao;
+
+	/**
+	 * Constroi um journal sobre os arquivos informados.
+	 *
+	 * @param snapshot
+	 *            arquivo com o snapshot do estado.
+	 * @param log
+	 *            arquivo com o log de alteracoes.
+	 */
+	public JournalArquivo(File snapshot, File log) {
+		this.snapshot = snapshot;
+		this.log = log;
+		this.logAntigo = new File(log.getPath() + ".antigo");
+		this.buffer = new ByteArrayOutputStream(64);
+		this.registro = new DataOutputStream(this.buffer);
+		this.compactador = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "compactacao-" + log.getName());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Le o snapshot e os logs existentes e abre o log para escrita, criando o
+	 * diretorio do log se preciso. Um registro incompleto no fim de um dos
+	 * logs (queda durante a escrita) e descartado e o log e truncado antes
+	 * dele, para que os registros acrescentados depois continuem legiveis.
+	 *
+	 * @param leitor
+	 *            interpreta cada registro lido.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura dos arquivos.
+	 */
+	public void recuperar(LeitorRegistro leitor) throws RepositorioException {
+		try {
+			File diretorio = this.log.getAbsoluteFile().getParentFile();
+			if (diretorio != null)
+				Files.createDirectories(diretorio.toPath());
+			int[] registros = new int[1];
+			lerArquivo(this.snapshot, leitor, registros);
+			registros[0] = 0;
+			truncar(this.logAntigo, lerArquivo(this.logAntigo, leitor, registros));
+			truncar(this.log, lerArquivo(this.log, leitor, registros));
+			this.saida = new FileOutputStream(this.log, true);
+			this.registrosNoLog = registros[0];
+			this.ultimaCompactacao = System.currentTimeMillis();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Le todos os registros completos de um arquivo.
+	 *
+	 * @param registros
+	 *            contador, incrementado a cada registro lido.
+	 * @return posicao do fim do ultimo registro completo.
+	 */
+	private static long lerArquivo(File arquivo, LeitorRegistro leitor,
+			int[] registros) throws IOException, RepositorioException {
+		if (!arquivo.exists())
+			return 0;
+		long valido = 0;
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(arquivo), 1 << 16))) {
+			byte[] dados = new byte[64];
+			while (true) {
+				int tamanho;
+				try {
+					tamanho = dis.readInt();
+					if (tamanho < 0)
+						break;
+					if (dados.length < tamanho)
+						dados = new byte[Math.max(tamanho, dados.length * 2)];
+					dis.readFully(dados, 0, tamanho);
+				} catch (EOFException e) {
+					break;
+				}
+				leitor.ler(new DataInputStream(new ByteArrayInputStream(dados,
+						0, tamanho)));
+				valido += 4 + tamanho;
+				registros[0]++;
+			}
+		}
+		return valido;
+	}
+
+	/**
+	 * Descarta o que houver no arquivo depois da posicao informada.
+	 */
+	private static void truncar(File arquivo, long valido) throws IOException {
+		if (arquivo.exists() && arquivo.length() != valido) {
+			try (RandomAccessFile raf = new RandomAccessFile(arquivo, "rw")) {
+				raf.setLength(valido);
+			}
+		}
+	}
+
+	/**
+	 * Inicia um novo registro. Os dados devem ser escritos no fluxo retornado
+	 * e o registro concluido com <code>gravarRegistro</code>.
+	 *
+	 * @return fluxo para os dados do registro.
+	 */
+	public DataOutputStream novoRegistro() {
+		this.buffer.reset();
+		return this.registro;
+	}
+
+	/**
+	 * Acrescenta o registro atual ao fim do log com uma unica escrita.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na escrita do log.
+	 */
+	public void gravarRegistro() throws RepositorioException {
+		try {
+			byte[] dados = enquadrar(this.buffer);
+			this.saida.write(dados);
+			this.registrosNoLog++;
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Prefixa os dados do buffer com o seu tamanho.
+	 */
+	private static byte[] enquadrar(ByteArrayOutputStream buffer) {
+		int tamanho = buffer.size();
+		byte[] dados = new byte[4 + tamanho];
+		dados[0] = (byte) (tamanho >>> 24);
+		dados[1] = (byte) (tamanho >>> 16);
+		dados[2] = (byte) (tamanho >>> 8);
+		dados[3] = (byte) tamanho;
+		System.arraycopy(buffer.toByteArray(), 0, dados, 4, tamanho);
+		return dados;
+	}
+
+	/**
+	 * Forca a gravacao no disco dos registros ja acrescentados ao log.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na sincronizacao do log.
+	 */
+	public void sincronizar() throws RepositorioException {
+		try {
+			this.saida.getFD().sync();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	public int getRegistrosNoLog() {
+		return this.registrosNoLog;
+	}
+
+	/**
+	 * Retorna o momento em que a ultima compactacao foi iniciada (ou em que o
+	 * journal foi recuperado, se ainda nao houve compactacao).
+	 *
+	 * @return milissegundos desde 1970.
+	 */
+	public long getUltimaCompactacao() {
+		return this.ultimaCompactacao;
+	}
+
+	/**
+	 * Indica se ha uma compactacao em andamento.
+	 *
+	 * @return se a ultima compactacao ainda nao terminou.
+	 */
+	public boolean isCompactando() {
+		return this.compactacao != null && !this.compactacao.isDone();
+	}
+
+	/**
+	 * Retorna o erro da ultima compactacao terminada.
+	 *
+	 * @return o erro, ou null se a ultima compactacao terminou bem (ou ainda
+	 *         nao houve nenhuma).
+	 */
+	public Exception getErroCompactacao() {
+		return this.erroCompactacao;
+	}
+
+	/**
+	 * Inicia a compactacao do log. O log atual e fechado e renomeado nesta
+	 * thread; o snapshot e escrito em segundo plano. Nada e feito se ja houver
+	 * uma compactacao em andamento. Um erro da compactacao anterior nao e
+	 * levantado aqui (ver <code>getErroCompactacao</code>).
+	 *
+	 * @param estado
+	 *            copia do estado do repositorio no momento da chamada.
+	 * @return se a compactacao foi iniciada.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro ao trocar o log.
+	 */
+	public boolean compactar(final EscritorSnapshot estado)
+			throws RepositorioException {
+		if (this.isCompactando())
+			return false;
+		try {
+			this.saida.close();
+			if (this.logAntigo.exists()) {
+				// sobra de uma compactacao interrompida: ainda nao esta em
+				// nenhum snapshot, entao o log atual e acrescentado a ela
+				try (FileOutputStream fos = new FileOutputStream(
+						this.logAntigo, true)) {
+					Files.copy(this.log.toPath(), fos);
+				}
+				Files.delete(this.log.toPath());
+			} else {
+				Files.move(this.log.toPath(), this.logAntigo.toPath());
+			}
+			this.saida = new FileOutputStream(this.log, true);
+			this.registrosNoLog = 0;
+			this.ultimaCompactacao = System.currentTimeMillis();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		this.compactacao = this.compactador.submit(() -> {
+			try {
+				gravarSnapshot(estado);
+				this.erroCompactacao = null;
+			} catch (IOException | RuntimeException e) {
+				this.erroCompactacao = e;
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Grava o snapshot num arquivo temporario, substitui o snapshot anterior e
+	 * apaga o log antigo.
+	 */
+	private void gravarSnapshot(EscritorSnapshot estado) throws IOException {
+		File temporario = new File(this.snapshot.getPath() + ".tmp");
+		ByteArrayOutputStream bufferSnapshot = new ByteArrayOutputStream(64);
+		DataOutputStream registroSnapshot = new DataOutputStream(bufferSnapshot);
+		try (FileOutputStream fos = new FileOutputStream(temporario);
+				BufferedOutputStream bos = new BufferedOutputStream(fos, 1 << 16)) {
+			int total = estado.total();
+			for (int i = 0; i < total; i++) {
+				bufferSnapshot.reset();
+				estado.escrever(i, registroSnapshot);
+				bos.write(enquadrar(bufferSnapshot));
+			}
+			bos.flush();
+			fos.getFD().sync();
+		}
+		Files.move(temporario.toPath(), this.snapshot.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		// o snapshot novo deve estar no disco antes de o log antigo sumir
+		GravacaoEmGrupo.sincronizarDiretorio(this.snapshot);
+		Files.deleteIfExists(this.logAntigo.toPath());
+	}
+
+	/**
+	 * Aguarda o fim da compactacao em andamento, se houver.
+	 */
+	private void aguardarCompactacao() throws RepositorioException {
+		if (this.compactacao == null)
+			return;
+		try {
+			this.compactacao.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositorioException(e);
+		} catch (ExecutionException e) {
+			throw new RepositorioException(e.getCause());
+		} finally {
+			this.compactacao = null;
+		}
+	}
+
+	/**
+	 * Aguarda a compactacao em andamento e fecha o log.
+	 *
+	 * @throws RepositorioException
+	 *             levantada se a ultima compactacao falhou ou em caso de erro
+	 *             no fechamento.
+	 */
+	public void fechar() throws RepositorioException {
+		try {
+			this.aguardarCompactacao();
+			if (this.erroCompactacao != null)
+				throw new RepositorioException(this.erroCompactacao);
+		} finally {
+			this.compactador.shutdown();
+			try {
+				if (this.saida != null)
+					this.saida.close();
+			} catch (IOException e) {
+				throw new RepositorioException(e);
+			}
+		}
+	}
+}
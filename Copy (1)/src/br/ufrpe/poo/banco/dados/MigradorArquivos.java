@@ -0,0 +1,91 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+/**
+ * Converte os arquivos de contas e clientes da serializacao do Java para o
+ * formato de <code>CodecBinario</code>. Uma copia do arquivo original e
+ * mantida com a extensao <code>.serial</code>.
+ *
+ * Uso: <code>java br.ufrpe.poo.banco.dados.MigradorArquivos [contas.dat]
+ * [clientes.dat]</code>
+ */
+public final class MigradorArquivos {
+
+	/** Extensao acrescentada a copia do arquivo original. */
+	public static final String EXTENSAO_COPIA = ".serial";
+
+	private MigradorArquivos() {
+	}
+
+	/**
+	 * Converte um arquivo de contas para o formato binario.
+	 *
+	 * @param arquivo
+	 *            arquivo de contas.
+	 * @return se o arquivo foi convertido; arquivos vazios ou ja no formato
+	 *         binario nao sao alterados.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura ou escrita.
+	 */
+	public static boolean migrarContas(File arquivo)
+			throws RepositorioException {
+		if (!copiarSerializado(arquivo))
+			return false;
+		new RepositorioContasArquivoBin(new RepositorioContasHash(), arquivo,
+				FormatoArquivo.BINARIO).gravarArquivo();
+		return true;
+	}
+
+	/**
+	 * Converte um arquivo de clientes para o formato binario.
+	 *
+	 * @param arquivo
+	 *            arquivo de clientes.
+	 * @return se o arquivo foi convertido; arquivos vazios ou ja no formato
+	 *         binario nao sao alterados.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura ou escrita.
+	 */
+	public static boolean migrarClientes(File arquivo)
+			throws RepositorioException {
+		if (!copiarSerializado(arquivo))
+			return false;
+		new RepositorioClientesArquivoBin(new RepositorioClientesHash(),
+				arquivo, FormatoArquivo.BINARIO).gravarArquivo();
+		return true;
+	}
+
+	/**
+	 * Copia o arquivo, se ele estiver na serializacao do Java.
+	 *
+	 * @return se o arquivo esta na serializacao do Java.
+	 */
+	private static boolean copiarSerializado(File arquivo)
+			throws RepositorioException {
+		try {
+			if (CodecBinario.detectar(arquivo) != FormatoArquivo.SERIALIZACAO)
+				return false;
+			Files.copy(arquivo.toPath(),
+					new File(arquivo.getPath() + EXTENSAO_COPIA).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	public static void main(String[] args) throws RepositorioException {
+		File contas = new File(args.length > 0 ? args[0] : "contas.dat");
+		File clientes = new File(args.length > 1 ? args[1] : "clientes.dat");
+		System.out.println(contas + (migrarContas(contas) ? " convertido"
+				: " nao precisa ser convertido"));
+		System.out.println(clientes + (migrarClientes(clientes) ? " convertido"
+				: " nao precisa ser convertido"));
+	}
+}
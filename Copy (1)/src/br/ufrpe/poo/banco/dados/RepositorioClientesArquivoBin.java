@@ -1,10 +1,11 @@
 package br.ufrpe.poo.banco.dados;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -12,11 +13,23 @@ import java.io.ObjectOutputStream;
 import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.iterator.IteratorCliente;
 import br.ufrpe.poo.banco.negocio.Cliente;
+import br.ufrpe.poo.banco.negocio.Metricas;
+import br.ufrpe.poo.banco.negocio.MetricasOperacao;
 
 /**
  * Implementacao de repositorio de clientes que persiste os objetos das contas
  * em arquivo.
  * 
+ * O arquivo pode estar na serializacao padrao do Java ou no formato de
+ * <code>CodecBinario</code>; o formato e reconhecido na leitura. As gravacoes
+ * usam o formato escolhido no construtor ou, se nenhum for escolhido, o
+ * formato do arquivo existente.
+ * 
+ * Cada alteracao e aplicada em memoria e confirmada por
+ * <code>GravacaoEmGrupo</code>: o arquivo e regravado de forma atomica e
+ * sincronizado com o disco antes de a alteracao retornar, e alteracoes de
+ * varias threads sao gravadas juntas.
+ * 
  * @author
  * 
  */
@@ -25,18 +38,37 @@ public class RepositorioClientesArquivoBin implements IRepositorioClientes {
 	/**
 	 * Clientes do arquivo sao guardadas em memoria num repositorio de clientes.
 	 */
-	private RepositorioClientesArray clientes;
+	private IRepositorioClientes clientes;
 
 	/**
 	 * Caminho para arquivo que guarda as informacoes das clientes.
 	 */
-	private final String ARQUIVO = "clientes.dat";
+	private static final String ARQUIVO = "clientes.dat";
 
 	/**
 	 * Arquivo que armazena os clientes.
 	 */
 	private File arquivoClientes;
 
+	/**
+	 * Formato das gravacoes do arquivo.
+	 */
+	private FormatoArquivo formato;
+
+	/**
+	 * Confirma as alteracoes, gravando varias de uma vez.
+	 */
+	private GravacaoEmGrupo grupo;
+
+	/**
+	 * Buffer reutilizado com o conteudo da proxima gravacao.
+	 */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+	/** Tempos e erros das gravacoes do arquivo. */
+	private final MetricasOperacao metricasGravacao = Metricas.getPadrao()
+			.operacao("clientes.gravarArquivo");
+
 	/**
 	 * Constroi um repositorio a partir de clientes armazenadas em arquivo.
 	 * 
@@ -44,12 +76,75 @@ public class RepositorioClientesArquivoBin implements IRepositorioClientes {
 	 *             Lancada quando ocorre erro no repositorio.
 	 */
 	public RepositorioClientesArquivoBin() throws RepositorioException {
+		this(new RepositorioClientesHash());
+	}
+
+	/**
+	 * Constroi um repositorio a partir de clientes armazenadas em arquivo,
+	 * mantendo-os em memoria no repositorio informado.
+	 * 
+	 * @param clientes
+	 *            Repositorio vazio que guarda os clientes em memoria (ex.:
+	 *            <code>RepositorioClientesHash</code>).
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioClientesArquivoBin(IRepositorioClientes clientes)
+			throws RepositorioException {
+		this(clientes, new File(ARQUIVO), null);
+	}
+
+	/**
+	 * Constroi um repositorio a partir de clientes armazenados em arquivo.
+	 * 
+	 * @param clientes
+	 *            Repositorio vazio que guarda os clientes em memoria.
+	 * @param arquivo
+	 *            Arquivo dos clientes.
+	 * @param formato
+	 *            Formato das gravacoes; <code>null</code> mantem o formato do
+	 *            arquivo existente (serializacao, se o arquivo estiver vazio).
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioClientesArquivoBin(IRepositorioClientes clientes,
+			File arquivo, FormatoArquivo formato) throws RepositorioException {
+		this(clientes, arquivo, formato, GravacaoEmGrupo.JANELA_PADRAO);
+	}
+
+	/**
+	 * Constroi um repositorio a partir de clientes armazenados em arquivo.
+	 * 
+	 * @param clientes
+	 *            Repositorio vazio que guarda os clientes em memoria.
+	 * @param arquivo
+	 *            Arquivo dos clientes.
+	 * @param formato
+	 *            Formato das gravacoes; <code>null</code> mantem o formato do
+	 *            arquivo existente (serializacao, se o arquivo estiver vazio).
+	 * @param janela
+	 *            Tempo maximo, em milissegundos, que uma gravacao espera por
+	 *            outras alteracoes (ver <code>GravacaoEmGrupo</code>).
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioClientesArquivoBin(IRepositorioClientes clientes,
+			File arquivo, FormatoArquivo formato, long janela)
+			throws RepositorioException {
+		this.grupo = new GravacaoEmGrupo(
+				() -> this.metricasGravacao.medir(this::gravarAgora), janela);
 		try {
-			this.clientes = new RepositorioClientesArray();
-			arquivoClientes = new File(this.ARQUIVO);
+			this.clientes = clientes;
+			arquivoClientes = arquivo;
 			arquivoClientes.createNewFile();
-			if (arquivoClientes.length() != 0)
+			FormatoArquivo atual = CodecBinario.detectar(arquivoClientes);
+			if (atual == FormatoArquivo.BINARIO)
+				CodecBinario.lerClientes(arquivoClientes, clientes);
+			else if (atual == FormatoArquivo.SERIALIZACAO)
 				this.lerArquivo();
+			if (formato == null)
+				formato = atual == null ? FormatoArquivo.SERIALIZACAO : atual;
+			this.formato = formato;
 		} catch (IOException e) {
 			throw new RepositorioException(e);
 		}
@@ -92,39 +187,50 @@ public class RepositorioClientesArquivoBin implements IRepositorioClientes {
 	}
 
 	/**
-	 * Serializa todos os clientes do array em um arquivo.
+	 * Grava todos os clientes no arquivo e espera a sincronizacao com o disco.
+	 * Chamadas concorrentes sao atendidas por uma unica gravacao.
 	 * 
 	 * @throws RepositorioException
 	 *             Lancada caso ocorre um erro com o arquivo.
 	 */
 	public void gravarArquivo() throws RepositorioException {
-		FileOutputStream fosBanco = null;
-		ObjectOutputStream oosBanco = null;
+		this.grupo.confirmar();
+	}
+
+	/**
+	 * Serializa os clientes no buffer, com o repositorio travado, e substitui
+	 * o arquivo pelo conteudo do buffer.
+	 */
+	private void gravarAgora() throws RepositorioException {
 		try {
-			fosBanco = new FileOutputStream(this.arquivoClientes, false);
-			oosBanco = new ObjectOutputStream(fosBanco);
-			IteratorCliente it = this.clientes.getIterator();
-			while (it.hasNext()) {
-				Cliente cliente = it.next();
-				oosBanco.writeObject(cliente);
+			this.buffer.reset();
+			synchronized (this) {
+				if (this.formato == FormatoArquivo.BINARIO) {
+					DataOutputStream dos = new DataOutputStream(this.buffer);
+					CodecBinario.escreverClientes(dos,
+							this.clientes.getIterator());
+					dos.flush();
+				} else {
+					ObjectOutputStream oos = new ObjectOutputStream(this.buffer);
+					IteratorCliente it = this.clientes.getIterator();
+					while (it.hasNext()) {
+						oos.writeObject(it.next());
+					}
+					oos.flush();
+				}
 			}
-		} catch (FileNotFoundException e) {
-			throw new RepositorioException(e);
+			GravacaoEmGrupo.substituir(this.arquivoClientes, this.buffer);
 		} catch (IOException e) {
 			throw new RepositorioException(e);
-		} finally {
-			try {
-				fosBanco.close();
-				oosBanco.close();
-			} catch (IOException e) {
-				throw new RepositorioException(e);
-			}
 		}
 	}
 
 	@Override
 	public boolean inserir(Cliente cliente) throws RepositorioException {
-		boolean sucesso = this.clientes.inserir(cliente);
+		boolean sucesso;
+		synchronized (this) {
+			sucesso = this.clientes.inserir(cliente);
+		}
 		if (sucesso) {
 			this.gravarArquivo();
 		}
@@ -138,7 +244,10 @@ public class RepositorioClientesArquivoBin implements IRepositorioClientes {
 
 	@Override
 	public boolean remover(String cpf) throws RepositorioException {
-		boolean sucesso = this.clientes.remover(cpf);
+		boolean sucesso;
+		synchronized (this) {
+			sucesso = this.clientes.remover(cpf);
+		}
 		if (sucesso) {
 			this.gravarArquivo();
 		}
@@ -147,7 +256,10 @@ public class RepositorioClientesArquivoBin implements IRepositorioClientes {
 
 	@Override
 	public boolean atualizar(Cliente cliente) throws RepositorioException {
-		boolean sucesso = this.clientes.atualizar(cliente);
+		boolean sucesso;
+		synchronized (this) {
+			sucesso = this.clientes.atualizar(cliente);
+		}
 		if (sucesso) {
 			this.gravarArquivo();
 		}
@@ -159,6 +271,11 @@ public class RepositorioClientesArquivoBin implements IRepositorioClientes {
 		return this.clientes.existe(cpf);
 	}
 
+	@Override
+	public Cliente procurarTitular(String numeroConta) {
+		return this.clientes.procurarTitular(numeroConta);
+	}
+
 	@Override
 	public IteratorCliente getIterator() {
 		return this.clientes.getIterator();
@@ -0,0 +1,299 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorCliente;
+import br.ufrpe.poo.banco.negocio.Cliente;
+
+/**
+ * Implementacao de repositorio de clientes que persiste as alteracoes em um
+ * log binario (journal) em vez de regravar todos os clientes a cada operacao.
+ *
+ * Cada <code>inserir</code>, <code>atualizar</code> e <code>remover</code>
+ * acrescenta ao log um registro com a operacao, o cpf, o nome e os numeros
+ * das contas do cliente. O log e compactado em segundo plano num snapshot e
+ * relido na inicializacao. Ver <code>JournalArquivo</code>.
+ *
+ * @author
+ *
+ */
+public class RepositorioClientesArquivoJournal implements IRepositorioClientes {
+
+	/**
+	 * Registro de insercao de cliente.
+	 */
+	static final byte INSERIR = 'I';
+
+	/**
+	 * Registro de atualizacao de cliente.
+	 */
+	static final byte ATUALIZAR = 'A';
+
+	/**
+	 * Registro de remocao de cliente.
+	 */
+	static final byte REMOVER = 'R';
+
+	/**
+	 * Minimo de registros no log antes de uma compactacao.
+	 */
+	private static final int LIMITE_LOG = 10000;
+
+	/**
+	 * Nome do arquivo do snapshot dos clientes.
+	 */
+	public static final String ARQUIVO_SNAPSHOT = "clientes.snap";
+
+	/**
+	 * Nome do arquivo do log de alteracoes dos clientes.
+	 */
+	public static final String ARQUIVO_LOG = "clientes.log";
+
+	/**
+	 * Clientes sao guardados em memoria num repositorio de clientes.
+	 */
+	private IRepositorioClientes clientes;
+
+	/**
+	 * Numero de clientes do repositorio.
+	 */
+	private int total;
+
+	/**
+	 * Log de alteracoes e snapshot.
+	 */
+	private JournalArquivo journal;
+
+	/**
+	 * Constroi um repositorio a partir dos arquivos padrao no diretorio de
+	 * trabalho, mantendo os clientes em memoria num
+	 * <code>RepositorioClientesHash</code>.
+	 *
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioClientesArquivoJournal() throws RepositorioException {
+		this(new File("."));
+	}
+
+	/**
+	 * Constroi um repositorio a partir dos arquivos
+	 * <code>clientes.snap</code> e <code>clientes.log</code> de um diretorio,
+	 * criado se preciso, mantendo os clientes em memoria num
+	 * <code>RepositorioClientesHash</code>.
+	 *
+	 * @param diretorio
+	 *            Diretorio do snapshot e do log.
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioClientesArquivoJournal(File diretorio)
+			throws RepositorioException {
+		this(new RepositorioClientesHash(), new File(diretorio,
+				ARQUIVO_SNAPSHOT), new File(diretorio, ARQUIVO_LOG));
+	}
+
+	/**
+	 * Constroi um repositorio a partir de um snapshot e de um log.
+	 *
+	 * @param clientes
+	 *            Repositorio vazio que guarda os clientes em memoria.
+	 * @param snapshot
+	 *            Arquivo do snapshot.
+	 * @param log
+	 *            Arquivo do log de alteracoes.
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioClientesArquivoJournal(IRepositorioClientes clientes,
+			File snapshot, File log) throws RepositorioException {
+		this.clientes = clientes;
+		this.journal = new JournalArquivo(snapshot, log);
+		this.journal.recuperar(this::aplicar);
+	}
+
+	/**
+	 * Aplica ao repositorio em memoria um registro lido do snapshot ou do log.
+	 */
+	private void aplicar(DataInputStream registro) throws IOException,
+			RepositorioException {
+		byte operacao = registro.readByte();
+		String cpf = registro.readUTF();
+		if (operacao == REMOVER) {
+			if (this.clientes.remover(cpf))
+				this.total--;
+			return;
+		}
+		Cliente cliente = new Cliente(registro.readUTF(), cpf);
+		int quantidade = registro.readInt();
+		for (int i = 0; i < quantidade; i++) {
+			cliente.getContas().add(registro.readUTF());
+		}
+		if (!this.clientes.atualizar(cliente) && this.clientes.inserir(cliente))
+			this.total++;
+	}
+
+	/**
+	 * Escreve o estado de um cliente num registro.
+	 */
+	private static void escrever(DataOutputStream registro, byte operacao,
+			String cpf, String nome, List<String> contas) throws IOException {
+		registro.writeByte(operacao);
+		registro.writeUTF(cpf);
+		registro.writeUTF(nome == null ? "" : nome);
+		if (contas == null) {
+			registro.writeInt(0);
+			return;
+		}
+		registro.writeInt(contas.size());
+		for (String numero : contas) {
+			registro.writeUTF(numero);
+		}
+	}
+
+	/**
+	 * Acrescenta a alteracao de um cliente ao log.
+	 *
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra um erro com o arquivo.
+	 */
+	private void registrar(byte operacao, Cliente cliente)
+			throws RepositorioException {
+		try {
+			escrever(this.journal.novoRegistro(), operacao, cliente.getCpf(),
+					cliente.getNome(), cliente.getContas());
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		this.journal.gravarRegistro();
+		this.compactarSeNecessario();
+	}
+
+	/**
+	 * Inicia a compactacao do log quando ele tem mais registros que o
+	 * repositorio tem clientes.
+	 *
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra um erro com o arquivo.
+	 */
+	private void compactarSeNecessario() throws RepositorioException {
+		int registros = this.journal.getRegistrosNoLog();
+		if (registros < LIMITE_LOG || registros < this.total
+				|| this.journal.isCompactando())
+			return;
+		this.compactar();
+	}
+
+	/**
+	 * Compacta o log num snapshot. Os dados dos clientes sao copiados nesta
+	 * thread e gravados em segundo plano.
+	 *
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra um erro com o arquivo.
+	 */
+	public void compactar() throws RepositorioException {
+		final String[] cpfs = new String[this.total];
+		final String[] nomes = new String[this.total];
+		final List<List<String>> contas = new ArrayList<List<String>>(
+				this.total);
+		IteratorCliente it = this.clientes.getIterator();
+		int n = 0;
+		while (it.hasNext() && n < this.total) {
+			Cliente c = it.next();
+			cpfs[n] = c.getCpf();
+			nomes[n] = c.getNome();
+			contas.add(c.getContas() == null ? null : new ArrayList<String>(
+					c.getContas()));
+			n++;
+		}
+		final int quantidade = n;
+		this.journal.compactar(new JournalArquivo.EscritorSnapshot() {
+
+			@Override
+			public int total() {
+				return quantidade;
+			}
+
+			@Override
+			public void escrever(int i, DataOutputStream registro)
+					throws IOException {
+				RepositorioClientesArquivoJournal.escrever(registro, INSERIR,
+						cpfs[i], nomes[i], contas.get(i));
+			}
+		});
+	}
+
+	/**
+	 * Aguarda a compactacao em andamento e fecha o log.
+	 *
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra um erro com o arquivo.
+	 */
+	public void fechar() throws RepositorioException {
+		this.journal.fechar();
+	}
+
+	@Override
+	public boolean inserir(Cliente cliente) throws RepositorioException {
+		boolean sucesso = this.clientes.inserir(cliente);
+		if (sucesso) {
+			this.total++;
+			this.registrar(INSERIR, cliente);
+		}
+		return sucesso;
+	}
+
+	@Override
+	public Cliente procurar(String cpf) {
+		return this.clientes.procurar(cpf);
+	}
+
+	@Override
+	public boolean remover(String cpf) throws RepositorioException {
+		boolean sucesso = this.clientes.remover(cpf);
+		if (sucesso) {
+			this.total--;
+			try {
+				DataOutputStream registro = this.journal.novoRegistro();
+				registro.writeByte(REMOVER);
+				registro.writeUTF(cpf);
+			} catch (IOException e) {
+				throw new RepositorioException(e);
+			}
+			this.journal.gravarRegistro();
+			this.compactarSeNecessario();
+		}
+		return sucesso;
+	}
+
+	@Override
+	public boolean atualizar(Cliente cliente) throws RepositorioException {
+		boolean sucesso = this.clientes.atualizar(cliente);
+		if (sucesso) {
+			this.registrar(ATUALIZAR, cliente);
+		}
+		return sucesso;
+	}
+
+	@Override
+	public boolean existe(String cpf) {
+		return this.clientes.existe(cpf);
+	}
+
+	@Override
+	public Cliente procurarTitular(String numeroConta) {
+		return this.clientes.procurarTitular(numeroConta);
+	}
+
+	@Override
+	public IteratorCliente getIterator() {
+		return this.clientes.getIterator();
+	}
+
+}
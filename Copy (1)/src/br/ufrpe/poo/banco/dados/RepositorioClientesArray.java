@@ -116,9 +116,18 @@ public class RepositorioClientesArray implements IRepositorioClientes {
 		return (i != this.indice);
 	}
 
+	@Override
+	public Cliente procurarTitular(String numeroConta) {
+		for (int i = 0; i < this.indice; i++) {
+			if (clientes[i].procurarConta(numeroConta) != -1)
+				return clientes[i];
+		}
+		return null;
+	}
+
 	@Override
 	public IteratorCliente getIterator() {
-		return new IteratorClienteArray(this.clientes);
+		return new IteratorClienteArray(this.clientes, this.indice);
 	}
 
 }
@@ -0,0 +1,218 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorCliente;
+import br.ufrpe.poo.banco.iterator.IteratorClienteArray;
+import br.ufrpe.poo.banco.negocio.Cliente;
+
+/**
+ * Implementacao do repositorio de clientes que mantem os clientes em array,
+ * indexados por cpf, e que mantem um indice reverso do numero de cada conta
+ * para o cpf do seu titular.
+ *
+ * Os indices sao atualizados em <code>inserir</code>, <code>atualizar</code>
+ * e <code>remover</code>. Como <code>Cliente</code> e alterado no proprio
+ * objeto (ex.: <code>adicionarConta</code>), o repositorio guarda uma copia
+ * da lista de contas indexada de cada cliente para saber o que mudou.
+ *
+ * O repositorio nao impede que dois clientes listem a mesma conta (quem
+ * impede e <code>Banco.associarConta</code>). Nesse caso o primeiro titular
+ * indexado fica no indice reverso e os demais ficam guardados a parte; um
+ * deles passa a ser o titular indexado quando o primeiro deixa a conta.
+ *
+ * @author
+ *
+ */
+public class RepositorioClientesHash implements IRepositorioClientes {
+
+	/**
+	 * Array que mantem os clientes.
+	 */
+	private Cliente[] clientes;
+
+	/**
+	 * Proxima posicao livre do array.
+	 */
+	private int indice;
+
+	/**
+	 * Indice do cliente no array a partir do cpf.
+	 */
+	private HashMap<String, Integer> indicePorCpf;
+
+	/**
+	 * Cpf do titular a partir do numero da conta.
+	 */
+	private HashMap<String, String> titularPorConta;
+
+	/**
+	 * Cpfs dos demais titulares das contas com mais de um titular.
+	 */
+	private HashMap<String, ArrayList<String>> outrosTitulares;
+
+	/**
+	 * Numeros de conta indexados para cada cpf.
+	 */
+	private HashMap<String, ArrayList<String>> contasIndexadas;
+
+	/**
+	 * Constroi um repositorio com array indexado.
+	 *
+	 * Tamanho inicial sao 100 posicoes.
+	 */
+	public RepositorioClientesHash() {
+		this.clientes = new Cliente[100];
+		this.indice = 0;
+		this.indicePorCpf = new HashMap<String, Integer>();
+		this.titularPorConta = new HashMap<String, String>();
+		this.outrosTitulares = new HashMap<String, ArrayList<String>>();
+		this.contasIndexadas = new HashMap<String, ArrayList<String>>();
+	}
+
+	/**
+	 * Retorna o indice do cliente no array.
+	 *
+	 * @param cpf
+	 *            Numero do cpf cujo indice eh retornado.
+	 * @return indice do cliente no array. Igual a this.indice caso o cliente
+	 *         nao exista.
+	 */
+	private int getIndice(String cpf) {
+		Integer i = this.indicePorCpf.get(cpf);
+		return i == null ? this.indice : i;
+	}
+
+	/**
+	 * Indexa as contas atuais do cliente, desfazendo a indexacao anterior.
+	 *
+	 * @param cliente
+	 *            Cliente cujas contas serao indexadas.
+	 */
+	private void indexarContas(Cliente cliente) {
+		this.desindexarContas(cliente.getCpf());
+		ArrayList<String> contas = cliente.getContas();
+		if (contas == null || contas.isEmpty())
+			return;
+		for (String numero : contas) {
+			String titular = this.titularPorConta.putIfAbsent(numero,
+					cliente.getCpf());
+			if (titular != null)
+				this.outrosTitulares.computeIfAbsent(numero,
+						n -> new ArrayList<String>(1)).add(cliente.getCpf());
+		}
+		this.contasIndexadas.put(cliente.getCpf(), new ArrayList<String>(contas));
+	}
+
+	/**
+	 * Remove do indice reverso as contas indexadas para o cpf.
+	 *
+	 * @param cpf
+	 *            Numero do cpf do cliente.
+	 */
+	private void desindexarContas(String cpf) {
+		ArrayList<String> anteriores = this.contasIndexadas.remove(cpf);
+		if (anteriores == null)
+			return;
+		for (String numero : anteriores) {
+			this.desindexarConta(numero, cpf);
+		}
+	}
+
+	/**
+	 * Retira um titular de uma conta do indice reverso. Se era o titular
+	 * indexado e a conta tem outros, o mais antigo deles passa a ser o
+	 * indexado.
+	 *
+	 * @param numero
+	 *            Numero da conta.
+	 * @param cpf
+	 *            Numero do cpf do titular.
+	 */
+	private void desindexarConta(String numero, String cpf) {
+		ArrayList<String> outros = this.outrosTitulares.get(numero);
+		if (this.titularPorConta.remove(numero, cpf)) {
+			if (outros == null)
+				return;
+			this.titularPorConta.put(numero, outros.remove(0));
+		} else if (outros == null || !outros.remove(cpf)) {
+			return;
+		}
+		if (outros.isEmpty())
+			this.outrosTitulares.remove(numero);
+	}
+
+	@Override
+	public boolean inserir(Cliente cliente) throws RepositorioException {
+		if (this.existe(cliente.getCpf())) {
+			return false;
+		}
+
+		if (clientes.length == indice) {
+			Cliente[] aux = new Cliente[clientes.length * 2];
+			System.arraycopy(clientes, 0, aux, 0, indice);
+			this.clientes = aux;
+		}
+		clientes[indice] = cliente;
+		this.indicePorCpf.put(cliente.getCpf(), indice);
+		this.indexarContas(cliente);
+		indice = indice + 1;
+		return true;
+	}
+
+	@Override
+	public Cliente procurar(String cpf) {
+		Cliente cliente = null;
+		int i = this.getIndice(cpf);
+		if (i < this.indice) {
+			cliente = this.clientes[i];
+		}
+		return cliente;
+	}
+
+	@Override
+	public boolean remover(String cpf) throws RepositorioException {
+		Integer i = this.indicePorCpf.remove(cpf);
+		if (i == null)
+			return false;
+		this.desindexarContas(cpf);
+		this.indice = this.indice - 1;
+		if (i != this.indice) {
+			Cliente ultimo = this.clientes[this.indice];
+			this.clientes[i] = ultimo;
+			this.indicePorCpf.put(ultimo.getCpf(), i);
+		}
+		this.clientes[this.indice] = null;
+		return true;
+	}
+
+	@Override
+	public boolean atualizar(Cliente cliente) throws RepositorioException {
+		int i = this.getIndice(cliente.getCpf());
+		if (i < this.indice) {
+			this.clientes[i] = cliente;
+			this.indexarContas(cliente);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean existe(String cpf) {
+		return this.indicePorCpf.containsKey(cpf);
+	}
+
+	@Override
+	public Cliente procurarTitular(String numeroConta) {
+		String cpf = this.titularPorConta.get(numeroConta);
+		return cpf == null ? null : this.procurar(cpf);
+	}
+
+	@Override
+	public IteratorCliente getIterator() {
+		return new IteratorClienteArray(this.clientes, this.indice);
+	}
+
+}
@@ -1,47 +1,154 @@
 package br.ufrpe.poo.banco.dados;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.List;
 
 import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+import br.ufrpe.poo.banco.negocio.Metricas;
+import br.ufrpe.poo.banco.negocio.MetricasOperacao;
 
 /**
  * Implementacao de repositorio de contas que persiste os objetos das contas em
  * arquivo.
  * 
+ * O arquivo pode estar na serializacao padrao do Java ou no formato de
+ * <code>CodecBinario</code>; o formato e reconhecido na leitura. As gravacoes
+ * usam o formato escolhido no construtor ou, se nenhum for escolhido, o
+ * formato do arquivo existente.
+ * 
+ * Cada alteracao e aplicada em memoria e confirmada por
+ * <code>GravacaoEmGrupo</code>: o arquivo e regravado de forma atomica e
+ * sincronizado com o disco antes de a alteracao retornar, e alteracoes de
+ * varias threads sao gravadas juntas.
+ * 
+ * O arquivo e gravado a partir de copias das contas feitas em
+ * <code>inserir</code>, <code>atualizar</code> e <code>atualizarLote</code>,
+ * e nao dos objetos devolvidos por <code>procurar</code>: uma gravacao pedida
+ * por outra thread nao leva ao disco uma operacao ainda em andamento, como
+ * uma transferencia que ja debitou a origem mas nao creditou o destino.
+ * 
  */
-public class RepositorioContasArquivoBin implements IRepositorioContas {
+public class RepositorioContasArquivoBin implements IRepositorioContas,
+		EscritaConcorrente {
 
 	/** Contas do arquivo sao guardadas em memoria num repositorio de contas. */
-	private RepositorioContasArray contas;
+	private IRepositorioContas contas;
+
+	/** Copias das contas com os valores da ultima alteracao, que sao gravadas. */
+	private final RepositorioContasHash gravadas = new RepositorioContasHash();
 
 	/** Caminho para arquivo que guarda as informacoes das contas. */
-	private final String ARQUIVO = "contas.dat";
+	private static final String ARQUIVO = "contas.dat";
 
 	/** Arquivo que armazena as contas. */
 	private File arquivoContas;
 
+	/** Formato das gravacoes do arquivo. */
+	private FormatoArquivo formato;
+
+	/** Confirma as alteracoes, gravando varias de uma vez. */
+	private GravacaoEmGrupo grupo;
+
+	/** Buffer reutilizado com o conteudo da proxima gravacao. */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+	/** Tempos e erros das gravacoes do arquivo. */
+	private final MetricasOperacao metricasGravacao = Metricas.getPadrao()
+			.operacao("contas.gravarArquivo");
+
 	/**
-	 * Constroi um repositorio a partir de contas armazenadas em arquivo.
+	 * Constroi um repositorio a partir de contas armazenadas em arquivo,
+	 * mantendo-as em memoria num <code>RepositorioContasHash</code> (a
+	 * leitura do arquivo insere cada conta em tempo constante).
 	 * 
 	 * @throws RepositorioException
 	 *             Lancada quando ocorre erro no repositorio.
 	 */
 	public RepositorioContasArquivoBin() throws RepositorioException {
+		this(new RepositorioContasHash());
+	}
+
+	/**
+	 * Constroi um repositorio a partir de contas armazenadas em arquivo,
+	 * mantendo-as em memoria no repositorio informado.
+	 * 
+	 * @param contas
+	 *            repositorio vazio que guarda as contas em memoria (ex.:
+	 *            <code>RepositorioContasHash</code>).
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoBin(IRepositorioContas contas)
+			throws RepositorioException {
+		this(contas, new File(ARQUIVO), null);
+	}
+
+	/**
+	 * Constroi um repositorio a partir de contas armazenadas em arquivo.
+	 * 
+	 * @param contas
+	 *            repositorio vazio que guarda as contas em memoria.
+	 * @param arquivo
+	 *            arquivo das contas.
+	 * @param formato
+	 *            formato das gravacoes; <code>null</code> mantem o formato do
+	 *            arquivo existente (serializacao, se o arquivo estiver vazio).
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoBin(IRepositorioContas contas, File arquivo,
+			FormatoArquivo formato) throws RepositorioException {
+		this(contas, arquivo, formato, GravacaoEmGrupo.JANELA_PADRAO);
+	}
+
+	/**
+	 * Constroi um repositorio a partir de contas armazenadas em arquivo.
+	 * 
+	 * @param contas
+	 *            repositorio vazio que guarda as contas em memoria.
+	 * @param arquivo
+	 *            arquivo das contas.
+	 * @param formato
+	 *            formato das gravacoes; <code>null</code> mantem o formato do
+	 *            arquivo existente (serializacao, se o arquivo estiver vazio).
+	 * @param janela
+	 *            tempo maximo, em milissegundos, que uma gravacao espera por
+	 *            outras alteracoes (ver <code>GravacaoEmGrupo</code>).
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoBin(IRepositorioContas contas, File arquivo,
+			FormatoArquivo formato, long janela) throws RepositorioException {
+		this.grupo = new GravacaoEmGrupo(
+				() -> this.metricasGravacao.medir(this::gravarAgora), janela);
 		try {
-			contas = new RepositorioContasArray();
-			arquivoContas = new File(this.ARQUIVO);
+			this.contas = contas;
+			arquivoContas = arquivo;
 			arquivoContas.createNewFile();
-			if (arquivoContas.length() != 0)
+			FormatoArquivo atual = CodecBinario.detectar(arquivoContas);
+			if (atual == FormatoArquivo.BINARIO)
+				CodecBinario.lerContas(arquivoContas, contas);
+			else if (atual == FormatoArquivo.SERIALIZACAO)
 				this.lerArquivo();
+			IteratorContaAbstrata it = contas.getIterator();
+			while (it.hasNext()) {
+				this.gravadas.inserir(TiposConta.copiar(it.next()));
+			}
+			if (formato == null)
+				formato = atual == null ? FormatoArquivo.SERIALIZACAO : atual;
+			this.formato = formato;
 		} catch (IOException e) {
 			throw new RepositorioException(e);
 		}
@@ -58,7 +165,8 @@ public class RepositorioContasArquivoBin implements IRepositorioContas {
 		ObjectInputStream oisBanco = null;
 		try {
 			fisBanco = new FileInputStream(this.arquivoContas);
-			oisBanco = new ObjectInputStream(fisBanco);
+			oisBanco = new ObjectInputStream(new BufferedInputStream(fisBanco,
+					1 << 16));
 			while (true) {
 				try {
 					ContaAbstrata conta = (ContaAbstrata) oisBanco.readObject();
@@ -84,39 +192,52 @@ public class RepositorioContasArquivoBin implements IRepositorioContas {
 	}
 
 	/**
-	 * Serializa todas as contas do array em um arquivo.
+	 * Grava todas as contas no arquivo e espera a sincronizacao com o disco.
+	 * Chamadas concorrentes sao atendidas por uma unica gravacao.
 	 * 
 	 * @throws RepositorioException
 	 *             levantada no caso de um erro com o arquivo.
 	 */
 	public void gravarArquivo() throws RepositorioException {
-		FileOutputStream fosBanco = null;
-		ObjectOutputStream oosBanco = null;
+		this.grupo.confirmar();
+	}
+
+	/**
+	 * Serializa as contas no buffer, com o repositorio travado, e substitui o
+	 * arquivo pelo conteudo do buffer.
+	 */
+	private void gravarAgora() throws RepositorioException {
 		try {
-			fosBanco = new FileOutputStream(this.arquivoContas, false);
-			oosBanco = new ObjectOutputStream(fosBanco);
-			IteratorContaAbstrata it = contas.getIterator();
-			while (it.hasNext()) {
-				ContaAbstrata c = it.next();
-				oosBanco.writeObject(c);
+			this.buffer.reset();
+			synchronized (this) {
+				if (this.formato == FormatoArquivo.BINARIO) {
+					DataOutputStream dos = new DataOutputStream(this.buffer);
+					CodecBinario.escreverContas(dos, this.gravadas.getIterator());
+					dos.flush();
+				} else {
+					ObjectOutputStream oos = new ObjectOutputStream(this.buffer);
+					IteratorContaAbstrata it = this.gravadas.getIterator();
+					while (it.hasNext()) {
+						oos.writeObject(it.next());
+					}
+					oos.flush();
+				}
 			}
-		} catch (FileNotFoundException e) {
-			throw new RepositorioException(e);
+			GravacaoEmGrupo.substituir(this.arquivoContas, this.buffer);
 		} catch (IOException e) {
 			throw new RepositorioException(e);
-		} finally {
-			try {
-				fosBanco.close();
-				oosBanco.close();
-			} catch (IOException e) {
-				throw new RepositorioException(e);
-			}
 		}
 	}
 
 	@Override
 	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
-		boolean sucesso = contas.inserir(conta);
+		ContaAbstrata copia = TiposConta.copiar(conta);
+		boolean sucesso;
+		synchronized (this) {
+			sucesso = contas.inserir(conta);
+			if (sucesso)
+				this.gravadas.inserir(copia);
+		}
 		if (sucesso) {
 			this.gravarArquivo();
 		}
@@ -130,7 +251,12 @@ public class RepositorioContasArquivoBin implements IRepositorioContas {
 
 	@Override
 	public boolean remover(String numero) throws RepositorioException {
-		boolean sucesso = contas.remover(numero);
+		boolean sucesso;
+		synchronized (this) {
+			sucesso = contas.remover(numero);
+			if (sucesso)
+				this.gravadas.remover(numero);
+		}
 		if (sucesso) {
 			this.gravarArquivo();
 		}
@@ -139,13 +265,35 @@ public class RepositorioContasArquivoBin implements IRepositorioContas {
 
 	@Override
 	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
-		boolean sucesso = contas.atualizar(conta);
+		ContaAbstrata copia = TiposConta.copiar(conta);
+		boolean sucesso;
+		synchronized (this) {
+			sucesso = contas.atualizar(conta);
+			if (sucesso)
+				this.gravadas.atualizar(copia);
+		}
 		if (sucesso) {
 			this.gravarArquivo();
 		}
 		return sucesso;
 	}
 
+	@Override
+	public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		List<ContaAbstrata> copias = TiposConta.copiar(contas);
+		int atualizadas;
+		synchronized (this) {
+			atualizadas = this.contas.atualizarLote(contas);
+			if (atualizadas > 0)
+				this.gravadas.atualizarLote(copias);
+		}
+		if (atualizadas > 0) {
+			this.gravarArquivo();
+		}
+		return atualizadas;
+	}
+
 	@Override
 	public boolean existe(String numero) {
 		return contas.existe(numero);
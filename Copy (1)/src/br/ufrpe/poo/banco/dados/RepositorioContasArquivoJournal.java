@@ -0,0 +1,364 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Implementacao de repositorio de contas que persiste as alteracoes em um log
+ * binario (journal) em vez de regravar todas as contas a cada operacao.
+ *
+ * Cada <code>inserir</code>, <code>atualizar</code> e <code>remover</code>
+ * acrescenta ao log um registro com a operacao, o numero, o tipo, o saldo e o
+ * bonus da conta. O log e compactado em segundo plano num snapshot (um
+ * checkpoint) quando passa a ter mais registros que contas (e ao menos
+ * <code>LIMITE_LOG</code>) ou quando o intervalo de checkpoint se esgota desde
+ * o anterior. Ver <code>JournalArquivo</code>.
+ *
+ * A inicializacao le o snapshot e apenas os registros posteriores a ele. Como
+ * o log nunca passa muito do tamanho do snapshot, o tempo de inicializacao e
+ * proporcional ao numero de contas. Se o log recuperado ja passou do limite
+ * (queda antes de um checkpoint), um checkpoint e iniciado logo em seguida.
+ *
+ * <code>atualizarLote</code> grava todas as contas do lote num unico registro
+ * e sincroniza o log com o disco, de modo que a recuperacao aplica o lote
+ * inteiro ou nenhuma de suas contas.
+ */
+public class RepositorioContasArquivoJournal implements IRepositorioContas {
+
+	/** Registro de insercao de conta. */
+	static final byte INSERIR = 'I';
+
+	/** Registro de atualizacao de conta. */
+	static final byte ATUALIZAR = 'A';
+
+	/** Registro de remocao de conta. */
+	static final byte REMOVER = 'R';
+
+	/** Registro de atualizacao de um lote de contas. */
+	static final byte LOTE = 'L';
+
+	/** Minimo de registros no log antes de uma compactacao. */
+	private static final int LIMITE_LOG = 10000;
+
+	/** Intervalo padrao entre checkpoints, em milissegundos. */
+	public static final long INTERVALO_CHECKPOINT = 5 * 60 * 1000L;
+
+	/** Nome do arquivo do snapshot das contas. */
+	public static final String ARQUIVO_SNAPSHOT = "contas.snap";
+
+	/** Nome do arquivo do log de alteracoes das contas. */
+	public static final String ARQUIVO_LOG = "contas.log";
+
+	/** Contas sao mantidas em memoria num repositorio de contas. */
+	private IRepositorioContas contas;
+
+	/** Numero de contas do repositorio. */
+	private int total;
+
+	/** Log de alteracoes e snapshot. */
+	private JournalArquivo journal;
+
+	/** Intervalo maximo entre checkpoints com alteracoes, em milissegundos. */
+	private final long intervaloCheckpoint;
+
+	/**
+	 * Constroi um repositorio a partir dos arquivos padrao no diretorio de
+	 * trabalho, mantendo as contas em memoria num
+	 * <code>RepositorioContasHash</code>.
+	 *
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoJournal() throws RepositorioException {
+		this(new File("."));
+	}
+
+	/**
+	 * Constroi um repositorio a partir dos arquivos <code>contas.snap</code> e
+	 * <code>contas.log</code> de um diretorio, criado se preciso, mantendo as
+	 * contas em memoria num <code>RepositorioContasHash</code>.
+	 *
+	 * @param diretorio
+	 *            diretorio do snapshot e do log.
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoJournal(File diretorio)
+			throws RepositorioException {
+		this(new RepositorioContasHash(), new File(diretorio, ARQUIVO_SNAPSHOT),
+				new File(diretorio, ARQUIVO_LOG));
+	}
+
+	/**
+	 * Constroi um repositorio a partir de um snapshot e de um log.
+	 *
+	 * @param contas
+	 *            repositorio vazio que guarda as contas em memoria.
+	 * @param snapshot
+	 *            arquivo do snapshot.
+	 * @param log
+	 *            arquivo do log de alteracoes.
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoJournal(IRepositorioContas contas,
+			File snapshot, File log) throws RepositorioException {
+		this(contas, snapshot, log, INTERVALO_CHECKPOINT);
+	}
+
+	/**
+	 * Constroi um repositorio a partir de um snapshot e de um log.
+	 *
+	 * @param contas
+	 *            repositorio vazio que guarda as contas em memoria.
+	 * @param snapshot
+	 *            arquivo do snapshot.
+	 * @param log
+	 *            arquivo do log de alteracoes.
+	 * @param intervaloCheckpoint
+	 *            tempo maximo, em milissegundos, entre um checkpoint e a
+	 *            alteracao que dispara o seguinte.
+	 * @throws RepositorioException
+	 *             Lancada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoJournal(IRepositorioContas contas,
+			File snapshot, File log, long intervaloCheckpoint)
+			throws RepositorioException {
+		this.contas = contas;
+		this.intervaloCheckpoint = intervaloCheckpoint;
+		this.journal = new JournalArquivo(snapshot, log);
+		this.journal.recuperar(this::aplicar);
+		this.compactarSeNecessario();
+	}
+
+	/**
+	 * Aplica ao repositorio em memoria um registro lido do snapshot ou do log.
+	 */
+	private void aplicar(DataInputStream registro) throws IOException,
+			RepositorioException {
+		byte operacao = registro.readByte();
+		if (operacao == LOTE) {
+			int quantidade = registro.readInt();
+			for (int i = 0; i < quantidade; i++) {
+				this.aplicarConta(registro, registro.readUTF());
+			}
+			return;
+		}
+		String numero = registro.readUTF();
+		if (operacao == REMOVER) {
+			if (this.contas.remover(numero))
+				this.total--;
+			return;
+		}
+		this.aplicarConta(registro, numero);
+	}
+
+	/**
+	 * Le tipo, saldo e bonus de uma conta e a insere ou atualiza.
+	 */
+	private void aplicarConta(DataInputStream registro, String numero)
+			throws IOException, RepositorioException {
+		byte tipo = registro.readByte();
+		double saldo = registro.readDouble();
+		double bonus = registro.readDouble();
+		ContaAbstrata conta = TiposConta.criar(tipo, numero, saldo, bonus);
+		if (!this.contas.atualizar(conta) && this.contas.inserir(conta))
+			this.total++;
+	}
+
+	/**
+	 * Escreve o estado de uma conta num registro.
+	 */
+	private static void escrever(DataOutputStream registro, byte operacao,
+			String numero, byte tipo, double saldo, double bonus)
+			throws IOException {
+		registro.writeByte(operacao);
+		registro.writeUTF(numero);
+		registro.writeByte(tipo);
+		registro.writeDouble(saldo);
+		registro.writeDouble(bonus);
+	}
+
+	/**
+	 * Acrescenta a alteracao de uma conta ao log.
+	 *
+	 * @throws RepositorioException
+	 *             levantada no caso de um erro com o arquivo.
+	 */
+	private void registrar(byte operacao, ContaAbstrata conta)
+			throws RepositorioException {
+		try {
+			DataOutputStream registro = this.journal.novoRegistro();
+			escrever(registro, operacao, conta.getNumero(),
+					TiposConta.tipo(conta), conta.getSaldo(),
+					TiposConta.bonus(conta));
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		this.journal.gravarRegistro();
+		this.compactarSeNecessario();
+	}
+
+	/**
+	 * Inicia a compactacao do log quando ele tem mais registros que o
+	 * repositorio tem contas, mantendo o custo amortizado constante, ou quando
+	 * o intervalo de checkpoint se esgotou.
+	 *
+	 * @throws RepositorioException
+	 *             levantada no caso de um erro com o arquivo.
+	 */
+	private void compactarSeNecessario() throws RepositorioException {
+		int registros = this.journal.getRegistrosNoLog();
+		if (registros == 0 || this.journal.isCompactando())
+			return;
+		long desde = System.currentTimeMillis()
+				- this.journal.getUltimaCompactacao();
+		if ((registros >= LIMITE_LOG && registros >= this.total)
+				|| desde >= this.intervaloCheckpoint)
+			this.compactar();
+	}
+
+	/**
+	 * Compacta o log num snapshot. O estado das contas e copiado nesta thread e
+	 * gravado em segundo plano.
+	 *
+	 * @throws RepositorioException
+	 *             levantada no caso de um erro com o arquivo.
+	 */
+	public void compactar() throws RepositorioException {
+		final String[] numeros = new String[this.total];
+		final byte[] tipos = new byte[this.total];
+		final double[] saldos = new double[this.total];
+		final double[] bonus = new double[this.total];
+		IteratorContaAbstrata it = this.contas.getIterator();
+		int n = 0;
+		while (it.hasNext() && n < this.total) {
+			ContaAbstrata c = it.next();
+			numeros[n] = c.getNumero();
+			tipos[n] = TiposConta.tipo(c);
+			saldos[n] = c.getSaldo();
+			bonus[n] = TiposConta.bonus(c);
+			n++;
+		}
+		final int quantidade = n;
+		this.journal.compactar(new JournalArquivo.EscritorSnapshot() {
+
+			@Override
+			public int total() {
+				return quantidade;
+			}
+
+			@Override
+			public void escrever(int i, DataOutputStream registro)
+					throws IOException {
+				RepositorioContasArquivoJournal.escrever(registro, INSERIR,
+						numeros[i], tipos[i], saldos[i], bonus[i]);
+			}
+		});
+	}
+
+	/**
+	 * Aguarda a compactacao em andamento e fecha o log.
+	 *
+	 * @throws RepositorioException
+	 *             levantada no caso de um erro com o arquivo.
+	 */
+	public void fechar() throws RepositorioException {
+		this.journal.fechar();
+	}
+
+	@Override
+	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
+		boolean sucesso = contas.inserir(conta);
+		if (sucesso) {
+			this.total++;
+			this.registrar(INSERIR, conta);
+		}
+		return sucesso;
+	}
+
+	@Override
+	public ContaAbstrata procurar(String numero) {
+		return contas.procurar(numero);
+	}
+
+	@Override
+	public boolean remover(String numero) throws RepositorioException {
+		boolean sucesso = contas.remover(numero);
+		if (sucesso) {
+			this.total--;
+			try {
+				DataOutputStream registro = this.journal.novoRegistro();
+				registro.writeByte(REMOVER);
+				registro.writeUTF(numero);
+			} catch (IOException e) {
+				throw new RepositorioException(e);
+			}
+			this.journal.gravarRegistro();
+			this.compactarSeNecessario();
+		}
+		return sucesso;
+	}
+
+	@Override
+	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
+		boolean sucesso = contas.atualizar(conta);
+		if (sucesso) {
+			this.registrar(ATUALIZAR, conta);
+		}
+		return sucesso;
+	}
+
+	/**
+	 * Atualiza as contas do lote que existem no repositorio e grava todas num
+	 * unico registro do log, sincronizado com o disco antes do retorno.
+	 */
+	@Override
+	public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		List<ContaAbstrata> atualizadas = new ArrayList<ContaAbstrata>(
+				contas.size());
+		for (ContaAbstrata conta : contas) {
+			if (this.contas.atualizar(conta))
+				atualizadas.add(conta);
+		}
+		if (atualizadas.isEmpty())
+			return 0;
+		try {
+			DataOutputStream registro = this.journal.novoRegistro();
+			registro.writeByte(LOTE);
+			registro.writeInt(atualizadas.size());
+			for (ContaAbstrata conta : atualizadas) {
+				registro.writeUTF(conta.getNumero());
+				registro.writeByte(TiposConta.tipo(conta));
+				registro.writeDouble(conta.getSaldo());
+				registro.writeDouble(TiposConta.bonus(conta));
+			}
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		this.journal.gravarRegistro();
+		this.journal.sincronizar();
+		this.compactarSeNecessario();
+		return atualizadas.size();
+	}
+
+	@Override
+	public boolean existe(String numero) {
+		return contas.existe(numero);
+	}
+
+	@Override
+	public IteratorContaAbstrata getIterator() {
+		return contas.getIterator();
+	}
+}
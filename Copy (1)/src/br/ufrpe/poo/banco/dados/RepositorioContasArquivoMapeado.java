@@ -0,0 +1,361 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Implementacao de repositorio de contas que guarda as contas em registros de
+ * tamanho fixo num arquivo mapeado em memoria.
+ *
+ * Cada registro tem <code>TAMANHO_REGISTRO</code> bytes: o tipo da conta (os
+ * codigos de <code>TiposConta</code>, ou <code>LIVRE</code> para registro
+ * removido), o tamanho e os bytes UTF-8 do numero (ate
+ * <code>TAMANHO_NUMERO</code> bytes), o saldo e o bonus. Atualizar uma conta
+ * escreve apenas o saldo e o bonus no seu registro; a inicializacao le apenas
+ * tipo e numero de cada registro e as contas sao criadas quando procuradas ou
+ * percorridas pelo iterador.
+ *
+ * Um registro novo e escrito por inteiro antes de o contador de registros do
+ * cabecalho ser incrementado, e o tipo e o ultimo campo escrito. Apos
+ * <code>sincronizar</code>, o arquivo nunca conta um registro incompleto.
+ */
+public class RepositorioContasArquivoMapeado implements IRepositorioContas {
+
+	/** Identifica o formato do arquivo. */
+	private static final int ASSINATURA = 0x42434D31;
+
+	/** Tamanho do cabecalho: assinatura, tamanho do registro, registros. */
+	private static final int TAMANHO_CABECALHO = 16;
+
+	/** Maior numero de conta suportado, em bytes UTF-8. */
+	public static final int TAMANHO_NUMERO = 32;
+
+	/** Tamanho de cada registro. */
+	private static final int TAMANHO_REGISTRO = 56;
+
+	/** Posicoes dos campos dentro do registro. */
+	private static final int POS_TIPO = 0;
+	private static final int POS_TAMANHO_NUMERO = 1;
+	private static final int POS_NUMERO = 2;
+	private static final int POS_SALDO = 40;
+	private static final int POS_BONUS = 48;
+
+	/** Tipo de um registro removido. */
+	private static final byte LIVRE = -1;
+
+	/** Capacidade inicial em registros. */
+	private static final int CAPACIDADE_INICIAL = 1024;
+
+	/** Caminho padrao do arquivo. */
+	private static final String ARQUIVO = "contas.map";
+
+	/** Arquivo mapeado. */
+	private RandomAccessFile arquivo;
+
+	/** Mapeamento do arquivo. */
+	private MappedByteBuffer mapa;
+
+	/** Quantidade de registros que cabem no mapeamento atual. */
+	private int capacidade;
+
+	/** Registros usados (inclusive removidos) do inicio do arquivo. */
+	private int registros;
+
+	/** Registro de cada conta a partir do numero. */
+	private HashMap<String, Integer> indices;
+
+	/**
+	 * Contas ja criadas a partir dos registros. Preenchido por
+	 * <code>procurar</code>, por isso aceita escritas concorrentes.
+	 */
+	private ConcurrentHashMap<String, ContaAbstrata> carregadas;
+
+	/** Registros removidos que podem ser reutilizados. */
+	private ArrayList<Integer> livres;
+
+	/**
+	 * Constroi um repositorio sobre o arquivo padrao.
+	 *
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoMapeado() throws RepositorioException {
+		this(new File(ARQUIVO));
+	}
+
+	/**
+	 * Constroi um repositorio sobre o arquivo informado. Se o arquivo nao
+	 * existe ou esta vazio, e criado.
+	 *
+	 * @param arquivo
+	 *            arquivo de registros de contas.
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro no repositorio.
+	 */
+	public RepositorioContasArquivoMapeado(File arquivo)
+			throws RepositorioException {
+		this.indices = new HashMap<String, Integer>();
+		this.carregadas = new ConcurrentHashMap<String, ContaAbstrata>();
+		this.livres = new ArrayList<Integer>();
+		try {
+			this.arquivo = new RandomAccessFile(arquivo, "rw");
+			if (this.arquivo.length() == 0) {
+				this.mapear(CAPACIDADE_INICIAL);
+				this.mapa.putInt(0, ASSINATURA);
+				this.mapa.putInt(4, TAMANHO_REGISTRO);
+				this.mapa.putInt(8, 0);
+			} else {
+				this.lerArquivo();
+			}
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Mapeia o arquivo com capacidade para a quantidade de registros dada.
+	 */
+	private void mapear(int capacidade) throws IOException {
+		long tamanho = TAMANHO_CABECALHO + (long) capacidade * TAMANHO_REGISTRO;
+		if (tamanho > Integer.MAX_VALUE)
+			throw new IOException("Arquivo de contas excede o tamanho maximo!");
+		this.mapa = this.arquivo.getChannel().map(FileChannel.MapMode.READ_WRITE,
+				0, tamanho);
+		this.capacidade = capacidade;
+	}
+
+	/**
+	 * Valida o cabecalho, mapeia o arquivo existente e indexa os numeros das
+	 * contas. O cabecalho e lido sem mapear o arquivo, pois o mapeamento
+	 * estenderia um arquivo invalido menor que o cabecalho.
+	 *
+	 * @throws RepositorioException
+	 *             lancada em caso de arquivo invalido.
+	 */
+	private void lerArquivo() throws IOException, RepositorioException {
+		long tamanho = this.arquivo.length();
+		if (tamanho < TAMANHO_CABECALHO)
+			throw new RepositorioException("Arquivo de contas invalido!");
+		this.arquivo.seek(0);
+		if (this.arquivo.readInt() != ASSINATURA
+				|| this.arquivo.readInt() != TAMANHO_REGISTRO)
+			throw new RepositorioException("Arquivo de contas invalido!");
+		int contador = this.arquivo.readInt();
+		int cap = (int) Math.min((tamanho - TAMANHO_CABECALHO)
+				/ TAMANHO_REGISTRO, Integer.MAX_VALUE);
+		this.mapear(cap);
+		this.registros = Math.max(Math.min(contador, this.capacidade), 0);
+		byte[] numero = new byte[TAMANHO_NUMERO];
+		for (int i = 0; i < this.registros; i++) {
+			int base = posicao(i);
+			if (this.mapa.get(base + POS_TIPO) == LIVRE) {
+				this.livres.add(i);
+				continue;
+			}
+			this.indices.put(this.lerNumero(base, numero), i);
+		}
+	}
+
+	/** Posicao do inicio do registro no arquivo. */
+	private static int posicao(int registro) {
+		return TAMANHO_CABECALHO + registro * TAMANHO_REGISTRO;
+	}
+
+	/** Le o numero da conta do registro que comeca na posicao dada. */
+	private String lerNumero(int base, byte[] buffer) {
+		int n = this.mapa.get(base + POS_TAMANHO_NUMERO);
+		this.mapa.get(base + POS_NUMERO, buffer, 0, n);
+		return new String(buffer, 0, n, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Cria a conta a partir do seu registro.
+	 */
+	private ContaAbstrata lerConta(String numero, int registro)
+			throws RepositorioException {
+		int base = posicao(registro);
+		return TiposConta.criar(this.mapa.get(base + POS_TIPO), numero,
+				this.mapa.getDouble(base + POS_SALDO),
+				this.mapa.getDouble(base + POS_BONUS));
+	}
+
+	/**
+	 * Escreve saldo e bonus da conta no seu registro.
+	 */
+	private void escreverValores(int registro, ContaAbstrata conta) {
+		int base = posicao(registro);
+		this.mapa.putDouble(base + POS_SALDO, conta.getSaldo());
+		this.mapa.putDouble(base + POS_BONUS, TiposConta.bonus(conta));
+	}
+
+	/**
+	 * Retorna um registro livre, aumentando o arquivo se necessario. Um
+	 * registro no fim do arquivo so passa a ser contado no cabecalho em
+	 * <code>publicar</code>, depois de escrito.
+	 */
+	private int novoRegistro() throws IOException {
+		if (!this.livres.isEmpty())
+			return this.livres.get(this.livres.size() - 1);
+		if (this.registros == this.capacidade) {
+			this.mapa.force();
+			this.mapear(Math.max(this.capacidade * 2, CAPACIDADE_INICIAL));
+		}
+		return this.registros;
+	}
+
+	/**
+	 * Marca como usado um registro retornado por <code>novoRegistro</code> e
+	 * ja escrito.
+	 */
+	private void publicar(int registro) {
+		if (registro == this.registros) {
+			this.registros = this.registros + 1;
+			this.mapa.putInt(8, this.registros);
+		} else {
+			this.livres.remove(this.livres.size() - 1);
+		}
+	}
+
+	/**
+	 * Grava no disco as alteracoes feitas no mapeamento.
+	 */
+	public void sincronizar() {
+		this.mapa.force();
+	}
+
+	/**
+	 * Grava as alteracoes e fecha o arquivo.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro ao fechar o arquivo.
+	 */
+	public void fechar() throws RepositorioException {
+		this.sincronizar();
+		try {
+			this.arquivo.close();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	@Override
+	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
+		if (this.existe(conta.getNumero()))
+			return false;
+		byte[] numero = conta.getNumero().getBytes(StandardCharsets.UTF_8);
+		if (numero.length > TAMANHO_NUMERO)
+			throw new RepositorioException("Numero de conta muito longo!");
+		byte tipo = TiposConta.tipo(conta);
+		try {
+			int registro = this.novoRegistro();
+			int base = posicao(registro);
+			this.mapa.put(base + POS_TAMANHO_NUMERO, (byte) numero.length);
+			this.mapa.put(base + POS_NUMERO, numero);
+			this.escreverValores(registro, conta);
+			this.mapa.put(base + POS_TIPO, tipo);
+			this.publicar(registro);
+			this.indices.put(conta.getNumero(), registro);
+			this.carregadas.put(conta.getNumero(), conta);
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		return true;
+	}
+
+	@Override
+	public ContaAbstrata procurar(String numero) {
+		ContaAbstrata conta = this.carregadas.get(numero);
+		if (conta != null)
+			return conta;
+		Integer registro = this.indices.get(numero);
+		if (registro == null)
+			return null;
+		try {
+			conta = this.lerConta(numero, registro);
+		} catch (RepositorioException e) {
+			return null;
+		}
+		ContaAbstrata anterior = this.carregadas.putIfAbsent(numero, conta);
+		return anterior == null ? conta : anterior;
+	}
+
+	@Override
+	public boolean remover(String numero) throws RepositorioException {
+		Integer registro = this.indices.remove(numero);
+		if (registro == null)
+			return false;
+		this.carregadas.remove(numero);
+		this.mapa.put(posicao(registro) + POS_TIPO, LIVRE);
+		this.livres.add(registro);
+		return true;
+	}
+
+	@Override
+	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
+		Integer registro = this.indices.get(conta.getNumero());
+		if (registro == null)
+			return false;
+		byte tipo = TiposConta.tipo(conta);
+		this.escreverValores(registro, conta);
+		this.mapa.put(posicao(registro) + POS_TIPO, tipo);
+		this.carregadas.put(conta.getNumero(), conta);
+		return true;
+	}
+
+	@Override
+	public boolean existe(String numero) {
+		return this.indices.containsKey(numero);
+	}
+
+	/**
+	 * Retorna um iterador que percorre os registros na ordem do arquivo,
+	 * criando cada conta apenas quando ela e alcancada.
+	 */
+	@Override
+	public IteratorContaAbstrata getIterator() {
+		return new IteratorContaAbstrata() {
+
+			/** Proximo registro a examinar. */
+			private int registro = 0;
+
+			/** Proxima conta, ja lida, ou <code>null</code>. */
+			private ContaAbstrata proxima;
+
+			private final byte[] numero = new byte[TAMANHO_NUMERO];
+
+			@Override
+			public boolean hasNext() {
+				RepositorioContasArquivoMapeado repositorio = RepositorioContasArquivoMapeado.this;
+				while (this.proxima == null
+						&& this.registro < repositorio.registros) {
+					int base = posicao(this.registro++);
+					if (repositorio.mapa.get(base + POS_TIPO) == LIVRE)
+						continue;
+					this.proxima = repositorio.procurar(repositorio.lerNumero(
+							base, this.numero));
+				}
+				return this.proxima != null;
+			}
+
+			@Override
+			public ContaAbstrata next() {
+				if (!this.hasNext())
+					return null;
+				ContaAbstrata conta = this.proxima;
+				this.proxima = null;
+				return conta;
+			}
+		};
+	}
+}
@@ -1,18 +1,28 @@
 package br.ufrpe.poo.banco.dados;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 
 import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
-import br.ufrpe.poo.banco.negocio.Conta;
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
-import br.ufrpe.poo.banco.negocio.ContaEspecial;
-import br.ufrpe.poo.banco.negocio.ContaImposto;
-import br.ufrpe.poo.banco.negocio.Poupanca;
+import br.ufrpe.poo.banco.negocio.Metricas;
+import br.ufrpe.poo.banco.negocio.MetricasOperacao;
 
 /**
  * Implementacao de repositorio de contas que persiste contas em arquivo texto.
@@ -22,16 +32,114 @@ import br.ufrpe.poo.banco.negocio.Poupanca;
  * tipoConta numero saldo bonus
  * <p>
  * tipoConta e um valor inteiro para o tipo da conta: 0 - Conta, 1 - Poupanca, 2
- * - ContaImposto e 3 - ContaEspecial
+ * - ContaImposto e 3 - ContaEspecial (ou 4 a 7, as mesmas contas com saldo em
+ * centavos, e 8 a 11, as variantes concorrentes, ver <code>TiposConta</code>).
+ * O bonus so aparece nas contas especiais. O arquivo e lido e escrito em
+ * UTF-8. O modo de largura fixa tem um unico caractere para o tipo, um digito
+ * hexadecimal (<code>a</code> e <code>b</code> para os codigos 10 e 11); na
+ * leitura, um tipo de um caractere e lido em hexadecimal e um de mais
+ * caracteres em decimal, de modo que os dois modos leem os dois formatos.
+ * <p>
+ * A leitura usa um <code>FileChannel</code> com buffer e separa os campos
+ * direto dos bytes, sem <code>Scanner</code>; saldos decimais com ate 15
+ * digitos sao convertidos sem criar <code>String</code>. As contas ficam em
+ * memoria num <code>RepositorioContasHash</code>, de modo que a carga e linear
+ * no numero de linhas. Linhas iniciadas por <code>#</code> sao ignoradas.
+ * <p>
+ * No modo de largura fixa todas as linhas tem <code>LARGURA_LINHA</code>
+ * bytes, com numero, saldo e bonus completados com espacos, e cada conta ocupa
+ * sempre a mesma linha. <code>atualizar</code> reescreve apenas a linha da
+ * conta e <code>remover</code> marca a linha com <code>#</code>; linhas
+ * removidas sao reaproveitadas por <code>inserir</code> e eliminadas pela
+ * compactacao, feita quando passam a ser mais numerosas que as contas. A
+ * compactacao e <code>atualizarLote</code> com mais de uma conta regravam o
+ * arquivo de forma atomica, como o modo normal, para que uma queda nao deixe
+ * o arquivo truncado nem um lote aplicado pela metade. O arquivo continua
+ * legivel no modo normal.
+ * <p>
+ * As alteracoes sao confirmadas por <code>GravacaoEmGrupo</code> e so
+ * retornam depois de sincronizadas com o disco. No modo normal, insercoes
+ * acumulam linhas que sao acrescentadas juntas ao arquivo; as demais
+ * alteracoes regravam o arquivo de forma atomica. No modo de largura fixa as
+ * linhas sao escritas no lugar e a gravacao do lote apenas sincroniza o
+ * arquivo. Alteracoes de varias threads sao gravadas juntas.
+ * <p>
+ * O arquivo e escrito a partir de copias das contas feitas em
+ * <code>inserir</code>, <code>atualizar</code> e <code>atualizarLote</code>,
+ * e nao dos objetos devolvidos por <code>procurar</code>, para que uma
+ * regravacao pedida por outra thread nao leve ao disco uma operacao ainda em
+ * andamento.
  */
-public class RepositorioContasArquivoTxt implements IRepositorioContas {
+public class RepositorioContasArquivoTxt implements IRepositorioContas,
+		EscritaConcorrente {
+
+	/** Potencias de 10 representadas exatamente em <code>double</code>. */
+	private static final double[] POTENCIAS_10 = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+	/** Tamanho de cada linha no modo de largura fixa, com a quebra de linha. */
+	public static final int LARGURA_LINHA = 73;
+
+	/** Maior numero de conta no modo de largura fixa, em bytes UTF-8. */
+	public static final int LARGURA_NUMERO = 20;
+
+	/** Posicoes dos campos numa linha de largura fixa. */
+	private static final int POS_NUMERO = 2;
+	private static final int POS_SALDO = 23;
+	private static final int POS_BONUS = 48;
+
+	/** Marca de linha removida (ou comentario). */
+	private static final byte REMOVIDA = '#';
+
+	/** Minimo de linhas removidas antes de uma compactacao. */
+	private static final int LIMITE_REMOVIDAS = 1024;
 
 	/** Contas do arquivo sao mantidas em memoria. */
-	private RepositorioContasArray contas;
+	private RepositorioContasHash contas;
+
+	/** Copias das contas com os valores da ultima alteracao, que sao gravadas. */
+	private RepositorioContasHash gravadas;
 
 	/** Arquivo que armazena as contas. */
 	private File arquivo;
 
+	/** Linha reutilizada na escrita das contas. */
+	private final StringBuilder linha = new StringBuilder(64);
+
+	/** Se as linhas tem largura fixa e sao atualizadas no lugar. */
+	private final boolean larguraFixa;
+
+	/** Canal de escrita do arquivo, no modo de largura fixa. */
+	private FileChannel canal;
+
+	/** Linha de cada conta, no modo de largura fixa. */
+	private HashMap<String, Integer> posicoes;
+
+	/** Linhas removidas, que podem ser reaproveitadas. */
+	private ArrayDeque<Integer> livres;
+
+	/** Numero de linhas do arquivo, no modo de largura fixa. */
+	private int linhas;
+
+	/** Linha de largura fixa reutilizada na escrita. */
+	private final byte[] registro = new byte[LARGURA_LINHA];
+
+	/** Confirma as alteracoes, gravando varias de uma vez. */
+	private final GravacaoEmGrupo grupo;
+
+	/** Linhas inseridas que ainda nao foram acrescentadas ao arquivo. */
+	private final ByteArrayOutputStream pendentes = new ByteArrayOutputStream();
+
+	/** Se a proxima gravacao deve regravar o arquivo inteiro. */
+	private boolean regravar;
+
+	/** Conteudo da gravacao em andamento. */
+	private final ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+	/** Tempos e erros das gravacoes do arquivo. */
+	private final MetricasOperacao metricasGravacao = Metricas.getPadrao()
+			.operacao("contasTxt.gravarArquivo");
+
 	/**
 	 * Constroi um repositorio que mantem contas em arquivo texto.
 	 * 
@@ -43,8 +151,47 @@ public class RepositorioContasArquivoTxt implements IRepositorioContas {
 	 */
 	public RepositorioContasArquivoTxt(File arquivo)
 			throws RepositorioException {
-		contas = new RepositorioContasArray();
+		this(arquivo, false);
+	}
+
+	/**
+	 * Constroi um repositorio que mantem contas em arquivo texto.
+	 * 
+	 * @param arquivo
+	 *            arquivo texto com informacoes sobre as contas. Se arquivo nao
+	 *            existe, sera criado um vazio.
+	 * @param larguraFixa
+	 *            se as linhas tem largura fixa e sao atualizadas no lugar. Um
+	 *            arquivo existente em outro formato e convertido.
+	 * @throws RepositorioException
+	 *             lancada caso o arquivo nao existe e nao pode ser criado.
+	 */
+	public RepositorioContasArquivoTxt(File arquivo, boolean larguraFixa)
+			throws RepositorioException {
+		this(arquivo, larguraFixa, GravacaoEmGrupo.JANELA_PADRAO);
+	}
+
+	/**
+	 * Constroi um repositorio que mantem contas em arquivo texto.
+	 * 
+	 * @param arquivo
+	 *            arquivo texto com informacoes sobre as contas. Se arquivo nao
+	 *            existe, sera criado um vazio.
+	 * @param larguraFixa
+	 *            se as linhas tem largura fixa e sao atualizadas no lugar. Um
+	 *            arquivo existente em outro formato e convertido.
+	 * @param janela
+	 *            tempo maximo, em milissegundos, que uma gravacao espera por
+	 *            outras alteracoes (ver <code>GravacaoEmGrupo</code>).
+	 * @throws RepositorioException
+	 *             lancada caso o arquivo nao existe e nao pode ser criado.
+	 */
+	public RepositorioContasArquivoTxt(File arquivo, boolean larguraFixa,
+			long janela) throws RepositorioException {
+		this.grupo = new GravacaoEmGrupo(
+				() -> this.metricasGravacao.medir(this::gravarAgora), janela);
 		this.arquivo = arquivo;
+		this.larguraFixa = larguraFixa;
 		if (!arquivo.exists()) {
 			try {
 				arquivo.createNewFile();
@@ -55,132 +202,485 @@ public class RepositorioContasArquivoTxt implements IRepositorioContas {
 						+ this.arquivo.getName() + "\" nao pode ser criado!");
 			}
 		}
+		// cerca de 20 bytes por linha, evita redimensionamentos na carga
+		contas = new RepositorioContasHash((int) Math.min(
+				arquivo.length() / 20, 1 << 24));
+		gravadas = new RepositorioContasHash((int) Math.min(
+				arquivo.length() / 20, 1 << 24));
+		if (larguraFixa) {
+			this.posicoes = new HashMap<String, Integer>();
+			this.livres = new ArrayDeque<Integer>();
+		}
 		this.lerArquivo();
+		if (larguraFixa)
+			this.abrirLarguraFixa();
 	}
 
 	/**
-	 * Le todas as contas do arquivo e guarda no repositorio de array.
+	 * Le todas as contas do arquivo e guarda no repositorio em memoria.
 	 * 
 	 * @throws RepositorioException
-	 *             lancada em caso de erro na leitura do arquivo.
+	 *             lancada em caso de erro na leitura do arquivo ou de linha
+	 *             invalida.
 	 */
 	private void lerArquivo() throws RepositorioException {
-		Scanner s = null;
-		ContaAbstrata conta = null;
-		try {
-			s = new Scanner(arquivo);
-			while (s.hasNext()) {
-				int tipoConta = s.nextInt();
-				String numero = s.next();
-				double saldo = Double.parseDouble(s.next());
-				switch (tipoConta) {
-				case 0:
-					conta = new Conta(numero, saldo);
-					break;
-				case 1:
-					conta = new Poupanca(numero, saldo);
-					break;
-				case 2:
-					conta = new ContaImposto(numero, saldo);
-					break;
-				case 3:
-					conta = new ContaEspecial(numero, saldo);
-					break;
-				default:
-					throw new RepositorioException("Tipo de conta inexistente!");
+		try (FileInputStream fis = new FileInputStream(this.arquivo)) {
+			Leitor leitor = new Leitor(fis.getChannel());
+			while (leitor.proximaLinha()) {
+				int numeroLinha = leitor.numeroLinha;
+				long inicio = leitor.inicioLinha;
+				if (!leitor.campo())
+					throw linhaInvalida(numeroLinha);
+				int tipoConta = leitor.tipo();
+				if (tipoConta < 0 || !leitor.campo())
+					throw linhaInvalida(numeroLinha);
+				String numero = leitor.texto();
+				if (!leitor.campo())
+					throw linhaInvalida(numeroLinha);
+				double saldo = leitor.decimal();
+				double bonus = 0;
+				if (leitor.campo()) {
+					bonus = leitor.decimal();
+					if (leitor.campo())
+						throw linhaInvalida(numeroLinha);
+				}
+				boolean inserida = this.contas.inserir(TiposConta.criar(
+						tipoConta, numero, saldo, bonus));
+				if (inserida)
+					this.gravadas.inserir(TiposConta.criar(tipoConta, numero,
+							saldo, bonus));
+				if (inserida && this.larguraFixa) {
+					// -1: linha fora do lugar, o arquivo sera regravado
+					int linha = inicio % LARGURA_LINHA == 0 ? (int) (inicio / LARGURA_LINHA)
+							: -1;
+					this.posicoes.put(numero, linha);
 				}
-				this.contas.inserir(conta);
 			}
-		} catch (FileNotFoundException e) {
+		} catch (NumberFormatException e) {
+			throw new RepositorioException(e);
+		} catch (IOException e) {
 			throw new RepositorioException(e);
-		} finally {
-			s.close();
 		}
 	}
 
+	private RepositorioException linhaInvalida(int numeroLinha) {
+		return new RepositorioException("Linha " + numeroLinha + " do arquivo "
+				+ this.arquivo.getName() + " invalida!");
+	}
+
 	/**
-	 * Concatena as informacoes da conta no fim do arquivo.
+	 * Separa os campos das linhas do arquivo a partir dos bytes lidos.
+	 */
+	private static final class Leitor {
+
+		private final FileChannel canal;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		/** Bytes do campo atual. */
+		private byte[] campo = new byte[32];
+
+		private int tamanho;
+
+		/** Proximo byte a ser processado, ou -1 no fim do arquivo. */
+		private int atual;
+
+		/** Bytes lidos do arquivo, inclusive <code>atual</code>. */
+		private long lidos;
+
+		/** Numero (a partir de 1) e posicao da linha atual. */
+		int numeroLinha;
+
+		long inicioLinha;
+
+		Leitor(FileChannel canal) {
+			this.canal = canal;
+			this.buffer.flip();
+			this.atual = '\n';
+		}
+
+		private int ler() throws IOException {
+			if (!this.buffer.hasRemaining()) {
+				this.buffer.clear();
+				int n = this.canal.read(this.buffer);
+				this.buffer.flip();
+				if (n <= 0)
+					return -1;
+			}
+			this.lidos++;
+			return this.buffer.get() & 0xff;
+		}
+
+		private static boolean espaco(int c) {
+			return c == ' ' || c == '\t' || c == '\r';
+		}
+
+		/**
+		 * Avanca ate o inicio da proxima linha nao vazia, ignorando linhas
+		 * iniciadas por <code>#</code>.
+		 * 
+		 * @return se ha outra linha.
+		 */
+		boolean proximaLinha() throws IOException {
+			while (true) {
+				if (this.atual == '\n') {
+					this.numeroLinha++;
+					this.inicioLinha = this.lidos;
+				} else if (this.atual == REMOVIDA) {
+					do {
+						this.atual = this.ler();
+					} while (this.atual != '\n' && this.atual != -1);
+					continue;
+				} else if (!espaco(this.atual)) {
+					return this.atual != -1;
+				}
+				this.atual = this.ler();
+			}
+		}
+
+		/**
+		 * Le o proximo campo da linha atual.
+		 * 
+		 * @return se havia outro campo na linha.
+		 */
+		boolean campo() throws IOException {
+			while (espaco(this.atual)) {
+				this.atual = this.ler();
+			}
+			if (this.atual == '\n' || this.atual == -1)
+				return false;
+			this.tamanho = 0;
+			do {
+				if (this.tamanho == this.campo.length)
+					this.campo = Arrays.copyOf(this.campo,
+							this.tamanho * 2);
+				this.campo[this.tamanho++] = (byte) this.atual;
+				this.atual = this.ler();
+			} while (this.atual != -1 && this.atual != '\n'
+					&& !espaco(this.atual));
+			return true;
+		}
+
+		String texto() {
+			return new String(this.campo, 0, this.tamanho,
+					StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Converte o campo em codigo de tipo de conta: um unico caractere e um
+		 * digito hexadecimal (modo de largura fixa), mais caracteres sao um
+		 * inteiro decimal.
+		 * 
+		 * @return codigo do tipo, ou -1 se o campo for invalido.
+		 */
+		int tipo() {
+			if (this.tamanho == 1)
+				return Character.digit(this.campo[0], 16);
+			return this.inteiro();
+		}
+
+		/**
+		 * Converte o campo em inteiro nao negativo.
+		 * 
+		 * @return valor do campo, ou -1 se nao for um inteiro.
+		 */
+		int inteiro() {
+			if (this.tamanho > 9)
+				return -1;
+			int valor = 0;
+			for (int i = 0; i < this.tamanho; i++) {
+				int d = this.campo[i] - '0';
+				if (d < 0 || d > 9)
+					return -1;
+				valor = valor * 10 + d;
+			}
+			return valor;
+		}
+
+		/**
+		 * Converte o campo em double. Decimais simples com ate 15 digitos sao
+		 * calculados como inteiro dividido por potencia de 10, que da o mesmo
+		 * resultado de <code>Double.parseDouble</code> pois ambos os
+		 * operandos sao exatos; os demais casos (expoente, NaN, mais digitos)
+		 * usam <code>Double.parseDouble</code>.
+		 */
+		double decimal() {
+			int i = 0;
+			boolean negativo = false;
+			if (this.campo[0] == '-' || this.campo[0] == '+') {
+				negativo = this.campo[0] == '-';
+				i++;
+			}
+			long mantissa = 0;
+			int digitos = 0;
+			int casas = -1;
+			for (; i < this.tamanho; i++) {
+				int c = this.campo[i];
+				if (c >= '0' && c <= '9') {
+					mantissa = mantissa * 10 + (c - '0');
+					digitos++;
+					if (casas >= 0)
+						casas++;
+				} else if (c == '.' && casas < 0) {
+					casas = 0;
+				} else {
+					return Double.parseDouble(this.texto());
+				}
+			}
+			if (digitos == 0 || digitos > 15)
+				return Double.parseDouble(this.texto());
+			double valor = casas > 0 ? mantissa / POTENCIAS_10[casas]
+					: mantissa;
+			return negativo ? -valor : valor;
+		}
+	}
+
+	/**
+	 * Prepara o modo de largura fixa depois da leitura: se todas as linhas
+	 * estao alinhadas, registra as linhas livres; senao regrava o arquivo.
+	 */
+	private void abrirLarguraFixa() throws RepositorioException {
+		try {
+			this.canal = new RandomAccessFile(this.arquivo, "rw").getChannel();
+			long tamanho = this.canal.size();
+			boolean alinhado = tamanho % LARGURA_LINHA == 0
+					&& !this.posicoes.containsValue(-1);
+			if (!alinhado) {
+				this.compactar();
+				return;
+			}
+			this.linhas = (int) (tamanho / LARGURA_LINHA);
+			boolean[] ocupadas = new boolean[this.linhas];
+			for (int p : this.posicoes.values()) {
+				ocupadas[p] = true;
+			}
+			for (int i = 0; i < this.linhas; i++) {
+				if (!ocupadas[i])
+					this.livres.add(i);
+			}
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Preenche <code>registro</code> com a linha de largura fixa da conta.
+	 */
+	private void escreverRegistro(ContaAbstrata conta)
+			throws RepositorioException {
+		byte tipo = TiposConta.tipo(conta);
+		byte[] numero = conta.getNumero().getBytes(StandardCharsets.UTF_8);
+		if (numero.length > LARGURA_NUMERO)
+			throw new RepositorioException("Numero da conta "
+					+ conta.getNumero() + " tem mais de " + LARGURA_NUMERO
+					+ " bytes!");
+		byte[] r = this.registro;
+		Arrays.fill(r, (byte) ' ');
+		r[0] = (byte) Character.forDigit(tipo, 16);
+		System.arraycopy(numero, 0, r, POS_NUMERO, numero.length);
+		escreverDecimal(r, POS_SALDO, conta.getSaldo());
+		if (TiposConta.especial(tipo))
+			escreverDecimal(r, POS_BONUS, TiposConta.bonus(conta));
+		r[LARGURA_LINHA - 1] = '\n';
+	}
+
+	private static void escreverDecimal(byte[] r, int posicao, double valor) {
+		// Double.toString tem no maximo 24 caracteres ASCII
+		String s = Double.toString(valor);
+		for (int i = 0; i < s.length(); i++) {
+			r[posicao + i] = (byte) s.charAt(i);
+		}
+	}
+
+	/**
+	 * Escreve bytes numa posicao do arquivo.
+	 */
+	private void escrever(ByteBuffer dados, long posicao) throws IOException {
+		while (dados.hasRemaining()) {
+			posicao += this.canal.write(dados, posicao);
+		}
+	}
+
+	/**
+	 * Escreve a conta na sua linha do arquivo de largura fixa.
+	 */
+	private void escreverNaLinha(ContaAbstrata conta, int linha)
+			throws RepositorioException {
+		this.escreverRegistro(conta);
+		try {
+			this.escrever(ByteBuffer.wrap(this.registro), (long) linha
+					* LARGURA_LINHA);
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Regrava o arquivo de largura fixa sem as linhas removidas. As contas
+	 * passam a ocupar as primeiras linhas. O arquivo novo e montado em memoria
+	 * e trocado pelo atual de forma atomica, de modo que uma queda durante a
+	 * compactacao deixa o arquivo anterior inteiro. Nao faz nada no modo
+	 * normal.
 	 * 
-	 * @param conta
-	 *            conta a ser escrita.
 	 * @throws RepositorioException
-	 *             levantada no caso de erro com o arquivo.
+	 *             levantada no caso de um erro com o arquivo.
 	 */
-	private void concatenarEmArquivo(ContaAbstrata conta)
-			throws RepositorioException {
-		FileWriter fw = null;
+	public synchronized void compactar() throws RepositorioException {
+		if (!this.larguraFixa)
+			return;
+		ByteArrayOutputStream dados = new ByteArrayOutputStream(
+				(this.posicoes.size() + 1) * LARGURA_LINHA);
+		HashMap<String, Integer> posicoes = new HashMap<String, Integer>();
+		int linha = 0;
+		IteratorContaAbstrata it = this.gravadas.getIterator();
+		while (it.hasNext()) {
+			ContaAbstrata conta = it.next();
+			this.escreverRegistro(conta);
+			dados.write(this.registro, 0, LARGURA_LINHA);
+			posicoes.put(conta.getNumero(), linha++);
+		}
 		try {
-			fw = new FileWriter(arquivo, true);
-			if (conta instanceof Poupanca) {
-				fw.write("1 " + conta.getNumero() + " " + conta.getSaldo());
-			} else if (conta instanceof ContaImposto) {
-				fw.write("2 " + conta.getNumero() + " " + conta.getSaldo());
-			} else if (conta instanceof ContaEspecial) {
-				fw.write("3 " + conta.getNumero() + " " + conta.getSaldo()
-						+ " " + ((ContaEspecial) conta).getBonus());
-			} else if (conta instanceof Conta) {
-				fw.write("0 " + conta.getNumero() + " " + conta.getSaldo());
-			} else {
-				throw new RepositorioException(new Exception("Erro interno!"));
-			}
-			fw.write("\n");
+			GravacaoEmGrupo.substituir(this.arquivo, dados);
+			// o canal aberto ainda aponta para o arquivo substituido
+			this.canal.close();
+			this.canal = new RandomAccessFile(this.arquivo, "rw").getChannel();
 		} catch (IOException e) {
 			throw new RepositorioException(e);
-		} finally {
-			try {
-				fw.close();
-			} catch (IOException e) {
-				throw new RepositorioException(e);
-			}
 		}
+		this.posicoes = posicoes;
+		this.livres.clear();
+		this.linhas = linha;
 	}
 
 	/**
-	 * Escreve todas as contas do array em um arquivo texto.
+	 * Fecha o arquivo do modo de largura fixa.
 	 * 
 	 * @throws RepositorioException
 	 *             levantada no caso de um erro com o arquivo.
 	 */
-	private void gravarArquivo() throws RepositorioException {
-		FileWriter fw = null;
+	public synchronized void fechar() throws RepositorioException {
+		if (this.canal == null)
+			return;
+		try {
+			this.canal.close();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Escreve a linha de uma conta, terminada por quebra de linha.
+	 */
+	private void escreverLinha(ContaAbstrata conta)
+			throws RepositorioException {
+		byte tipo = TiposConta.tipo(conta);
+		StringBuilder sb = this.linha;
+		sb.setLength(0);
+		sb.append(tipo).append(' ').append(conta.getNumero()).append(' ')
+				.append(conta.getSaldo());
+		if (TiposConta.especial(tipo))
+			sb.append(' ').append(TiposConta.bonus(conta));
+		sb.append('\n');
+	}
+
+	/**
+	 * Acumula a linha da conta para ser acrescentada ao arquivo na proxima
+	 * gravacao.
+	 */
+	private void anotarInsercao(ContaAbstrata conta)
+			throws RepositorioException {
+		if (this.regravar)
+			return;
+		this.escreverLinha(conta);
+		byte[] bytes = this.linha.toString().getBytes(StandardCharsets.UTF_8);
+		this.pendentes.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Marca o arquivo para ser regravado por inteiro na proxima gravacao.
+	 */
+	private void anotarRegravacao() {
+		this.regravar = true;
+		this.pendentes.reset();
+	}
+
+	/**
+	 * Grava as alteracoes anotadas desde a ultima gravacao e sincroniza o
+	 * arquivo com o disco. No modo de largura fixa as linhas ja foram
+	 * escritas e o arquivo so e sincronizado.
+	 */
+	private void gravarAgora() throws RepositorioException {
 		try {
-			fw = new FileWriter(arquivo);
-			IteratorContaAbstrata it = contas.getIterator();
-			while (it.hasNext()) {
-				ContaAbstrata c = it.next();
-				if (c instanceof Conta) {
-					fw.write("0 " + c.getNumero() + " " + c.getSaldo());
-				} else if (c instanceof Poupanca) {
-					fw.write("1 " + c.getNumero() + " " + c.getSaldo());
-				} else if (c instanceof ContaImposto) {
-					fw.write("2 " + c.getNumero() + " " + c.getSaldo());
-				} else if (c instanceof ContaEspecial) {
-					fw.write("3 " + c.getNumero() + " " + c.getSaldo() + " "
-							+ ((ContaEspecial) c).getBonus());
+			if (this.larguraFixa) {
+				FileChannel canal;
+				synchronized (this) {
+					canal = this.canal;
+				}
+				try {
+					if (canal != null)
+						canal.force(false);
+				} catch (ClosedChannelException e) {
+					// trocado por compactar, que ja sincronizou o arquivo
+					// novo com tudo o que foi escrito no antigo
+				}
+				return;
+			}
+			boolean completo;
+			this.saida.reset();
+			synchronized (this) {
+				completo = this.regravar;
+				if (completo) {
+					Writer w = new BufferedWriter(new OutputStreamWriter(
+							this.saida, StandardCharsets.UTF_8), 1 << 16);
+					IteratorContaAbstrata it = this.gravadas.getIterator();
+					while (it.hasNext()) {
+						this.escreverLinha(it.next());
+						w.append(this.linha);
+					}
+					w.flush();
 				} else {
-					throw new RepositorioException(new Exception(
-							"Tipo de conta nao suportado!"));
+					this.pendentes.writeTo(this.saida);
 				}
-				fw.write("\n");
+				this.regravar = false;
+				this.pendentes.reset();
 			}
+			if (completo)
+				GravacaoEmGrupo.substituir(this.arquivo, this.saida);
+			else if (this.saida.size() > 0)
+				GravacaoEmGrupo.acrescentar(this.arquivo, this.saida);
 		} catch (IOException e) {
 			throw new RepositorioException(e);
-		} finally {
-			try {
-				fw.close();
-			} catch (IOException e) {
-				throw new RepositorioException(e);
-			}
 		}
 	}
 
 	@Override
 	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
-		boolean sucesso = contas.inserir(conta);
-		if (sucesso) {
-			this.concatenarEmArquivo(conta);
+		ContaAbstrata copia = TiposConta.copiar(conta);
+		synchronized (this) {
+			if (this.larguraFixa) {
+				// valida o numero antes de alterar o repositorio em memoria
+				this.escreverRegistro(copia);
+				if (!contas.inserir(conta))
+					return false;
+				this.gravadas.inserir(copia);
+				Integer livre = this.livres.poll();
+				int linha = livre != null ? livre : this.linhas++;
+				this.posicoes.put(conta.getNumero(), linha);
+				try {
+					this.escrever(ByteBuffer.wrap(this.registro), (long) linha
+							* LARGURA_LINHA);
+				} catch (IOException e) {
+					throw new RepositorioException(e);
+				}
+			} else {
+				if (!contas.inserir(conta))
+					return false;
+				this.gravadas.inserir(copia);
+				this.anotarInsercao(copia);
+			}
 		}
-		return sucesso;
+		this.grupo.confirmar();
+		return true;
 	}
 
 	@Override
@@ -190,20 +690,79 @@ public class RepositorioContasArquivoTxt implements IRepositorioContas {
 
 	@Override
 	public boolean remover(String numero) throws RepositorioException {
-		boolean sucesso = contas.remover(numero);
-		if (sucesso) {
-			this.gravarArquivo();
+		synchronized (this) {
+			if (!contas.remover(numero))
+				return false;
+			this.gravadas.remover(numero);
+			if (this.larguraFixa)
+				this.marcarRemovida(this.posicoes.remove(numero));
+			else
+				this.anotarRegravacao();
+		}
+		this.grupo.confirmar();
+		return true;
+	}
+
+	/**
+	 * Marca a linha como removida e compacta o arquivo se as linhas removidas
+	 * passaram a ser mais numerosas que as contas.
+	 */
+	private void marcarRemovida(int linha) throws RepositorioException {
+		try {
+			this.escrever(ByteBuffer.wrap(new byte[] { REMOVIDA }), (long) linha
+					* LARGURA_LINHA);
+		} catch (IOException e) {
+			throw new RepositorioException(e);
 		}
-		return sucesso;
+		this.livres.add(linha);
+		if (this.livres.size() >= LIMITE_REMOVIDAS
+				&& this.livres.size() > this.posicoes.size())
+			this.compactar();
 	}
 
 	@Override
 	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
-		boolean sucesso = contas.atualizar(conta);
-		if (sucesso) {
-			this.gravarArquivo();
+		ContaAbstrata copia = TiposConta.copiar(conta);
+		synchronized (this) {
+			if (!contas.atualizar(conta))
+				return false;
+			this.gravadas.atualizar(copia);
+			if (this.larguraFixa)
+				this.escreverNaLinha(copia,
+						this.posicoes.get(conta.getNumero()));
+			else
+				this.anotarRegravacao();
+		}
+		this.grupo.confirmar();
+		return true;
+	}
+
+	@Override
+	public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		List<ContaAbstrata> copias = TiposConta.copiar(contas);
+		int atualizadas;
+		synchronized (this) {
+			atualizadas = this.contas.atualizarLote(contas);
+			if (atualizadas == 0)
+				return 0;
+			this.gravadas.atualizarLote(copias);
+			if (this.larguraFixa) {
+				// linhas escritas no lugar uma a uma deixariam o lote pela
+				// metade numa queda; o arquivo e regravado de forma atomica
+				if (copias.size() == 1) {
+					ContaAbstrata conta = copias.get(0);
+					this.escreverNaLinha(conta,
+							this.posicoes.get(conta.getNumero()));
+				} else {
+					this.compactar();
+				}
+			} else {
+				this.anotarRegravacao();
+			}
 		}
-		return sucesso;
+		this.grupo.confirmar();
+		return atualizadas;
 	}
 
 	@Override
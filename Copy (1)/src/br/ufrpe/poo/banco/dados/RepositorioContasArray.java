@@ -108,6 +108,6 @@ public class RepositorioContasArray implements IRepositorioContas {
 
 	@Override
 	public IteratorContaAbstrata getIterator() {
-		return new IteratorContaAbstrataArray(this.contas);
+		return new IteratorContaAbstrataArray(this.contas, this.indice);
 	}
 }
\ No newline at end of file
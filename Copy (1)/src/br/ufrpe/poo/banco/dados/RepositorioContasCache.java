@@ -0,0 +1,215 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Decorador que guarda em memoria as contas mais procuradas de outro
+ * repositorio, para uso na frente de repositorios lentos (em disco ou
+ * remotos).
+ *
+ * O cache e limitado a <code>capacidade</code> contas e descarta a usada ha
+ * mais tempo (LRU). <code>atualizar</code> e <code>inserir</code> gravam no
+ * repositorio decorado e depois no cache (write-through);
+ * <code>remover</code> e <code>atualizarLote</code> retiram as contas do
+ * cache, antes e depois de gravar. <code>procurar</code> so consulta o
+ * repositorio decorado quando a conta nao esta no cache, fora da trava do
+ * cache; se houver uma alteracao durante a consulta, a conta lida nao e
+ * guardada, para nao guardar um valor antigo.
+ *
+ * Os contadores de acertos, faltas e descartes podem ser lidos a qualquer
+ * momento. As escritas devem ser serializadas pelo chamador, como faz
+ * <code>BancoConcorrente</code>.
+ */
+public class RepositorioContasCache implements IRepositorioContas {
+
+	/** Capacidade padrao do cache, em contas. */
+	public static final int CAPACIDADE_PADRAO = 10000;
+
+	/** Repositorio decorado. */
+	private final IRepositorioContas contas;
+
+	/** Contas em cache, na ordem do uso mais antigo para o mais recente. */
+	private final LinkedHashMap<String, ContaAbstrata> cache;
+
+	/** Incrementada a cada alteracao, invalida consultas em andamento. */
+	private long versao;
+
+	private long acertos;
+
+	private long faltas;
+
+	private long descartes;
+
+	/**
+	 * Cria o cache com a capacidade padrao.
+	 *
+	 * @param contas
+	 *            repositorio decorado.
+	 */
+	public RepositorioContasCache(IRepositorioContas contas) {
+		this(contas, CAPACIDADE_PADRAO);
+	}
+
+	/**
+	 * Cria o cache.
+	 *
+	 * @param contas
+	 *            repositorio decorado.
+	 * @param capacidade
+	 *            maximo de contas no cache.
+	 */
+	public RepositorioContasCache(IRepositorioContas contas,
+			final int capacidade) {
+		if (capacidade < 1)
+			throw new IllegalArgumentException("Capacidade invalida: "
+					+ capacidade);
+		this.contas = contas;
+		this.cache = new LinkedHashMap<String, ContaAbstrata>(Math.min(
+				capacidade, 1 << 16) * 4 / 3 + 1, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, ContaAbstrata> maisAntiga) {
+				if (this.size() <= capacidade)
+					return false;
+				RepositorioContasCache.this.descartes++;
+				return true;
+			}
+		};
+	}
+
+	@Override
+	public ContaAbstrata procurar(String numero) {
+		long versaoConsulta;
+		synchronized (this) {
+			ContaAbstrata conta = this.cache.get(numero);
+			if (conta != null) {
+				this.acertos++;
+				return conta;
+			}
+			this.faltas++;
+			versaoConsulta = this.versao;
+		}
+		ContaAbstrata conta = this.contas.procurar(numero);
+		if (conta != null) {
+			synchronized (this) {
+				if (this.versao == versaoConsulta)
+					this.cache.put(numero, conta);
+			}
+		}
+		return conta;
+	}
+
+	@Override
+	public boolean existe(String numero) {
+		synchronized (this) {
+			if (this.cache.containsKey(numero))
+				return true;
+		}
+		return this.contas.existe(numero);
+	}
+
+	@Override
+	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
+		this.invalidar(conta.getNumero());
+		boolean sucesso = this.contas.inserir(conta);
+		if (sucesso)
+			this.guardar(conta);
+		return sucesso;
+	}
+
+	@Override
+	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
+		this.invalidar(conta.getNumero());
+		boolean sucesso = this.contas.atualizar(conta);
+		if (sucesso)
+			this.guardar(conta);
+		return sucesso;
+	}
+
+	@Override
+	public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		this.invalidar(contas);
+		int atualizadas = this.contas.atualizarLote(contas);
+		// uma consulta durante a gravacao pode ter guardado o valor antigo
+		this.invalidar(contas);
+		return atualizadas;
+	}
+
+	@Override
+	public boolean remover(String numero) throws RepositorioException {
+		this.invalidar(numero);
+		boolean sucesso = this.contas.remover(numero);
+		this.invalidar(numero);
+		return sucesso;
+	}
+
+	/**
+	 * Retira a conta do cache e invalida as consultas em andamento.
+	 */
+	private synchronized void invalidar(String numero) {
+		this.versao++;
+		this.cache.remove(numero);
+	}
+
+	/**
+	 * Retira as contas do cache e invalida as consultas em andamento.
+	 */
+	private synchronized void invalidar(
+			Collection<? extends ContaAbstrata> contas) {
+		this.versao++;
+		for (ContaAbstrata conta : contas) {
+			this.cache.remove(conta.getNumero());
+		}
+	}
+
+	/**
+	 * Guarda no cache uma conta recem-gravada.
+	 */
+	private synchronized void guardar(ContaAbstrata conta) {
+		this.versao++;
+		this.cache.put(conta.getNumero(), conta);
+	}
+
+	@Override
+	public IteratorContaAbstrata getIterator() {
+		return this.contas.getIterator();
+	}
+
+	/**
+	 * Esvazia o cache, sem alterar os contadores.
+	 */
+	public synchronized void limpar() {
+		this.versao++;
+		this.cache.clear();
+	}
+
+	/** Retorna o numero de contas no cache. */
+	public synchronized int getTamanho() {
+		return this.cache.size();
+	}
+
+	/** Retorna quantas vezes <code>procurar</code> achou a conta no cache. */
+	public synchronized long getAcertos() {
+		return this.acertos;
+	}
+
+	/** Retorna quantas vezes <code>procurar</code> consultou o repositorio. */
+	public synchronized long getFaltas() {
+		return this.faltas;
+	}
+
+	/** Retorna quantas contas foram descartadas por falta de espaco. */
+	public synchronized long getDescartes() {
+		return this.descartes;
+	}
+}
@@ -0,0 +1,380 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrataArray;
+import br.ufrpe.poo.banco.negocio.Centavos;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Implementacao de repositorio que guarda as contas em colunas: arrays
+ * paralelos com o tipo (codigos de <code>TiposConta</code>), o numero, o
+ * saldo e o bonus de cada conta, e um indice do numero para a posicao.
+ *
+ * O repositorio guarda valores e nao objetos: <code>procurar</code> cria uma
+ * conta com os valores atuais e as alteracoes feitas nela so passam a valer
+ * depois de <code>atualizar</code>. Operacoes em massa, como
+ * <code>renderJuros</code> e <code>renderBonus</code>, percorrem os arrays
+ * primitivos diretamente, sem criar contas.
+ */
+public class RepositorioContasColunar implements IRepositorioContas {
+
+	/** Tipo de cada conta. */
+	private byte[] tipos;
+
+	/** Numero de cada conta. */
+	private String[] numeros;
+
+	/** Saldo de cada conta. */
+	private double[] saldos;
+
+	/** Bonus de cada conta (zero para contas que nao sao especiais). */
+	private double[] bonus;
+
+	/** Quantidade de contas; as posicoes de 0 a tamanho - 1 estao ocupadas. */
+	private int tamanho;
+
+	/** Posicao de cada conta a partir do numero. */
+	private HashMap<String, Integer> posicoes;
+
+	/**
+	 * Constroi um repositorio vazio com capacidade inicial de 100 contas.
+	 */
+	public RepositorioContasColunar() {
+		this(100);
+	}
+
+	/**
+	 * Constroi um repositorio vazio.
+	 *
+	 * @param capacidade
+	 *            numero de contas esperado, evita redimensionamentos.
+	 */
+	public RepositorioContasColunar(int capacidade) {
+		if (capacidade < 1)
+			capacidade = 1;
+		this.tipos = new byte[capacidade];
+		this.numeros = new String[capacidade];
+		this.saldos = new double[capacidade];
+		this.bonus = new double[capacidade];
+		this.posicoes = new HashMap<String, Integer>(capacidade * 2);
+	}
+
+	/**
+	 * Dobra a capacidade das colunas.
+	 */
+	private void crescer() {
+		int capacidade = this.tipos.length * 2;
+		this.tipos = Arrays.copyOf(this.tipos, capacidade);
+		this.numeros = Arrays.copyOf(this.numeros, capacidade);
+		this.saldos = Arrays.copyOf(this.saldos, capacidade);
+		this.bonus = Arrays.copyOf(this.bonus, capacidade);
+	}
+
+	/**
+	 * Cria a conta guardada na posicao informada.
+	 */
+	private ContaAbstrata criar(int i) {
+		try {
+			return TiposConta.criar(this.tipos[i], this.numeros[i],
+					this.saldos[i], this.bonus[i]);
+		} catch (RepositorioException e) {
+			// os tipos guardados vieram de TiposConta.tipo
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Retorna a quantidade de contas do repositorio.
+	 *
+	 * @return quantidade de contas.
+	 */
+	public int getTamanho() {
+		return this.tamanho;
+	}
+
+	@Override
+	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
+		if (this.posicoes.containsKey(conta.getNumero()))
+			return false;
+		byte tipo = TiposConta.tipo(conta);
+		if (this.tamanho == this.tipos.length)
+			this.crescer();
+		int i = this.tamanho;
+		this.tipos[i] = tipo;
+		this.numeros[i] = conta.getNumero();
+		this.saldos[i] = conta.getSaldo();
+		this.bonus[i] = TiposConta.bonus(conta);
+		this.posicoes.put(conta.getNumero(), i);
+		this.tamanho = i + 1;
+		return true;
+	}
+
+	@Override
+	public ContaAbstrata procurar(String numero) {
+		Integer i = this.posicoes.get(numero);
+		if (i == null)
+			return null;
+		return this.criar(i);
+	}
+
+	@Override
+	public boolean remover(String numero) throws RepositorioException {
+		Integer removida = this.posicoes.remove(numero);
+		if (removida == null)
+			return false;
+		int i = removida;
+		int ultima = this.tamanho - 1;
+		if (i != ultima) {
+			this.tipos[i] = this.tipos[ultima];
+			this.numeros[i] = this.numeros[ultima];
+			this.saldos[i] = this.saldos[ultima];
+			this.bonus[i] = this.bonus[ultima];
+			this.posicoes.put(this.numeros[i], i);
+		}
+		this.numeros[ultima] = null;
+		this.tamanho = ultima;
+		return true;
+	}
+
+	@Override
+	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
+		Integer i = this.posicoes.get(conta.getNumero());
+		if (i == null)
+			return false;
+		this.tipos[i] = TiposConta.tipo(conta);
+		this.saldos[i] = conta.getSaldo();
+		this.bonus[i] = TiposConta.bonus(conta);
+		return true;
+	}
+
+	@Override
+	public boolean existe(String numero) {
+		return this.posicoes.containsKey(numero);
+	}
+
+	@Override
+	public IteratorContaAbstrata getIterator() {
+		ContaAbstrata[] contas = new ContaAbstrata[this.tamanho];
+		for (int i = 0; i < this.tamanho; i++) {
+			contas[i] = this.criar(i);
+		}
+		return new IteratorContaAbstrataArray(contas, contas.length);
+	}
+
+	/**
+	 * Cria as contas sob demanda, a medida que o spliterator e percorrido.
+	 */
+	@Override
+	public Spliterator<ContaAbstrata> spliterator() {
+		return new Trecho(0, this.tamanho);
+	}
+
+	/**
+	 * Spliterator sobre um trecho das posicoes, dividido ao meio.
+	 */
+	private class Trecho implements Spliterator<ContaAbstrata> {
+
+		private int inicio;
+
+		private final int fim;
+
+		Trecho(int inicio, int fim) {
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super ContaAbstrata> acao) {
+			if (this.inicio >= this.fim)
+				return false;
+			acao.accept(criar(this.inicio++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super ContaAbstrata> acao) {
+			int i = this.inicio;
+			this.inicio = this.fim;
+			for (; i < this.fim; i++) {
+				acao.accept(criar(i));
+			}
+		}
+
+		@Override
+		public Spliterator<ContaAbstrata> trySplit() {
+			int meio = (this.inicio + this.fim) >>> 1;
+			if (meio <= this.inicio)
+				return null;
+			Trecho prefixo = new Trecho(this.inicio, meio);
+			this.inicio = meio;
+			return prefixo;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.fim - this.inicio;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+	}
+
+	/**
+	 * Credita juros a todas as poupancas, como
+	 * <code>Poupanca.renderJuros</code>.
+	 *
+	 * @param taxa
+	 *            taxa de juros.
+	 * @return quantidade de poupancas.
+	 */
+	public int renderJuros(double taxa) {
+		return this.renderJuros(taxa, 0, this.tamanho);
+	}
+
+	/**
+	 * Credita juros as poupancas das posicoes de <code>inicio</code> a
+	 * <code>fim - 1</code>. Trechos disjuntos podem ser processados por
+	 * threads diferentes.
+	 *
+	 * @param taxa
+	 *            taxa de juros.
+	 * @param inicio
+	 *            primeira posicao.
+	 * @param fim
+	 *            posicao seguinte a ultima.
+	 * @return quantidade de poupancas no trecho.
+	 */
+	public int renderJuros(double taxa, int inicio, int fim) {
+		return this.renderJuros(taxa, inicio, fim, null);
+	}
+
+	/**
+	 * Credita juros as poupancas do trecho, somando os juros creditados em
+	 * cada conta.
+	 *
+	 * @param taxa
+	 *            taxa de juros.
+	 * @param inicio
+	 *            primeira posicao.
+	 * @param fim
+	 *            posicao seguinte a ultima.
+	 * @param creditado
+	 *            recebe em <code>creditado[0]</code> a soma dos juros
+	 *            creditados; pode ser <code>null</code>.
+	 * @return quantidade de poupancas no trecho.
+	 */
+	public int renderJuros(double taxa, int inicio, int fim, double[] creditado) {
+		byte[] t = this.tipos;
+		double[] s = this.saldos;
+		int poupancas = 0;
+		double soma = 0;
+		Centavos.Taxa taxaCentavos = new Centavos.Taxa(taxa);
+		for (int i = inicio; i < fim; i++) {
+			if (t[i] == TiposConta.POUPANCA
+					|| t[i] == TiposConta.POUPANCA_CONCORRENTE) {
+				double juros = s[i] * taxa;
+				if (juros > 0) {
+					s[i] = s[i] + juros;
+					soma += juros;
+				}
+				poupancas++;
+			} else if (t[i] == TiposConta.POUPANCA_CENTAVOS) {
+				long centavos = Centavos.converter(s[i]);
+				long juros = taxaCentavos.juros(centavos);
+				if (juros > 0) {
+					s[i] = Centavos.reais(centavos + juros);
+					soma += Centavos.reais(juros);
+				}
+				poupancas++;
+			}
+		}
+		if (creditado != null)
+			creditado[0] += soma;
+		return poupancas;
+	}
+
+	/**
+	 * Credita o bonus de todas as contas especiais e zera o bonus, como
+	 * <code>ContaEspecial.renderBonus</code>.
+	 *
+	 * @return quantidade de contas especiais.
+	 */
+	public int renderBonus() {
+		return this.renderBonus(0, this.tamanho);
+	}
+
+	/**
+	 * Credita o bonus das contas especiais das posicoes de
+	 * <code>inicio</code> a <code>fim - 1</code>.
+	 *
+	 * @param inicio
+	 *            primeira posicao.
+	 * @param fim
+	 *            posicao seguinte a ultima.
+	 * @return quantidade de contas especiais no trecho.
+	 */
+	public int renderBonus(int inicio, int fim) {
+		return this.renderBonus(inicio, fim, null);
+	}
+
+	/**
+	 * Credita o bonus das contas especiais do trecho, somando os bonus
+	 * creditados em cada conta.
+	 *
+	 * @param inicio
+	 *            primeira posicao.
+	 * @param fim
+	 *            posicao seguinte a ultima.
+	 * @param creditado
+	 *            recebe em <code>creditado[0]</code> a soma dos bonus
+	 *            creditados; pode ser <code>null</code>.
+	 * @return quantidade de contas especiais no trecho.
+	 */
+	public int renderBonus(int inicio, int fim, double[] creditado) {
+		byte[] t = this.tipos;
+		double[] s = this.saldos;
+		double[] b = this.bonus;
+		int especiais = 0;
+		double soma = 0;
+		for (int i = inicio; i < fim; i++) {
+			if (TiposConta.especial(t[i])) {
+				if (b[i] > 0) {
+					s[i] = s[i] + b[i];
+					soma += b[i];
+				}
+				b[i] = 0;
+				especiais++;
+			}
+		}
+		if (creditado != null)
+			creditado[0] += soma;
+		return especiais;
+	}
+
+	/**
+	 * Soma os saldos das contas das posicoes de <code>inicio</code> a
+	 * <code>fim - 1</code>.
+	 *
+	 * @param inicio
+	 *            primeira posicao.
+	 * @param fim
+	 *            posicao seguinte a ultima.
+	 * @return soma dos saldos.
+	 */
+	public double somarSaldos(int inicio, int fim) {
+		double[] s = this.saldos;
+		double soma = 0;
+		for (int i = inicio; i < fim; i++) {
+			soma += s[i];
+		}
+		return soma;
+	}
+}
@@ -0,0 +1,316 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Decorador que adia as atualizacoes de contas (write-behind).
+ *
+ * <code>atualizar</code> e <code>atualizarLote</code> apenas marcam a conta
+ * como alterada; varias atualizacoes da mesma conta viram uma so. As contas
+ * alteradas sao gravadas no repositorio decorado numa unica chamada a
+ * <code>atualizarLote</code> (uma regravacao do arquivo, nos repositorios em
+ * arquivo) quando passam de <code>limite</code>, a cada
+ * <code>intervalo</code> milissegundos, em <code>descarregar</code> e em
+ * <code>fechar</code>. Insercoes e remocoes sao repassadas na hora.
+ *
+ * Ate a gravacao terminar, <code>procurar</code>, <code>existe</code> e
+ * <code>getIterator</code> ja refletem as atualizacoes: o lote em gravacao
+ * continua visivel enquanto o repositorio decorado o grava. Em caso de queda,
+ * as atualizacoes dos ultimos <code>intervalo</code> milissegundos podem ser
+ * perdidas. Se uma gravacao em segundo plano falhar, as contas continuam
+ * marcadas e o erro e levantado na proxima atualizacao.
+ *
+ * As escritas devem ser serializadas pelo chamador, como faz
+ * <code>BancoConcorrente</code>; a gravacao em segundo plano pode ocorrer ao
+ * mesmo tempo que elas.
+ */
+public class RepositorioContasEscritaAtrasada implements IRepositorioContas {
+
+	/** Intervalo padrao entre gravacoes, em milissegundos. */
+	public static final long INTERVALO_PADRAO = 100;
+
+	/** Numero padrao de contas alteradas que dispara uma gravacao. */
+	public static final int LIMITE_PADRAO = 1000;
+
+	/** Repositorio decorado. */
+	private final IRepositorioContas contas;
+
+	/** Numero de contas alteradas que dispara uma gravacao. */
+	private final int limite;
+
+	/** Contas alteradas ainda nao gravadas, pelo numero. */
+	private LinkedHashMap<String, ContaAbstrata> alteradas = new LinkedHashMap<String, ContaAbstrata>();
+
+	/**
+	 * Lote sendo gravado por <code>descarregar</code>, vazio fora da gravacao.
+	 * As contas de <code>alteradas</code> sao mais novas que as deste lote.
+	 */
+	private Map<String, ContaAbstrata> emGravacao = Collections.emptyMap();
+
+	/** Serializa as gravacoes, insercoes e remocoes no repositorio decorado. */
+	private final Object gravacao = new Object();
+
+	/** Agenda as gravacoes periodicas, ou <code>null</code>. */
+	private final ScheduledExecutorService agendador;
+
+	/** Erro da ultima gravacao em segundo plano. */
+	private RepositorioException falha;
+
+	private long atualizacoes;
+
+	private long gravacoes;
+
+	/**
+	 * Cria o decorador com o intervalo e o limite padrao.
+	 *
+	 * @param contas
+	 *            repositorio decorado.
+	 */
+	public RepositorioContasEscritaAtrasada(IRepositorioContas contas) {
+		this(contas, INTERVALO_PADRAO, LIMITE_PADRAO);
+	}
+
+	/**
+	 * Cria o decorador.
+	 *
+	 * @param contas
+	 *            repositorio decorado.
+	 * @param intervalo
+	 *            intervalo entre gravacoes, em milissegundos; 0 desativa as
+	 *            gravacoes periodicas.
+	 * @param limite
+	 *            numero de contas alteradas que dispara uma gravacao.
+	 */
+	public RepositorioContasEscritaAtrasada(IRepositorioContas contas,
+			long intervalo, int limite) {
+		if (intervalo < 0 || limite < 1)
+			throw new IllegalArgumentException("Intervalo ou limite invalido!");
+		this.contas = contas;
+		this.limite = limite;
+		if (intervalo > 0) {
+			this.agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "escrita-atrasada");
+				t.setDaemon(true);
+				return t;
+			});
+			this.agendador.scheduleWithFixedDelay(this::descarregarAgendado,
+					intervalo, intervalo, TimeUnit.MILLISECONDS);
+		} else {
+			this.agendador = null;
+		}
+	}
+
+	@Override
+	public ContaAbstrata procurar(String numero) {
+		synchronized (this) {
+			ContaAbstrata conta = this.alteradas.get(numero);
+			if (conta == null)
+				conta = this.emGravacao.get(numero);
+			if (conta != null)
+				return conta;
+		}
+		return this.contas.procurar(numero);
+	}
+
+	@Override
+	public boolean existe(String numero) {
+		synchronized (this) {
+			if (this.alteradas.containsKey(numero)
+					|| this.emGravacao.containsKey(numero))
+				return true;
+		}
+		return this.contas.existe(numero);
+	}
+
+	@Override
+	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
+		this.verificarFalha();
+		if (!this.existe(conta.getNumero()))
+			return false;
+		boolean cheio;
+		synchronized (this) {
+			this.alteradas.put(conta.getNumero(), conta);
+			this.atualizacoes++;
+			cheio = this.alteradas.size() >= this.limite;
+		}
+		if (cheio)
+			this.descarregar();
+		return true;
+	}
+
+	@Override
+	public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		this.verificarFalha();
+		ArrayList<ContaAbstrata> existentes = new ArrayList<ContaAbstrata>(
+				contas.size());
+		for (ContaAbstrata conta : contas) {
+			if (this.existe(conta.getNumero()))
+				existentes.add(conta);
+		}
+		boolean cheio;
+		synchronized (this) {
+			for (ContaAbstrata conta : existentes) {
+				this.alteradas.put(conta.getNumero(), conta);
+			}
+			this.atualizacoes += existentes.size();
+			cheio = this.alteradas.size() >= this.limite;
+		}
+		if (cheio)
+			this.descarregar();
+		return existentes.size();
+	}
+
+	@Override
+	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
+		synchronized (this.gravacao) {
+			return this.contas.inserir(conta);
+		}
+	}
+
+	@Override
+	public boolean remover(String numero) throws RepositorioException {
+		synchronized (this.gravacao) {
+			synchronized (this) {
+				this.alteradas.remove(numero);
+			}
+			return this.contas.remover(numero);
+		}
+	}
+
+	/**
+	 * Grava as contas alteradas no repositorio decorado. Se a gravacao
+	 * falhar, as contas continuam marcadas como alteradas.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na gravacao.
+	 */
+	public void descarregar() throws RepositorioException {
+		synchronized (this.gravacao) {
+			LinkedHashMap<String, ContaAbstrata> lote;
+			synchronized (this) {
+				if (this.alteradas.isEmpty())
+					return;
+				lote = this.alteradas;
+				this.alteradas = new LinkedHashMap<String, ContaAbstrata>();
+				this.emGravacao = lote;
+			}
+			try {
+				this.contas.atualizarLote(lote.values());
+			} catch (RepositorioException | RuntimeException e) {
+				synchronized (this) {
+					// alteracoes mais novas das mesmas contas prevalecem
+					for (Map.Entry<String, ContaAbstrata> a : lote.entrySet()) {
+						this.alteradas.putIfAbsent(a.getKey(), a.getValue());
+					}
+					this.emGravacao = Collections.emptyMap();
+				}
+				throw e;
+			}
+			synchronized (this) {
+				this.emGravacao = Collections.emptyMap();
+				this.gravacoes++;
+			}
+		}
+	}
+
+	private void descarregarAgendado() {
+		try {
+			this.descarregar();
+		} catch (RepositorioException e) {
+			synchronized (this) {
+				this.falha = e;
+			}
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				this.falha = new RepositorioException(e);
+			}
+		}
+	}
+
+	/**
+	 * Levanta o erro da ultima gravacao em segundo plano, se houver.
+	 */
+	private synchronized void verificarFalha() throws RepositorioException {
+		RepositorioException e = this.falha;
+		if (e != null) {
+			this.falha = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Encerra as gravacoes periodicas e grava as contas alteradas.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na gravacao.
+	 */
+	public void fechar() throws RepositorioException {
+		if (this.agendador != null) {
+			this.agendador.shutdown();
+			try {
+				this.agendador.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.descarregar();
+	}
+
+	@Override
+	public IteratorContaAbstrata getIterator() {
+		final IteratorContaAbstrata it = this.contas.getIterator();
+		final Map<String, ContaAbstrata> alteradas;
+		synchronized (this) {
+			alteradas = new LinkedHashMap<String, ContaAbstrata>(this.emGravacao);
+			alteradas.putAll(this.alteradas);
+		}
+		if (alteradas.isEmpty())
+			return it;
+		return new IteratorContaAbstrata() {
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public ContaAbstrata next() {
+				ContaAbstrata conta = it.next();
+				ContaAbstrata alterada = alteradas.get(conta.getNumero());
+				return alterada != null ? alterada : conta;
+			}
+		};
+	}
+
+	/** Retorna o numero de contas alteradas ainda nao gravadas. */
+	public synchronized int getPendentes() {
+		int pendentes = this.alteradas.size();
+		for (String numero : this.emGravacao.keySet()) {
+			if (!this.alteradas.containsKey(numero))
+				pendentes++;
+		}
+		return pendentes;
+	}
+
+	/** Retorna o numero de atualizacoes recebidas. */
+	public synchronized long getAtualizacoes() {
+		return this.atualizacoes;
+	}
+
+	/** Retorna o numero de gravacoes feitas no repositorio decorado. */
+	public synchronized long getGravacoes() {
+		return this.gravacoes;
+	}
+}
@@ -0,0 +1,232 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.Arrays;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrataArray;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+
+/**
+ * Implementacao de repositorio que mantem as contas na memoria em um array,
+ * indexado por uma tabela hash de enderecamento aberto sobre o numero da
+ * conta.
+ *
+ * As contas ficam contiguas no array (remocao troca a conta removida pela
+ * ultima), como em <code>RepositorioContasArray</code>, mas
+ * <code>procurar</code>, <code>existe</code>, <code>atualizar</code>,
+ * <code>remover</code> e <code>inserir</code> nao percorrem o array.
+ */
+public class RepositorioContasHash implements IRepositorioContas {
+
+	/** Posicao vazia na tabela hash. */
+	private static final int VAZIO = -1;
+
+	/** Array que mantem as contas. */
+	private ContaAbstrata[] contas;
+
+	/** Proxima posicao livre no array. */
+	private int indice;
+
+	/**
+	 * Tabela hash (sondagem linear) com o indice no array de cada conta.
+	 * Tamanho sempre potencia de 2 e ao menos o dobro do numero de contas.
+	 */
+	private int[] tabela;
+
+	/**
+	 * Constroi um repositorio com array indexado.
+	 *
+	 * Tamanho inicial do array sao 100 posicoes.
+	 */
+	public RepositorioContasHash() {
+		this(100);
+	}
+
+	/**
+	 * Constroi um repositorio com array indexado.
+	 *
+	 * @param capacidade
+	 *            numero de contas esperado, evita redimensionamentos.
+	 */
+	public RepositorioContasHash(int capacidade) {
+		if (capacidade < 1)
+			capacidade = 1;
+		contas = new ContaAbstrata[capacidade];
+		indice = 0;
+		tabela = novaTabela(capacidade);
+	}
+
+	/**
+	 * Cria uma tabela vazia com capacidade para o numero de contas informado.
+	 *
+	 * @param capacidade
+	 *            numero de contas.
+	 * @return tabela com todas as posicoes vazias.
+	 */
+	private static int[] novaTabela(int capacidade) {
+		int tamanho = Integer.highestOneBit(Math.max(capacidade, 8) * 2 - 1) << 1;
+		int[] t = new int[tamanho];
+		Arrays.fill(t, VAZIO);
+		return t;
+	}
+
+	/**
+	 * Posicao inicial de um numero de conta na tabela.
+	 *
+	 * @param numero
+	 *            numero da conta.
+	 * @param mascara
+	 *            tamanho da tabela menos 1.
+	 * @return posicao inicial da sondagem.
+	 */
+	private static int posicaoInicial(String numero, int mascara) {
+		int h = numero.hashCode();
+		return (h ^ (h >>> 16)) & mascara;
+	}
+
+	/**
+	 * Retorna a posicao na tabela que referencia a conta com o numero dado.
+	 *
+	 * @param numero
+	 *            numero da conta procurada.
+	 * @return posicao na tabela ou -1 caso a conta nao exista.
+	 */
+	private int getPosicao(String numero) {
+		int mascara = tabela.length - 1;
+		int p = posicaoInicial(numero, mascara);
+		int i;
+		while ((i = tabela[p]) != VAZIO) {
+			if (contas[i].getNumero().equals(numero))
+				return p;
+			p = (p + 1) & mascara;
+		}
+		return -1;
+	}
+
+	/**
+	 * Retorna o indice da conta no array.
+	 *
+	 * @param numero
+	 *            numero da conta cujo indice e retornado.
+	 * @return indice da conta no array. Igual a this.indice caso a conta nao
+	 *         exista.
+	 */
+	private int getIndice(String numero) {
+		int p = this.getPosicao(numero);
+		return p == -1 ? this.indice : tabela[p];
+	}
+
+	/**
+	 * Coloca o indice de uma conta na primeira posicao livre da sondagem.
+	 */
+	private void indexar(String numero, int i) {
+		int mascara = tabela.length - 1;
+		int p = posicaoInicial(numero, mascara);
+		while (tabela[p] != VAZIO)
+			p = (p + 1) & mascara;
+		tabela[p] = i;
+	}
+
+	/**
+	 * Libera uma posicao da tabela, deslocando para tras as entradas seguintes
+	 * da mesma sequencia de sondagem (dispensa marcadores de remocao).
+	 *
+	 * @param p
+	 *            posicao a ser liberada.
+	 */
+	private void desindexar(int p) {
+		int mascara = tabela.length - 1;
+		int livre = p;
+		int q = p;
+		while (true) {
+			q = (q + 1) & mascara;
+			int i = tabela[q];
+			if (i == VAZIO)
+				break;
+			int ideal = posicaoInicial(contas[i].getNumero(), mascara);
+			// a entrada em q pode ocupar 'livre' se 'livre' estiver entre a
+			// sua posicao ideal e q (considerando a volta da tabela)
+			if (((q - ideal) & mascara) >= ((q - livre) & mascara)) {
+				tabela[livre] = i;
+				livre = q;
+			}
+		}
+		tabela[livre] = VAZIO;
+	}
+
+	/**
+	 * Dobra o array de contas e, se necessario, a tabela hash.
+	 */
+	private void crescer() {
+		ContaAbstrata[] aux = new ContaAbstrata[contas.length * 2];
+		System.arraycopy(contas, 0, aux, 0, indice);
+		this.contas = aux;
+		if (tabela.length < contas.length * 2) {
+			tabela = novaTabela(contas.length);
+			for (int i = 0; i < indice; i++)
+				indexar(contas[i].getNumero(), i);
+		}
+	}
+
+	@Override
+	public boolean inserir(ContaAbstrata conta) throws RepositorioException {
+		if (this.existe(conta.getNumero())) {
+			return false;
+		}
+		if (contas.length == indice) {
+			this.crescer();
+		}
+		contas[indice] = conta;
+		this.indexar(conta.getNumero(), indice);
+		indice = indice + 1;
+		return true;
+	}
+
+	@Override
+	public ContaAbstrata procurar(String numero) {
+		ContaAbstrata conta = null;
+		int i = this.getIndice(numero);
+		if (i < this.indice) {
+			conta = this.contas[i];
+		}
+		return conta;
+	}
+
+	@Override
+	public boolean remover(String numero) throws RepositorioException {
+		int p = this.getPosicao(numero);
+		if (p == -1)
+			return false;
+		int i = tabela[p];
+		this.desindexar(p);
+		this.indice = this.indice - 1;
+		if (i != this.indice) {
+			ContaAbstrata ultima = this.contas[this.indice];
+			tabela[this.getPosicao(ultima.getNumero())] = i;
+			this.contas[i] = ultima;
+		}
+		this.contas[this.indice] = null;
+		return true;
+	}
+
+	@Override
+	public boolean atualizar(ContaAbstrata conta) throws RepositorioException {
+		int i = this.getIndice(conta.getNumero());
+		if (i < this.indice) {
+			this.contas[i] = conta;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean existe(String numero) {
+		return this.getPosicao(numero) != -1;
+	}
+
+	@Override
+	public IteratorContaAbstrata getIterator() {
+		return new IteratorContaAbstrataArray(this.contas, this.indice);
+	}
+}
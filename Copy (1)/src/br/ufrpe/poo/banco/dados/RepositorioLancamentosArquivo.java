@@ -0,0 +1,625 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.negocio.Lancamento;
+
+/**
+ * Implementacao de repositorio de lancamentos em arquivos de segmento,
+ * apenas acrescentados.
+ *
+ * Os lancamentos sao gravados em sequencia no segmento atual
+ * (<code>lancamentos-000001.seg</code>, ...) como registros
+ * <code>[tamanho][instante][tipo][valor][saldo][conta][contrapartida]</code>;
+ * quando o segmento atinge o tamanho maximo, um novo e aberto. A escrita passa
+ * por um buffer e nao e sincronizada com o disco a cada lancamento (ver
+ * <code>sincronizar</code>).
+ *
+ * Apenas o segmento atual tem indice em memoria, que guarda para cada conta o
+ * instante e o deslocamento de cada lancamento. Quando o segmento e fechado,
+ * o indice e gravado ao lado dele (<code>lancamentos-000001.idx</code>) como
+ * entradas <code>[chave da conta][instante][deslocamento]</code> de tamanho
+ * fixo, ordenadas por chave e instante, e sai da memoria; do segmento fechado
+ * ficam em memoria so o numero de lancamentos e o primeiro e o ultimo
+ * instante. O extrato de um periodo pula os segmentos fora do periodo, acha o
+ * primeiro lancamento da conta por busca binaria no indice (em disco nos
+ * segmentos fechados) e le apenas os lancamentos da conta.
+ *
+ * Assim a memoria e a inicializacao dependem do tamanho do segmento atual e
+ * do numero de segmentos, e nao do total de lancamentos: a inicializacao le o
+ * cabecalho do indice de cada segmento fechado e percorre apenas o ultimo
+ * segmento, descartando um registro incompleto no fim dele. O indice de um
+ * segmento fechado que falta ou nao corresponde ao segmento (queda durante o
+ * fechamento, arquivos antigos) e reconstruido a partir do segmento.
+ */
+public class RepositorioLancamentosArquivo implements IRepositorioLancamentos {
+
+	/** Tamanho maximo padrao de um segmento. */
+	public static final long TAMANHO_SEGMENTO = 64L << 20;
+
+	/** Diretorio padrao dos segmentos. */
+	private static final String DIRETORIO = "lancamentos";
+
+	/** Marca do inicio de um arquivo de indice. */
+	private static final int MAGICO_INDICE = 0x4C494458;
+
+	/**
+	 * Tamanho do cabecalho do indice: marca, tamanho do segmento, primeiro e
+	 * ultimo instante e numero de entradas.
+	 */
+	private static final int CABECALHO_INDICE = 4 + 8 + 8 + 8 + 4;
+
+	/** Tamanho de uma entrada do indice: chave, instante e deslocamento. */
+	private static final int ENTRADA_INDICE = 8 + 8 + 8;
+
+	/** Entradas do indice lidas de uma vez no extrato. */
+	private static final int BLOCO_INDICE = 256;
+
+	/**
+	 * Lancamentos de uma conta no segmento atual, em ordem de registro.
+	 */
+	private static class Indice {
+
+		long[] instantes = new long[4];
+
+		long[] deslocamentos = new long[4];
+
+		int quantidade;
+
+		void adicionar(long instante, long deslocamento) {
+			if (this.quantidade == this.instantes.length) {
+				this.instantes = Arrays.copyOf(this.instantes,
+						this.quantidade * 2);
+				this.deslocamentos = Arrays.copyOf(this.deslocamentos,
+						this.quantidade * 2);
+			}
+			this.instantes[this.quantidade] = instante;
+			this.deslocamentos[this.quantidade] = deslocamento;
+			this.quantidade++;
+		}
+
+		/** Primeiro lancamento com instante maior ou igual ao informado. */
+		int primeiro(long instante) {
+			int i = Arrays.binarySearch(this.instantes, 0, this.quantidade,
+					instante);
+			if (i < 0)
+				return -i - 1;
+			while (i > 0 && this.instantes[i - 1] == instante) {
+				i--;
+			}
+			return i;
+		}
+	}
+
+	/** Diretorio dos segmentos. */
+	private final File diretorio;
+
+	/** Tamanho maximo de um segmento. */
+	private final long tamanhoSegmento;
+
+	/**
+	 * Resumo de um segmento fechado, cujo indice esta em disco.
+	 */
+	private static class Selado {
+
+		final int numero;
+
+		final long primeiro;
+
+		final long ultimo;
+
+		final int quantidade;
+
+		Selado(int numero, long primeiro, long ultimo, int quantidade) {
+			this.numero = numero;
+			this.primeiro = primeiro;
+			this.ultimo = ultimo;
+			this.quantidade = quantidade;
+		}
+	}
+
+	/** Lancamentos de cada conta no segmento atual. */
+	private final HashMap<String, Indice> indices;
+
+	/** Segmentos fechados, em ordem. */
+	private final List<Selado> selados;
+
+	/** Arquivos abertos para leitura, por numero de segmento. */
+	private final HashMap<Integer, RandomAccessFile> leitura;
+
+	/** Indices de segmentos fechados abertos para leitura. */
+	private final HashMap<Integer, RandomAccessFile> leituraIndices;
+
+	/** Buffer reutilizado para montar cada registro. */
+	private final ByteArrayOutputStream buffer;
+
+	private final DataOutputStream registro;
+
+	/** Numero do segmento atual. */
+	private int segmento;
+
+	/** Tamanho do segmento atual, inclusive o que esta no buffer. */
+	private long tamanho;
+
+	/** Arquivo do segmento atual. */
+	private FileOutputStream arquivo;
+
+	/** Escrita com buffer no segmento atual. */
+	private BufferedOutputStream saida;
+
+	/** Instante do ultimo lancamento registrado. */
+	private long ultimoInstante;
+
+	/**
+	 * Constroi um repositorio no diretorio padrao.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura dos segmentos.
+	 */
+	public RepositorioLancamentosArquivo() throws RepositorioException {
+		this(new File(DIRETORIO), TAMANHO_SEGMENTO);
+	}
+
+	/**
+	 * Constroi um repositorio, lendo os segmentos ja existentes no diretorio.
+	 *
+	 * @param diretorio
+	 *            diretorio dos segmentos; e criado se nao existir.
+	 * @param tamanhoSegmento
+	 *            tamanho maximo de um segmento, em bytes.
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na leitura dos segmentos.
+	 */
+	public RepositorioLancamentosArquivo(File diretorio, long tamanhoSegmento)
+			throws RepositorioException {
+		this.diretorio = diretorio;
+		this.tamanhoSegmento = tamanhoSegmento;
+		this.indices = new HashMap<String, Indice>();
+		this.selados = new ArrayList<Selado>();
+		this.leitura = new HashMap<Integer, RandomAccessFile>();
+		this.leituraIndices = new HashMap<Integer, RandomAccessFile>();
+		this.buffer = new ByteArrayOutputStream(64);
+		this.registro = new DataOutputStream(this.buffer);
+		try {
+			if (!diretorio.isDirectory() && !diretorio.mkdirs())
+				throw new IOException("Diretorio " + diretorio
+						+ " nao pode ser criado!");
+			this.segmento = 1;
+			while (this.arquivoSegmento(this.segmento + 1).exists()) {
+				this.segmento++;
+			}
+			for (int s = 1; s < this.segmento; s++) {
+				Selado selado = this.carregarSelado(s);
+				this.selados.add(selado);
+				if (selado.quantidade > 0)
+					this.ultimoInstante = Math.max(this.ultimoInstante,
+							selado.ultimo);
+			}
+			this.tamanho = this.lerSegmento(this.segmento, this.indices);
+			this.abrirSegmento();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	private File arquivoSegmento(int numero) {
+		return new File(this.diretorio, String.format("lancamentos-%06d.seg",
+				numero));
+	}
+
+	private File arquivoIndice(int numero) {
+		return new File(this.diretorio, String.format("lancamentos-%06d.idx",
+				numero));
+	}
+
+	/**
+	 * Retorna a chave de uma conta no indice em disco. Contas diferentes
+	 * podem ter a mesma chave; o extrato confere a conta de cada registro.
+	 */
+	private static long chave(String conta) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < conta.length(); i++) {
+			h ^= conta.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Le o cabecalho do indice de um segmento fechado, reconstruindo o
+	 * indice se ele falta ou nao corresponde ao segmento.
+	 */
+	private Selado carregarSelado(int numero) throws IOException {
+		File segmento = this.arquivoSegmento(numero);
+		File indice = this.arquivoIndice(numero);
+		if (indice.length() >= CABECALHO_INDICE) {
+			try (DataInputStream dis = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(indice),
+							CABECALHO_INDICE))) {
+				if (dis.readInt() == MAGICO_INDICE
+						&& dis.readLong() == segmento.length()) {
+					long primeiro = dis.readLong();
+					long ultimo = dis.readLong();
+					int quantidade = dis.readInt();
+					if (indice.length() == CABECALHO_INDICE
+							+ (long) quantidade * ENTRADA_INDICE)
+						return new Selado(numero, primeiro, ultimo, quantidade);
+				}
+			}
+		}
+		HashMap<String, Indice> lidos = new HashMap<String, Indice>();
+		long valido = this.lerSegmento(numero, lidos);
+		return this.gravarIndice(numero, lidos, valido);
+	}
+
+	/**
+	 * Grava o indice de um segmento que esta sendo fechado. O indice e
+	 * escrito num arquivo temporario e renomeado; se for perdido numa queda,
+	 * e reconstruido na inicializacao.
+	 *
+	 * @return resumo do segmento fechado.
+	 */
+	private Selado gravarIndice(int numero, HashMap<String, Indice> indices,
+			long tamanhoSegmento) throws IOException {
+		String[] contas = indices.keySet().toArray(new String[0]);
+		Arrays.sort(contas, Comparator.comparingLong(
+				RepositorioLancamentosArquivo::chave).thenComparing(
+				Comparator.naturalOrder()));
+		long primeiro = Long.MAX_VALUE;
+		long ultimo = Long.MIN_VALUE;
+		int quantidade = 0;
+		for (Indice indice : indices.values()) {
+			primeiro = Math.min(primeiro, indice.instantes[0]);
+			ultimo = Math.max(ultimo, indice.instantes[indice.quantidade - 1]);
+			quantidade += indice.quantidade;
+		}
+		File arquivo = this.arquivoIndice(numero);
+		File temporario = new File(arquivo.getPath() + ".tmp");
+		try (FileOutputStream fos = new FileOutputStream(temporario)) {
+			DataOutputStream dos = new DataOutputStream(
+					new BufferedOutputStream(fos, 1 << 16));
+			dos.writeInt(MAGICO_INDICE);
+			dos.writeLong(tamanhoSegmento);
+			dos.writeLong(primeiro);
+			dos.writeLong(ultimo);
+			dos.writeInt(quantidade);
+			for (int i = 0; i < contas.length;) {
+				long chave = chave(contas[i]);
+				int j = i + 1;
+				while (j < contas.length && chave(contas[j]) == chave) {
+					j++;
+				}
+				escreverEntradas(dos, chave, indices, contas, i, j);
+				i = j;
+			}
+			dos.flush();
+			fos.getFD().sync();
+		}
+		Files.move(temporario.toPath(), arquivo.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		GravacaoEmGrupo.sincronizarDiretorio(arquivo);
+		return new Selado(numero, primeiro, ultimo, quantidade);
+	}
+
+	/**
+	 * Escreve as entradas das contas <code>contas[de..ate)</code>, que tem a
+	 * mesma chave, em ordem de registro, que e tambem a ordem dos instantes.
+	 */
+	private static void escreverEntradas(DataOutputStream dos, long chave,
+			HashMap<String, Indice> indices, String[] contas, int de, int ate)
+			throws IOException {
+		int n = 0;
+		for (int i = de; i < ate; i++) {
+			n += indices.get(contas[i]).quantidade;
+		}
+		long[] deslocamentos = new long[n];
+		long[] instantes = new long[n];
+		n = 0;
+		for (int i = de; i < ate; i++) {
+			Indice indice = indices.get(contas[i]);
+			System.arraycopy(indice.deslocamentos, 0, deslocamentos, n,
+					indice.quantidade);
+			System.arraycopy(indice.instantes, 0, instantes, n,
+					indice.quantidade);
+			n += indice.quantidade;
+		}
+		if (ate - de > 1) {
+			// chaves iguais: intercala as contas pelo deslocamento
+			long[][] pares = new long[n][];
+			for (int i = 0; i < n; i++) {
+				pares[i] = new long[] { deslocamentos[i], instantes[i] };
+			}
+			Arrays.sort(pares, Comparator.comparingLong(par -> par[0]));
+			for (int i = 0; i < n; i++) {
+				deslocamentos[i] = pares[i][0];
+				instantes[i] = pares[i][1];
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			dos.writeLong(chave);
+			dos.writeLong(instantes[i]);
+			dos.writeLong(deslocamentos[i]);
+		}
+	}
+
+	/**
+	 * Indexa os lancamentos de um segmento e descarta um registro incompleto
+	 * no fim dele.
+	 *
+	 * @return posicao do fim do ultimo registro completo.
+	 */
+	private long lerSegmento(int numero, HashMap<String, Indice> indices)
+			throws IOException {
+		File f = this.arquivoSegmento(numero);
+		if (!f.exists())
+			return 0;
+		long valido = 0;
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(f), 1 << 16))) {
+			byte[] dados = new byte[128];
+			while (true) {
+				int n;
+				try {
+					n = dis.readInt();
+					if (n < 0)
+						break;
+					if (dados.length < n)
+						dados = new byte[n];
+					dis.readFully(dados, 0, n);
+				} catch (EOFException e) {
+					break;
+				}
+				Lancamento l = ler(dados, n);
+				indexar(indices, l.getConta(), l.getInstante(), valido);
+				this.ultimoInstante = Math.max(this.ultimoInstante,
+						l.getInstante());
+				valido += 4 + n;
+			}
+		}
+		if (f.length() != valido) {
+			try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+				raf.setLength(valido);
+			}
+		}
+		return valido;
+	}
+
+	private static void indexar(HashMap<String, Indice> indices,
+			String conta, long instante, long deslocamento) {
+		Indice indice = indices.get(conta);
+		if (indice == null) {
+			indice = new Indice();
+			indices.put(conta, indice);
+		}
+		indice.adicionar(instante, deslocamento);
+	}
+
+	/**
+	 * Interpreta os dados de um registro.
+	 */
+	private static Lancamento ler(byte[] dados, int n) throws IOException {
+		DataInputStream dis = new DataInputStream(new ByteArrayInputStream(
+				dados, 0, n));
+		long instante = dis.readLong();
+		Lancamento.Tipo tipo = Lancamento.Tipo.deCodigo(dis.readByte());
+		double valor = dis.readDouble();
+		double saldo = dis.readDouble();
+		String conta = dis.readUTF();
+		String contrapartida = dis.readUTF();
+		return new Lancamento(instante, conta, tipo, valor, saldo,
+				contrapartida.isEmpty() ? null : contrapartida);
+	}
+
+	/**
+	 * Abre o segmento atual para acrescentar registros.
+	 */
+	private void abrirSegmento() throws IOException {
+		this.arquivo = new FileOutputStream(
+				this.arquivoSegmento(this.segmento), true);
+		this.saida = new BufferedOutputStream(this.arquivo, 1 << 16);
+	}
+
+	@Override
+	public synchronized Lancamento registrar(String conta,
+			Lancamento.Tipo tipo, double valor, double saldo,
+			String contrapartida) throws RepositorioException {
+		long instante = Math.max(System.currentTimeMillis(),
+				this.ultimoInstante);
+		try {
+			this.buffer.reset();
+			this.registro.writeLong(instante);
+			this.registro.writeByte(tipo.getCodigo());
+			this.registro.writeDouble(valor);
+			this.registro.writeDouble(saldo);
+			this.registro.writeUTF(conta);
+			this.registro.writeUTF(contrapartida == null ? "" : contrapartida);
+			int n = this.buffer.size();
+			if (this.tamanho > 0
+					&& this.tamanho + 4 + n > this.tamanhoSegmento) {
+				// se o indice nao puder ser gravado, nada muda
+				this.saida.flush();
+				Selado selado = this.gravarIndice(this.segmento,
+						this.indices, this.tamanho);
+				this.saida.close();
+				this.selados.add(selado);
+				this.indices.clear();
+				this.segmento++;
+				this.tamanho = 0;
+				this.abrirSegmento();
+			}
+			this.saida.write(n >>> 24);
+			this.saida.write(n >>> 16);
+			this.saida.write(n >>> 8);
+			this.saida.write(n);
+			this.buffer.writeTo(this.saida);
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		indexar(this.indices, conta, instante, this.tamanho);
+		this.tamanho += 4 + this.buffer.size();
+		this.ultimoInstante = instante;
+		return new Lancamento(instante, conta, tipo, valor, saldo,
+				contrapartida);
+	}
+
+	@Override
+	public synchronized List<Lancamento> extrato(String conta, long inicio,
+			long fim) throws RepositorioException {
+		List<Lancamento> extrato = new ArrayList<Lancamento>();
+		try {
+			this.saida.flush();
+			for (Selado selado : this.selados) {
+				if (selado.quantidade > 0 && selado.primeiro <= fim
+						&& selado.ultimo >= inicio)
+					this.buscarSelado(selado, conta, inicio, fim, extrato);
+			}
+			Indice indice = this.indices.get(conta);
+			if (indice != null) {
+				RandomAccessFile raf = this.leitor(this.segmento);
+				for (int i = indice.primeiro(inicio); i < indice.quantidade
+						&& indice.instantes[i] <= fim; i++) {
+					extrato.add(lerRegistro(raf, indice.deslocamentos[i]));
+				}
+			}
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+		return extrato;
+	}
+
+	/**
+	 * Acrescenta ao extrato os lancamentos da conta num segmento fechado,
+	 * buscando no indice em disco.
+	 */
+	private void buscarSelado(Selado selado, String conta, long inicio,
+			long fim, List<Lancamento> extrato) throws IOException {
+		long chave = chave(conta);
+		RandomAccessFile indice = this.leitorIndice(selado.numero);
+		RandomAccessFile segmento = this.leitor(selado.numero);
+		byte[] bloco = new byte[BLOCO_INDICE * ENTRADA_INDICE];
+		ByteBuffer entradas = ByteBuffer.wrap(bloco);
+		// primeira entrada com (chave, instante) >= (chave, inicio)
+		int baixo = 0;
+		int alto = selado.quantidade;
+		while (baixo < alto) {
+			int meio = (baixo + alto) >>> 1;
+			indice.seek(CABECALHO_INDICE + (long) meio * ENTRADA_INDICE);
+			indice.readFully(bloco, 0, 16);
+			long c = entradas.getLong(0);
+			int comparacao = c != chave ? Long.compare(c, chave) : Long
+					.compare(entradas.getLong(8), inicio);
+			if (comparacao < 0)
+				baixo = meio + 1;
+			else
+				alto = meio;
+		}
+		for (int i = baixo; i < selado.quantidade; i += BLOCO_INDICE) {
+			int n = Math.min(BLOCO_INDICE, selado.quantidade - i);
+			indice.seek(CABECALHO_INDICE + (long) i * ENTRADA_INDICE);
+			indice.readFully(bloco, 0, n * ENTRADA_INDICE);
+			for (int j = 0; j < n; j++) {
+				int k = j * ENTRADA_INDICE;
+				if (entradas.getLong(k) != chave
+						|| entradas.getLong(k + 8) > fim)
+					return;
+				Lancamento l = lerRegistro(segmento, entradas.getLong(k + 16));
+				if (l.getConta().equals(conta))
+					extrato.add(l);
+			}
+		}
+	}
+
+	/**
+	 * Le o registro que comeca no deslocamento informado.
+	 */
+	private static Lancamento lerRegistro(RandomAccessFile raf,
+			long deslocamento) throws IOException {
+		raf.seek(deslocamento);
+		int n = raf.readInt();
+		byte[] dados = new byte[n];
+		raf.readFully(dados, 0, n);
+		return ler(dados, n);
+	}
+
+	/**
+	 * Retorna o arquivo de leitura de um segmento, abrindo-o se necessario.
+	 */
+	private RandomAccessFile leitor(int numero) throws IOException {
+		RandomAccessFile raf = this.leitura.get(numero);
+		if (raf == null) {
+			raf = new RandomAccessFile(this.arquivoSegmento(numero), "r");
+			this.leitura.put(numero, raf);
+		}
+		return raf;
+	}
+
+	/**
+	 * Retorna o indice de um segmento fechado, abrindo-o se necessario.
+	 */
+	private RandomAccessFile leitorIndice(int numero) throws IOException {
+		RandomAccessFile raf = this.leituraIndices.get(numero);
+		if (raf == null) {
+			raf = new RandomAccessFile(this.arquivoIndice(numero), "r");
+			this.leituraIndices.put(numero, raf);
+		}
+		return raf;
+	}
+
+	/**
+	 * Grava no disco os lancamentos que estao no buffer.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public synchronized void sincronizar() throws RepositorioException {
+		try {
+			this.saida.flush();
+			this.arquivo.getFD().sync();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Grava os lancamentos pendentes e fecha os segmentos.
+	 *
+	 * @throws RepositorioException
+	 *             levantada em caso de erro na escrita.
+	 */
+	public synchronized void fechar() throws RepositorioException {
+		try {
+			this.saida.close();
+			for (RandomAccessFile raf : this.leitura.values()) {
+				raf.close();
+			}
+			this.leitura.clear();
+			for (RandomAccessFile raf : this.leituraIndices.values()) {
+				raf.close();
+			}
+			this.leituraIndices.clear();
+		} catch (IOException e) {
+			throw new RepositorioException(e);
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.negocio.Conta;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+import br.ufrpe.poo.banco.negocio.ContaCentavos;
+import br.ufrpe.poo.banco.negocio.ContaConcorrente;
+import br.ufrpe.poo.banco.negocio.ContaEspecial;
+import br.ufrpe.poo.banco.negocio.ContaEspecialCentavos;
+import br.ufrpe.poo.banco.negocio.ContaEspecialConcorrente;
+import br.ufrpe.poo.banco.negocio.ContaImposto;
+import br.ufrpe.poo.banco.negocio.ContaImpostoCentavos;
+import br.ufrpe.poo.banco.negocio.ContaImpostoConcorrente;
+import br.ufrpe.poo.banco.negocio.Poupanca;
+import br.ufrpe.poo.banco.negocio.PoupancaCentavos;
+import br.ufrpe.poo.banco.negocio.PoupancaConcorrente;
+
+/**
+ * Codigos dos tipos de conta usados pelos repositorios em arquivo: 0 - Conta,
+ * 1 - Poupanca, 2 - ContaImposto e 3 - ContaEspecial (mesmos valores de
+ * <code>RepositorioContasArquivoTxt</code>). Os codigos 4 a 7 sao as mesmas
+ * contas com saldo em centavos; saldos de ate 2^53 centavos sao gravados como
+ * <code>double</code> sem perda. Os codigos 8 a 11 sao as variantes
+ * concorrentes (<code>ContaConcorrente</code> etc.), que assim sao lidas de
+ * volta com a mesma classe.
+ */
+public final class TiposConta {
+
+	public static final byte CONTA = 0;
+
+	public static final byte POUPANCA = 1;
+
+	public static final byte CONTA_IMPOSTO = 2;
+
+	public static final byte CONTA_ESPECIAL = 3;
+
+	public static final byte CONTA_CENTAVOS = 4;
+
+	public static final byte POUPANCA_CENTAVOS = 5;
+
+	public static final byte CONTA_IMPOSTO_CENTAVOS = 6;
+
+	public static final byte CONTA_ESPECIAL_CENTAVOS = 7;
+
+	public static final byte CONTA_CONCORRENTE = 8;
+
+	public static final byte POUPANCA_CONCORRENTE = 9;
+
+	public static final byte CONTA_IMPOSTO_CONCORRENTE = 10;
+
+	public static final byte CONTA_ESPECIAL_CONCORRENTE = 11;
+
+	private TiposConta() {
+	}
+
+	/**
+	 * Retorna o codigo do tipo da conta.
+	 * 
+	 * @param conta
+	 *            conta cujo tipo e retornado.
+	 * @return codigo do tipo da conta.
+	 * @throws RepositorioException
+	 *             levantada caso o tipo de conta nao seja suportado.
+	 */
+	public static byte tipo(ContaAbstrata conta) throws RepositorioException {
+		if (conta instanceof PoupancaConcorrente) {
+			return POUPANCA_CONCORRENTE;
+		} else if (conta instanceof ContaEspecialConcorrente) {
+			return CONTA_ESPECIAL_CONCORRENTE;
+		} else if (conta instanceof ContaConcorrente) {
+			return CONTA_CONCORRENTE;
+		} else if (conta instanceof ContaImpostoConcorrente) {
+			return CONTA_IMPOSTO_CONCORRENTE;
+		} else if (conta instanceof PoupancaCentavos) {
+			return POUPANCA_CENTAVOS;
+		} else if (conta instanceof ContaEspecialCentavos) {
+			return CONTA_ESPECIAL_CENTAVOS;
+		} else if (conta instanceof ContaCentavos) {
+			return CONTA_CENTAVOS;
+		} else if (conta instanceof ContaImpostoCentavos) {
+			return CONTA_IMPOSTO_CENTAVOS;
+		} else if (conta instanceof Poupanca) {
+			return POUPANCA;
+		} else if (conta instanceof ContaEspecial) {
+			return CONTA_ESPECIAL;
+		} else if (conta instanceof Conta) {
+			return CONTA;
+		} else if (conta instanceof ContaImposto) {
+			return CONTA_IMPOSTO;
+		}
+		throw new RepositorioException("Tipo de conta nao suportado!");
+	}
+
+	/**
+	 * Indica se o codigo e de uma conta especial, que tem bonus.
+	 * 
+	 * @param tipo
+	 *            codigo do tipo da conta.
+	 * @return se o tipo tem bonus.
+	 */
+	public static boolean especial(int tipo) {
+		return tipo == CONTA_ESPECIAL || tipo == CONTA_ESPECIAL_CENTAVOS
+				|| tipo == CONTA_ESPECIAL_CONCORRENTE;
+	}
+
+	/**
+	 * Retorna o bonus da conta, ou zero caso nao seja conta especial.
+	 * 
+	 * @param conta
+	 *            conta cujo bonus e retornado.
+	 * @return bonus da conta.
+	 */
+	public static double bonus(ContaAbstrata conta) {
+		if (conta instanceof ContaEspecial)
+			return ((ContaEspecial) conta).getBonus();
+		return 0;
+	}
+
+	/**
+	 * Cria uma conta do tipo informado.
+	 * 
+	 * @param tipo
+	 *            codigo do tipo da conta.
+	 * @param numero
+	 *            numero da conta.
+	 * @param saldo
+	 *            saldo da conta.
+	 * @param bonus
+	 *            bonus da conta (usado apenas por conta especial).
+	 * @return conta criada.
+	 * @throws RepositorioException
+	 *             levantada caso o tipo de conta nao exista.
+	 */
+	public static ContaAbstrata criar(int tipo, String numero, double saldo,
+			double bonus) throws RepositorioException {
+		ContaAbstrata conta;
+		switch (tipo) {
+		case CONTA:
+			conta = new Conta(numero, saldo);
+			break;
+		case POUPANCA:
+			conta = new Poupanca(numero, saldo);
+			break;
+		case CONTA_IMPOSTO:
+			conta = new ContaImposto(numero, saldo);
+			break;
+		case CONTA_ESPECIAL:
+			ContaEspecial especial = new ContaEspecial(numero, saldo);
+			especial.setBonus(bonus);
+			conta = especial;
+			break;
+		case CONTA_CENTAVOS:
+			conta = new ContaCentavos(numero, saldo);
+			break;
+		case POUPANCA_CENTAVOS:
+			conta = new PoupancaCentavos(numero, saldo);
+			break;
+		case CONTA_IMPOSTO_CENTAVOS:
+			conta = new ContaImpostoCentavos(numero, saldo);
+			break;
+		case CONTA_ESPECIAL_CENTAVOS:
+			ContaEspecialCentavos especialCentavos = new ContaEspecialCentavos(
+					numero, saldo);
+			especialCentavos.setBonus(bonus);
+			conta = especialCentavos;
+			break;
+		case CONTA_CONCORRENTE:
+			conta = new ContaConcorrente(numero, saldo);
+			break;
+		case POUPANCA_CONCORRENTE:
+			conta = new PoupancaConcorrente(numero, saldo);
+			break;
+		case CONTA_IMPOSTO_CONCORRENTE:
+			conta = new ContaImpostoConcorrente(numero, saldo);
+			break;
+		case CONTA_ESPECIAL_CONCORRENTE:
+			ContaEspecialConcorrente especialConcorrente = new ContaEspecialConcorrente(
+					numero, saldo);
+			especialConcorrente.setBonus(bonus);
+			conta = especialConcorrente;
+			break;
+		default:
+			throw new RepositorioException("Tipo de conta inexistente!");
+		}
+		// o construtor de Conta ajusta saldos negativos para zero
+		conta.setSaldo(saldo);
+		return conta;
+	}
+
+	/**
+	 * Copia os valores de uma conta num objeto novo da mesma classe, de modo
+	 * que alteracoes posteriores no objeto original nao mudem a copia. Contas
+	 * de classes que nao tem codigo sao copiadas por serializacao.
+	 * 
+	 * @param conta
+	 *            conta a ser copiada.
+	 * @return copia da conta.
+	 * @throws RepositorioException
+	 *             levantada caso a conta nao possa ser copiada.
+	 */
+	public static ContaAbstrata copiar(ContaAbstrata conta)
+			throws RepositorioException {
+		try {
+			ContaAbstrata copia = criar(tipo(conta), conta.getNumero(),
+					conta.getSaldo(), bonus(conta));
+			if (copia.getClass() == conta.getClass())
+				return copia;
+		} catch (RepositorioException e) {
+			// tipo sem codigo, copiado por serializacao
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(conta);
+			}
+			try (ObjectInputStream ois = new ObjectInputStream(
+					new ByteArrayInputStream(bytes.toByteArray()))) {
+				return (ContaAbstrata) ois.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RepositorioException(e);
+		}
+	}
+
+	/**
+	 * Copia os valores de varias contas (ver <code>copiar</code>).
+	 * 
+	 * @param contas
+	 *            contas a serem copiadas.
+	 * @return copias, na ordem das contas.
+	 * @throws RepositorioException
+	 *             levantada caso uma conta nao possa ser copiada.
+	 */
+	public static List<ContaAbstrata> copiar(
+			Collection<? extends ContaAbstrata> contas)
+			throws RepositorioException {
+		List<ContaAbstrata> copias = new ArrayList<ContaAbstrata>(
+				contas.size());
+		for (ContaAbstrata conta : contas) {
+			copias.add(copiar(conta));
+		}
+		return copias;
+	}
+}
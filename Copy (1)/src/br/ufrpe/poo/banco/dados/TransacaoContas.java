@@ -0,0 +1,117 @@
+package br.ufrpe.poo.banco.dados;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.negocio.ContaAbstrata;
+import br.ufrpe.poo.banco.negocio.ContaEspecial;
+
+/**
+ * Transacao sobre varias contas de um repositorio.
+ *
+ * A transacao comeca ao ser criada. Antes de alterar uma conta, ela deve ser
+ * registrada com <code>registrar</code>, que guarda saldo e bonus atuais num
+ * log de desfazer em memoria. <code>confirmar</code> grava todas as contas
+ * registradas numa unica chamada a <code>atualizarLote</code>; se a gravacao
+ * falhar, ou se <code>desfazer</code> for chamado, as contas voltam aos
+ * valores registrados.
+ */
+public class TransacaoContas {
+
+	/** Valores de uma conta no momento em que foi registrada. */
+	private static class Estado {
+
+		final ContaAbstrata conta;
+
+		final double saldo;
+
+		final double bonus;
+
+		Estado(ContaAbstrata conta) {
+			this.conta = conta;
+			this.saldo = conta.getSaldo();
+			this.bonus = TiposConta.bonus(conta);
+		}
+
+		void restaurar() {
+			this.conta.setSaldo(this.saldo);
+			if (this.conta instanceof ContaEspecial)
+				((ContaEspecial) this.conta).setBonus(this.bonus);
+		}
+	}
+
+	/** Repositorio onde as contas serao gravadas. */
+	private final IRepositorioContas contas;
+
+	/** Log de desfazer, pelo numero da conta. */
+	private final LinkedHashMap<String, Estado> registradas;
+
+	/** Indica se a transacao ainda pode ser confirmada ou desfeita. */
+	private boolean ativa;
+
+	/**
+	 * Inicia uma transacao.
+	 *
+	 * @param contas
+	 *            repositorio onde as contas serao gravadas.
+	 */
+	public TransacaoContas(IRepositorioContas contas) {
+		this.contas = contas;
+		this.registradas = new LinkedHashMap<String, Estado>();
+		this.ativa = true;
+	}
+
+	/**
+	 * Registra uma conta que sera alterada pela transacao. Apenas o primeiro
+	 * registro de cada conta e guardado.
+	 *
+	 * @param conta
+	 *            conta a ser alterada.
+	 */
+	public void registrar(ContaAbstrata conta) {
+		if (!this.ativa)
+			throw new IllegalStateException("Transacao encerrada!");
+		if (!this.registradas.containsKey(conta.getNumero()))
+			this.registradas.put(conta.getNumero(), new Estado(conta));
+	}
+
+	/**
+	 * Grava todas as contas registradas como uma unica operacao do
+	 * repositorio. Em caso de erro a transacao e desfeita.
+	 *
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro no repositorio.
+	 */
+	public void confirmar() throws RepositorioException {
+		if (!this.ativa)
+			throw new IllegalStateException("Transacao encerrada!");
+		List<ContaAbstrata> alteradas = new ArrayList<ContaAbstrata>(
+				this.registradas.size());
+		for (Estado e : this.registradas.values()) {
+			alteradas.add(e.conta);
+		}
+		try {
+			if (!alteradas.isEmpty())
+				this.contas.atualizarLote(alteradas);
+		} catch (RepositorioException | RuntimeException e) {
+			this.desfazer();
+			throw e;
+		}
+		this.ativa = false;
+	}
+
+	/**
+	 * Devolve as contas registradas aos valores que tinham ao serem
+	 * registradas.
+	 */
+	public void desfazer() {
+		if (!this.ativa)
+			return;
+		for (Estado e : this.registradas.values()) {
+			e.restaurar();
+		}
+		this.ativa = false;
+	}
+}
@@ -15,4 +15,30 @@ public class SaldoInsuficienteException extends Exception {
 				"Saldo insuficiente! O saldo atual da conta %s eh R$%.2f",
 				numero, saldo));
 	}
+
+	private SaldoInsuficienteException(String mensagem) {
+		super(mensagem);
+	}
+
+	/**
+	 * Cria a excecao a partir de um saldo em centavos, formatado sem
+	 * conversao para <code>double</code>. E um metodo com nome proprio, e nao
+	 * um construtor <code>(String, long)</code>, para que um saldo inteiro em
+	 * reais nao seja tomado por centavos.
+	 * 
+	 * @param numero
+	 *            Numero da conta.
+	 * @param centavos
+	 *            Saldo da conta em centavos.
+	 * @return excecao criada.
+	 */
+	public static SaldoInsuficienteException emCentavos(String numero,
+			long centavos) {
+		return new SaldoInsuficienteException(
+				"Saldo insuficiente! O saldo atual da conta " + numero
+						+ " eh R$" + (centavos < 0 ? "-" : "")
+						+ Math.abs(centavos / 100) + "."
+						+ (Math.abs(centavos % 100) < 10 ? "0" : "")
+						+ Math.abs(centavos % 100));
+	}
 }
@@ -18,11 +18,6 @@ import javax.swing.JTextField;
 import javax.swing.WindowConstants;
 
 import br.ufrpe.poo.banco.exceptions.CampoVazioException;
-import br.ufrpe.poo.banco.exceptions.ClienteJaPossuiContaException;
-import br.ufrpe.poo.banco.exceptions.ClienteNaoCadastradoException;
-import br.ufrpe.poo.banco.exceptions.ContaJaAssociadaException;
-import br.ufrpe.poo.banco.exceptions.ContaJaCadastradaException;
-import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.negocio.Conta;
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
 import br.ufrpe.poo.banco.negocio.ContaEspecial;
@@ -167,24 +162,32 @@ public class AssociarContaFrame extends JFrame {
 						if (numeroConta.equals(""))
 							throw new CampoVazioException("numero da conta");
 
-						AdminMenuFrame.banco.associarConta(cpf, numeroConta);
+						final ContaAbstrata conta = tipoConta;
 
-						tipoConta.setNumero(numeroConta);
-						tipoConta.setSaldo(0);
+						new OperacaoBanco<Void>(associarContaButton) {
 
-						AdminMenuFrame.banco.cadastrar(tipoConta);
+							@Override
+							protected Void executar() throws Exception {
+								AdminMenuFrame.banco.associarConta(cpf,
+										numeroConta);
 
-						JOptionPane.showMessageDialog(null,
-								"Conta associada ao cliente com sucesso!",
-								"Sucesso", JOptionPane.INFORMATION_MESSAGE);
-						System.out.println(tipoConta.getClass());
-						esvaziarCampos();
-					} catch (ClienteNaoCadastradoException
-							| ClienteJaPossuiContaException
-							| ContaJaAssociadaException | RepositorioException
-							| ContaJaCadastradaException e) {
-						JOptionPane.showMessageDialog(null, e.getMessage(),
-								"Erro", JOptionPane.ERROR_MESSAGE);
+								conta.setNumero(numeroConta);
+								conta.setSaldo(0);
+
+								AdminMenuFrame.banco.cadastrar(conta);
+								return null;
+							}
+
+							@Override
+							protected void concluir(Void resultado) {
+								JOptionPane.showMessageDialog(null,
+										"Conta associada ao cliente com sucesso!",
+										"Sucesso",
+										JOptionPane.INFORMATION_MESSAGE);
+								System.out.println(conta.getClass());
+								esvaziarCampos();
+							}
+						}.iniciar();
 					} catch (CampoVazioException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Alerta", JOptionPane.WARNING_MESSAGE);
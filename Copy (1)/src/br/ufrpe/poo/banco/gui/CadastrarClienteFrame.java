@@ -21,7 +21,6 @@ import br.ufrpe.poo.banco.exceptions.CampoVazioException;
 import br.ufrpe.poo.banco.exceptions.ClienteJaCadastradoException;
 import br.ufrpe.poo.banco.exceptions.ClienteJaPossuiContaException;
 import br.ufrpe.poo.banco.exceptions.ContaJaCadastradaException;
-import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.negocio.Cliente;
 import br.ufrpe.poo.banco.negocio.Conta;
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
@@ -196,27 +195,38 @@ public class CadastrarClienteFrame extends JFrame {
 						String numeroConta = getContaTextField().getText();
 						verificarCampoVazio(numeroConta, "Numero da Conta");
 
-						if (AdminMenuFrame.banco.procurarCliente(cpf) != null)
-							throw new ClienteJaCadastradoException();
-						if (AdminMenuFrame.banco.procurarConta(numeroConta) != null)
-							throw new ContaJaCadastradaException();
-
-						tipoConta.setNumero(numeroConta);
-						tipoConta.setSaldo(0);
+						final ContaAbstrata conta = tipoConta;
+						conta.setNumero(numeroConta);
+						conta.setSaldo(0);
 
 						Cliente cliente = new Cliente(nome, cpf);
 
 						cliente.adicionarConta(numeroConta);
-						AdminMenuFrame.banco.cadastrar(tipoConta);
-						AdminMenuFrame.banco.cadastrarCliente(cliente);
-
-						JOptionPane.showMessageDialog(null,
-								"Cliente cadastrado com sucesso!", "Sucesso",
-								JOptionPane.INFORMATION_MESSAGE);
-						esvaziarCampos();
-					} catch (ClienteJaCadastradoException
-							| ContaJaCadastradaException | RepositorioException
-							| ClienteJaPossuiContaException e) {
+
+						new OperacaoBanco<Void>(submeterCadastroButton) {
+
+							@Override
+							protected Void executar() throws Exception {
+								if (AdminMenuFrame.banco.procurarCliente(cpf) != null)
+									throw new ClienteJaCadastradoException();
+								if (AdminMenuFrame.banco
+										.procurarConta(numeroConta) != null)
+									throw new ContaJaCadastradaException();
+								AdminMenuFrame.banco.cadastrar(conta);
+								AdminMenuFrame.banco.cadastrarCliente(cliente);
+								return null;
+							}
+
+							@Override
+							protected void concluir(Void resultado) {
+								JOptionPane.showMessageDialog(null,
+										"Cliente cadastrado com sucesso!",
+										"Sucesso",
+										JOptionPane.INFORMATION_MESSAGE);
+								esvaziarCampos();
+							}
+						}.iniciar();
+					} catch (ClienteJaPossuiContaException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Erro", JOptionPane.ERROR_MESSAGE);
 					} catch (CampoVazioException e) {
@@ -16,9 +16,7 @@ import br.ufrpe.poo.banco.exceptions.ClienteNaoPossuiContaException;
 import br.ufrpe.poo.banco.exceptions.ContaNaoEncontradaException;
 import br.ufrpe.poo.banco.exceptions.ContasOrigemDestinoIguaisException;
 import br.ufrpe.poo.banco.exceptions.EntradaInvalidaException;
-import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
-import br.ufrpe.poo.banco.exceptions.ValorInvalidoException;
 import br.ufrpe.poo.banco.negocio.Cliente;
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
 
@@ -105,18 +103,24 @@ public class ClienteMenuFrame extends JFrame {
 						if (numeroConta == null)
 							return;
 
-						ContaAbstrata achouConta = null;
-						if (cliente.procurarConta(numeroConta) != -1)
-							achouConta = AppletClienteMenuFrame.banco
-									.procurarConta(numeroConta);
-						else
+						if (cliente.procurarConta(numeroConta) == -1)
 							throw new ClienteNaoPossuiContaException();
 
-						String saldo = String.format("R$%.2f",
-								achouConta.getSaldo());
-
-						JOptionPane.showMessageDialog(null, saldo, "Saldo",
-								JOptionPane.PLAIN_MESSAGE);
+						new OperacaoBanco<Double>(getSaldoButton,
+								ContaNaoEncontradaException.class) {
+
+							@Override
+							protected Double executar() throws Exception {
+								return procurarConta(numeroConta).getSaldo();
+							}
+
+							@Override
+							protected void concluir(Double saldo) {
+								JOptionPane.showMessageDialog(null,
+										String.format("R$%.2f", saldo),
+										"Saldo", JOptionPane.PLAIN_MESSAGE);
+							}
+						}.iniciar();
 					} catch (ClienteNaoPossuiContaException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Alerta", JOptionPane.WARNING_MESSAGE);
@@ -144,11 +148,7 @@ public class ClienteMenuFrame extends JFrame {
 						if (numeroContaOrigem == null)
 							return;
 
-						ContaAbstrata contaOrigem = null;
-						if (cliente.procurarConta(numeroContaOrigem) != -1)
-							contaOrigem = AppletClienteMenuFrame.banco
-									.procurarConta(numeroContaOrigem);
-						else
+						if (cliente.procurarConta(numeroContaOrigem) == -1)
 							throw new ClienteNaoPossuiContaException();
 
 						String numeroContaDestino = JOptionPane
@@ -164,35 +164,43 @@ public class ClienteMenuFrame extends JFrame {
 								.equalsIgnoreCase(numeroContaOrigem))
 							throw new ContasOrigemDestinoIguaisException();
 
-						ContaAbstrata contaDestino = AppletClienteMenuFrame.banco
-								.procurarConta(numeroContaDestino);
-
-						if (contaDestino == null)
-							throw new ContaNaoEncontradaException();
-
 						String valor = JOptionPane.showInputDialog(null,
 								"Informe o valor da transferencia:",
 								"Transferencia", JOptionPane.PLAIN_MESSAGE);
 
+						if (valor == null)
+							return;
 						if (!valor.matches("[0-9]*") || valor.equals(""))
 							throw new EntradaInvalidaException();
 
 						double valor2 = Double.parseDouble(valor);
 
-						AppletClienteMenuFrame.banco.transferir(contaOrigem,
-								contaDestino, valor2);
-
-						JOptionPane.showMessageDialog(null,
-								"Transferencia realizada com sucesso!",
-								"Sucesso", JOptionPane.INFORMATION_MESSAGE);
-					} catch (EntradaInvalidaException | RepositorioException
-							| ContasOrigemDestinoIguaisException
-							| ValorInvalidoException e) {
+						new OperacaoBanco<Void>(transferirButton,
+								ContaNaoEncontradaException.class,
+								SaldoInsuficienteException.class) {
+
+							@Override
+							protected Void executar() throws Exception {
+								AppletClienteMenuFrame.banco.transferir(
+										procurarConta(numeroContaOrigem),
+										procurarConta(numeroContaDestino),
+										valor2);
+								return null;
+							}
+
+							@Override
+							protected void concluir(Void resultado) {
+								JOptionPane.showMessageDialog(null,
+										"Transferencia realizada com sucesso!",
+										"Sucesso",
+										JOptionPane.INFORMATION_MESSAGE);
+							}
+						}.iniciar();
+					} catch (EntradaInvalidaException
+							| ContasOrigemDestinoIguaisException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Erro", JOptionPane.ERROR_MESSAGE);
-					} catch (ContaNaoEncontradaException
-							| ClienteNaoPossuiContaException
-							| SaldoInsuficienteException e) {
+					} catch (ClienteNaoPossuiContaException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Alerta", JOptionPane.WARNING_MESSAGE);
 					}
@@ -219,30 +227,39 @@ public class ClienteMenuFrame extends JFrame {
 						if (numero == null)
 							return;
 
-						ContaAbstrata achouConta = null;
-						if (cliente.procurarConta(numero) != -1)
-							achouConta = AppletClienteMenuFrame.banco
-									.procurarConta(numero);
-						else
+						if (cliente.procurarConta(numero) == -1)
 							throw new ClienteNaoPossuiContaException();
 
 						String valor = JOptionPane.showInputDialog(null,
 								"Informe o valor a ser depositado:",
 								"Depositar", JOptionPane.PLAIN_MESSAGE);
 
+						if (valor == null)
+							return;
 						if (!valor.matches("[0-9]*") || valor.equals(""))
 							throw new EntradaInvalidaException();
 
 						double valor2 = Double.parseDouble(valor);
 
-						AppletClienteMenuFrame.banco.creditar(achouConta,
-								valor2);
-
-						JOptionPane.showMessageDialog(null,
-								"Deposito realizado com sucesso!", "Sucesso",
-								JOptionPane.INFORMATION_MESSAGE);
-					} catch (EntradaInvalidaException | RepositorioException
-							| ValorInvalidoException e) {
+						new OperacaoBanco<Void>(creditarButton,
+								ContaNaoEncontradaException.class) {
+
+							@Override
+							protected Void executar() throws Exception {
+								AppletClienteMenuFrame.banco.creditar(
+										procurarConta(numero), valor2);
+								return null;
+							}
+
+							@Override
+							protected void concluir(Void resultado) {
+								JOptionPane.showMessageDialog(null,
+										"Deposito realizado com sucesso!",
+										"Sucesso",
+										JOptionPane.INFORMATION_MESSAGE);
+							}
+						}.iniciar();
+					} catch (EntradaInvalidaException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Erro", JOptionPane.ERROR_MESSAGE);
 					} catch (ClienteNaoPossuiContaException e) {
@@ -271,33 +288,42 @@ public class ClienteMenuFrame extends JFrame {
 						if (numero == null)
 							return;
 
-						ContaAbstrata achouConta = null;
-						if (cliente.procurarConta(numero) != -1)
-							achouConta = AppletClienteMenuFrame.banco
-									.procurarConta(numero);
-						else
+						if (cliente.procurarConta(numero) == -1)
 							throw new ClienteNaoPossuiContaException();
 
 						String valor = JOptionPane.showInputDialog(null,
 								"Informe o valor a ser sacado:", "Saque",
 								JOptionPane.PLAIN_MESSAGE);
 
+						if (valor == null)
+							return;
 						if (!valor.matches("[0-9]*") || valor.equals(""))
 							throw new EntradaInvalidaException();
 						double valor2 = Double.parseDouble(valor);
 
-						AppletClienteMenuFrame.banco
-								.debitar(achouConta, valor2);
-
-						JOptionPane.showMessageDialog(null,
-								"Saque realizado com sucesso!", "Sucesso",
-								JOptionPane.INFORMATION_MESSAGE);
-					} catch (EntradaInvalidaException | RepositorioException
-							| ValorInvalidoException e) {
+						new OperacaoBanco<Void>(saqueButton,
+								ContaNaoEncontradaException.class,
+								SaldoInsuficienteException.class) {
+
+							@Override
+							protected Void executar() throws Exception {
+								AppletClienteMenuFrame.banco.debitar(
+										procurarConta(numero), valor2);
+								return null;
+							}
+
+							@Override
+							protected void concluir(Void resultado) {
+								JOptionPane.showMessageDialog(null,
+										"Saque realizado com sucesso!",
+										"Sucesso",
+										JOptionPane.INFORMATION_MESSAGE);
+							}
+						}.iniciar();
+					} catch (EntradaInvalidaException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Erro", JOptionPane.ERROR_MESSAGE);
-					} catch (ClienteNaoPossuiContaException
-							| SaldoInsuficienteException e) {
+					} catch (ClienteNaoPossuiContaException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Alerta", JOptionPane.WARNING_MESSAGE);
 					}
@@ -307,6 +333,21 @@ public class ClienteMenuFrame extends JFrame {
 		return this.saqueButton;
 	}
 
+	/**
+	 * Procura uma conta no banco. Chamado fora da EDT.
+	 * 
+	 * @throws ContaNaoEncontradaException
+	 *             levantada se a conta nao existe.
+	 */
+	private ContaAbstrata procurarConta(String numero)
+			throws ContaNaoEncontradaException {
+		ContaAbstrata conta = AppletClienteMenuFrame.banco
+				.procurarConta(numero);
+		if (conta == null)
+			throw new ContaNaoEncontradaException();
+		return conta;
+	}
+
 	private JButton getExitButton() {
 		if (this.exitButton == null) {
 			this.exitButton = new JButton();
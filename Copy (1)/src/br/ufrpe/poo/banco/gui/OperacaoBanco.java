@@ -0,0 +1,142 @@
+package br.ufrpe.poo.banco.gui;
+
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.Window;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.AbstractButton;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+/**
+ * Operacao sobre o banco executada fora da Event Dispatch Thread.
+ *
+ * <code>executar</code> roda numa thread de fundo, unica para todas as telas,
+ * de modo que as operacoes continuam sendo feitas uma de cada vez, como
+ * quando rodavam na EDT, mas a interface nao trava enquanto o repositorio
+ * grava o arquivo. Enquanto a operacao roda, o botao que a iniciou fica
+ * desabilitado, mostrando "Aguarde...", e a janela mostra o cursor de espera.
+ * O resultado e entregue a <code>concluir</code> e as excecoes a
+ * <code>falhar</code>, ambos na EDT.
+ *
+ * @param <T>
+ *            tipo do resultado da operacao.
+ */
+abstract class OperacaoBanco<T> extends SwingWorker<T, Void> {
+
+	/** Thread de fundo das operacoes de todas as telas. */
+	private static final ExecutorService EXECUTOR = Executors
+			.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "banco-gui");
+				t.setDaemon(true);
+				return t;
+			});
+
+	/** Componente que iniciou a operacao. */
+	private final Component origem;
+
+	/** Excecoes mostradas como alerta, e nao como erro. */
+	private final Class<?>[] alertas;
+
+	private String textoOrigem;
+
+	/**
+	 * Cria a operacao.
+	 *
+	 * @param origem
+	 *            componente que iniciou a operacao, desabilitado enquanto ela
+	 *            roda.
+	 * @param alertas
+	 *            excecoes mostradas como alerta; as demais sao mostradas como
+	 *            erro.
+	 */
+	OperacaoBanco(Component origem, Class<?>... alertas) {
+		this.origem = origem;
+		this.alertas = alertas;
+	}
+
+	/**
+	 * Inicia a operacao. Deve ser chamado na EDT.
+	 */
+	void iniciar() {
+		this.origem.setEnabled(false);
+		if (this.origem instanceof AbstractButton) {
+			AbstractButton botao = (AbstractButton) this.origem;
+			this.textoOrigem = botao.getText();
+			botao.setText("Aguarde...");
+		}
+		Window janela = SwingUtilities.getWindowAncestor(this.origem);
+		if (janela != null)
+			janela.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		EXECUTOR.execute(this);
+	}
+
+	/**
+	 * Executa a operacao sobre o banco, fora da EDT.
+	 *
+	 * @return resultado da operacao.
+	 * @throws Exception
+	 *             excecao entregue a <code>falhar</code>.
+	 */
+	protected abstract T executar() throws Exception;
+
+	/**
+	 * Mostra o resultado da operacao, na EDT.
+	 *
+	 * @param resultado
+	 *            resultado de <code>executar</code>.
+	 */
+	protected abstract void concluir(T resultado);
+
+	/**
+	 * Mostra a excecao da operacao, na EDT.
+	 *
+	 * @param e
+	 *            excecao levantada por <code>executar</code>.
+	 */
+	protected void falhar(Exception e) {
+		for (Class<?> alerta : this.alertas) {
+			if (alerta.isInstance(e)) {
+				JOptionPane.showMessageDialog(null, e.getMessage(), "Alerta",
+						JOptionPane.WARNING_MESSAGE);
+				return;
+			}
+		}
+		JOptionPane.showMessageDialog(null, e.getMessage(), "Erro",
+				JOptionPane.ERROR_MESSAGE);
+	}
+
+	@Override
+	protected final T doInBackground() throws Exception {
+		return this.executar();
+	}
+
+	@Override
+	protected final void done() {
+		this.origem.setEnabled(true);
+		if (this.textoOrigem != null)
+			((AbstractButton) this.origem).setText(this.textoOrigem);
+		Window janela = SwingUtilities.getWindowAncestor(this.origem);
+		if (janela != null)
+			janela.setCursor(Cursor.getDefaultCursor());
+		T resultado;
+		try {
+			resultado = this.get();
+		} catch (ExecutionException e) {
+			Throwable causa = e.getCause();
+			if (causa instanceof Exception)
+				this.falhar((Exception) causa);
+			else
+				throw (Error) causa;
+			return;
+		} catch (InterruptedException | CancellationException e) {
+			return;
+		}
+		this.concluir(resultado);
+	}
+}
@@ -13,12 +13,8 @@ import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.WindowConstants;
 
-import br.ufrpe.poo.banco.exceptions.AtualizacaoNaoRealizadaException;
 import br.ufrpe.poo.banco.exceptions.CampoVazioException;
 import br.ufrpe.poo.banco.exceptions.ClienteNaoCadastradoException;
-import br.ufrpe.poo.banco.exceptions.ClienteNaoPossuiContaException;
-import br.ufrpe.poo.banco.exceptions.ContaNaoEncontradaException;
-import br.ufrpe.poo.banco.exceptions.RepositorioException;
 
 public class RemoverClienteFrame extends JFrame {
 
@@ -108,25 +104,34 @@ public class RemoverClienteFrame extends JFrame {
 						if (cpf.equals(""))
 							throw new CampoVazioException("CPF");
 
-						if (AdminMenuFrame.banco.procurarCliente(cpf) == null)
-							throw new ClienteNaoCadastradoException();
-
-						AdminMenuFrame.banco.removerCliente(cpf);
-
-						JOptionPane
-								.showMessageDialog(
-										null,
-										"Cliente removido com sucesso! Todas as contas associadas a ele tambem foram removidas!",
-										"Sucesso",
-										JOptionPane.INFORMATION_MESSAGE);
-						esvaziarCampos();
-					} catch (RepositorioException | ContaNaoEncontradaException
-							| ClienteNaoPossuiContaException
-							| AtualizacaoNaoRealizadaException
-							| ClienteNaoCadastradoException e) {
-						JOptionPane.showMessageDialog(null, e.getMessage(),
-								"Erro", JOptionPane.ERROR_MESSAGE);
-						esvaziarCampos();
+						new OperacaoBanco<Void>(removerClienteButton) {
+
+							@Override
+							protected Void executar() throws Exception {
+								if (AdminMenuFrame.banco.procurarCliente(cpf) == null)
+									throw new ClienteNaoCadastradoException();
+
+								AdminMenuFrame.banco.removerCliente(cpf);
+								return null;
+							}
+
+							@Override
+							protected void concluir(Void resultado) {
+								JOptionPane
+										.showMessageDialog(
+												null,
+												"Cliente removido com sucesso! Todas as contas associadas a ele tambem foram removidas!",
+												"Sucesso",
+												JOptionPane.INFORMATION_MESSAGE);
+								esvaziarCampos();
+							}
+
+							@Override
+							protected void falhar(Exception e) {
+								super.falhar(e);
+								esvaziarCampos();
+							}
+						}.iniciar();
 					} catch (CampoVazioException e) {
 						JOptionPane.showMessageDialog(null, e.getMessage(),
 								"Alerta", JOptionPane.WARNING_MESSAGE);
@@ -1,5 +1,10 @@
 package br.ufrpe.poo.banco.iterator;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 import br.ufrpe.poo.banco.negocio.Cliente;
 
 /**
@@ -26,4 +31,30 @@ public interface IteratorCliente {
 	 *         mais clientes no array.
 	 */
 	Cliente next();
+
+	/**
+	 * Retorna um <code>Spliterator</code> sobre os clientes restantes do
+	 * iterador. A implementacao padrao nao conhece o tamanho e so pode ser
+	 * dividida em blocos; iteradores sobre arrays devem sobrescrever este
+	 * metodo.
+	 * 
+	 * @return spliterator sobre os clientes restantes.
+	 */
+	default Spliterator<Cliente> spliterator() {
+		final IteratorCliente it = this;
+		return Spliterators.spliteratorUnknownSize(new Iterator<Cliente>() {
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Cliente next() {
+				if (!it.hasNext())
+					throw new NoSuchElementException();
+				return it.next();
+			}
+		}, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
 }
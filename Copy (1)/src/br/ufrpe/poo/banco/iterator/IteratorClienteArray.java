@@ -1,5 +1,7 @@
 package br.ufrpe.poo.banco.iterator;
 
+import java.util.Spliterator;
+
 import br.ufrpe.poo.banco.negocio.Cliente;
 
 /**
@@ -21,17 +23,51 @@ public class IteratorClienteArray implements IteratorCliente {
 	 */
 	private int indice;
 
+	/**
+	 * Quantidade de clientes do array, ou -1 se o fim e marcado pela primeira
+	 * posicao <code>null</code>.
+	 */
+	private int tamanho;
+
 	public IteratorClienteArray(Cliente[] clientes) {
+		this(clientes, -1);
+	}
+
+	/**
+	 * Constroi um iterador sobre as primeiras posicoes do array.
+	 * 
+	 * @param clientes
+	 *            Array de clientes.
+	 * @param tamanho
+	 *            Quantidade de clientes, a partir da posicao 0.
+	 */
+	public IteratorClienteArray(Cliente[] clientes, int tamanho) {
 		this.clientes = clientes;
+		this.tamanho = tamanho;
 		this.indice = 0;
 	}
 
 	@Override
 	public boolean hasNext() {
-
+		if (this.tamanho >= 0)
+			return this.indice < this.tamanho;
 		return (this.indice < clientes.length && clientes[this.indice] != null);
 	}
 
+	/**
+	 * Retorna um spliterator SIZED e SUBSIZED sobre os clientes restantes, que
+	 * pode ser dividido ao meio por streams paralelos. Sem o tamanho, o fim so
+	 * e conhecido ao encontrar <code>null</code> e o spliterator e o padrao
+	 * de <code>IteratorCliente</code>.
+	 */
+	@Override
+	public Spliterator<Cliente> spliterator() {
+		if (this.tamanho < 0)
+			return IteratorCliente.super.spliterator();
+		return new SpliteratorArray<Cliente>(this.clientes, this.indice,
+				this.tamanho);
+	}
+
 	@Override
 	public Cliente next() {
 		Cliente c = clientes[this.indice];
@@ -1,5 +1,10 @@
 package br.ufrpe.poo.banco.iterator;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
 
 /**
@@ -27,4 +32,29 @@ public interface IteratorContaAbstrata {
 	 */
 	ContaAbstrata next();
 
+	/**
+	 * Retorna um <code>Spliterator</code> sobre as contas restantes do
+	 * iterador. A implementacao padrao nao conhece o tamanho e so pode ser
+	 * dividida em blocos; iteradores sobre arrays devem sobrescrever este
+	 * metodo.
+	 * 
+	 * @return spliterator sobre as contas restantes.
+	 */
+	default Spliterator<ContaAbstrata> spliterator() {
+		final IteratorContaAbstrata it = this;
+		return Spliterators.spliteratorUnknownSize(new Iterator<ContaAbstrata>() {
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public ContaAbstrata next() {
+				if (!it.hasNext())
+					throw new NoSuchElementException();
+				return it.next();
+			}
+		}, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
 }
@@ -1,5 +1,7 @@
 package br.ufrpe.poo.banco.iterator;
 
+import java.util.Spliterator;
+
 import br.ufrpe.poo.banco.negocio.ContaAbstrata;
 
 /**
@@ -21,16 +23,51 @@ public class IteratorContaAbstrataArray implements IteratorContaAbstrata {
 	 */
 	private int indice;
 
+	/**
+	 * Quantidade de contas do array, ou -1 se o fim e marcado pela primeira
+	 * posicao <code>null</code>.
+	 */
+	private int tamanho;
+
 	public IteratorContaAbstrataArray(ContaAbstrata[] contas) {
+		this(contas, -1);
+	}
+
+	/**
+	 * Constroi um iterador sobre as primeiras posicoes do array.
+	 * 
+	 * @param contas
+	 *            Array de contas.
+	 * @param tamanho
+	 *            Quantidade de contas, a partir da posicao 0.
+	 */
+	public IteratorContaAbstrataArray(ContaAbstrata[] contas, int tamanho) {
 		this.contas = contas;
+		this.tamanho = tamanho;
 		indice = 0;
 	}
 
 	@Override
 	public boolean hasNext() {
+		if (tamanho >= 0)
+			return indice < tamanho;
 		return indice < contas.length && contas[indice] != null;
 	}
 
+	/**
+	 * Retorna um spliterator SIZED e SUBSIZED sobre as contas restantes, que
+	 * pode ser dividido ao meio por streams paralelos. Sem o tamanho, o fim so
+	 * e conhecido ao encontrar <code>null</code> e o spliterator e o padrao
+	 * de <code>IteratorContaAbstrata</code>.
+	 */
+	@Override
+	public Spliterator<ContaAbstrata> spliterator() {
+		if (this.tamanho < 0)
+			return IteratorContaAbstrata.super.spliterator();
+		return new SpliteratorArray<ContaAbstrata>(this.contas, this.indice,
+				this.tamanho);
+	}
+
 	@Override
 	public ContaAbstrata next() {
 		ContaAbstrata resposta = contas[indice];
@@ -0,0 +1,83 @@
+package br.ufrpe.poo.banco.iterator;
+
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator sobre um trecho do array de um repositorio, dividido ao meio
+ * por streams paralelos.
+ * 
+ * O array e o do repositorio e nao uma copia, por isso o spliterator nao e
+ * IMMUTABLE: uma remocao no repositorio move a ultima posicao para a
+ * removida e deixa <code>null</code> no fim. Encontrar <code>null</code>
+ * dentro do trecho lanca <code>ConcurrentModificationException</code>
+ * (fail-fast); outras alteracoes feitas durante o percurso podem ou nao ser
+ * vistas.
+ * 
+ * @param <T>
+ *            tipo dos elementos.
+ */
+final class SpliteratorArray<T> implements Spliterator<T> {
+
+	private final T[] array;
+
+	/** Proxima posicao a percorrer. */
+	private int origem;
+
+	/** Posicao seguinte a ultima do trecho. */
+	private final int fim;
+
+	SpliteratorArray(T[] array, int origem, int fim) {
+		this.array = array;
+		this.origem = origem;
+		this.fim = fim;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> acao) {
+		if (this.origem >= this.fim)
+			return false;
+		acao.accept(this.elemento(this.origem++));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> acao) {
+		int i = this.origem;
+		this.origem = this.fim;
+		for (; i < this.fim; i++) {
+			acao.accept(this.elemento(i));
+		}
+	}
+
+	private T elemento(int i) {
+		T elemento = this.array[i];
+		if (elemento == null)
+			throw new ConcurrentModificationException(
+					"Repositorio alterado durante o percurso");
+		return elemento;
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		int meio = (this.origem + this.fim) >>> 1;
+		if (meio <= this.origem)
+			return null;
+		Spliterator<T> prefixo = new SpliteratorArray<T>(this.array,
+				this.origem, meio);
+		this.origem = meio;
+		return prefixo;
+	}
+
+	@Override
+	public long estimateSize() {
+		return this.fim - this.origem;
+	}
+
+	@Override
+	public int characteristics() {
+		return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+				| Spliterator.NONNULL;
+	}
+}
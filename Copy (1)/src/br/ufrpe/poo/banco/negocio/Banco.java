@@ -1,9 +1,14 @@
 package br.ufrpe.poo.banco.negocio;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import br.ufrpe.poo.banco.dados.IRepositorioClientes;
 import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.IRepositorioLancamentos;
 import br.ufrpe.poo.banco.dados.RepositorioClientesArquivoBin;
 import br.ufrpe.poo.banco.dados.RepositorioContasArquivoBin;
+import br.ufrpe.poo.banco.dados.TransacaoContas;
 import br.ufrpe.poo.banco.exceptions.AtualizacaoNaoRealizadaException;
 import br.ufrpe.poo.banco.exceptions.ClienteJaCadastradoException;
 import br.ufrpe.poo.banco.exceptions.ClienteJaPossuiContaException;
@@ -28,6 +33,11 @@ import br.ufrpe.poo.banco.exceptions.ValorInvalidoException;
  */
 public class Banco implements IGerencia, ICliente {
 
+	/**
+	 * Taxa de juros das poupancas.
+	 */
+	public static final double TAXA_JUROS = 0.5;
+
 	/**
 	 * Instancia do repositorio de clientes.
 	 */
@@ -38,14 +48,101 @@ public class Banco implements IGerencia, ICliente {
 	 */
 	protected IRepositorioContas contas;
 
+	/**
+	 * Repositorio de lancamentos das contas, ou <code>null</code> se as
+	 * operacoes nao sao registradas.
+	 */
+	protected IRepositorioLancamentos lancamentos;
+
+	/**
+	 * Registro das metricas das operacoes.
+	 */
+	protected final Metricas metricas;
+
+	private final MetricasOperacao metricasCreditar;
+
+	private final MetricasOperacao metricasDebitar;
+
+	private final MetricasOperacao metricasTransferir;
+
+	private final MetricasOperacao metricasRenderBonus;
+
+	private final MetricasOperacao metricasRenderJuros;
+
+	private final MetricasOperacao metricasLancar;
+
+	/**
+	 * Ultimo erro ao registrar um lancamento, ou <code>null</code>.
+	 */
+	private volatile RepositorioException falhaLancamentos;
+
 	/**
 	 * Instancia do comunicador.
 	 */
 	protected static Banco instance;
 
 	protected Banco(IRepositorioClientes clientes, IRepositorioContas contas) {
+		this(clientes, contas, null);
+	}
+
+	protected Banco(IRepositorioClientes clientes, IRepositorioContas contas,
+			IRepositorioLancamentos lancamentos) {
+		this(clientes, contas, lancamentos, Metricas.getPadrao());
+	}
+
+	protected Banco(IRepositorioClientes clientes, IRepositorioContas contas,
+			IRepositorioLancamentos lancamentos, Metricas metricas) {
 		this.clientes = clientes;
 		this.contas = contas;
+		this.lancamentos = lancamentos;
+		this.metricas = metricas;
+		this.metricasCreditar = metricas.operacao("banco.creditar");
+		this.metricasDebitar = metricas.operacao("banco.debitar");
+		this.metricasTransferir = metricas.operacao("banco.transferir");
+		this.metricasRenderBonus = metricas.operacao("banco.renderBonus");
+		this.metricasRenderJuros = metricas.operacao("banco.renderJuros");
+		this.metricasLancar = metricas.operacao("banco.lancar");
+	}
+
+	/**
+	 * Registra um lancamento da conta, se o banco tiver repositorio de
+	 * lancamentos. Chamado depois que a conta foi gravada.
+	 */
+	private void lancar(ContaAbstrata conta, Lancamento.Tipo tipo,
+			double valor, String contrapartida) {
+		this.lancar(conta.getNumero(), tipo, valor, conta.getSaldo(),
+				contrapartida);
+	}
+
+	/**
+	 * Registra um lancamento, se o banco tiver repositorio de lancamentos.
+	 * Como a operacao ja foi gravada, um erro no repositorio de lancamentos
+	 * nao e levantado: ele e contado na operacao "banco.lancar" das metricas
+	 * e fica disponivel em <code>getFalhaLancamentos</code>.
+	 */
+	private void lancar(String conta, Lancamento.Tipo tipo, double valor,
+			double saldo, String contrapartida) {
+		if (this.lancamentos == null)
+			return;
+		long inicio = System.nanoTime();
+		try {
+			this.lancamentos.registrar(conta, tipo, valor, saldo, contrapartida);
+		} catch (RepositorioException e) {
+			this.metricasLancar.registrar(inicio, e);
+			this.falhaLancamentos = e;
+			return;
+		}
+		this.metricasLancar.registrar(inicio, null);
+	}
+
+	/**
+	 * Retorna o erro do ultimo lancamento que nao pode ser registrado depois
+	 * de uma operacao ja gravada.
+	 * 
+	 * @return ultimo erro do repositorio de lancamentos, ou <code>null</code>.
+	 */
+	public RepositorioException getFalhaLancamentos() {
+		return this.falhaLancamentos;
 	}
 
 	/**
@@ -63,6 +160,7 @@ public class Banco implements IGerencia, ICliente {
 		if (Banco.instance == null) {
 			try {
 				Banco.instance = new Banco(new RepositorioClientesArquivoBin(), new RepositorioContasArquivoBin());
+				Banco.instance.metricas.registrarJmx();
 			} catch (RepositorioException e) {
 				throw new InicializacaoSistemaException();
 			}
@@ -81,6 +179,11 @@ public class Banco implements IGerencia, ICliente {
 		return this.clientes.procurar(cpf);
 	}
 
+	@Override
+	public Cliente procurarTitular(String numeroConta) {
+		return this.clientes.procurarTitular(numeroConta);
+	}
+
 	@Override
 	public void cadastrar(ContaAbstrata conta) throws RepositorioException, ContaJaCadastradaException {
 		if (!this.contas.inserir(conta))
@@ -98,7 +201,11 @@ public class Banco implements IGerencia, ICliente {
 		Cliente cliente = this.procurarCliente(cpf);
 		if (cliente != null) {
 			ContaAbstrata conta = procurarConta(numeroConta);
-			if (conta == null) {
+			// pelo indice de titulares, se o repositorio tiver, ou percorrendo
+			// os clientes
+			Cliente titular = conta == null ? this.procurarTitular(numeroConta)
+					: null;
+			if (conta == null && (titular == null || titular.equals(cliente))) {
 				cliente.adicionarConta(numeroConta);
 				this.clientes.atualizar(cliente);
 			} else
@@ -130,41 +237,128 @@ public class Banco implements IGerencia, ICliente {
 
 	@Override
 	public void creditar(ContaAbstrata conta, double valor) throws RepositorioException, ValorInvalidoException, ContaNaoEncontradaException {
-	    if (valor < 0)
-	        throw new ValorInvalidoException();
-	    if (!this.contas.existe(conta.getNumero())) {
-	        throw new ContaNaoEncontradaException();
+	    long inicio = System.nanoTime();
+	    try {
+	        if (valor < 0)
+	            throw new ValorInvalidoException();
+	        if (!this.contas.existe(conta.getNumero())) {
+	            throw new ContaNaoEncontradaException();
+	        }
+	        conta.creditar(valor);
+	        this.contas.atualizar(conta);
+	        this.lancar(conta, Lancamento.Tipo.CREDITO, valor, null);
+	    } catch (Exception e) {
+	        this.metricasCreditar.registrar(inicio, e);
+	        throw e;
 	    }
-	    conta.creditar(valor);
+	    this.metricasCreditar.registrar(inicio, null);
 	}
 
 
 	@Override
 	public void debitar(ContaAbstrata conta, double valor)
 	        throws RepositorioException, SaldoInsuficienteException, ValorInvalidoException, ContaNaoEncontradaException {
-	    if (valor < 0)
-	        throw new ValorInvalidoException();
-	    if (!this.contas.existe(conta.getNumero())) {
-	        throw new ContaNaoEncontradaException();
+	    long inicio = System.nanoTime();
+	    try {
+	        if (valor < 0)
+	            throw new ValorInvalidoException();
+	        if (!this.contas.existe(conta.getNumero())) {
+	            throw new ContaNaoEncontradaException();
+	        }
+	        conta.debitar(valor);
+	        this.contas.atualizar(conta);
+	        this.lancar(conta, Lancamento.Tipo.DEBITO, valor, null);
+	    } catch (Exception e) {
+	        this.metricasDebitar.registrar(inicio, e);
+	        throw e;
 	    }
-	    conta.debitar(valor);    
-	    this.contas.atualizar(conta);
+	    this.metricasDebitar.registrar(inicio, null);
 	}
 
 
 	@Override
 	public void transferir(ContaAbstrata contaOrigem, ContaAbstrata contaDestino, double valor)
 	        throws SaldoInsuficienteException, RepositorioException, ValorInvalidoException, ContaNaoEncontradaException {
-	    if (!this.contas.existe(contaOrigem.getNumero()) || !this.contas.existe(contaDestino.getNumero())) {
-	        throw new ContaNaoEncontradaException();
+	    long inicio = System.nanoTime();
+	    try {
+	        if (!this.contas.existe(contaOrigem.getNumero()) || !this.contas.existe(contaDestino.getNumero())) {
+	            throw new ContaNaoEncontradaException();
+	        }
+	        if (valor < 0)
+	            throw new ValorInvalidoException();
+	        TransacaoContas transacao = new TransacaoContas(this.contas);
+	        transacao.registrar(contaOrigem);
+	        transacao.registrar(contaDestino);
+	        try {
+	            contaOrigem.debitar(valor);
+	            contaDestino.creditar(valor);
+	        } catch (SaldoInsuficienteException e) {
+	            transacao.desfazer();
+	            throw e;
+	        }
+	        transacao.confirmar();
+	        this.lancar(contaOrigem, Lancamento.Tipo.TRANSFERENCIA_ENVIADA, valor, contaDestino.getNumero());
+	        this.lancar(contaDestino, Lancamento.Tipo.TRANSFERENCIA_RECEBIDA, valor, contaOrigem.getNumero());
+	    } catch (Exception e) {
+	        this.metricasTransferir.registrar(inicio, e);
+	        throw e;
 	    }
-	    this.debitar(contaOrigem, valor);
-	    this.creditar(contaDestino, valor);
-	    this.contas.atualizar(contaOrigem);
-	    this.contas.atualizar(contaDestino);
+	    this.metricasTransferir.registrar(inicio, null);
 	}
 
 
+	@Override
+	public int transferirLote(List<Transferencia> transferencias) throws RepositorioException {
+		TransacaoContas transacao = new TransacaoContas(this.contas);
+		// saldos de origem e destino depois de cada transferencia realizada
+		List<double[]> saldos = new ArrayList<double[]>();
+		int realizadas = 0;
+		for (Transferencia t : transferencias) {
+			try {
+				if (t.getValor() < 0)
+					throw new ValorInvalidoException();
+				ContaAbstrata origem = this.contas.procurar(t.getOrigem());
+				ContaAbstrata destino = this.contas.procurar(t.getDestino());
+				if (origem == null || destino == null)
+					throw new ContaNaoEncontradaException();
+				transacao.registrar(origem);
+				transacao.registrar(destino);
+				origem.debitar(t.getValor());
+				destino.creditar(t.getValor());
+				saldos.add(new double[] { origem.getSaldo(), destino.getSaldo() });
+				t.setFalha(null);
+				realizadas++;
+			} catch (ValorInvalidoException | ContaNaoEncontradaException | SaldoInsuficienteException e) {
+				t.setFalha(e);
+			}
+		}
+		try {
+			transacao.confirmar();
+		} catch (RepositorioException | RuntimeException e) {
+			// as contas voltaram aos saldos de antes do lote
+			for (Transferencia t : transferencias) {
+				if (t.getFalha() == null)
+					t.setFalha(e);
+			}
+			throw e;
+		}
+		if (this.lancamentos != null) {
+			int i = 0;
+			for (Transferencia t : transferencias) {
+				if (t.getFalha() != null)
+					continue;
+				double[] s = saldos.get(i++);
+				this.lancar(t.getOrigem(),
+						Lancamento.Tipo.TRANSFERENCIA_ENVIADA, t.getValor(), s[0],
+						t.getDestino());
+				this.lancar(t.getDestino(),
+						Lancamento.Tipo.TRANSFERENCIA_RECEBIDA, t.getValor(),
+						s[1], t.getOrigem());
+			}
+		}
+		return realizadas;
+	}
+
 	@Override
 	public void atualizarCliente(Cliente cliente) throws RepositorioException, AtualizacaoNaoRealizadaException {
 		if (!this.clientes.atualizar(cliente))
@@ -173,31 +367,71 @@ public class Banco implements IGerencia, ICliente {
 
 	public void renderBonus(ContaAbstrata conta)
 			throws RenderBonusContaEspecialException, RepositorioException, ContaNaoEncontradaException {
-		if (conta instanceof ContaEspecial) {
-			if (this.contas.existe(conta.getNumero())) {
-				((ContaEspecial) conta).renderBonus();
-				this.contas.atualizar(conta);
+		long inicio = System.nanoTime();
+		try {
+			if (conta instanceof ContaEspecial) {
+				if (this.contas.existe(conta.getNumero())) {
+					double bonus = ((ContaEspecial) conta).getBonus();
+					((ContaEspecial) conta).renderBonus();
+					this.contas.atualizar(conta);
+					this.lancar(conta, Lancamento.Tipo.BONUS, bonus, null);
+				} else {
+					throw new ContaNaoEncontradaException();
+				}
 			} else {
-				throw new ContaNaoEncontradaException();
+				throw new RenderBonusContaEspecialException();
 			}
-		} else {
-			throw new RenderBonusContaEspecialException();
+		} catch (Exception e) {
+			this.metricasRenderBonus.registrar(inicio, e);
+			throw e;
 		}
-
+		this.metricasRenderBonus.registrar(inicio, null);
 	}
 
 	public void renderJuros(ContaAbstrata conta)
 			throws RenderJurosPoupancaException, ContaNaoEncontradaException, RepositorioException {
-		if (conta instanceof Poupanca) {
-			if (this.contas.existe(conta.getNumero())) {
-				((Poupanca) conta).renderJuros(0.5);
-				this.contas.atualizar(conta);
+		long inicio = System.nanoTime();
+		try {
+			if (conta instanceof Poupanca) {
+				if (this.contas.existe(conta.getNumero())) {
+					double antes = conta.getSaldo();
+					((Poupanca) conta).renderJuros(TAXA_JUROS);
+					this.contas.atualizar(conta);
+					this.lancar(conta, Lancamento.Tipo.JUROS, conta.getSaldo() - antes, null);
+				} else {
+					throw new ContaNaoEncontradaException();
+				}
 			} else {
-				throw new ContaNaoEncontradaException();
+				throw new RenderJurosPoupancaException();
 			}
-		} else {
-			throw new RenderJurosPoupancaException();
+		} catch (Exception e) {
+			this.metricasRenderJuros.registrar(inicio, e);
+			throw e;
 		}
+		this.metricasRenderJuros.registrar(inicio, null);
+	}
+
+	@Override
+	public FechamentoMensal.Resultado fecharMes() throws RepositorioException {
+		return new FechamentoMensal(this.getContasFechamento(), TAXA_JUROS,
+				this.lancamentos).executar();
+	}
+
+	/**
+	 * Retorna o repositorio de contas usado pelo fechamento mensal.
+	 * 
+	 * @return repositorio de contas.
+	 */
+	protected IRepositorioContas getContasFechamento() {
+		return this.contas;
+	}
+
+	@Override
+	public List<Lancamento> extrato(String numeroConta, long inicio, long fim)
+			throws RepositorioException {
+		if (this.lancamentos == null)
+			return new ArrayList<Lancamento>();
+		return this.lancamentos.extrato(numeroConta, inicio, fim);
 	}
 
 }
@@ -0,0 +1,265 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fachada assincrona de um banco: as operacoes retornam imediatamente um
+ * <code>CompletableFuture</code>, completado com o resultado ou com a excecao
+ * da operacao (<code>SaldoInsuficienteException</code>,
+ * <code>RepositorioException</code> etc.).
+ *
+ * Operacoes que envolvem a mesma conta (ou o mesmo cpf) sao executadas uma
+ * depois da outra, na ordem em que foram pedidas; as demais rodam em
+ * paralelo. Cada chave e associada a uma fila, escolhida pelo numero da conta
+ * ou pelo cpf, e a fila guarda apenas o futuro da ultima operacao: uma
+ * operacao pendente nao ocupa thread, so um futuro encadeado ao anterior.
+ * Uma transferencia espera as filas das duas contas.
+ *
+ * O banco deve ser seguro para uso concorrente, como
+ * <code>BancoConcorrente</code>. Por padrao as operacoes rodam em threads
+ * virtuais, quando a JVM as oferece (Java 21 ou superior), ou num pool de
+ * threads daemon criado sob demanda; como as filas limitam as operacoes em
+ * execucao, o pool nunca passa do numero de filas. Se o executor recusar uma
+ * operacao (depois de <code>fechar</code>, por exemplo), o futuro dela e
+ * completado com a <code>RejectedExecutionException</code> e a fila segue.
+ *
+ * @author
+ *
+ */
+public class BancoAssincrono {
+
+	/**
+	 * Numero padrao de filas.
+	 */
+	public static final int FILAS_PADRAO = 1024;
+
+	/**
+	 * Operacao executada sobre o banco.
+	 */
+	private interface Operacao<T> {
+		T executar() throws Exception;
+	}
+
+	private final IGerencia banco;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Se o executor foi criado pela fachada e deve ser encerrado por ela.
+	 */
+	private final boolean executorProprio;
+
+	/**
+	 * Futuro da ultima operacao de cada fila; nunca completa com excecao.
+	 */
+	private final CompletableFuture<?>[] filas;
+
+	/**
+	 * Cria a fachada com o executor padrao.
+	 *
+	 * @param banco
+	 *            Banco seguro para uso concorrente.
+	 */
+	public BancoAssincrono(IGerencia banco) {
+		this(banco, criarExecutor(), FILAS_PADRAO, true);
+	}
+
+	/**
+	 * Cria a fachada.
+	 *
+	 * @param banco
+	 *            Banco seguro para uso concorrente.
+	 * @param executor
+	 *            Executor das operacoes; nao e encerrado por
+	 *            <code>fechar</code>.
+	 * @param numeroFilas
+	 *            Numero de filas, arredondado para potencia de 2.
+	 */
+	public BancoAssincrono(IGerencia banco, ExecutorService executor,
+			int numeroFilas) {
+		this(banco, executor, numeroFilas, false);
+	}
+
+	private BancoAssincrono(IGerencia banco, ExecutorService executor,
+			int numeroFilas, boolean executorProprio) {
+		this.banco = banco;
+		this.executor = executor;
+		this.executorProprio = executorProprio;
+		int n = Integer.highestOneBit(Math.max(numeroFilas, 1) * 2 - 1);
+		this.filas = new CompletableFuture<?>[n];
+		for (int i = 0; i < n; i++) {
+			this.filas[i] = CompletableFuture.completedFuture(null);
+		}
+	}
+
+	/**
+	 * Cria um executor de threads virtuais, se a JVM oferecer, ou um pool de
+	 * threads daemon.
+	 *
+	 * @return executor das operacoes.
+	 */
+	public static ExecutorService criarExecutor() {
+		try {
+			Method virtual = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "banco-assincrono");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * Retorna o indice da fila de uma chave.
+	 */
+	private int indiceFila(String chave) {
+		int h = chave.hashCode();
+		h ^= h >>> 16;
+		return h & (this.filas.length - 1);
+	}
+
+	/**
+	 * Agenda a operacao depois das ultimas operacoes das filas das chaves.
+	 */
+	private <T> CompletableFuture<T> agendar(Operacao<T> operacao,
+			String... chaves) {
+		CompletableFuture<T> resultado = new CompletableFuture<T>();
+		synchronized (this.filas) {
+			CompletableFuture<?> anterior;
+			int i = this.indiceFila(chaves[0]);
+			int j = chaves.length > 1 ? this.indiceFila(chaves[1]) : i;
+			if (i == j)
+				anterior = this.filas[i];
+			else
+				anterior = CompletableFuture.allOf(this.filas[i],
+						this.filas[j]);
+			anterior.whenCompleteAsync((r, e) -> {
+				try {
+					resultado.complete(operacao.executar());
+				} catch (Throwable t) {
+					resultado.completeExceptionally(t);
+				}
+			}, this.executor).exceptionally(t -> {
+				// o executor recusou a operacao (encerrado ou cheio)
+				resultado.completeExceptionally(t instanceof CompletionException
+						&& t.getCause() != null ? t.getCause() : t);
+				return null;
+			});
+			CompletableFuture<Object> fim = resultado.handle((r, e) -> null);
+			this.filas[i] = fim;
+			this.filas[j] = fim;
+		}
+		return resultado;
+	}
+
+	/**
+	 * Credita um valor na conta.
+	 *
+	 * @param conta
+	 *            Conta a ser creditada.
+	 * @param valor
+	 *            Valor a ser creditado.
+	 * @return futuro completado apos o credito.
+	 */
+	public CompletableFuture<Void> creditar(ContaAbstrata conta, double valor) {
+		return this.agendar(() -> {
+			this.banco.creditar(conta, valor);
+			return null;
+		}, conta.getNumero());
+	}
+
+	/**
+	 * Debita um valor da conta.
+	 *
+	 * @param conta
+	 *            Conta a ser debitada.
+	 * @param valor
+	 *            Valor a ser debitado.
+	 * @return futuro completado apos o debito.
+	 */
+	public CompletableFuture<Void> debitar(ContaAbstrata conta, double valor) {
+		return this.agendar(() -> {
+			this.banco.debitar(conta, valor);
+			return null;
+		}, conta.getNumero());
+	}
+
+	/**
+	 * Transfere um valor entre duas contas.
+	 *
+	 * @param contaOrigem
+	 *            Conta de origem.
+	 * @param contaDestino
+	 *            Conta de destino.
+	 * @param valor
+	 *            Valor a ser transferido.
+	 * @return futuro completado apos a transferencia.
+	 */
+	public CompletableFuture<Void> transferir(ContaAbstrata contaOrigem,
+			ContaAbstrata contaDestino, double valor) {
+		return this.agendar(() -> {
+			this.banco.transferir(contaOrigem, contaDestino, valor);
+			return null;
+		}, contaOrigem.getNumero(), contaDestino.getNumero());
+	}
+
+	/**
+	 * Cadastra um cliente.
+	 *
+	 * @param cliente
+	 *            Cliente a ser cadastrado.
+	 * @return futuro completado apos o cadastro.
+	 */
+	public CompletableFuture<Void> cadastrarCliente(Cliente cliente) {
+		return this.agendar(() -> {
+			this.banco.cadastrarCliente(cliente);
+			return null;
+		}, cliente.getCpf());
+	}
+
+	/**
+	 * Associa uma conta a um cliente.
+	 *
+	 * @param cpf
+	 *            Cpf do cliente.
+	 * @param numeroConta
+	 *            Numero da conta.
+	 * @return futuro completado apos a associacao.
+	 */
+	public CompletableFuture<Void> associarConta(String cpf,
+			String numeroConta) {
+		return this.agendar(() -> {
+			this.banco.associarConta(cpf, numeroConta);
+			return null;
+		}, cpf, numeroConta);
+	}
+
+	/**
+	 * Retorna um futuro completado quando todas as operacoes ja pedidas
+	 * terminarem.
+	 *
+	 * @return futuro das operacoes pendentes.
+	 */
+	public CompletableFuture<Void> aguardarPendentes() {
+		synchronized (this.filas) {
+			return CompletableFuture.allOf(this.filas.clone());
+		}
+	}
+
+	/**
+	 * Espera as operacoes pendentes e encerra o executor, se ele foi criado
+	 * pela fachada.
+	 */
+	public void fechar() {
+		this.aguardarPendentes().join();
+		if (this.executorProprio)
+			this.executor.shutdown();
+	}
+}
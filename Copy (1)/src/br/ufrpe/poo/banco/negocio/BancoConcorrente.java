@@ -0,0 +1,421 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import br.ufrpe.poo.banco.dados.EscritaConcorrente;
+import br.ufrpe.poo.banco.dados.IRepositorioClientes;
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.IRepositorioLancamentos;
+import br.ufrpe.poo.banco.exceptions.AtualizacaoNaoRealizadaException;
+import br.ufrpe.poo.banco.exceptions.ClienteJaCadastradoException;
+import br.ufrpe.poo.banco.exceptions.ClienteJaPossuiContaException;
+import br.ufrpe.poo.banco.exceptions.ClienteNaoCadastradoException;
+import br.ufrpe.poo.banco.exceptions.ClienteNaoPossuiContaException;
+import br.ufrpe.poo.banco.exceptions.ContaJaAssociadaException;
+import br.ufrpe.poo.banco.exceptions.ContaJaCadastradaException;
+import br.ufrpe.poo.banco.exceptions.ContaNaoEncontradaException;
+import br.ufrpe.poo.banco.exceptions.RenderBonusContaEspecialException;
+import br.ufrpe.poo.banco.exceptions.RenderJurosPoupancaException;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+import br.ufrpe.poo.banco.exceptions.ValorInvalidoException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+
+/**
+ * Banco que pode ser usado por varias threads ao mesmo tempo.
+ *
+ * Operacoes sobre contas existentes (creditar, debitar, transferir, render
+ * juros e bonus) travam apenas as contas envolvidas, usando um conjunto fixo
+ * de travas escolhidas pelo numero da conta (lock striping). A transferencia
+ * trava as duas contas sempre na mesma ordem, evitando deadlock. Operacoes que
+ * mudam a estrutura dos repositorios (cadastros, associacoes e remocoes)
+ * excluem todas as demais.
+ *
+ * As escritas no repositorio de contas sao serializadas, pois os repositorios
+ * nao sao seguros para escrita concorrente, exceto os que implementam
+ * <code>EscritaConcorrente</code> (como os repositorios em arquivo, cujas
+ * gravacoes concorrentes sao agrupadas). Essa serializacao usa uma unica
+ * trava para todas as contas: operacoes sobre contas diferentes calculam em
+ * paralelo, mas gravam uma de cada vez, e a vazao de escrita do banco e a de
+ * uma thread. Repositorios que aguentam escritas concorrentes devem
+ * implementar <code>EscritaConcorrente</code> para nao ter esse limite.
+ *
+ * O repositorio de lancamentos, se houver, deve ser seguro para uso
+ * concorrente, como <code>RepositorioLancamentosArquivo</code>.
+ *
+ * @author
+ *
+ */
+public class BancoConcorrente extends Banco {
+
+	/**
+	 * Numero padrao de travas de conta.
+	 */
+	public static final int TRAVAS_PADRAO = 1024;
+
+	/**
+	 * Travas das contas, escolhidas pelo numero da conta.
+	 */
+	private final ReentrantLock[] travas;
+
+	/**
+	 * Leitura para operacoes sobre contas existentes, escrita para operacoes
+	 * que alteram a estrutura dos repositorios.
+	 */
+	private final ReentrantReadWriteLock estrutura;
+
+	/**
+	 * Repositorio de contas recebido, sem <code>ContasSincronizadas</code>.
+	 */
+	private final IRepositorioContas contasOriginais;
+
+	public BancoConcorrente(IRepositorioClientes clientes,
+			IRepositorioContas contas) {
+		this(clientes, contas, TRAVAS_PADRAO);
+	}
+
+	/**
+	 * Inicializa o banco.
+	 *
+	 * @param clientes
+	 *            Repositorio de clientes.
+	 * @param contas
+	 *            Repositorio de contas.
+	 * @param numeroTravas
+	 *            Numero de travas de conta, arredondado para potencia de 2.
+	 */
+	public BancoConcorrente(IRepositorioClientes clientes,
+			IRepositorioContas contas, int numeroTravas) {
+		this(clientes, contas, null, numeroTravas);
+	}
+
+	/**
+	 * Inicializa o banco registrando as operacoes das contas.
+	 *
+	 * @param clientes
+	 *            Repositorio de clientes.
+	 * @param contas
+	 *            Repositorio de contas.
+	 * @param lancamentos
+	 *            Repositorio de lancamentos, seguro para uso concorrente.
+	 * @param numeroTravas
+	 *            Numero de travas de conta, arredondado para potencia de 2.
+	 */
+	public BancoConcorrente(IRepositorioClientes clientes,
+			IRepositorioContas contas, IRepositorioLancamentos lancamentos,
+			int numeroTravas) {
+		super(clientes, contas instanceof EscritaConcorrente ? contas
+				: new ContasSincronizadas(contas), lancamentos);
+		int n = Integer.highestOneBit(Math.max(numeroTravas, 1) * 2 - 1);
+		this.travas = new ReentrantLock[n];
+		for (int i = 0; i < n; i++) {
+			this.travas[i] = new ReentrantLock();
+		}
+		this.estrutura = new ReentrantReadWriteLock();
+		this.contasOriginais = contas;
+	}
+
+	/**
+	 * Retorna o indice da trava de uma conta.
+	 *
+	 * @param numero
+	 *            Numero da conta.
+	 * @return indice da trava.
+	 */
+	private int indiceTrava(String numero) {
+		int h = numero.hashCode();
+		return (h ^ (h >>> 16)) & (this.travas.length - 1);
+	}
+
+	/**
+	 * Trava a estrutura para leitura e a conta informada.
+	 */
+	private Lock travar(ContaAbstrata conta) {
+		this.estrutura.readLock().lock();
+		ReentrantLock trava = this.travas[this.indiceTrava(conta.getNumero())];
+		trava.lock();
+		return trava;
+	}
+
+	/**
+	 * Libera a trava da conta e a estrutura.
+	 */
+	private void liberar(Lock trava) {
+		trava.unlock();
+		this.estrutura.readLock().unlock();
+	}
+
+	@Override
+	public Cliente procurarCliente(String cpf) {
+		this.estrutura.readLock().lock();
+		try {
+			return super.procurarCliente(cpf);
+		} finally {
+			this.estrutura.readLock().unlock();
+		}
+	}
+
+	@Override
+	public ContaAbstrata procurarConta(String numero) {
+		this.estrutura.readLock().lock();
+		try {
+			return super.procurarConta(numero);
+		} finally {
+			this.estrutura.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Cliente procurarTitular(String numeroConta) {
+		this.estrutura.readLock().lock();
+		try {
+			return super.procurarTitular(numeroConta);
+		} finally {
+			this.estrutura.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void cadastrarCliente(Cliente cliente) throws RepositorioException,
+			ClienteJaCadastradoException {
+		this.estrutura.writeLock().lock();
+		try {
+			super.cadastrarCliente(cliente);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void cadastrar(ContaAbstrata conta) throws RepositorioException,
+			ContaJaCadastradaException {
+		this.estrutura.writeLock().lock();
+		try {
+			super.cadastrar(conta);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void associarConta(String cpf, String numeroConta)
+			throws ClienteJaPossuiContaException, ContaJaAssociadaException,
+			ClienteNaoCadastradoException, RepositorioException {
+		this.estrutura.writeLock().lock();
+		try {
+			super.associarConta(cpf, numeroConta);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void removerCliente(String cpf) throws RepositorioException,
+			ClienteNaoCadastradoException, ContaNaoEncontradaException,
+			ClienteNaoPossuiContaException {
+		this.estrutura.writeLock().lock();
+		try {
+			super.removerCliente(cpf);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void removerConta(Cliente cliente, String numeroConta)
+			throws RepositorioException, ContaNaoEncontradaException,
+			ClienteNaoPossuiContaException {
+		this.estrutura.writeLock().lock();
+		try {
+			super.removerConta(cliente, numeroConta);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void atualizarCliente(Cliente cliente) throws RepositorioException,
+			AtualizacaoNaoRealizadaException {
+		this.estrutura.writeLock().lock();
+		try {
+			super.atualizarCliente(cliente);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void creditar(ContaAbstrata conta, double valor)
+			throws RepositorioException, ValorInvalidoException,
+			ContaNaoEncontradaException {
+		Lock trava = this.travar(conta);
+		try {
+			super.creditar(conta, valor);
+		} finally {
+			this.liberar(trava);
+		}
+	}
+
+	@Override
+	public void debitar(ContaAbstrata conta, double valor)
+			throws RepositorioException, SaldoInsuficienteException,
+			ValorInvalidoException, ContaNaoEncontradaException {
+		Lock trava = this.travar(conta);
+		try {
+			super.debitar(conta, valor);
+		} finally {
+			this.liberar(trava);
+		}
+	}
+
+	@Override
+	public void transferir(ContaAbstrata contaOrigem,
+			ContaAbstrata contaDestino, double valor)
+			throws SaldoInsuficienteException, RepositorioException,
+			ValorInvalidoException, ContaNaoEncontradaException {
+		int i = this.indiceTrava(contaOrigem.getNumero());
+		int j = this.indiceTrava(contaDestino.getNumero());
+		ReentrantLock primeira = this.travas[Math.min(i, j)];
+		ReentrantLock segunda = this.travas[Math.max(i, j)];
+		this.estrutura.readLock().lock();
+		primeira.lock();
+		if (segunda != primeira)
+			segunda.lock();
+		try {
+			super.transferir(contaOrigem, contaDestino, valor);
+		} finally {
+			if (segunda != primeira)
+				segunda.unlock();
+			primeira.unlock();
+			this.estrutura.readLock().unlock();
+		}
+	}
+
+	/**
+	 * O lote trava a estrutura inteira, pois nao se sabe de antemao quais
+	 * contas serao alteradas.
+	 */
+	@Override
+	public int transferirLote(List<Transferencia> transferencias)
+			throws RepositorioException {
+		this.estrutura.writeLock().lock();
+		try {
+			return super.transferirLote(transferencias);
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * O fechamento altera todas as contas, por isso trava a estrutura
+	 * inteira. Sem outras escritas ao mesmo tempo, ele usa o repositorio
+	 * recebido no construtor, sem <code>ContasSincronizadas</code>, e mantem
+	 * o caminho direto de <code>RepositorioContasColunar</code>.
+	 */
+	@Override
+	public FechamentoMensal.Resultado fecharMes() throws RepositorioException {
+		this.estrutura.writeLock().lock();
+		try {
+			return super.fecharMes();
+		} finally {
+			this.estrutura.writeLock().unlock();
+		}
+	}
+
+	@Override
+	protected IRepositorioContas getContasFechamento() {
+		return this.contasOriginais;
+	}
+
+	@Override
+	public void renderBonus(ContaAbstrata conta)
+			throws RenderBonusContaEspecialException, RepositorioException,
+			ContaNaoEncontradaException {
+		Lock trava = this.travar(conta);
+		try {
+			super.renderBonus(conta);
+		} finally {
+			this.liberar(trava);
+		}
+	}
+
+	@Override
+	public void renderJuros(ContaAbstrata conta)
+			throws RenderJurosPoupancaException, ContaNaoEncontradaException,
+			RepositorioException {
+		Lock trava = this.travar(conta);
+		try {
+			super.renderJuros(conta);
+		} finally {
+			this.liberar(trava);
+		}
+	}
+
+	/**
+	 * Repositorio que serializa as escritas do repositorio decorado. As
+	 * leituras nao sao travadas: o banco garante, pela trava de estrutura, que
+	 * nao ha insercao ou remocao durante operacoes sobre contas.
+	 *
+	 * Todas as escritas passam pelo mesmo monitor, mesmo as de contas em
+	 * travas diferentes do banco, e a vazao de escrita fica limitada a de uma
+	 * thread. As escritas nao sao travadas por conta porque o repositorio
+	 * decorado pode compartilhar estado entre contas, como o log de
+	 * <code>RepositorioContasArquivoJournal</code> ou o lote de
+	 * <code>RepositorioContasEscritaAtrasada</code>. Por isso, dois
+	 * <code>atualizar</code> de contas diferentes nao sao seguros ao mesmo
+	 * tempo. Repositorios seguros para isso implementam
+	 * <code>EscritaConcorrente</code> e nao sao decorados.
+	 */
+	private static class ContasSincronizadas implements IRepositorioContas {
+
+		private final IRepositorioContas contas;
+
+		ContasSincronizadas(IRepositorioContas contas) {
+			this.contas = contas;
+		}
+
+		@Override
+		public synchronized boolean inserir(ContaAbstrata conta)
+				throws RepositorioException {
+			return this.contas.inserir(conta);
+		}
+
+		@Override
+		public ContaAbstrata procurar(String numero) {
+			return this.contas.procurar(numero);
+		}
+
+		@Override
+		public synchronized boolean remover(String numero)
+				throws RepositorioException {
+			return this.contas.remover(numero);
+		}
+
+		@Override
+		public synchronized boolean atualizar(ContaAbstrata conta)
+				throws RepositorioException {
+			return this.contas.atualizar(conta);
+		}
+
+		@Override
+		public synchronized int atualizarLote(
+				Collection<? extends ContaAbstrata> contas)
+				throws RepositorioException {
+			return this.contas.atualizarLote(contas);
+		}
+
+		@Override
+		public boolean existe(String numero) {
+			return this.contas.existe(numero);
+		}
+
+		@Override
+		public IteratorContaAbstrata getIterator() {
+			return this.contas.getIterator();
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmetica de valores monetarios em centavos (<code>long</code>).
+ *
+ * Todos os arredondamentos sao feitos para o centavo mais proximo e, no
+ * empate, para o centavo par (arredondamento bancario), de modo que o mesmo
+ * calculo da sempre o mesmo resultado.
+ *
+ * @author
+ *
+ */
+public final class Centavos {
+
+	/**
+	 * Taxa de juros decomposta em <code>numerador / 10^escala</code>, o valor
+	 * decimal de <code>Double.toString(taxa)</code>, para calcular os juros de
+	 * muitos saldos com a mesma taxa apenas com aritmetica inteira. O
+	 * resultado e igual ao de <code>Centavos.juros</code>.
+	 */
+	public static final class Taxa {
+
+		private final double taxa;
+
+		private final long numerador;
+
+		/** <code>10^escala</code>, ou 0 se a taxa nao cabe em long. */
+		private final long denominador;
+
+		/**
+		 * Decompoe a taxa.
+		 *
+		 * @param taxa
+		 *            taxa de juros (ex.: 0.005 para 0,5%).
+		 */
+		public Taxa(double taxa) {
+			this.taxa = taxa;
+			long numerador = 0;
+			long denominador = 0;
+			if (!Double.isNaN(taxa) && !Double.isInfinite(taxa)) {
+				BigDecimal decimal = BigDecimal.valueOf(taxa);
+				if (decimal.scale() < 0)
+					decimal = decimal.setScale(0);
+				if (decimal.scale() <= 18
+						&& decimal.unscaledValue().bitLength() < 63) {
+					numerador = decimal.unscaledValue().longValue();
+					denominador = BigDecimal.ONE.movePointRight(
+							decimal.scale()).longValue();
+				}
+			}
+			this.numerador = numerador;
+			this.denominador = denominador;
+		}
+
+		/**
+		 * Juros sobre um saldo.
+		 *
+		 * @param centavos
+		 *            saldo em centavos.
+		 * @return juros em centavos.
+		 */
+		public long juros(long centavos) {
+			if (this.denominador != 0) {
+				long produto = centavos * this.numerador;
+				long alto = Math.multiplyHigh(centavos, this.numerador);
+				if (alto == (produto >> 63))
+					return dividir(produto, this.denominador);
+			}
+			return Centavos.juros(centavos, this.taxa);
+		}
+	}
+
+	/** Limite abaixo do qual <code>c / 100.0</code> identifica c. */
+	private static final long LIMITE_EXATO = 1L << 51;
+
+	/** CPMF em fracao de dez mil: 0,38% = 38 / 10000. */
+	static final long CPMF_POR_DEZ_MIL = 38;
+
+	/** Bonus da conta especial em fracao de cem: 1%. */
+	static final long BONUS_POR_CEM = 1;
+
+	private Centavos() {
+	}
+
+	/**
+	 * Converte um valor em reais para centavos.
+	 *
+	 * @param reais
+	 *            valor em reais.
+	 * @return valor em centavos.
+	 */
+	public static long converter(double reais) {
+		// valores que ja sao centavos exatos (como os de reais()) sao
+		// convertidos sem BigDecimal, com o mesmo resultado
+		long c = (long) Math.rint(reais * 100);
+		if (c > -LIMITE_EXATO && c < LIMITE_EXATO && c / 100.0 == reais)
+			return c;
+		return BigDecimal.valueOf(reais).movePointRight(2)
+				.setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+	}
+
+	/**
+	 * Converte um valor em centavos para reais.
+	 *
+	 * @param centavos
+	 *            valor em centavos.
+	 * @return valor em reais.
+	 */
+	public static double reais(long centavos) {
+		return centavos / 100.0;
+	}
+
+	/**
+	 * Divide arredondando para o inteiro mais proximo, e para o par no empate.
+	 *
+	 * @param dividendo
+	 *            valor a ser dividido.
+	 * @param divisor
+	 *            divisor positivo.
+	 * @return quociente arredondado.
+	 */
+	static long dividir(long dividendo, long divisor) {
+		long quociente = Math.floorDiv(dividendo, divisor);
+		long resto = Math.floorMod(dividendo, divisor);
+		long dobro = 2 * resto;
+		if (dobro > divisor || (dobro == divisor && (quociente & 1) != 0))
+			quociente++;
+		return quociente;
+	}
+
+	/**
+	 * CPMF sobre um valor debitado.
+	 *
+	 * @param centavos
+	 *            valor debitado, em centavos.
+	 * @return CPMF em centavos.
+	 */
+	public static long cpmf(long centavos) {
+		return dividir(Math.multiplyExact(centavos, CPMF_POR_DEZ_MIL), 10000);
+	}
+
+	/**
+	 * Bonus da conta especial sobre um valor creditado.
+	 *
+	 * @param centavos
+	 *            valor creditado, em centavos.
+	 * @return bonus em centavos.
+	 */
+	public static long bonus(long centavos) {
+		return dividir(Math.multiplyExact(centavos, BONUS_POR_CEM), 100);
+	}
+
+	/**
+	 * Juros sobre um saldo.
+	 *
+	 * @param centavos
+	 *            saldo em centavos.
+	 * @param taxa
+	 *            taxa de juros (ex.: 0.005 para 0,5%).
+	 * @return juros em centavos.
+	 */
+	public static long juros(long centavos, double taxa) {
+		return BigDecimal.valueOf(centavos).multiply(BigDecimal.valueOf(taxa))
+				.setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+	}
+
+	/**
+	 * Soma os valores de um trecho do array. O laco usa apenas aritmetica
+	 * inteira, sem desvios, e pode ser vetorizado pelo compilador JIT.
+	 *
+	 * @param valores
+	 *            valores em centavos.
+	 * @param inicio
+	 *            primeira posicao somada.
+	 * @param fim
+	 *            posicao seguinte a ultima somada.
+	 * @return soma dos valores.
+	 */
+	public static long somar(long[] valores, int inicio, int fim) {
+		long soma = 0;
+		for (int i = inicio; i < fim; i++) {
+			soma += valores[i];
+		}
+		return soma;
+	}
+
+}
@@ -0,0 +1,55 @@
+package br.ufrpe.poo.banco.negocio;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+/**
+ * Conta normal cujo saldo e atualizado sem travas, podendo receber creditos e
+ * debitos de varias threads ao mesmo tempo.
+ * 
+ * @author
+ * 
+ */
+public class ContaConcorrente extends Conta {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Saldo da conta.
+	 */
+	private SaldoAtomico saldoAtomico;
+
+	public ContaConcorrente(String numero, double valor) {
+		super(numero, valor);
+		this.saldoAtomico = new SaldoAtomico(super.getSaldo());
+	}
+
+	@Override
+	public double getSaldo() {
+		if (this.saldoAtomico == null)
+			return super.getSaldo();
+		return this.saldoAtomico.get();
+	}
+
+	@Override
+	public void setSaldo(double saldo) {
+		// chamado pelo construtor de Conta antes de saldoAtomico existir
+		if (this.saldoAtomico == null)
+			super.setSaldo(saldo);
+		else
+			this.saldoAtomico.set(saldo);
+	}
+
+	@Override
+	public void creditar(double valor) {
+		if (valor > 0)
+			this.saldoAtomico.somar(valor);
+	}
+
+	@Override
+	public void debitar(double valor) throws SaldoInsuficienteException {
+		double anterior = this.saldoAtomico.debitar(valor, valor);
+		if (anterior < valor)
+			throw new SaldoInsuficienteException(this.getNumero(), anterior);
+	}
+
+}
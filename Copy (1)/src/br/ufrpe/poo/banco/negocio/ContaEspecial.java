@@ -24,6 +24,10 @@ public class ContaEspecial extends Conta {
 		return this.bonus;
 	}
 
+	public void setBonus(double bonus) {
+		this.bonus = bonus;
+	}
+
 	@Override
 	public void creditar(double valor) {
 		super.creditar(valor);
@@ -0,0 +1,105 @@
+package br.ufrpe.poo.banco.negocio;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+/**
+ * Conta especial com saldo e bonus em centavos. O bonus de cada credito e
+ * arredondado para o centavo (ver <code>Centavos.bonus</code>).
+ * 
+ * @author
+ * 
+ */
+public class ContaEspecialCentavos extends ContaEspecial implements
+		SaldoEmCentavos {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Saldo da conta em centavos.
+	 */
+	private long centavos;
+
+	/**
+	 * Bonus da conta em centavos.
+	 */
+	private long bonusCentavos;
+
+	public ContaEspecialCentavos(String numero, double saldo) {
+		super(numero, saldo);
+		this.centavos = Centavos.converter(saldo < 0 ? 0 : saldo);
+		this.bonusCentavos = 0;
+	}
+
+	@Override
+	public long getSaldoCentavos() {
+		return this.centavos;
+	}
+
+	@Override
+	public void setSaldoCentavos(long centavos) {
+		this.centavos = centavos;
+	}
+
+	public long getBonusCentavos() {
+		return this.bonusCentavos;
+	}
+
+	public void setBonusCentavos(long bonusCentavos) {
+		this.bonusCentavos = bonusCentavos;
+	}
+
+	@Override
+	public double getSaldo() {
+		return Centavos.reais(this.centavos);
+	}
+
+	@Override
+	public void setSaldo(double saldo) {
+		this.centavos = Centavos.converter(saldo);
+	}
+
+	@Override
+	public double getBonus() {
+		return Centavos.reais(this.bonusCentavos);
+	}
+
+	@Override
+	public void setBonus(double bonus) {
+		this.bonusCentavos = Centavos.converter(bonus);
+	}
+
+	@Override
+	public void creditar(double valor) {
+		this.creditarCentavos(Centavos.converter(valor));
+	}
+
+	@Override
+	public void debitar(double valor) throws SaldoInsuficienteException {
+		this.debitarCentavos(Centavos.converter(valor));
+	}
+
+	@Override
+	public void renderBonus() {
+		if (this.bonusCentavos > 0)
+			this.centavos = this.centavos + this.bonusCentavos;
+		this.bonusCentavos = 0;
+	}
+
+	@Override
+	public void creditarCentavos(long centavos) {
+		if (centavos > 0) {
+			this.centavos = this.centavos + centavos;
+			this.bonusCentavos = this.bonusCentavos + Centavos.bonus(centavos);
+		}
+	}
+
+	@Override
+	public void debitarCentavos(long centavos)
+			throws SaldoInsuficienteException {
+		if (this.centavos < centavos)
+			throw SaldoInsuficienteException.emCentavos(this.getNumero(),
+					this.centavos);
+		this.centavos = this.centavos - centavos;
+	}
+
+}
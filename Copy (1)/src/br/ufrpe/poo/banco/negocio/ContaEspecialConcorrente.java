@@ -0,0 +1,84 @@
+package br.ufrpe.poo.banco.negocio;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+/**
+ * Conta especial cujos saldo e bonus sao atualizados sem travas, podendo
+ * receber creditos e debitos de varias threads ao mesmo tempo.
+ * 
+ * @author
+ * 
+ */
+public class ContaEspecialConcorrente extends ContaEspecial {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Saldo da conta.
+	 */
+	private SaldoAtomico saldoAtomico;
+
+	/**
+	 * Bonus da conta.
+	 */
+	private SaldoAtomico bonusAtomico;
+
+	public ContaEspecialConcorrente(String numero, double saldo) {
+		super(numero, saldo);
+		this.saldoAtomico = new SaldoAtomico(super.getSaldo());
+		this.bonusAtomico = new SaldoAtomico(super.getBonus());
+	}
+
+	@Override
+	public double getSaldo() {
+		if (this.saldoAtomico == null)
+			return super.getSaldo();
+		return this.saldoAtomico.get();
+	}
+
+	@Override
+	public void setSaldo(double saldo) {
+		// chamado pelo construtor de Conta antes de saldoAtomico existir
+		if (this.saldoAtomico == null)
+			super.setSaldo(saldo);
+		else
+			this.saldoAtomico.set(saldo);
+	}
+
+	@Override
+	public double getBonus() {
+		if (this.bonusAtomico == null)
+			return super.getBonus();
+		return this.bonusAtomico.get();
+	}
+
+	@Override
+	public void setBonus(double bonus) {
+		if (this.bonusAtomico == null)
+			super.setBonus(bonus);
+		else
+			this.bonusAtomico.set(bonus);
+	}
+
+	@Override
+	public void creditar(double valor) {
+		if (valor > 0)
+			this.saldoAtomico.somar(valor);
+		this.bonusAtomico.somar(valor * 0.01);
+	}
+
+	@Override
+	public void debitar(double valor) throws SaldoInsuficienteException {
+		double anterior = this.saldoAtomico.debitar(valor, valor);
+		if (anterior < valor)
+			throw new SaldoInsuficienteException(this.getNumero(), anterior);
+	}
+
+	@Override
+	public void renderBonus() {
+		double bonus = this.bonusAtomico.zerar();
+		if (bonus > 0)
+			this.saldoAtomico.somar(bonus);
+	}
+
+}
@@ -0,0 +1,55 @@
+package br.ufrpe.poo.banco.negocio;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+/**
+ * Conta imposto cujo saldo e atualizado sem travas, podendo receber creditos
+ * e debitos de varias threads ao mesmo tempo.
+ * 
+ * @author
+ * 
+ */
+public class ContaImpostoConcorrente extends ContaImposto {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Saldo da conta.
+	 */
+	private SaldoAtomico saldoAtomico;
+
+	public ContaImpostoConcorrente(String numero, double valor) {
+		super(numero, valor);
+		this.saldoAtomico = new SaldoAtomico(super.getSaldo());
+	}
+
+	@Override
+	public double getSaldo() {
+		if (this.saldoAtomico == null)
+			return super.getSaldo();
+		return this.saldoAtomico.get();
+	}
+
+	@Override
+	public void setSaldo(double saldo) {
+		if (this.saldoAtomico == null)
+			super.setSaldo(saldo);
+		else
+			this.saldoAtomico.set(saldo);
+	}
+
+	@Override
+	public void creditar(double valor) {
+		if (valor > 0)
+			this.saldoAtomico.somar(valor);
+	}
+
+	@Override
+	public void debitar(double valor) throws SaldoInsuficienteException {
+		double total = valor + valor * CPMF;
+		double anterior = this.saldoAtomico.debitar(valor, total);
+		if (anterior < valor)
+			throw new SaldoInsuficienteException(this.getNumero(), anterior);
+	}
+
+}
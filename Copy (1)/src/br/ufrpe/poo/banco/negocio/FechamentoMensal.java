@@ -0,0 +1,415 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.IRepositorioLancamentos;
+import br.ufrpe.poo.banco.dados.RepositorioContasColunar;
+import br.ufrpe.poo.banco.dados.TransacaoContas;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+
+/**
+ * Fechamento do mes: rende os juros de todas as poupancas e o bonus de todas
+ * as contas especiais.
+ *
+ * As contas sao divididas em particoes de ate <code>tamanhoParticao</code>
+ * contas, processadas em paralelo num <code>ForkJoinPool</code>. As contas
+ * alteradas sao gravadas no final com uma unica chamada a
+ * <code>atualizarLote</code>; se a gravacao falhar, as contas voltam aos
+ * saldos e bonus de antes do fechamento. Com um
+ * <code>RepositorioContasColunar</code> as
+ * particoes sao trechos das colunas do proprio repositorio e nenhuma conta e
+ * criada.
+ *
+ * Se houver repositorio de lancamentos, os juros e bonus creditados em cada
+ * conta sao registrados depois da gravacao; nesse caso as contas sao sempre
+ * criadas, mesmo com um <code>RepositorioContasColunar</code>.
+ *
+ * @author
+ *
+ */
+public class FechamentoMensal {
+
+	/** Tamanho padrao das particoes. */
+	public static final int TAMANHO_PARTICAO = 4096;
+
+	/**
+	 * Resultado do processamento de uma particao.
+	 */
+	public static class Particao {
+
+		private final int inicio;
+
+		private final int fim;
+
+		private final int alteradas;
+
+		private final double creditado;
+
+		private final long nanos;
+
+		Particao(int inicio, int fim, int alteradas, double creditado,
+				long nanos) {
+			this.inicio = inicio;
+			this.fim = fim;
+			this.alteradas = alteradas;
+			this.creditado = creditado;
+			this.nanos = nanos;
+		}
+
+		/** Primeira posicao da particao. */
+		public int getInicio() {
+			return this.inicio;
+		}
+
+		/** Posicao seguinte a ultima da particao. */
+		public int getFim() {
+			return this.fim;
+		}
+
+		/** Poupancas e contas especiais da particao. */
+		public int getAlteradas() {
+			return this.alteradas;
+		}
+
+		/** Soma dos juros e bonus creditados na particao. */
+		public double getCreditado() {
+			return this.creditado;
+		}
+
+		/** Tempo de processamento da particao, em nanossegundos. */
+		public long getNanos() {
+			return this.nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[%d, %d) %d contas, %.2f creditados, %d us",
+					this.inicio, this.fim, this.alteradas, this.creditado,
+					this.nanos / 1000);
+		}
+	}
+
+	/**
+	 * Resultado do fechamento.
+	 */
+	public static class Resultado {
+
+		private final List<Particao> particoes;
+
+		private final long nanosGravacao;
+
+		Resultado(List<Particao> particoes, long nanosGravacao) {
+			this.particoes = Collections.unmodifiableList(particoes);
+			this.nanosGravacao = nanosGravacao;
+		}
+
+		/** Particoes na ordem das contas. */
+		public List<Particao> getParticoes() {
+			return this.particoes;
+		}
+
+		/** Tempo da gravacao das contas alteradas, em nanossegundos. */
+		public long getNanosGravacao() {
+			return this.nanosGravacao;
+		}
+
+		/** Total de poupancas e contas especiais. */
+		public int getAlteradas() {
+			int n = 0;
+			for (Particao p : this.particoes) {
+				n += p.getAlteradas();
+			}
+			return n;
+		}
+
+		/** Total de juros e bonus creditados. */
+		public double getCreditado() {
+			double total = 0;
+			for (Particao p : this.particoes) {
+				total += p.getCreditado();
+			}
+			return total;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (Particao p : this.particoes) {
+				sb.append(p).append('\n');
+			}
+			sb.append(String.format(
+					"Total: %d contas, %.2f creditados, gravacao %d us",
+					this.getAlteradas(), this.getCreditado(),
+					this.nanosGravacao / 1000));
+			return sb.toString();
+		}
+	}
+
+	/** Repositorio das contas. */
+	private final IRepositorioContas contas;
+
+	/** Taxa de juros das poupancas. */
+	private final double taxa;
+
+	/** Maximo de contas por particao. */
+	private final int tamanhoParticao;
+
+	/** Pool que processa as particoes. */
+	private final ForkJoinPool pool;
+
+	/** Repositorio de lancamentos, ou <code>null</code>. */
+	private final IRepositorioLancamentos lancamentos;
+
+	/**
+	 * Cria um fechamento com particoes do tamanho padrao, executado no pool
+	 * comum.
+	 *
+	 * @param contas
+	 *            repositorio das contas.
+	 * @param taxa
+	 *            taxa de juros das poupancas.
+	 */
+	public FechamentoMensal(IRepositorioContas contas, double taxa) {
+		this(contas, taxa, null);
+	}
+
+	/**
+	 * Cria um fechamento com particoes do tamanho padrao, executado no pool
+	 * comum, que registra os juros e bonus creditados.
+	 *
+	 * @param contas
+	 *            repositorio das contas.
+	 * @param taxa
+	 *            taxa de juros das poupancas.
+	 * @param lancamentos
+	 *            repositorio de lancamentos, ou <code>null</code>.
+	 */
+	public FechamentoMensal(IRepositorioContas contas, double taxa,
+			IRepositorioLancamentos lancamentos) {
+		this(contas, taxa, TAMANHO_PARTICAO, ForkJoinPool.commonPool(),
+				lancamentos);
+	}
+
+	/**
+	 * Cria um fechamento.
+	 *
+	 * @param contas
+	 *            repositorio das contas.
+	 * @param taxa
+	 *            taxa de juros das poupancas.
+	 * @param tamanhoParticao
+	 *            maximo de contas por particao.
+	 * @param pool
+	 *            pool que processa as particoes.
+	 */
+	public FechamentoMensal(IRepositorioContas contas, double taxa,
+			int tamanhoParticao, ForkJoinPool pool) {
+		this(contas, taxa, tamanhoParticao, pool, null);
+	}
+
+	/**
+	 * Cria um fechamento que registra os juros e bonus creditados.
+	 *
+	 * @param contas
+	 *            repositorio das contas.
+	 * @param taxa
+	 *            taxa de juros das poupancas.
+	 * @param tamanhoParticao
+	 *            maximo de contas por particao.
+	 * @param pool
+	 *            pool que processa as particoes.
+	 * @param lancamentos
+	 *            repositorio de lancamentos, ou <code>null</code>.
+	 */
+	public FechamentoMensal(IRepositorioContas contas, double taxa,
+			int tamanhoParticao, ForkJoinPool pool,
+			IRepositorioLancamentos lancamentos) {
+		this.lancamentos = lancamentos;
+		this.contas = contas;
+		this.taxa = taxa;
+		this.tamanhoParticao = Math.max(tamanhoParticao, 1);
+		this.pool = pool;
+	}
+
+	/**
+	 * Executa o fechamento.
+	 *
+	 * @return particoes processadas e totais.
+	 * @throws RepositorioException
+	 *             levantada quando ocorre erro na gravacao das contas.
+	 */
+	public Resultado executar() throws RepositorioException {
+		if (this.contas instanceof RepositorioContasColunar
+				&& this.lancamentos == null) {
+			RepositorioContasColunar colunar = (RepositorioContasColunar) this.contas;
+			List<Particao> particoes = this.pool.invoke(new TarefaColunar(
+					colunar, 0, colunar.getTamanho()));
+			return new Resultado(particoes, 0);
+		}
+
+		List<ContaAbstrata> todas = new ArrayList<ContaAbstrata>();
+		IteratorContaAbstrata it = this.contas.getIterator();
+		while (it.hasNext()) {
+			todas.add(it.next());
+		}
+		ContaAbstrata[] array = todas.toArray(new ContaAbstrata[todas.size()]);
+		// guarda saldo e bonus das contas que serao alteradas
+		TransacaoContas transacao = new TransacaoContas(this.contas);
+		for (ContaAbstrata c : array) {
+			if (c instanceof Poupanca || c instanceof ContaEspecial)
+				transacao.registrar(c);
+		}
+		boolean[] alteradas = new boolean[array.length];
+		double[] creditados = new double[array.length];
+		List<Particao> particoes;
+		try {
+			particoes = this.pool.invoke(new TarefaContas(array, alteradas,
+					creditados, 0, array.length));
+		} catch (RuntimeException | Error e) {
+			transacao.desfazer();
+			throw e;
+		}
+
+		long inicio = System.nanoTime();
+		transacao.confirmar();
+		if (this.lancamentos != null) {
+			for (int i = 0; i < array.length; i++) {
+				if (alteradas[i] && creditados[i] != 0) {
+					this.lancamentos.registrar(array[i].getNumero(),
+							array[i] instanceof Poupanca ? Lancamento.Tipo.JUROS
+									: Lancamento.Tipo.BONUS, creditados[i],
+							array[i].getSaldo(), null);
+				}
+			}
+		}
+		return new Resultado(particoes, System.nanoTime() - inicio);
+	}
+
+	/**
+	 * Divide o trecho ao meio ate o tamanho da particao e junta os resultados
+	 * na ordem das contas.
+	 */
+	private abstract class Tarefa extends RecursiveTask<List<Particao>> {
+
+		private static final long serialVersionUID = 1L;
+
+		final int inicio;
+
+		final int fim;
+
+		Tarefa(int inicio, int fim) {
+			this.inicio = inicio;
+			this.fim = fim;
+		}
+
+		abstract Tarefa dividir(int inicio, int fim);
+
+		abstract Particao processar();
+
+		@Override
+		protected List<Particao> compute() {
+			if (this.fim - this.inicio <= tamanhoParticao) {
+				List<Particao> r = new ArrayList<Particao>(1);
+				if (this.fim > this.inicio)
+					r.add(this.processar());
+				return r;
+			}
+			int meio = (this.inicio + this.fim) >>> 1;
+			Tarefa esquerda = this.dividir(this.inicio, meio);
+			Tarefa direita = this.dividir(meio, this.fim);
+			esquerda.fork();
+			List<Particao> r = new ArrayList<Particao>(direita.compute());
+			r.addAll(0, esquerda.join());
+			return r;
+		}
+	}
+
+	/**
+	 * Rende juros e bonus das contas de um trecho do array.
+	 */
+	private class TarefaContas extends Tarefa {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ContaAbstrata[] contas;
+
+		private final boolean[] alteradas;
+
+		private final double[] creditados;
+
+		TarefaContas(ContaAbstrata[] contas, boolean[] alteradas,
+				double[] creditados, int inicio, int fim) {
+			super(inicio, fim);
+			this.contas = contas;
+			this.alteradas = alteradas;
+			this.creditados = creditados;
+		}
+
+		@Override
+		Tarefa dividir(int inicio, int fim) {
+			return new TarefaContas(this.contas, this.alteradas,
+					this.creditados, inicio, fim);
+		}
+
+		@Override
+		Particao processar() {
+			long t = System.nanoTime();
+			int n = 0;
+			double creditado = 0;
+			for (int i = this.inicio; i < this.fim; i++) {
+				ContaAbstrata c = this.contas[i];
+				double antes = c.getSaldo();
+				if (c instanceof Poupanca) {
+					((Poupanca) c).renderJuros(taxa);
+				} else if (c instanceof ContaEspecial) {
+					((ContaEspecial) c).renderBonus();
+				} else {
+					continue;
+				}
+				this.creditados[i] = c.getSaldo() - antes;
+				creditado += this.creditados[i];
+				this.alteradas[i] = true;
+				n++;
+			}
+			return new Particao(this.inicio, this.fim, n, creditado,
+					System.nanoTime() - t);
+		}
+	}
+
+	/**
+	 * Rende juros e bonus de um trecho das colunas do repositorio.
+	 */
+	private class TarefaColunar extends Tarefa {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient RepositorioContasColunar colunar;
+
+		TarefaColunar(RepositorioContasColunar colunar, int inicio, int fim) {
+			super(inicio, fim);
+			this.colunar = colunar;
+		}
+
+		@Override
+		Tarefa dividir(int inicio, int fim) {
+			return new TarefaColunar(this.colunar, inicio, fim);
+		}
+
+		@Override
+		Particao processar() {
+			long t = System.nanoTime();
+			double[] creditado = new double[1];
+			int n = this.colunar.renderJuros(taxa, this.inicio, this.fim,
+					creditado)
+					+ this.colunar.renderBonus(this.inicio, this.fim, creditado);
+			return new Particao(this.inicio, this.fim, n, creditado[0],
+					System.nanoTime() - t);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias em nanossegundos, com faixas log-lineares no estilo
+ * do HdrHistogram.
+ *
+ * Cada potencia de 2 e dividida em <code>SUBFAIXAS</code> faixas iguais, o que
+ * da um erro relativo de no maximo 1/<code>SUBFAIXAS</code> (cerca de 3%) em
+ * qualquer percentil, de 1ns ate <code>MAXIMO</code> (cerca de 18 minutos);
+ * valores maiores sao contados na ultima faixa. <code>registrar</code> nao
+ * aloca objetos nem trava: so incrementa contadores atomicos de um vetor
+ * criado no construtor.
+ *
+ * As leituras nao param as gravacoes, entao um percentil lido durante
+ * gravacoes concorrentes pode nao incluir as mais recentes.
+ */
+public class HistogramaLatencia {
+
+	/** Bits de precisao de cada potencia de 2. */
+	private static final int BITS_SUBFAIXA = 5;
+
+	/** Numero de faixas em cada potencia de 2. */
+	public static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+
+	/** Maior latencia distinguida pelo histograma, em nanossegundos. */
+	public static final long MAXIMO = (1L << 40) - 1;
+
+	/** Numero total de faixas. */
+	private static final int FAIXAS = indice(MAXIMO) + 1;
+
+	/** Contagem de cada faixa. */
+	private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAdder soma = new LongAdder();
+
+	private final AtomicLong maximo = new AtomicLong();
+
+	/**
+	 * Retorna a faixa de uma latencia.
+	 */
+	private static int indice(long nanos) {
+		if (nanos < SUBFAIXAS)
+			return (int) nanos;
+		int expoente = 63 - Long.numberOfLeadingZeros(nanos);
+		int deslocamento = expoente - BITS_SUBFAIXA;
+		int sub = (int) (nanos >>> deslocamento) & (SUBFAIXAS - 1);
+		return (deslocamento + 1) * SUBFAIXAS + sub;
+	}
+
+	/**
+	 * Retorna a maior latencia contada na faixa.
+	 */
+	private static long limiteSuperior(int indice) {
+		if (indice < SUBFAIXAS)
+			return indice;
+		int deslocamento = indice / SUBFAIXAS - 1;
+		long inicio = (long) (SUBFAIXAS + indice % SUBFAIXAS) << deslocamento;
+		return inicio + (1L << deslocamento) - 1;
+	}
+
+	/**
+	 * Registra uma latencia.
+	 *
+	 * @param nanos
+	 *            latencia em nanossegundos; valores negativos contam como 0.
+	 */
+	public void registrar(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		this.contagens.incrementAndGet(indice(Math.min(nanos, MAXIMO)));
+		this.total.increment();
+		this.soma.add(nanos);
+		long atual = this.maximo.get();
+		while (nanos > atual && !this.maximo.compareAndSet(atual, nanos)) {
+			atual = this.maximo.get();
+		}
+	}
+
+	/** Retorna o numero de latencias registradas. */
+	public long getTotal() {
+		return this.total.sum();
+	}
+
+	/** Retorna a latencia media, em nanossegundos, ou 0 se nao ha registros. */
+	public double getMedia() {
+		long n = this.total.sum();
+		return n == 0 ? 0 : (double) this.soma.sum() / n;
+	}
+
+	/** Retorna a maior latencia registrada, em nanossegundos. */
+	public long getMaximo() {
+		return this.maximo.get();
+	}
+
+	/**
+	 * Retorna a latencia abaixo da qual (ou igual) esta a porcentagem pedida
+	 * dos registros, arredondada para cima ate o fim da faixa.
+	 *
+	 * @param percentil
+	 *            porcentagem entre 0 e 100.
+	 * @return latencia em nanossegundos, ou 0 se nao ha registros.
+	 */
+	public long percentil(double percentil) {
+		if (percentil < 0 || percentil > 100)
+			throw new IllegalArgumentException("Percentil invalido: "
+					+ percentil);
+		long[] copia = new long[FAIXAS];
+		long n = 0;
+		for (int i = 0; i < FAIXAS; i++) {
+			copia[i] = this.contagens.get(i);
+			n += copia[i];
+		}
+		if (n == 0)
+			return 0;
+		long alvo = Math.max(1, (long) Math.ceil(percentil / 100 * n));
+		long acumulado = 0;
+		for (int i = 0; i < FAIXAS; i++) {
+			acumulado += copia[i];
+			if (acumulado >= alvo)
+				return Math.min(limiteSuperior(i), this.maximo.get());
+		}
+		return this.maximo.get();
+	}
+
+	/**
+	 * Zera o histograma. Latencias registradas durante a chamada podem ser
+	 * perdidas.
+	 */
+	public void zerar() {
+		for (int i = 0; i < FAIXAS; i++) {
+			this.contagens.set(i, 0);
+		}
+		this.total.reset();
+		this.soma.reset();
+		this.maximo.set(0);
+	}
+}
@@ -1,5 +1,7 @@
 package br.ufrpe.poo.banco.negocio;
 
+import java.util.List;
+
 import br.ufrpe.poo.banco.exceptions.ContaNaoEncontradaException;
 import br.ufrpe.poo.banco.exceptions.RepositorioException;
 import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
@@ -70,6 +72,10 @@ public interface ICliente {
 	/**
 	 * Transfere um valor da conta de origem para uma conta de destino.
 	 * 
+	 * A transferencia e atomica: as duas contas sao gravadas juntas no
+	 * repositorio e, se o debito ou a gravacao falhar, nenhuma das contas e
+	 * alterada.
+	 * 
 	 * @param contaOrigem
 	 *            Conta a ser debitada.
 	 * @param contaDestino
@@ -89,4 +95,40 @@ public interface ICliente {
 			double valor) throws SaldoInsuficienteException,
 			RepositorioException, ValorInvalidoException, ContaNaoEncontradaException;
 
+	/**
+	 * Realiza um lote de transferencias, na ordem da lista, gravando as contas
+	 * alteradas uma unica vez no final.
+	 * 
+	 * Transferencias com conta inexistente, valor invalido ou saldo
+	 * insuficiente sao recusadas sem interromper o lote; o motivo fica em
+	 * <code>Transferencia.getFalha()</code>. Se a gravacao falhar, nenhuma
+	 * transferencia e realizada: as contas voltam aos saldos de antes do lote
+	 * e todas as transferencias ficam com o erro da gravacao como falha.
+	 * 
+	 * @param transferencias
+	 *            Transferencias a serem realizadas.
+	 * @return quantidade de transferencias realizadas.
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra erro na atualizacao do repositorio.
+	 */
+	int transferirLote(List<Transferencia> transferencias)
+			throws RepositorioException;
+
+	/**
+	 * Retorna o extrato de uma conta: os lancamentos de um periodo, em ordem
+	 * cronologica. Se o banco nao registra lancamentos, o extrato e vazio.
+	 * 
+	 * @param numeroConta
+	 *            Numero da conta.
+	 * @param inicio
+	 *            Inicio do periodo, em milissegundos desde 1970, inclusive.
+	 * @param fim
+	 *            Fim do periodo, em milissegundos desde 1970, inclusive.
+	 * @return lancamentos da conta no periodo.
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra erro na leitura dos lancamentos.
+	 */
+	List<Lancamento> extrato(String numeroConta, long inicio, long fim)
+			throws RepositorioException;
+
 }
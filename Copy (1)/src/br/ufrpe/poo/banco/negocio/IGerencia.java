@@ -36,6 +36,15 @@ public interface IGerencia extends ICliente {
 	 */
 	ContaAbstrata procurarConta(String numero);
 
+	/**
+	 * Procurar pelo cliente titular de uma conta.
+	 * 
+	 * @param numeroConta
+	 *            Numero da conta associada ao cliente.
+	 * @return Cliente titular. Retorna null se nenhum cliente possui a conta.
+	 */
+	Cliente procurarTitular(String numeroConta);
+
 	/**
 	 * Insere um cliente no repositorio de clientes.
 	 * 
@@ -76,7 +85,7 @@ public interface IGerencia extends ICliente {
 	 *             passado a associada a ele.
 	 * @throws ContaJaAssociadaException
 	 *             Lancada caso o numero da conta ja esteja associada a outro
-	 *             cliente.
+	 *             cliente ou ja exista uma conta com esse numero.
 	 * @throws ClienteNaoCadastradoException
 	 *             Lancada caso nao exista um cliente com o cpf passado.
 	 * @throws RepositorioException
@@ -136,4 +145,14 @@ public interface IGerencia extends ICliente {
 	void atualizarCliente(Cliente cliente) throws RepositorioException,
 			AtualizacaoNaoRealizadaException;
 
+	/**
+	 * Rende os juros de todas as poupancas e o bonus de todas as contas
+	 * especiais, em paralelo, gravando as contas alteradas uma unica vez.
+	 * 
+	 * @return particoes processadas e totais creditados.
+	 * @throws RepositorioException
+	 *             Lancada caso ocorra erro de gravacao do repositorio.
+	 */
+	FechamentoMensal.Resultado fecharMes() throws RepositorioException;
+
 }
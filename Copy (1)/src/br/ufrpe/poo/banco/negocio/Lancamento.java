@@ -0,0 +1,95 @@
+package br.ufrpe.poo.banco.negocio;
+
+/**
+ * Lancamento do extrato de uma conta: uma operacao que alterou o saldo.
+ *
+ * @author
+ *
+ */
+public class Lancamento {
+
+	/**
+	 * Tipo do lancamento. O codigo e gravado no arquivo de lancamentos.
+	 */
+	public enum Tipo {
+		CREDITO, DEBITO, TRANSFERENCIA_ENVIADA, TRANSFERENCIA_RECEBIDA, JUROS, BONUS;
+
+		private static final Tipo[] TIPOS = values();
+
+		public byte getCodigo() {
+			return (byte) this.ordinal();
+		}
+
+		public static Tipo deCodigo(int codigo) {
+			return TIPOS[codigo];
+		}
+	}
+
+	/**
+	 * Momento do lancamento, em milissegundos desde 1970.
+	 */
+	private final long instante;
+
+	/**
+	 * Numero da conta.
+	 */
+	private final String conta;
+
+	private final Tipo tipo;
+
+	/**
+	 * Valor da operacao.
+	 */
+	private final double valor;
+
+	/**
+	 * Saldo da conta depois da operacao.
+	 */
+	private final double saldo;
+
+	/**
+	 * Conta do outro lado de uma transferencia, ou <code>null</code>.
+	 */
+	private final String contrapartida;
+
+	public Lancamento(long instante, String conta, Tipo tipo, double valor,
+			double saldo, String contrapartida) {
+		this.instante = instante;
+		this.conta = conta;
+		this.tipo = tipo;
+		this.valor = valor;
+		this.saldo = saldo;
+		this.contrapartida = contrapartida;
+	}
+
+	public long getInstante() {
+		return this.instante;
+	}
+
+	public String getConta() {
+		return this.conta;
+	}
+
+	public Tipo getTipo() {
+		return this.tipo;
+	}
+
+	public double getValor() {
+		return this.valor;
+	}
+
+	public double getSaldo() {
+		return this.saldo;
+	}
+
+	public String getContrapartida() {
+		return this.contrapartida;
+	}
+
+	@Override
+	public String toString() {
+		return this.instante + " " + this.conta + " " + this.tipo + " "
+				+ this.valor + " " + this.saldo
+				+ (this.contrapartida == null ? "" : " " + this.contrapartida);
+	}
+}
@@ -0,0 +1,253 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro das metricas das operacoes do banco e dos repositorios.
+ *
+ * Cada operacao tem um <code>MetricasOperacao</code>, criado na primeira
+ * chamada a <code>operacao</code>; quem instrumenta uma operacao guarda o
+ * objeto e chama <code>registrar</code> a cada execucao. As metricas podem ser
+ * lidas por JMX, depois de <code>registrarJmx</code>, com o nome
+ * <code>br.ufrpe.poo.banco:type=Metricas,name=&lt;operacao&gt;</code> (mais
+ * <code>,registro=&lt;nome&gt;</code> nos registros criados pelo usuario, para
+ * nao colidir com o registro padrao), ou em texto, por <code>relatorio</code> ou periodicamente por
+ * <code>iniciarRelatorio</code>.
+ *
+ * <code>Banco</code> e os repositorios em arquivo usam o registro
+ * <code>getPadrao()</code>.
+ */
+public class Metricas {
+
+	/** Dominio dos nomes JMX. */
+	public static final String DOMINIO_JMX = "br.ufrpe.poo.banco";
+
+	private static final Metricas PADRAO = new Metricas(true);
+
+	/** Numera os registros criados sem nome. */
+	private static final AtomicInteger REGISTROS = new AtomicInteger();
+
+	/** Nome do registro nos nomes JMX, ou <code>null</code> no padrao. */
+	private final String registro;
+
+	private final ConcurrentHashMap<String, MetricasOperacao> operacoes = new ConcurrentHashMap<String, MetricasOperacao>();
+
+	/** Servidor JMX onde as operacoes sao registradas, ou <code>null</code>. */
+	private MBeanServer servidor;
+
+	/** Nomes JMX registrados por este registro. */
+	private final Set<ObjectName> registrados = new HashSet<ObjectName>();
+
+	/** Agenda o relatorio periodico, ou <code>null</code>. */
+	private ScheduledExecutorService agendador;
+
+	/**
+	 * Cria um registro com nome gerado.
+	 */
+	public Metricas() {
+		this("registro-" + REGISTROS.incrementAndGet());
+	}
+
+	/**
+	 * Cria um registro.
+	 *
+	 * @param registro
+	 *            nome do registro nos nomes JMX.
+	 */
+	public Metricas(String registro) {
+		if (registro == null)
+			throw new IllegalArgumentException("Nome do registro nulo!");
+		this.registro = registro;
+	}
+
+	/**
+	 * Cria o registro padrao, cujos nomes JMX nao tem o nome do registro.
+	 */
+	private Metricas(boolean padrao) {
+		this.registro = null;
+	}
+
+	/** Retorna o registro usado pelo banco e pelos repositorios. */
+	public static Metricas getPadrao() {
+		return PADRAO;
+	}
+
+	/**
+	 * Retorna as metricas de uma operacao, criando-as se preciso.
+	 *
+	 * @param nome
+	 *            nome da operacao.
+	 * @return metricas da operacao.
+	 */
+	public MetricasOperacao operacao(String nome) {
+		MetricasOperacao operacao = this.operacoes.get(nome);
+		if (operacao != null)
+			return operacao;
+		synchronized (this) {
+			operacao = this.operacoes.get(nome);
+			if (operacao == null) {
+				operacao = new MetricasOperacao(nome);
+				if (this.servidor != null)
+					this.registrarJmx(this.servidor, operacao);
+				this.operacoes.put(nome, operacao);
+			}
+			return operacao;
+		}
+	}
+
+	/** Retorna as metricas de todas as operacoes, ordenadas pelo nome. */
+	public Collection<MetricasOperacao> getOperacoes() {
+		return new TreeMap<String, MetricasOperacao>(this.operacoes).values();
+	}
+
+	/** Zera as metricas de todas as operacoes. */
+	public void zerar() {
+		for (MetricasOperacao operacao : this.operacoes.values()) {
+			operacao.zerar();
+		}
+	}
+
+	/**
+	 * Registra as operacoes, atuais e futuras, no servidor JMX da plataforma.
+	 * Chamadas repetidas nao tem efeito.
+	 */
+	public synchronized void registrarJmx() {
+		if (this.servidor != null)
+			return;
+		MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+		for (MetricasOperacao operacao : this.operacoes.values()) {
+			this.registrarJmx(servidor, operacao);
+		}
+		this.servidor = servidor;
+	}
+
+	/**
+	 * Retira do servidor JMX as operacoes registradas por este registro.
+	 */
+	public synchronized void removerJmx() {
+		if (this.servidor == null)
+			return;
+		for (ObjectName nome : this.registrados) {
+			try {
+				this.servidor.unregisterMBean(nome);
+			} catch (InstanceNotFoundException e) {
+				// ja retirada
+			} catch (JMException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		this.registrados.clear();
+		this.servidor = null;
+	}
+
+	private void registrarJmx(MBeanServer servidor, MetricasOperacao operacao) {
+		ObjectName nome = this.nomeJmx(operacao.getNome());
+		try {
+			servidor.registerMBean(operacao, nome);
+			this.registrados.add(nome);
+		} catch (InstanceAlreadyExistsException e) {
+			// outro registro com o mesmo nome; mantem o existente
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Retorna o nome JMX de uma operacao deste registro.
+	 *
+	 * @param operacao
+	 *            nome da operacao.
+	 * @return nome JMX.
+	 */
+	public ObjectName nomeJmx(String operacao) {
+		StringBuilder nome = new StringBuilder(DOMINIO_JMX)
+				.append(":type=Metricas,name=").append(ObjectName.quote(operacao));
+		if (this.registro != null)
+			nome.append(",registro=").append(ObjectName.quote(this.registro));
+		try {
+			return new ObjectName(nome.toString());
+		} catch (JMException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Retorna um relatorio em texto com uma linha por operacao, com o numero
+	 * de chamadas e erros e as latencias em microssegundos, seguida dos erros
+	 * por tipo de excecao, se houver.
+	 *
+	 * @return relatorio.
+	 */
+	public String relatorio() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT,
+				"%-28s %10s %8s %10s %10s %10s %10s %10s %10s%n", "operacao",
+				"chamadas", "erros", "media", "p50", "p90", "p99", "p99.9",
+				"max"));
+		for (MetricasOperacao op : this.getOperacoes()) {
+			sb.append(String.format(Locale.ROOT,
+					"%-28s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+					op.getNome(), op.getChamadas(), op.getErros(),
+					op.getMediaMicros(), op.getPercentil50Micros(),
+					op.getPercentil90Micros(), op.getPercentil99Micros(),
+					op.getPercentil999Micros(), op.getMaximoMicros()));
+			for (Map.Entry<String, Long> e : op.getErrosPorTipo().entrySet()) {
+				sb.append(String.format(Locale.ROOT, "    %-40s %8d%n",
+						e.getKey(), e.getValue()));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Escreve o relatorio periodicamente, numa thread de fundo. Substitui um
+	 * relatorio periodico iniciado antes.
+	 *
+	 * @param intervalo
+	 *            intervalo entre relatorios, em milissegundos.
+	 * @param saida
+	 *            onde o relatorio e escrito.
+	 */
+	public synchronized void iniciarRelatorio(long intervalo,
+			final PrintStream saida) {
+		if (intervalo <= 0)
+			throw new IllegalArgumentException("Intervalo invalido: "
+					+ intervalo);
+		this.pararRelatorio();
+		this.agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "metricas-relatorio");
+			t.setDaemon(true);
+			return t;
+		});
+		this.agendador.scheduleAtFixedRate(() -> saida.print(this.relatorio()),
+				intervalo, intervalo, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Encerra o relatorio periodico, se houver.
+	 */
+	public synchronized void pararRelatorio() {
+		if (this.agendador != null) {
+			this.agendador.shutdownNow();
+			this.agendador = null;
+		}
+	}
+}
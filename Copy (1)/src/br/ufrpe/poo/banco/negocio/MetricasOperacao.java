@@ -0,0 +1,183 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histograma de latencias de uma operacao.
+ *
+ * Uso:
+ *
+ * <pre>
+ * long inicio = System.nanoTime();
+ * try {
+ * 	...
+ * } catch (Exception e) {
+ * 	operacao.registrar(inicio, e);
+ * 	throw e;
+ * }
+ * operacao.registrar(inicio, null);
+ * </pre>
+ *
+ * ou, para trechos que levantam um unico tipo de excecao verificada,
+ * <code>operacao.medir(trecho)</code>.
+ *
+ * <code>registrar</code> nao aloca objetos, exceto na primeira ocorrencia de
+ * cada tipo de excecao, e pode ser chamado por varias threads.
+ */
+public class MetricasOperacao implements MetricasOperacaoMBean {
+
+	/**
+	 * Trecho de codigo medido por <code>medir</code>.
+	 *
+	 * @param <E>
+	 *            excecao verificada levantada pelo trecho.
+	 */
+	public interface Trecho<E extends Exception> {
+		void executar() throws E;
+	}
+
+	private final String nome;
+
+	private final HistogramaLatencia latencias = new HistogramaLatencia();
+
+	/** Numero de erros por classe da excecao. */
+	private final ConcurrentHashMap<Class<?>, LongAdder> erros = new ConcurrentHashMap<Class<?>, LongAdder>();
+
+	/**
+	 * Cria as metricas de uma operacao. Use <code>Metricas.operacao</code>
+	 * para obter as metricas registradas.
+	 *
+	 * @param nome
+	 *            nome da operacao.
+	 */
+	MetricasOperacao(String nome) {
+		this.nome = nome;
+	}
+
+	/**
+	 * Registra o fim de uma chamada.
+	 *
+	 * @param inicio
+	 *            valor de <code>System.nanoTime()</code> no inicio da chamada.
+	 * @param erro
+	 *            excecao que terminou a chamada, ou <code>null</code> se ela
+	 *            terminou normalmente.
+	 */
+	public void registrar(long inicio, Throwable erro) {
+		this.latencias.registrar(System.nanoTime() - inicio);
+		if (erro != null) {
+			LongAdder contador = this.erros.get(erro.getClass());
+			if (contador == null)
+				contador = this.erros.computeIfAbsent(erro.getClass(),
+						c -> new LongAdder());
+			contador.increment();
+		}
+	}
+
+	/**
+	 * Executa um trecho e registra seu tempo e sua excecao, se houver.
+	 *
+	 * @param trecho
+	 *            trecho medido.
+	 * @throws E
+	 *             excecao levantada pelo trecho, repassada.
+	 */
+	public <E extends Exception> void medir(Trecho<E> trecho) throws E {
+		long inicio = System.nanoTime();
+		try {
+			trecho.executar();
+		} catch (Exception e) {
+			this.registrar(inicio, e);
+			throw e;
+		}
+		this.registrar(inicio, null);
+	}
+
+	@Override
+	public String getNome() {
+		return this.nome;
+	}
+
+	@Override
+	public long getChamadas() {
+		return this.latencias.getTotal();
+	}
+
+	@Override
+	public long getErros() {
+		long total = 0;
+		for (LongAdder contador : this.erros.values()) {
+			total += contador.sum();
+		}
+		return total;
+	}
+
+	/**
+	 * Retorna o numero de erros de um tipo de excecao.
+	 *
+	 * @param tipo
+	 *            classe da excecao.
+	 * @return numero de chamadas terminadas com essa excecao.
+	 */
+	public long getErros(Class<? extends Throwable> tipo) {
+		LongAdder contador = this.erros.get(tipo);
+		return contador == null ? 0 : contador.sum();
+	}
+
+	@Override
+	public Map<String, Long> getErrosPorTipo() {
+		Map<String, Long> porTipo = new TreeMap<String, Long>();
+		for (Map.Entry<Class<?>, LongAdder> e : this.erros.entrySet()) {
+			long n = e.getValue().sum();
+			if (n > 0)
+				porTipo.merge(e.getKey().getSimpleName(), n, Long::sum);
+		}
+		return porTipo;
+	}
+
+	/** Retorna o histograma de latencias da operacao. */
+	public HistogramaLatencia getLatencias() {
+		return this.latencias;
+	}
+
+	@Override
+	public double getMediaMicros() {
+		return this.latencias.getMedia() / 1000;
+	}
+
+	@Override
+	public double getPercentil50Micros() {
+		return this.latencias.percentil(50) / 1000.0;
+	}
+
+	@Override
+	public double getPercentil90Micros() {
+		return this.latencias.percentil(90) / 1000.0;
+	}
+
+	@Override
+	public double getPercentil99Micros() {
+		return this.latencias.percentil(99) / 1000.0;
+	}
+
+	@Override
+	public double getPercentil999Micros() {
+		return this.latencias.percentil(99.9) / 1000.0;
+	}
+
+	@Override
+	public double getMaximoMicros() {
+		return this.latencias.getMaximo() / 1000.0;
+	}
+
+	@Override
+	public void zerar() {
+		this.latencias.zerar();
+		for (LongAdder contador : this.erros.values()) {
+			contador.reset();
+		}
+	}
+}
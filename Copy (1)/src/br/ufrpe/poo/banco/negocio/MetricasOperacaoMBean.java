@@ -0,0 +1,37 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.util.Map;
+
+/**
+ * Interface JMX das metricas de uma operacao. Os tempos sao dados em
+ * microssegundos.
+ */
+public interface MetricasOperacaoMBean {
+
+	/** Retorna o nome da operacao. */
+	String getNome();
+
+	/** Retorna o numero de chamadas, com ou sem erro. */
+	long getChamadas();
+
+	/** Retorna o numero de chamadas terminadas com excecao. */
+	long getErros();
+
+	/** Retorna o numero de erros pelo nome simples da excecao. */
+	Map<String, Long> getErrosPorTipo();
+
+	double getMediaMicros();
+
+	double getPercentil50Micros();
+
+	double getPercentil90Micros();
+
+	double getPercentil99Micros();
+
+	double getPercentil999Micros();
+
+	double getMaximoMicros();
+
+	/** Zera os contadores e o histograma. */
+	void zerar();
+}
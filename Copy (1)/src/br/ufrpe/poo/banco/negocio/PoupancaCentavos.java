@@ -0,0 +1,75 @@
+package br.ufrpe.poo.banco.negocio;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+/**
+ * Poupanca com saldo em centavos. Os juros sao arredondados para o centavo.
+ * 
+ * @author
+ * 
+ */
+public class PoupancaCentavos extends Poupanca implements SaldoEmCentavos {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Saldo da conta em centavos.
+	 */
+	private long centavos;
+
+	public PoupancaCentavos(String numero, double valor) {
+		super(numero, valor);
+		this.centavos = Centavos.converter(valor < 0 ? 0 : valor);
+	}
+
+	@Override
+	public long getSaldoCentavos() {
+		return this.centavos;
+	}
+
+	@Override
+	public void setSaldoCentavos(long centavos) {
+		this.centavos = centavos;
+	}
+
+	@Override
+	public double getSaldo() {
+		return Centavos.reais(this.centavos);
+	}
+
+	@Override
+	public void setSaldo(double saldo) {
+		this.centavos = Centavos.converter(saldo);
+	}
+
+	@Override
+	public void creditar(double valor) {
+		this.creditarCentavos(Centavos.converter(valor));
+	}
+
+	@Override
+	public void debitar(double valor) throws SaldoInsuficienteException {
+		this.debitarCentavos(Centavos.converter(valor));
+	}
+
+	@Override
+	public void renderJuros(double taxa) {
+		this.creditarCentavos(Centavos.juros(this.centavos, taxa));
+	}
+
+	@Override
+	public void creditarCentavos(long centavos) {
+		if (centavos > 0)
+			this.centavos = this.centavos + centavos;
+	}
+
+	@Override
+	public void debitarCentavos(long centavos)
+			throws SaldoInsuficienteException {
+		if (this.centavos < centavos)
+			throw SaldoInsuficienteException.emCentavos(this.getNumero(),
+					this.centavos);
+		this.centavos = this.centavos - centavos;
+	}
+
+}
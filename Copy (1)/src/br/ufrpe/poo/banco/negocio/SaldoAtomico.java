@@ -0,0 +1,109 @@
+package br.ufrpe.poo.banco.negocio;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Valor <code>double</code> (saldo ou bonus) atualizado sem travas, por
+ * compare-and-set sobre os bits do valor.
+ * 
+ * @author
+ * 
+ */
+public class SaldoAtomico implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Bits do valor (<code>Double.doubleToRawLongBits</code>).
+	 */
+	private final AtomicLong bits;
+
+	public SaldoAtomico(double valor) {
+		this.bits = new AtomicLong(Double.doubleToRawLongBits(valor));
+	}
+
+	public double get() {
+		return Double.longBitsToDouble(this.bits.get());
+	}
+
+	public void set(double valor) {
+		this.bits.set(Double.doubleToRawLongBits(valor));
+	}
+
+	/**
+	 * Soma um valor atomicamente.
+	 * 
+	 * @param valor
+	 *            Valor a ser somado.
+	 * @return valor resultante.
+	 */
+	public double somar(double valor) {
+		while (true) {
+			long atual = this.bits.get();
+			double novo = Double.longBitsToDouble(atual) + valor;
+			if (this.bits.compareAndSet(atual, Double.doubleToRawLongBits(novo)))
+				return novo;
+		}
+	}
+
+	/**
+	 * Credita atomicamente juros sobre o valor atual. A leitura do valor e o
+	 * credito fazem parte do mesmo compare-and-set, de modo que um credito ou
+	 * debito concorrente nao e perdido nem deixa de render.
+	 * 
+	 * @param taxa
+	 *            Taxa de juros.
+	 * @return juros creditados; zero se os juros nao forem positivos.
+	 */
+	public double renderJuros(double taxa) {
+		while (true) {
+			long atual = this.bits.get();
+			double anterior = Double.longBitsToDouble(atual);
+			double juros = anterior * taxa;
+			if (!(juros > 0))
+				return 0;
+			if (this.bits.compareAndSet(atual,
+					Double.doubleToRawLongBits(anterior + juros)))
+				return juros;
+		}
+	}
+
+	/**
+	 * Zera o valor atomicamente.
+	 * 
+	 * @return valor anterior.
+	 */
+	public double zerar() {
+		return Double.longBitsToDouble(this.bits.getAndSet(Double
+				.doubleToRawLongBits(0)));
+	}
+
+	/**
+	 * Debita atomicamente, caso o valor atual cubra o debito. A verificacao e
+	 * a subtracao fazem parte do mesmo compare-and-set.
+	 * 
+	 * @param valor
+	 *            Valor que o saldo atual deve cobrir.
+	 * @param total
+	 *            Valor a ser subtraido (valor mais encargos).
+	 * @return valor anterior ao debito. Se for menor que <code>valor</code>,
+	 *         nada foi debitado.
+	 */
+	public double debitar(double valor, double total) {
+		while (true) {
+			long atual = this.bits.get();
+			double anterior = Double.longBitsToDouble(atual);
+			if (anterior < valor)
+				return anterior;
+			if (this.bits.compareAndSet(atual,
+					Double.doubleToRawLongBits(anterior - total)))
+				return anterior;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(this.get());
+	}
+}
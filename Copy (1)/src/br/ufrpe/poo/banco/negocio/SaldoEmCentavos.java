@@ -0,0 +1,36 @@
+package br.ufrpe.poo.banco.negocio;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+/**
+ * Conta cujo saldo e guardado em centavos (<code>long</code>). Os metodos com
+ * <code>double</code> herdados de <code>ContaAbstrata</code> convertem para
+ * centavos com <code>Centavos.converter</code>.
+ * 
+ * @author
+ * 
+ */
+public interface SaldoEmCentavos {
+
+	long getSaldoCentavos();
+
+	void setSaldoCentavos(long centavos);
+
+	/**
+	 * Credita um valor em centavos. Valores nao positivos sao ignorados.
+	 * 
+	 * @param centavos
+	 *            Valor a ser creditado.
+	 */
+	void creditarCentavos(long centavos);
+
+	/**
+	 * Debita um valor em centavos.
+	 * 
+	 * @param centavos
+	 *            Valor a ser debitado.
+	 * @throws SaldoInsuficienteException
+	 *             Lancada caso o valor exceda o saldo atual da conta.
+	 */
+	void debitarCentavos(long centavos) throws SaldoInsuficienteException;
+}
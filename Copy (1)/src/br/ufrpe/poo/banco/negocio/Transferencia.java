@@ -0,0 +1,62 @@
+package br.ufrpe.poo.banco.negocio;
+
+/**
+ * Transferencia de um lote processado por <code>transferirLote</code>.
+ * 
+ * @author
+ * 
+ */
+public class Transferencia {
+
+	/**
+	 * Numero da conta a ser debitada.
+	 */
+	private final String origem;
+
+	/**
+	 * Numero da conta a ser creditada.
+	 */
+	private final String destino;
+
+	/**
+	 * Valor da transferencia.
+	 */
+	private final double valor;
+
+	/**
+	 * Motivo da recusa da transferencia, ou <code>null</code> se foi
+	 * realizada (ou ainda nao processada).
+	 */
+	private Exception falha;
+
+	public Transferencia(String origem, String destino, double valor) {
+		this.origem = origem;
+		this.destino = destino;
+		this.valor = valor;
+	}
+
+	public String getOrigem() {
+		return this.origem;
+	}
+
+	public String getDestino() {
+		return this.destino;
+	}
+
+	public double getValor() {
+		return this.valor;
+	}
+
+	public Exception getFalha() {
+		return this.falha;
+	}
+
+	void setFalha(Exception falha) {
+		this.falha = falha;
+	}
+
+	@Override
+	public String toString() {
+		return this.origem + " -> " + this.destino + ": " + this.valor;
+	}
+}
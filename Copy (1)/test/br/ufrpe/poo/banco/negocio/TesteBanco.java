@@ -102,6 +102,35 @@ public class TesteBanco {
 	    Banco banco = new Banco(repositorioClientesMock, repositorioContasMock);
 	    banco.associarConta("12345678900", "12345");
 	}
+
+	@Test(expected = ContaJaAssociadaException.class)
+	public void testeAssociarContaJaAssociadaOutroCliente() throws Exception {
+	    IRepositorioClientes repositorioClientesMock = mock(IRepositorioClientes.class);
+	    IRepositorioContas repositorioContasMock = mock(IRepositorioContas.class);
+	    Cliente cliente = new Cliente("Nome", "12345678900");
+	    Cliente titular = new Cliente("Outro", "98765432100");
+
+	    when(repositorioClientesMock.procurar("12345678900")).thenReturn(cliente);
+	    when(repositorioClientesMock.procurarTitular("12345")).thenReturn(titular);
+	    when(repositorioContasMock.procurar("12345")).thenReturn(null);
+
+	    Banco banco = new Banco(repositorioClientesMock, repositorioContasMock);
+	    banco.associarConta("12345678900", "12345");
+	}
+
+	/**
+	 * A conta de outro cliente e recusada tambem quando o repositorio nao tem
+	 * indice de titulares.
+	 */
+	@Test(expected = ContaJaAssociadaException.class)
+	public void testeAssociarContaJaAssociadaSemIndice() throws Exception {
+	    Banco banco = new Banco(new RepositorioClientesArray(),
+	            new RepositorioContasArray());
+	    banco.cadastrarCliente(new Cliente("Nome", "12345678900"));
+	    banco.cadastrarCliente(new Cliente("Outro", "98765432100"));
+	    banco.associarConta("98765432100", "12345");
+	    banco.associarConta("12345678900", "12345");
+	}
 	
 	@Test
 	public void testeAtualizarClienteSucesso() throws RepositorioException, AtualizacaoNaoRealizadaException {
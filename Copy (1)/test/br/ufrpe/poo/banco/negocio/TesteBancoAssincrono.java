@@ -0,0 +1,134 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.ClienteJaPossuiContaException;
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+public class TesteBancoAssincrono {
+
+	private BancoConcorrente banco;
+
+	private BancoAssincrono assincrono;
+
+	@Before
+	public void criarBanco() throws Exception {
+		banco = new BancoConcorrente(new RepositorioClientesHash(),
+				new RepositorioContasHash());
+		for (int i = 0; i < 8; i++) {
+			banco.cadastrar(new Conta(String.valueOf(i), 1000));
+		}
+		assincrono = new BancoAssincrono(banco);
+	}
+
+	@After
+	public void fechar() {
+		assincrono.fechar();
+	}
+
+	@Test(timeout = 30000)
+	public void testeOperacoesConcorrentesMantemTotal() throws Exception {
+		List<CompletableFuture<Void>> futuros = new ArrayList<CompletableFuture<Void>>();
+		for (int i = 0; i < 20000; i++) {
+			ContaAbstrata origem = banco.procurarConta(String.valueOf(i % 8));
+			ContaAbstrata destino = banco.procurarConta(String
+					.valueOf((i * 3 + 1) % 8));
+			if (origem != destino)
+				futuros.add(assincrono.transferir(origem, destino, 1));
+			futuros.add(assincrono.creditar(origem, 1));
+			futuros.add(assincrono.debitar(origem, 1));
+		}
+		CompletableFuture.allOf(futuros.toArray(new CompletableFuture<?>[0]))
+				.join();
+		double total = 0;
+		for (int i = 0; i < 8; i++) {
+			total += banco.procurarConta(String.valueOf(i)).getSaldo();
+		}
+		assertEquals(8000, total, 0);
+	}
+
+	/**
+	 * Operacoes sobre a mesma conta sao executadas na ordem pedida: o debito
+	 * so e possivel depois dos creditos anteriores.
+	 */
+	@Test(timeout = 30000)
+	public void testeOrdemPorConta() throws Exception {
+		ContaAbstrata conta = banco.procurarConta("0");
+		CompletableFuture<Void> ultimo = null;
+		for (int i = 0; i < 1000; i++) {
+			assincrono.creditar(conta, 10);
+			ultimo = assincrono.debitar(conta, 1010);
+			assincrono.creditar(conta, 1000);
+		}
+		ultimo.get();
+		assincrono.aguardarPendentes().join();
+		assertEquals(1000, conta.getSaldo(), 0);
+	}
+
+	@Test(timeout = 30000)
+	public void testeExcecaoCompletaFuturo() throws Exception {
+		ContaAbstrata conta = banco.procurarConta("1");
+		try {
+			assincrono.debitar(conta, 5000).get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof SaldoInsuficienteException);
+		}
+		// a fila continua depois de uma falha
+		assincrono.creditar(conta, 1).get();
+		assertEquals(1001, conta.getSaldo(), 0);
+	}
+
+	@Test(timeout = 30000)
+	public void testeCadastroEAssociacao() throws Exception {
+		Cliente cliente = new Cliente("Maria", "111");
+		CompletableFuture<Void> cadastro = assincrono.cadastrarCliente(cliente);
+		CompletableFuture<Void> associacao = assincrono.associarConta("111",
+				"99");
+		CompletableFuture<Void> repetida = assincrono
+				.associarConta("111", "99");
+		cadastro.get();
+		associacao.get();
+		try {
+			repetida.get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ClienteJaPossuiContaException);
+		}
+		assertEquals("111", banco.procurarTitular("99").getCpf());
+	}
+
+	/**
+	 * Operacoes pedidas depois de fechar sao recusadas pelo executor; os
+	 * futuros devem falhar em vez de ficar pendentes para sempre.
+	 */
+	@Test(timeout = 30000)
+	public void testeOperacaoDepoisDeFechar() throws Exception {
+		ContaAbstrata conta = banco.procurarConta("2");
+		assincrono.fechar();
+		for (int i = 0; i < 2; i++) {
+			try {
+				assincrono.creditar(conta, 1).get();
+				fail();
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+		assincrono.aguardarPendentes().get();
+		assertEquals(1000, conta.getSaldo(), 0);
+	}
+}
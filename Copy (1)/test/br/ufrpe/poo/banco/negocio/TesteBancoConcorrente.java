@@ -0,0 +1,113 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+
+public class TesteBancoConcorrente {
+
+	private static final int CONTAS = 16;
+
+	private static final int THREADS = 8;
+
+	private static final int TRANSFERENCIAS = 2000;
+
+	private BancoConcorrente banco;
+
+	@Before
+	public void criarBanco() throws Exception {
+		banco = new BancoConcorrente(new RepositorioClientesHash(),
+				new RepositorioContasHash());
+		for (int i = 0; i < CONTAS; i++) {
+			banco.cadastrar(new Conta(String.valueOf(i), 1000000));
+		}
+	}
+
+	/**
+	 * Transferencias concorrentes em sentidos opostos nao podem perder
+	 * atualizacoes nem causar deadlock.
+	 */
+	@Test(timeout = 30000)
+	public void testeTransferenciasConcorrentesMantemTotal() throws Exception {
+		List<Thread> threads = new ArrayList<Thread>();
+		final List<Throwable> erros = new ArrayList<Throwable>();
+		for (int t = 0; t < THREADS; t++) {
+			final int deslocamento = t;
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < TRANSFERENCIAS; i++) {
+							int o = (i + deslocamento) % CONTAS;
+							int d = (o + 1 + deslocamento) % CONTAS;
+							if (o == d)
+								continue;
+							if (deslocamento % 2 == 0)
+								banco.transferir(banco.procurarConta(String
+										.valueOf(o)), banco.procurarConta(String
+										.valueOf(d)), 1);
+							else
+								banco.transferir(banco.procurarConta(String
+										.valueOf(d)), banco.procurarConta(String
+										.valueOf(o)), 1);
+						}
+					} catch (Throwable e) {
+						synchronized (erros) {
+							erros.add(e);
+						}
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(new ArrayList<Throwable>(), erros);
+
+		double total = 0;
+		for (int i = 0; i < CONTAS; i++) {
+			total += banco.procurarConta(String.valueOf(i)).getSaldo();
+		}
+		assertEquals(CONTAS * 1000000.0, total, 0);
+	}
+
+	/**
+	 * Creditos concorrentes na mesma conta nao podem ser perdidos.
+	 */
+	@Test(timeout = 30000)
+	public void testeCreditosConcorrentesMesmaConta() throws Exception {
+		final ContaAbstrata conta = banco.procurarConta("0");
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < TRANSFERENCIAS; i++) {
+							banco.creditar(conta, 1);
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(1000000.0 + THREADS * TRANSFERENCIAS, conta.getSaldo(), 0);
+	}
+}
@@ -0,0 +1,91 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.JournalArquivo;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoJournal;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.dados.TiposConta;
+
+public class TesteCheckpointContas {
+
+	private File snapshot = new File("teste-checkpoint.snap");
+
+	private File log = new File("teste-checkpoint.log");
+
+	@After
+	public void apagarArquivos() {
+		snapshot.delete();
+		log.delete();
+		new File(log.getPath() + ".antigo").delete();
+	}
+
+	@Test
+	public void testeCheckpointPorIntervalo() throws Exception {
+		RepositorioContasArquivoJournal contas = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log, 200);
+		for (int i = 0; i < 100; i++) {
+			contas.inserir(new Poupanca(String.valueOf(i), i));
+		}
+		contas.remover("8");
+		assertFalse(snapshot.exists());
+
+		Thread.sleep(250);
+		ContaAbstrata c = contas.procurar("7");
+		c.creditar(3);
+		contas.atualizar(c);
+		contas.fechar();
+
+		assertTrue(snapshot.exists());
+		assertEquals(0, log.length());
+
+		contas = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log);
+		assertEquals(10, contas.procurar("7").getSaldo(), 0);
+		assertFalse(contas.existe("8"));
+		assertEquals(99, contas.parallelStream().count());
+		contas.fechar();
+	}
+
+	/**
+	 * Um log que passou do limite sem checkpoint (queda antes da compactacao)
+	 * e compactado logo apos a recuperacao.
+	 */
+	@Test
+	public void testeRecuperacaoIniciaCheckpoint() throws Exception {
+		JournalArquivo journal = new JournalArquivo(snapshot, log);
+		journal.recuperar(r -> {
+		});
+		for (int i = 0; i < 12000; i++) {
+			DataOutputStream registro = journal.novoRegistro();
+			registro.writeByte('I');
+			registro.writeUTF(String.valueOf(i % 1000));
+			registro.writeByte(TiposConta.CONTA);
+			registro.writeDouble(i);
+			registro.writeDouble(0);
+			journal.gravarRegistro();
+		}
+		journal.fechar();
+		assertFalse(snapshot.exists());
+
+		RepositorioContasArquivoJournal contas = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log);
+		contas.fechar();
+		assertTrue(snapshot.exists());
+		assertEquals(0, log.length());
+
+		contas = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log);
+		assertEquals(1000, contas.stream().count());
+		assertEquals(11999, contas.procurar("999").getSaldo(), 0);
+		contas.fechar();
+	}
+}
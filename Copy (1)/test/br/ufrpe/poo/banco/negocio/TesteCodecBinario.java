@@ -0,0 +1,134 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.CodecBinario;
+import br.ufrpe.poo.banco.dados.FormatoArquivo;
+import br.ufrpe.poo.banco.dados.MigradorArquivos;
+import br.ufrpe.poo.banco.dados.RepositorioClientesArquivoBin;
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoBin;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+
+public class TesteCodecBinario {
+
+	private File contas = new File("teste-codec-contas.dat");
+
+	private File clientes = new File("teste-codec-clientes.dat");
+
+	@After
+	public void apagarArquivos() {
+		for (File f : new File[] { contas, clientes }) {
+			f.delete();
+			new File(f.getPath() + MigradorArquivos.EXTENSAO_COPIA).delete();
+		}
+	}
+
+	private RepositorioContasArquivoBin abrirContas(FormatoArquivo formato)
+			throws Exception {
+		return new RepositorioContasArquivoBin(new RepositorioContasHash(),
+				contas, formato);
+	}
+
+	@Test
+	public void testeMigracaoContas() throws Exception {
+		RepositorioContasArquivoBin repositorio = abrirContas(null);
+		repositorio.inserir(new Conta("1", 10));
+		repositorio.inserir(new Poupanca("2", 20));
+		repositorio.inserir(new ContaImposto("3", 30));
+		ContaEspecial especial = new ContaEspecial("4", 40);
+		especial.creditar(100);
+		repositorio.inserir(especial);
+		repositorio.inserir(new ContaEspecialCentavos("5", 50.25));
+		for (int i = 6; i < 1000; i++) {
+			repositorio.inserir(new Conta(String.valueOf(i), i));
+		}
+		long serializado = contas.length();
+		assertEquals(FormatoArquivo.SERIALIZACAO,
+				CodecBinario.detectar(contas));
+
+		assertTrue(MigradorArquivos.migrarContas(contas));
+		assertFalse(MigradorArquivos.migrarContas(contas));
+		assertEquals(FormatoArquivo.BINARIO, CodecBinario.detectar(contas));
+		assertEquals(serializado, new File(contas.getPath()
+				+ MigradorArquivos.EXTENSAO_COPIA).length());
+		assertTrue(contas.length() < serializado);
+
+		// sem formato escolhido, o repositorio mantem o formato do arquivo
+		repositorio = abrirContas(null);
+		assertTrue(repositorio.procurar("2") instanceof Poupanca);
+		assertTrue(repositorio.procurar("3") instanceof ContaImposto);
+		assertEquals(140, repositorio.procurar("4").getSaldo(), 0);
+		assertEquals(1, ((ContaEspecial) repositorio.procurar("4")).getBonus(),
+				0);
+		assertTrue(repositorio.procurar("5") instanceof ContaEspecialCentavos);
+		assertEquals(50.25, repositorio.procurar("5").getSaldo(), 0);
+		repositorio.remover("1");
+		assertEquals(FormatoArquivo.BINARIO, CodecBinario.detectar(contas));
+
+		repositorio = abrirContas(FormatoArquivo.SERIALIZACAO);
+		assertEquals(998, repositorio.stream().count());
+		assertEquals(999, repositorio.procurar("999").getSaldo(), 0);
+	}
+
+	/**
+	 * As variantes concorrentes tem codigo proprio e sao lidas de volta com a
+	 * mesma classe.
+	 */
+	@Test
+	public void testeContasConcorrentesMantemClasse() throws Exception {
+		RepositorioContasArquivoBin repositorio = abrirContas(FormatoArquivo.BINARIO);
+		repositorio.inserir(new ContaConcorrente("1", 10));
+		repositorio.inserir(new PoupancaConcorrente("2", 20));
+		repositorio.inserir(new ContaImpostoConcorrente("3", 30));
+		ContaEspecialConcorrente especial = new ContaEspecialConcorrente("4", 40);
+		especial.creditar(100);
+		repositorio.inserir(especial);
+
+		repositorio = abrirContas(null);
+		assertEquals(ContaConcorrente.class, repositorio.procurar("1")
+				.getClass());
+		assertEquals(PoupancaConcorrente.class, repositorio.procurar("2")
+				.getClass());
+		assertEquals(20, repositorio.procurar("2").getSaldo(), 0);
+		assertEquals(ContaImpostoConcorrente.class, repositorio.procurar("3")
+				.getClass());
+		assertEquals(ContaEspecialConcorrente.class, repositorio.procurar("4")
+				.getClass());
+		assertEquals(140, repositorio.procurar("4").getSaldo(), 0);
+		assertEquals(1, ((ContaEspecial) repositorio.procurar("4")).getBonus(),
+				0);
+	}
+
+	@Test
+	public void testeMigracaoClientes() throws Exception {
+		RepositorioClientesArquivoBin repositorio = new RepositorioClientesArquivoBin(
+				new RepositorioClientesHash(), clientes, null);
+		Cliente cliente = new Cliente("Jose da Silva", "111");
+		cliente.adicionarConta("1");
+		cliente.adicionarConta("2");
+		repositorio.inserir(cliente);
+		repositorio.inserir(new Cliente("Maria", "222"));
+		assertEquals(FormatoArquivo.SERIALIZACAO,
+				CodecBinario.detectar(clientes));
+
+		assertTrue(MigradorArquivos.migrarClientes(clientes));
+		assertEquals(FormatoArquivo.BINARIO, CodecBinario.detectar(clientes));
+
+		repositorio = new RepositorioClientesArquivoBin(
+				new RepositorioClientesHash(), clientes, null);
+		Cliente lido = repositorio.procurar("111");
+		assertEquals("Jose da Silva", lido.getNome());
+		assertEquals(2, lido.getContas().size());
+		assertEquals("2", lido.consultarNumeroConta(1));
+		assertEquals("111", repositorio.procurarTitular("2").getCpf());
+		assertEquals(0, repositorio.procurar("222").getContas().size());
+	}
+}
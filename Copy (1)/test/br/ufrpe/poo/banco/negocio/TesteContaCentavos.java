@@ -0,0 +1,156 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+public class TesteContaCentavos {
+
+	@Test
+	public void testeConverterArredondaParaPar() {
+		assertEquals(1234, Centavos.converter(12.34));
+		assertEquals(10, Centavos.converter(0.1));
+		assertEquals(2, Centavos.converter(0.025));
+		assertEquals(4, Centavos.converter(0.035));
+	}
+
+	@Test
+	public void testeCreditarDebitarSemErroDeArredondamento()
+			throws SaldoInsuficienteException {
+		ContaCentavos c = new ContaCentavos("1", 0);
+		for (int i = 0; i < 10; i++) {
+			c.creditar(0.1);
+		}
+		assertEquals(100, c.getSaldoCentavos());
+		c.debitar(1);
+		assertEquals(0, c.getSaldoCentavos());
+		assertEquals(0, c.getSaldo(), 0);
+	}
+
+	@Test
+	public void testeDebitarContaImpostoArredondaCpmf()
+			throws SaldoInsuficienteException {
+		ContaImpostoCentavos c = new ContaImpostoCentavos("1", 100);
+		// 0,38% de R$ 50,00 = 19 centavos
+		c.debitar(50);
+		assertEquals(10000 - 5000 - 19, c.getSaldoCentavos());
+		// 0,38% de R$ 1,00 = 0,38 centavo, arredondado para zero
+		c.debitarCentavos(100);
+		assertEquals(4981 - 100, c.getSaldoCentavos());
+	}
+
+	@Test
+	public void testeBonusContaEspecial() {
+		ContaEspecialCentavos c = new ContaEspecialCentavos("1", 0);
+		c.creditar(150);
+		c.creditarCentavos(50);
+		// 1% de 15000 = 150, 1% de 50 = 0,5 -> 0 (par)
+		assertEquals(150, c.getBonusCentavos());
+		assertEquals(1.5, c.getBonus(), 0);
+		c.renderBonus();
+		assertEquals(15050 + 150, c.getSaldoCentavos());
+		assertEquals(0, c.getBonusCentavos());
+	}
+
+	@Test
+	public void testeJurosPoupanca() {
+		PoupancaCentavos p = new PoupancaCentavos("1", 1000.01);
+		p.renderJuros(0.005);
+		// 100001 * 0,005 = 500,005 -> 500
+		assertEquals(100001 + 500, p.getSaldoCentavos());
+	}
+
+	@Test
+	public void testeSaldoInsuficiente() {
+		ContaCentavos c = new ContaCentavos("1", 10.05);
+		try {
+			c.debitarCentavos(1006);
+			fail("Excecao SaldoInsuficienteException nao levantada");
+		} catch (SaldoInsuficienteException e) {
+			assertTrue(e.getMessage().endsWith("R$10.05"));
+		}
+		assertEquals(1005, c.getSaldoCentavos());
+	}
+
+	/**
+	 * Um saldo inteiro e sempre tomado em reais; centavos so por
+	 * <code>emCentavos</code>.
+	 */
+	@Test
+	public void testeMensagemSaldoInsuficiente() {
+		int saldo = 5;
+		assertEquals(new SaldoInsuficienteException("1", 5.0).getMessage(),
+				new SaldoInsuficienteException("1", saldo).getMessage());
+		assertTrue(SaldoInsuficienteException.emCentavos("1", 1005)
+				.getMessage().endsWith("R$10.05"));
+		assertTrue(SaldoInsuficienteException.emCentavos("1", -5)
+				.getMessage().endsWith("R$-0.05"));
+	}
+
+	/**
+	 * O caminho sem BigDecimal de converter e Taxa.juros da o mesmo
+	 * resultado que o calculo decimal.
+	 */
+	@Test
+	public void testeCalculoInteiroIgualAoDecimal() {
+		Random aleatorio = new Random(42);
+		double[] taxas = { 0.005, 0.01, 0.1, 1, 0.0123456789, 1e-20, 1e20,
+				-0.005, 0 };
+		for (int i = 0; i < 20000; i++) {
+			long centavos = aleatorio.nextLong() >> aleatorio.nextInt(64);
+			double reais = Centavos.reais(centavos);
+			if (Math.abs(centavos) < 1L << 51)
+				assertEquals(centavos, Centavos.converter(reais));
+			assertEquals(BigDecimal.valueOf(reais).movePointRight(2)
+					.setScale(0, RoundingMode.HALF_EVEN).longValue(),
+					Centavos.converter(reais));
+			centavos >>= 20;
+			for (double taxa : taxas) {
+				long esperado;
+				try {
+					esperado = Centavos.juros(centavos, taxa);
+				} catch (ArithmeticException e) {
+					continue;
+				}
+				assertEquals(esperado,
+						new Centavos.Taxa(taxa).juros(centavos));
+			}
+		}
+		assertEquals(1, new Centavos.Taxa(0.005).juros(250));
+		assertEquals(2, new Centavos.Taxa(0.005).juros(350));
+		assertEquals(-1, new Centavos.Taxa(0.005).juros(-250));
+	}
+
+	@Test
+	public void testeSomar() {
+		long[] valores = { 1, 2, 3, 4, 5 };
+		assertEquals(15, Centavos.somar(valores, 0, valores.length));
+		assertEquals(9, Centavos.somar(valores, 1, 4));
+	}
+
+	@Test
+	public void testeTransferenciaNoBanco() throws Exception {
+		Banco banco = new Banco(new RepositorioClientesHash(),
+				new RepositorioContasHash());
+		banco.cadastrar(new ContaCentavos("1", 0.3));
+		banco.cadastrar(new ContaCentavos("2", 0));
+		banco.transferir(banco.procurarConta("1"), banco.procurarConta("2"),
+				0.1);
+		banco.transferir(banco.procurarConta("1"), banco.procurarConta("2"),
+				0.2);
+		assertEquals(0, ((SaldoEmCentavos) banco.procurarConta("1"))
+				.getSaldoCentavos());
+		assertEquals(30, ((SaldoEmCentavos) banco.procurarConta("2"))
+				.getSaldoCentavos());
+	}
+}
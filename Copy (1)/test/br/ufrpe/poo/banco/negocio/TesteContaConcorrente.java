@@ -0,0 +1,123 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+public class TesteContaConcorrente {
+
+	private static final int THREADS = 8;
+
+	/**
+	 * Executa a tarefa em varias threads ao mesmo tempo.
+	 */
+	private static void executar(Runnable tarefa) throws InterruptedException {
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			threads[i] = new Thread(tarefa);
+			threads[i].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+	}
+
+	@Test
+	public void testeConstrutor() {
+		ContaConcorrente c = new ContaConcorrente("1", -10);
+		assertEquals("Saldo incorreto", 0, c.getSaldo(), 0);
+		c.setSaldo(50);
+		assertEquals("Saldo incorreto", 50, c.getSaldo(), 0);
+	}
+
+	/**
+	 * Creditos concorrentes nao podem ser perdidos.
+	 */
+	@Test
+	public void testeCreditarConcorrente() throws InterruptedException {
+		final ContaConcorrente c = new ContaConcorrente("1", 0);
+		executar(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 10000; i++) {
+					c.creditar(1);
+				}
+			}
+		});
+		assertEquals(THREADS * 10000, c.getSaldo(), 0);
+	}
+
+	/**
+	 * Debitos concorrentes nunca deixam o saldo negativo.
+	 */
+	@Test
+	public void testeDebitarConcorrenteNaoPassaDoSaldo()
+			throws InterruptedException {
+		final ContaConcorrente c = new ContaConcorrente("1", 1000);
+		final AtomicInteger recusados = new AtomicInteger();
+		executar(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 500; i++) {
+					try {
+						c.debitar(1);
+					} catch (SaldoInsuficienteException e) {
+						recusados.incrementAndGet();
+					}
+				}
+			}
+		});
+		assertEquals(0, c.getSaldo(), 0);
+		assertEquals(THREADS * 500 - 1000, recusados.get());
+	}
+
+	@Test
+	public void testeContaImpostoDebitar() throws SaldoInsuficienteException {
+		ContaImpostoConcorrente c = new ContaImpostoConcorrente("2", 1000);
+		c.debitar(100);
+		assertEquals(899.62, c.getSaldo(), 0.000001);
+	}
+
+	@Test(expected = SaldoInsuficienteException.class)
+	public void testeContaImpostoDebitarSaldoInsuficiente()
+			throws SaldoInsuficienteException {
+		ContaImpostoConcorrente c = new ContaImpostoConcorrente("2", 1000);
+		c.debitar(1200);
+	}
+
+	/**
+	 * Creditos concorrentes acumulam o bonus de 1% sem perdas.
+	 */
+	@Test
+	public void testeContaEspecialBonusConcorrente()
+			throws InterruptedException {
+		final ContaEspecialConcorrente c = new ContaEspecialConcorrente("3", 0);
+		executar(new Runnable() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 1000; i++) {
+					c.creditar(100);
+				}
+			}
+		});
+		assertEquals(THREADS * 100000, c.getSaldo(), 0);
+		assertEquals(THREADS * 1000, c.getBonus(), 0.000001);
+		c.renderBonus();
+		assertEquals(THREADS * 101000, c.getSaldo(), 0.000001);
+		assertEquals(0, c.getBonus(), 0);
+	}
+
+	@Test
+	public void testePoupancaRenderJuros() {
+		PoupancaConcorrente p = new PoupancaConcorrente("4", 100);
+		p.renderJuros(0.5);
+		assertEquals(150, p.getSaldo(), 0);
+	}
+}
@@ -0,0 +1,172 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasColunar;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteFechamentoMensal {
+
+	private static final int CONTAS = 1000;
+
+	/**
+	 * Repositorio que conta as gravacoes em lote.
+	 */
+	private static class RepositorioContador extends RepositorioContasHash {
+
+		int lotes;
+
+		int gravadas;
+
+		boolean falhar;
+
+		@Override
+		public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+				throws RepositorioException {
+			if (falhar)
+				throw new RepositorioException("Falha simulada");
+			lotes++;
+			gravadas += contas.size();
+			return super.atualizarLote(contas);
+		}
+	}
+
+	/**
+	 * Cadastra contas dos quatro tipos, com saldo 100. As contas especiais
+	 * recebem um credito de 100, acumulando bonus de 1.
+	 */
+	private static void cadastrar(IRepositorioContas contas) throws Exception {
+		for (int i = 0; i < CONTAS; i++) {
+			String numero = String.valueOf(i);
+			switch (i % 4) {
+			case 0:
+				contas.inserir(new Conta(numero, 100));
+				break;
+			case 1:
+				contas.inserir(new Poupanca(numero, 100));
+				break;
+			case 2:
+				contas.inserir(new ContaImposto(numero, 100));
+				break;
+			default:
+				ContaEspecial especial = new ContaEspecial(numero, 0);
+				especial.creditar(100);
+				contas.inserir(especial);
+			}
+		}
+	}
+
+	private static void verificar(IRepositorioContas contas,
+			FechamentoMensal.Resultado r) {
+		assertEquals(CONTAS / 2, r.getAlteradas());
+		assertEquals(CONTAS / 4 * 50 + CONTAS / 4 * 1, r.getCreditado(), 1e-6);
+		assertEquals(100, contas.procurar("0").getSaldo(), 0);
+		assertEquals(150, contas.procurar("1").getSaldo(), 0);
+		assertEquals(100, contas.procurar("2").getSaldo(), 0);
+		assertEquals(101, contas.procurar("3").getSaldo(), 0);
+		assertEquals(0, ((ContaEspecial) contas.procurar("3")).getBonus(), 0);
+	}
+
+	@Test
+	public void testeFechamentoGravaUmaVez() throws Exception {
+		RepositorioContador contas = new RepositorioContador();
+		cadastrar(contas);
+		FechamentoMensal.Resultado r = new FechamentoMensal(contas, 0.5, 64,
+				new ForkJoinPool(4)).executar();
+
+		verificar(contas, r);
+		assertEquals(1, contas.lotes);
+		assertEquals(CONTAS / 2, contas.gravadas);
+		int esperado = 0;
+		for (FechamentoMensal.Particao p : r.getParticoes()) {
+			assertEquals(esperado, p.getInicio());
+			assertTrue(p.getFim() - p.getInicio() <= 64);
+			esperado = p.getFim();
+		}
+		assertEquals(CONTAS, esperado);
+	}
+
+	@Test
+	public void testeFechamentoColunar() throws Exception {
+		RepositorioContasColunar contas = new RepositorioContasColunar();
+		cadastrar(contas);
+		FechamentoMensal.Resultado r = new FechamentoMensal(contas, 0.5, 100,
+				new ForkJoinPool(4)).executar();
+
+		verificar(contas, r);
+		assertTrue(r.getParticoes().size() > 1);
+	}
+
+	@Test
+	public void testeFecharMesNoBanco() throws Exception {
+		RepositorioContasHash contas = new RepositorioContasHash();
+		cadastrar(contas);
+		Banco banco = new BancoConcorrente(new RepositorioClientesHash(),
+				contas);
+
+		verificar(contas, banco.fecharMes());
+	}
+
+	/**
+	 * No banco concorrente o fechamento recebe o repositorio colunar sem o
+	 * decorador que serializa as escritas, e usa o caminho direto, que nao
+	 * chama <code>atualizarLote</code>.
+	 */
+	@Test
+	public void testeFecharMesNoBancoConcorrenteColunar() throws Exception {
+		RepositorioContasColunar contas = new RepositorioContasColunar() {
+
+			@Override
+			public int atualizarLote(Collection<? extends ContaAbstrata> lote)
+					throws RepositorioException {
+				throw new RepositorioException("Caminho generico usado");
+			}
+		};
+		cadastrar(contas);
+		Banco banco = new BancoConcorrente(new RepositorioClientesHash(),
+				contas);
+
+		verificar(contas, banco.fecharMes());
+	}
+
+	@Test
+	public void testeFalhaNaGravacaoDesfazFechamento() throws Exception {
+		RepositorioContador contas = new RepositorioContador();
+		cadastrar(contas);
+		contas.falhar = true;
+		try {
+			new FechamentoMensal(contas, 0.5, 64, new ForkJoinPool(4))
+					.executar();
+			fail();
+		} catch (RepositorioException e) {
+		}
+		assertEquals(100, contas.procurar("1").getSaldo(), 0);
+		assertEquals(100, contas.procurar("3").getSaldo(), 0);
+		assertEquals(1, ((ContaEspecial) contas.procurar("3")).getBonus(), 0);
+	}
+
+	/**
+	 * O total creditado e a soma dos creditos de cada conta, sem perder
+	 * centavos para a soma de saldos grandes.
+	 */
+	@Test
+	public void testeCreditadoComSaldosGrandes() throws Exception {
+		RepositorioContasColunar contas = new RepositorioContasColunar();
+		for (int i = 0; i < 100; i++) {
+			contas.inserir(new Poupanca(String.valueOf(i), 1e13));
+		}
+		FechamentoMensal.Resultado r = new FechamentoMensal(contas, 1e-15, 10,
+				new ForkJoinPool(2)).executar();
+		assertEquals(1.0, r.getCreditado(), 1e-9);
+	}
+}
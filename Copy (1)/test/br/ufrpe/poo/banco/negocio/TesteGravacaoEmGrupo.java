@@ -0,0 +1,153 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.FormatoArquivo;
+import br.ufrpe.poo.banco.dados.GravacaoEmGrupo;
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoBin;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoTxt;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteGravacaoEmGrupo {
+
+	private static final int THREADS = 8;
+
+	private static final int POR_THREAD = 25;
+
+	private File arquivo = new File("teste-grupo.dat");
+
+	@After
+	public void apagarArquivo() {
+		arquivo.delete();
+	}
+
+	/**
+	 * Executa a tarefa em varias threads ao mesmo tempo e espera o fim.
+	 */
+	private static void emParalelo(final Tarefa tarefa) throws Exception {
+		final List<Exception> erros = new ArrayList<Exception>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < THREADS; t++) {
+			final int id = t;
+			threads.add(new Thread(() -> {
+				try {
+					tarefa.executar(id);
+				} catch (Exception e) {
+					synchronized (erros) {
+						erros.add(e);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (!erros.isEmpty())
+			throw erros.get(0);
+	}
+
+	private interface Tarefa {
+		void executar(int thread) throws Exception;
+	}
+
+	@Test
+	public void testeAlteracoesConcorrentesAgrupadas() throws Exception {
+		final AtomicInteger gravacoes = new AtomicInteger();
+		final GravacaoEmGrupo grupo = new GravacaoEmGrupo(() -> {
+			gravacoes.incrementAndGet();
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				throw new RepositorioException(e);
+			}
+		}, 2);
+		emParalelo(t -> {
+			for (int i = 0; i < POR_THREAD; i++) {
+				int antes = gravacoes.get();
+				grupo.confirmar();
+				// a alteracao foi coberta por uma gravacao posterior a ela
+				assertTrue(gravacoes.get() > antes);
+			}
+		});
+		assertEquals(THREADS * POR_THREAD, grupo.getAlteracoes());
+		assertEquals(gravacoes.get(), grupo.getLotes());
+		assertTrue(grupo.getLotes() < THREADS * POR_THREAD / 2);
+	}
+
+	@Test
+	public void testeErroChegaATodoOLote() throws Exception {
+		final RepositorioException erro = new RepositorioException("disco");
+		GravacaoEmGrupo grupo = new GravacaoEmGrupo(() -> {
+			throw erro;
+		}, 0);
+		try {
+			grupo.confirmar();
+			fail();
+		} catch (RepositorioException e) {
+			assertSame(erro, e);
+		}
+		assertEquals(1, grupo.getLotes());
+	}
+
+	private void inserirEmParalelo(final IRepositorioContas contas)
+			throws Exception {
+		emParalelo(t -> {
+			for (int i = 0; i < POR_THREAD; i++) {
+				contas.inserir(new Conta(t + "-" + i, i));
+			}
+			ContaAbstrata conta = contas.procurar(t + "-0");
+			conta.creditar(100);
+			contas.atualizar(conta);
+			contas.remover(t + "-1");
+		});
+	}
+
+	private static void verificar(IRepositorioContas contas) {
+		assertEquals(THREADS * (POR_THREAD - 1), contas.stream().count());
+		for (int t = 0; t < THREADS; t++) {
+			assertEquals(100, contas.procurar(t + "-0").getSaldo(), 0);
+			assertEquals(POR_THREAD - 1,
+					contas.procurar(t + "-" + (POR_THREAD - 1)).getSaldo(), 0);
+		}
+	}
+
+	@Test
+	public void testeArquivoBinConcorrente() throws Exception {
+		inserirEmParalelo(new RepositorioContasArquivoBin(
+				new RepositorioContasHash(), arquivo, FormatoArquivo.BINARIO, 1));
+		verificar(new RepositorioContasArquivoBin(new RepositorioContasHash(),
+				arquivo, null));
+		assertTrue(!new File(arquivo.getPath() + ".tmp").exists());
+	}
+
+	@Test
+	public void testeArquivoTxtConcorrente() throws Exception {
+		inserirEmParalelo(new RepositorioContasArquivoTxt(arquivo, false, 1));
+		verificar(new RepositorioContasArquivoTxt(arquivo));
+	}
+
+	@Test
+	public void testeArquivoTxtLarguraFixaConcorrente() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo, true, 1);
+		inserirEmParalelo(contas);
+		contas.fechar();
+		verificar(new RepositorioContasArquivoTxt(arquivo));
+	}
+}
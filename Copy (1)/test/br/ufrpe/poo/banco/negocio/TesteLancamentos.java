@@ -0,0 +1,281 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.IRepositorioLancamentos;
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.dados.RepositorioLancamentosArquivo;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteLancamentos {
+
+	private File diretorio = new File("teste-lancamentos");
+
+	private RepositorioLancamentosArquivo lancamentos;
+
+	private Banco banco;
+
+	@Before
+	public void criarBanco() throws Exception {
+		apagarArquivos();
+		lancamentos = new RepositorioLancamentosArquivo(diretorio,
+				RepositorioLancamentosArquivo.TAMANHO_SEGMENTO);
+		banco = new Banco(new RepositorioClientesHash(),
+				new RepositorioContasHash(), lancamentos);
+		banco.cadastrar(new Conta("1", 100));
+		banco.cadastrar(new Poupanca("2", 100));
+		banco.cadastrar(new ContaEspecial("3", 0));
+	}
+
+	@After
+	public void apagarArquivos() throws Exception {
+		if (lancamentos != null)
+			lancamentos.fechar();
+		File[] arquivos = diretorio.listFiles();
+		if (arquivos != null) {
+			for (File f : arquivos) {
+				f.delete();
+			}
+		}
+		diretorio.delete();
+	}
+
+	private static void esperarRelogio() {
+		long agora = System.currentTimeMillis();
+		while (System.currentTimeMillis() == agora) {
+			Thread.yield();
+		}
+	}
+
+	@Test
+	public void testeOperacoesGeramLancamentos() throws Exception {
+		banco.creditar(banco.procurarConta("1"), 50);
+		banco.debitar(banco.procurarConta("1"), 20);
+		banco.transferir(banco.procurarConta("1"), banco.procurarConta("3"), 30);
+		banco.renderJuros(banco.procurarConta("2"));
+		banco.renderBonus(banco.procurarConta("3"));
+
+		List<Lancamento> extrato = banco.extrato("1", 0, Long.MAX_VALUE);
+		assertEquals(3, extrato.size());
+		assertEquals(Lancamento.Tipo.CREDITO, extrato.get(0).getTipo());
+		assertEquals(150, extrato.get(0).getSaldo(), 0);
+		assertNull(extrato.get(0).getContrapartida());
+		assertEquals(Lancamento.Tipo.DEBITO, extrato.get(1).getTipo());
+		assertEquals(130, extrato.get(1).getSaldo(), 0);
+		assertEquals(Lancamento.Tipo.TRANSFERENCIA_ENVIADA, extrato.get(2)
+				.getTipo());
+		assertEquals("3", extrato.get(2).getContrapartida());
+		assertEquals(100, extrato.get(2).getSaldo(), 0);
+
+		extrato = banco.extrato("2", 0, Long.MAX_VALUE);
+		assertEquals(1, extrato.size());
+		assertEquals(Lancamento.Tipo.JUROS, extrato.get(0).getTipo());
+		assertEquals(50, extrato.get(0).getValor(), 0);
+
+		extrato = banco.extrato("3", 0, Long.MAX_VALUE);
+		assertEquals(2, extrato.size());
+		assertEquals(Lancamento.Tipo.TRANSFERENCIA_RECEBIDA, extrato.get(0)
+				.getTipo());
+		assertEquals("1", extrato.get(0).getContrapartida());
+		assertEquals(Lancamento.Tipo.BONUS, extrato.get(1).getTipo());
+		assertEquals(0.3, extrato.get(1).getValor(), 1e-9);
+		assertEquals(30.3, extrato.get(1).getSaldo(), 1e-9);
+	}
+
+	@Test
+	public void testeExtratoPorPeriodo() throws Exception {
+		banco.creditar(banco.procurarConta("1"), 1);
+		esperarRelogio();
+		banco.creditar(banco.procurarConta("1"), 2);
+		banco.creditar(banco.procurarConta("1"), 3);
+		esperarRelogio();
+		banco.creditar(banco.procurarConta("1"), 4);
+
+		List<Lancamento> todos = banco.extrato("1", 0, Long.MAX_VALUE);
+		assertEquals(4, todos.size());
+		long meio = todos.get(1).getInstante();
+		assertEquals(meio, todos.get(2).getInstante());
+
+		List<Lancamento> periodo = banco.extrato("1", meio, meio);
+		assertEquals(2, periodo.size());
+		assertEquals(2, periodo.get(0).getValor(), 0);
+		assertEquals(3, periodo.get(1).getValor(), 0);
+		assertEquals(3, banco.extrato("1", meio, Long.MAX_VALUE).size());
+		assertEquals(0, banco.extrato("1", 0, todos.get(0).getInstante() - 1)
+				.size());
+		assertEquals(0, banco.extrato("9", 0, Long.MAX_VALUE).size());
+	}
+
+	@Test
+	public void testeLoteEFechamentoGeramLancamentos() throws Exception {
+		List<Transferencia> lote = new ArrayList<Transferencia>();
+		lote.add(new Transferencia("1", "2", 10));
+		lote.add(new Transferencia("1", "9", 10));
+		lote.add(new Transferencia("2", "3", 20));
+		assertEquals(2, banco.transferirLote(lote));
+		banco.fecharMes();
+
+		List<Lancamento> extrato = banco.extrato("2", 0, Long.MAX_VALUE);
+		assertEquals(3, extrato.size());
+		assertEquals(Lancamento.Tipo.TRANSFERENCIA_RECEBIDA, extrato.get(0)
+				.getTipo());
+		assertEquals(110, extrato.get(0).getSaldo(), 0);
+		assertEquals(Lancamento.Tipo.TRANSFERENCIA_ENVIADA, extrato.get(1)
+				.getTipo());
+		assertEquals(90, extrato.get(1).getSaldo(), 0);
+		assertEquals(Lancamento.Tipo.JUROS, extrato.get(2).getTipo());
+		assertEquals(45, extrato.get(2).getValor(), 0);
+		assertEquals(135, extrato.get(2).getSaldo(), 0);
+
+		extrato = banco.extrato("3", 0, Long.MAX_VALUE);
+		assertEquals(Lancamento.Tipo.BONUS, extrato.get(1).getTipo());
+		assertEquals(0.2, extrato.get(1).getValor(), 1e-9);
+	}
+
+	@Test
+	public void testeReaberturaReconstroiIndice() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			banco.creditar(banco.procurarConta(i % 2 == 0 ? "1" : "3"), i);
+		}
+		lancamentos.fechar();
+
+		// registro incompleto no fim do segmento e descartado
+		File segmento = diretorio.listFiles()[0];
+		long tamanho = segmento.length();
+		try (RandomAccessFile raf = new RandomAccessFile(segmento, "rw")) {
+			raf.seek(tamanho);
+			raf.writeInt(40);
+			raf.writeLong(0);
+		}
+
+		lancamentos = new RepositorioLancamentosArquivo(diretorio,
+				RepositorioLancamentosArquivo.TAMANHO_SEGMENTO);
+		assertEquals(tamanho, segmento.length());
+		List<Lancamento> extrato = lancamentos.extrato("3", 0, Long.MAX_VALUE);
+		assertEquals(50, extrato.size());
+		assertEquals(99, extrato.get(49).getValor(), 0);
+
+		Lancamento novo = lancamentos.registrar("1", Lancamento.Tipo.DEBITO,
+				5, 0, null);
+		assertTrue(novo.getInstante() >= extrato.get(49).getInstante());
+		assertEquals(51, lancamentos.extrato("1", 0, Long.MAX_VALUE).size());
+	}
+
+	@Test
+	public void testeSegmentos() throws Exception {
+		lancamentos.fechar();
+		lancamentos = new RepositorioLancamentosArquivo(diretorio, 1000);
+		for (int i = 0; i < 500; i++) {
+			lancamentos.registrar(String.valueOf(i % 7),
+					Lancamento.Tipo.CREDITO, i, i, null);
+		}
+		lancamentos.sincronizar();
+		assertTrue(diretorio.listFiles().length > 10);
+		for (File f : diretorio.listFiles()) {
+			assertTrue(f.length() <= 1000);
+		}
+
+		lancamentos.fechar();
+		lancamentos = new RepositorioLancamentosArquivo(diretorio, 1000);
+		List<Lancamento> extrato = lancamentos.extrato("3", 0, Long.MAX_VALUE);
+		assertEquals(71, extrato.size());
+		for (int i = 0; i < extrato.size(); i++) {
+			assertEquals(3 + 7 * i, extrato.get(i).getValor(), 0);
+		}
+	}
+
+	/**
+	 * Os segmentos fechados tem indice em disco; um indice que falta ou nao
+	 * corresponde ao segmento e reconstruido na abertura.
+	 */
+	@Test
+	public void testeIndicesDosSegmentosFechados() throws Exception {
+		lancamentos.fechar();
+		lancamentos = new RepositorioLancamentosArquivo(diretorio, 1000);
+		long meio = 0;
+		for (int i = 0; i < 400; i++) {
+			if (i == 200) {
+				esperarRelogio();
+				meio = lancamentos.registrar("5", Lancamento.Tipo.CREDITO, i,
+						i, null).getInstante();
+				continue;
+			}
+			lancamentos.registrar(String.valueOf(i % 7),
+					Lancamento.Tipo.CREDITO, i, i, null);
+		}
+		List<Lancamento> antes = lancamentos.extrato("5", meio, Long.MAX_VALUE);
+		assertEquals(200, antes.get(0).getValor(), 0);
+		assertEquals(30, antes.size());
+		lancamentos.fechar();
+
+		File[] indices = diretorio.listFiles((d, nome) -> nome.endsWith(".idx"));
+		File[] segmentos = diretorio.listFiles((d, nome) -> nome.endsWith(".seg"));
+		assertEquals(segmentos.length - 1, indices.length);
+		java.util.Arrays.sort(indices);
+		assertTrue(indices[0].delete());
+		try (RandomAccessFile raf = new RandomAccessFile(indices[1], "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+
+		lancamentos = new RepositorioLancamentosArquivo(diretorio, 1000);
+		assertTrue(indices[0].exists());
+		assertEquals(antes.size(),
+				lancamentos.extrato("5", meio, Long.MAX_VALUE).size());
+		List<Lancamento> todos = lancamentos.extrato("3", 0, Long.MAX_VALUE);
+		assertEquals(57, todos.size());
+		for (int i = 0; i < todos.size(); i++) {
+			assertEquals(3 + 7 * i, todos.get(i).getValor(), 0);
+		}
+		assertEquals(0, lancamentos.extrato("x", 0, Long.MAX_VALUE).size());
+	}
+
+	/**
+	 * Um erro no repositorio de lancamentos depois de gravada a
+	 * transferencia nao faz a transferencia parecer falha.
+	 */
+	@Test
+	public void testeFalhaNoLancamentoNaoDesfazOperacao() throws Exception {
+		IRepositorioLancamentos falho = new IRepositorioLancamentos() {
+
+			@Override
+			public Lancamento registrar(String conta, Lancamento.Tipo tipo,
+					double valor, double saldo, String contrapartida)
+					throws RepositorioException {
+				throw new RepositorioException("Falha simulada");
+			}
+
+			@Override
+			public List<Lancamento> extrato(String conta, long inicio,
+					long fim) {
+				return new ArrayList<Lancamento>();
+			}
+		};
+		Metricas metricas = new Metricas();
+		RepositorioContasHash contas = new RepositorioContasHash();
+		Banco banco = new Banco(new RepositorioClientesHash(), contas, falho,
+				metricas);
+		banco.cadastrar(new Conta("1", 100));
+		banco.cadastrar(new Conta("2", 100));
+		assertNull(banco.getFalhaLancamentos());
+
+		banco.transferir(banco.procurarConta("1"), banco.procurarConta("2"), 30);
+
+		assertEquals(70, contas.procurar("1").getSaldo(), 0);
+		assertEquals(130, contas.procurar("2").getSaldo(), 0);
+		assertTrue(banco.getFalhaLancamentos() != null);
+		assertEquals(2, metricas.operacao("banco.lancar").getErros());
+		assertEquals(0, metricas.operacao("banco.transferir").getErros());
+	}
+}
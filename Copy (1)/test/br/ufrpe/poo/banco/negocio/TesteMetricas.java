@@ -0,0 +1,170 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.ContaNaoEncontradaException;
+import br.ufrpe.poo.banco.exceptions.RenderJurosPoupancaException;
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+import br.ufrpe.poo.banco.exceptions.ValorInvalidoException;
+
+public class TesteMetricas {
+
+	private Metricas metricas;
+
+	private Banco banco;
+
+	@Before
+	public void criarBanco() throws Exception {
+		metricas = new Metricas();
+		banco = new Banco(new RepositorioClientesHash(),
+				new RepositorioContasHash(), null, metricas);
+		banco.cadastrar(new Conta("1", 100));
+		banco.cadastrar(new Conta("2", 100));
+		banco.cadastrar(new Poupanca("3", 100));
+	}
+
+	@Test
+	public void testePercentis() {
+		HistogramaLatencia h = new HistogramaLatencia();
+		assertEquals(0, h.percentil(99));
+		for (long i = 1; i <= 10000; i++) {
+			h.registrar(i * 1000);
+		}
+		assertEquals(10000, h.getTotal());
+		assertEquals(5000500, h.getMedia(), 0.001);
+		assertEquals(10000000, h.getMaximo());
+		// erro relativo de no maximo 1/32
+		assertEquals(5000000, h.percentil(50), 5000000 / 32);
+		assertEquals(9900000, h.percentil(99), 9900000 / 32);
+		assertEquals(10000000, h.percentil(100));
+		assertEquals(1000, h.percentil(0), 1000 / 32);
+
+		h.registrar(5);
+		h.registrar(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, h.getMaximo());
+		h.zerar();
+		assertEquals(0, h.getTotal());
+		assertEquals(0, h.percentil(50));
+	}
+
+	@Test
+	public void testeValoresPequenosExatos() {
+		HistogramaLatencia h = new HistogramaLatencia();
+		for (long i = 0; i < 64; i++) {
+			h.registrar(i);
+		}
+		assertEquals(31, h.percentil(50));
+		assertEquals(63, h.percentil(100));
+	}
+
+	@Test
+	public void testeContaChamadasEErrosPorTipo() throws Exception {
+		ContaAbstrata c1 = banco.procurarConta("1");
+		ContaAbstrata c2 = banco.procurarConta("2");
+		banco.creditar(c1, 10);
+		banco.debitar(c1, 10);
+		banco.transferir(c1, c2, 50);
+		try {
+			banco.transferir(c1, c2, 500);
+			fail();
+		} catch (SaldoInsuficienteException e) {
+		}
+		try {
+			banco.debitar(new Conta("9", 0), 1);
+			fail();
+		} catch (ContaNaoEncontradaException e) {
+		}
+		try {
+			banco.debitar(c1, -1);
+			fail();
+		} catch (ValorInvalidoException e) {
+		}
+		try {
+			banco.renderJuros(c1);
+			fail();
+		} catch (RenderJurosPoupancaException e) {
+		}
+		banco.renderJuros(banco.procurarConta("3"));
+
+		MetricasOperacao transferir = metricas.operacao("banco.transferir");
+		assertEquals(2, transferir.getChamadas());
+		assertEquals(1, transferir.getErros());
+		assertEquals(1, transferir.getErros(SaldoInsuficienteException.class));
+		assertEquals(50, c1.getSaldo(), 0);
+
+		MetricasOperacao debitar = metricas.operacao("banco.debitar");
+		assertEquals(3, debitar.getChamadas());
+		assertEquals(2, debitar.getErros());
+		assertEquals(Long.valueOf(1),
+				debitar.getErrosPorTipo().get("ContaNaoEncontradaException"));
+		assertEquals(Long.valueOf(1),
+				debitar.getErrosPorTipo().get("ValorInvalidoException"));
+
+		assertEquals(1, metricas.operacao("banco.creditar").getChamadas());
+		assertEquals(0, metricas.operacao("banco.creditar").getErros());
+		assertEquals(2, metricas.operacao("banco.renderJuros").getChamadas());
+		assertEquals(1, metricas.operacao("banco.renderJuros").getErros());
+
+		String relatorio = metricas.relatorio();
+		assertTrue(relatorio.contains("banco.transferir"));
+		assertTrue(relatorio.contains("SaldoInsuficienteException"));
+
+		metricas.zerar();
+		assertEquals(0, transferir.getChamadas());
+		assertEquals(0, transferir.getErros());
+	}
+
+	@Test
+	public void testeJmx() throws Exception {
+		MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+		banco.creditar(banco.procurarConta("1"), 1);
+		metricas.registrarJmx();
+		try {
+			ObjectName nome = metricas.nomeJmx("banco.creditar");
+			assertEquals(1L, servidor.getAttribute(nome, "Chamadas"));
+			metricas.operacao("teste.nova");
+			assertTrue(servidor.isRegistered(metricas.nomeJmx("teste.nova")));
+		} finally {
+			metricas.removerJmx();
+		}
+		assertFalse(servidor.isRegistered(metricas.nomeJmx("banco.creditar")));
+	}
+
+	/**
+	 * Um registro so retira do servidor JMX as operacoes que ele registrou.
+	 */
+	@Test
+	public void testeJmxNaoRetiraOutroRegistro() throws Exception {
+		MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+		Metricas primeiro = new Metricas("teste-jmx");
+		Metricas segundo = new Metricas("teste-jmx");
+		primeiro.operacao("op").registrar(System.nanoTime(), null);
+		segundo.operacao("op");
+		primeiro.registrarJmx();
+		try {
+			segundo.registrarJmx();
+			segundo.removerJmx();
+			ObjectName nome = primeiro.nomeJmx("op");
+			assertTrue(servidor.isRegistered(nome));
+			assertEquals(1L, servidor.getAttribute(nome, "Chamadas"));
+		} finally {
+			primeiro.removerJmx();
+		}
+		assertFalse(servidor.isRegistered(primeiro.nomeJmx("op")));
+		assertFalse(metricas.nomeJmx("op").equals(
+				Metricas.getPadrao().nomeJmx("op")));
+	}
+}
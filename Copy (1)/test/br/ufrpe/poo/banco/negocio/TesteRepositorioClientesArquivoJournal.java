@@ -0,0 +1,133 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesArquivoJournal;
+
+public class TesteRepositorioClientesArquivoJournal {
+
+	/** Diretorio dos arquivos do journal, apagado ao fim de cada teste. */
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	private RepositorioClientesArquivoJournal abrir() throws Exception {
+		return new RepositorioClientesArquivoJournal(pasta.getRoot());
+	}
+
+	private File arquivo(String nome) {
+		return new File(pasta.getRoot(), nome);
+	}
+
+	private static Cliente cliente(String nome, String cpf, String... contas)
+			throws Exception {
+		Cliente c = new Cliente(nome, cpf);
+		for (String numero : contas) {
+			c.adicionarConta(numero);
+		}
+		return c;
+	}
+
+	/**
+	 * A recuperacao le o snapshot e aplica por cima dele os registros
+	 * gravados depois.
+	 */
+	@Test
+	public void testeSnapshotMaisLog() throws Exception {
+		File snapshot = arquivo(
+				RepositorioClientesArquivoJournal.ARQUIVO_SNAPSHOT);
+		File log = arquivo(RepositorioClientesArquivoJournal.ARQUIVO_LOG);
+		RepositorioClientesArquivoJournal clientes = abrir();
+		clientes.inserir(cliente("Ana", "1", "10", "11"));
+		clientes.inserir(cliente("Bia", "2"));
+		clientes.inserir(cliente("Caio", "3", "30"));
+		clientes.compactar();
+		clientes.fechar();
+		clientes = abrir();
+		assertTrue(snapshot.exists());
+		assertEquals(0, log.length());
+
+		Cliente ana = clientes.procurar("1");
+		ana.setNome("Ana Maria");
+		ana.removerConta("10");
+		clientes.atualizar(ana);
+		clientes.remover("3");
+		clientes.inserir(cliente("Davi", "4", "40"));
+		clientes.fechar();
+		clientes = abrir();
+
+		assertEquals("Ana Maria", clientes.procurar("1").getNome());
+		assertEquals(Arrays.asList("11"), clientes.procurar("1").getContas());
+		assertTrue(clientes.procurar("2").getContas().isEmpty());
+		assertNull(clientes.procurar("3"));
+		assertNull(clientes.procurarTitular("30"));
+		assertEquals("4", clientes.procurarTitular("40").getCpf());
+		assertEquals(3, clientes.stream().count());
+		clientes.fechar();
+	}
+
+	/**
+	 * Um registro incompleto no fim do log e descartado e o log e truncado,
+	 * de modo que os registros seguintes sao lidos na proxima recuperacao.
+	 */
+	@Test
+	public void testeRegistroIncompletoNoFimDoLog() throws Exception {
+		File log = arquivo(RepositorioClientesArquivoJournal.ARQUIVO_LOG);
+		RepositorioClientesArquivoJournal clientes = abrir();
+		clientes.inserir(cliente("Ana", "1", "10"));
+		clientes.fechar();
+		long valido = log.length();
+		try (FileOutputStream fos = new FileOutputStream(log, true)) {
+			fos.write(new byte[] { 0, 0, 0, 40, 'I', 0, 1, '2' });
+		}
+		clientes = abrir();
+		assertEquals(valido, log.length());
+		assertEquals(1, clientes.stream().count());
+
+		clientes.inserir(cliente("Bia", "2", "20"));
+		clientes.fechar();
+		clientes = abrir();
+		assertEquals(2, clientes.stream().count());
+		assertEquals("Bia", clientes.procurarTitular("20").getNome());
+		clientes.fechar();
+	}
+
+	/**
+	 * A compactacao substitui o snapshot, esvazia o log e apaga o log antigo,
+	 * sem mudar o estado recuperado.
+	 */
+	@Test
+	public void testeCompactacao() throws Exception {
+		File snapshot = arquivo(
+				RepositorioClientesArquivoJournal.ARQUIVO_SNAPSHOT);
+		File log = arquivo(RepositorioClientesArquivoJournal.ARQUIVO_LOG);
+		RepositorioClientesArquivoJournal clientes = abrir();
+		for (int i = 0; i < 100; i++) {
+			clientes.inserir(cliente("C" + i, String.valueOf(i), "c" + i));
+		}
+		for (int i = 0; i < 100; i += 2) {
+			clientes.remover(String.valueOf(i));
+		}
+		long antes = log.length();
+		clientes.compactar();
+		clientes.fechar();
+		clientes = abrir();
+		assertEquals(0, log.length());
+		assertFalse(new File(log.getPath() + ".antigo").exists());
+		assertTrue(snapshot.length() < antes);
+		assertEquals(50, clientes.stream().count());
+		assertEquals("C99", clientes.procurarTitular("c99").getNome());
+		assertNull(clientes.procurar("98"));
+		clientes.fechar();
+	}
+}
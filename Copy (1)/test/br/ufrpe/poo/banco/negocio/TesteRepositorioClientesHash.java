@@ -0,0 +1,124 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+
+public class TesteRepositorioClientesHash {
+
+	private static Cliente cliente(String cpf, String... contas)
+			throws Exception {
+		Cliente c = new Cliente("Cliente " + cpf, cpf);
+		for (String numero : contas) {
+			c.adicionarConta(numero);
+		}
+		return c;
+	}
+
+	/**
+	 * Com dois clientes na mesma conta, remover um deles deixa o outro como
+	 * titular.
+	 */
+	@Test
+	public void testeContaComDoisTitulares() throws Exception {
+		RepositorioClientesHash clientes = new RepositorioClientesHash();
+		clientes.inserir(cliente("1", "10", "11"));
+		clientes.inserir(cliente("2", "10"));
+		clientes.inserir(cliente("3", "10"));
+		assertEquals("1", clientes.procurarTitular("10").getCpf());
+
+		clientes.remover("1");
+		assertEquals("2", clientes.procurarTitular("10").getCpf());
+		assertNull(clientes.procurarTitular("11"));
+
+		Cliente dois = clientes.procurar("2");
+		dois.removerConta("10");
+		clientes.atualizar(dois);
+		assertEquals("3", clientes.procurarTitular("10").getCpf());
+
+		clientes.remover("3");
+		assertNull(clientes.procurarTitular("10"));
+	}
+
+	/**
+	 * Operacoes aleatorias comparadas com um modelo: o indice de cpf e o de
+	 * titulares respondem como uma busca por todos os clientes, inclusive
+	 * depois de o array crescer e de remocoes que movem o ultimo cliente.
+	 */
+	@Test
+	public void testeIndicesConsistentes() throws Exception {
+		Random aleatorio = new Random(7);
+		RepositorioClientesHash clientes = new RepositorioClientesHash();
+		Map<String, Set<String>> modelo = new HashMap<String, Set<String>>();
+		for (int passo = 0; passo < 20000; passo++) {
+			String cpf = String.valueOf(aleatorio.nextInt(300));
+			String numero = String.valueOf(aleatorio.nextInt(400));
+			int operacao = aleatorio.nextInt(10);
+			if (operacao < 4) {
+				Cliente novo = cliente(cpf, numero);
+				assertEquals(!modelo.containsKey(cpf), clientes.inserir(novo));
+				modelo.putIfAbsent(cpf, new HashSet<String>(novo.getContas()));
+			} else if (operacao < 5) {
+				assertEquals(modelo.remove(cpf) != null, clientes.remover(cpf));
+			} else {
+				Cliente c = clientes.procurar(cpf);
+				if (c == null) {
+					assertFalse(clientes.atualizar(cliente(cpf)));
+					continue;
+				}
+				if (operacao < 8) {
+					// alterado no proprio objeto, como faz o Banco
+					if (c.procurarConta(numero) == -1)
+						c.adicionarConta(numero);
+					else
+						c.removerConta(numero);
+				} else {
+					c = cliente(cpf, numero);
+				}
+				assertTrue(clientes.atualizar(c));
+				modelo.put(cpf, new HashSet<String>(c.getContas()));
+			}
+			if (passo % 100 == 0)
+				verificar(clientes, modelo);
+		}
+		verificar(clientes, modelo);
+	}
+
+	private static void verificar(RepositorioClientesHash clientes,
+			Map<String, Set<String>> modelo) {
+		assertEquals(modelo.size(), clientes.stream().count());
+		Map<String, Set<String>> titulares = new HashMap<String, Set<String>>();
+		for (Map.Entry<String, Set<String>> e : modelo.entrySet()) {
+			Cliente c = clientes.procurar(e.getKey());
+			assertNotNull(c);
+			assertTrue(clientes.existe(e.getKey()));
+			assertEquals(e.getValue(), new HashSet<String>(c.getContas()));
+			for (String numero : e.getValue()) {
+				titulares.computeIfAbsent(numero, n -> new HashSet<String>())
+						.add(e.getKey());
+			}
+		}
+		for (int i = 0; i < 400; i++) {
+			String numero = String.valueOf(i);
+			Cliente titular = clientes.procurarTitular(numero);
+			Set<String> esperados = titulares.get(numero);
+			if (esperados == null)
+				assertNull(titular);
+			else
+				assertTrue(esperados.contains(titular.getCpf()));
+		}
+		assertNull(clientes.procurar("inexistente"));
+	}
+}
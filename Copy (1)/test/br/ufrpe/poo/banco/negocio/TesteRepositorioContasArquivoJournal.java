@@ -0,0 +1,305 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.JournalArquivo;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoJournal;
+import br.ufrpe.poo.banco.dados.TiposConta;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteRepositorioContasArquivoJournal {
+
+	private File diretorio = new File("teste-journal-contas");
+
+	private File snapshot = new File(diretorio,
+			RepositorioContasArquivoJournal.ARQUIVO_SNAPSHOT);
+
+	private File log = new File(diretorio,
+			RepositorioContasArquivoJournal.ARQUIVO_LOG);
+
+	private RepositorioContasArquivoJournal contas;
+
+	@Before
+	public void abrir() throws Exception {
+		apagarArquivos();
+		contas = new RepositorioContasArquivoJournal(diretorio);
+	}
+
+	@After
+	public void apagarArquivos() throws Exception {
+		if (contas != null)
+			contas.fechar();
+		contas = null;
+		File[] arquivos = diretorio.listFiles();
+		if (arquivos != null) {
+			for (File f : arquivos) {
+				f.delete();
+			}
+		}
+		diretorio.delete();
+	}
+
+	private void reabrir() throws Exception {
+		contas.fechar();
+		contas = new RepositorioContasArquivoJournal(diretorio);
+	}
+
+	@Test
+	public void testeArquivosNoDiretorio() throws Exception {
+		contas.inserir(new Conta("1", 10));
+		assertTrue(log.exists());
+		assertTrue(log.length() > 0);
+		reabrir();
+		assertEquals(10, contas.procurar("1").getSaldo(), 0);
+	}
+
+	/**
+	 * A recuperacao le o snapshot e aplica por cima dele os registros
+	 * gravados depois.
+	 */
+	@Test
+	public void testeSnapshotMaisLog() throws Exception {
+		contas.inserir(new Conta("1", 10));
+		contas.inserir(new Poupanca("2", 20));
+		contas.inserir(new ContaEspecial("3", 30));
+		contas.inserir(new ContaImposto("4", 40));
+		contas.compactar();
+		reabrir();
+		assertTrue(snapshot.exists());
+		assertEquals(0, log.length());
+
+		ContaAbstrata c = contas.procurar("1");
+		c.creditar(5);
+		contas.atualizar(c);
+		contas.remover("4");
+		contas.inserir(new Conta("5", 50));
+		ContaAbstrata p = contas.procurar("2");
+		p.creditar(1);
+		ContaAbstrata e = contas.procurar("3");
+		e.creditar(100);
+		contas.atualizarLote(Arrays.asList(p, e));
+		long tamanhoSnapshot = snapshot.length();
+		reabrir();
+
+		assertEquals(tamanhoSnapshot, snapshot.length());
+		assertEquals(15, contas.procurar("1").getSaldo(), 0);
+		assertEquals(Poupanca.class, contas.procurar("2").getClass());
+		assertEquals(21, contas.procurar("2").getSaldo(), 0);
+		ContaEspecial especial = (ContaEspecial) contas.procurar("3");
+		assertEquals(130, especial.getSaldo(), 0);
+		assertEquals(1, especial.getBonus(), 0);
+		assertNull(contas.procurar("4"));
+		assertEquals(50, contas.procurar("5").getSaldo(), 0);
+		assertEquals(4, contas.stream().count());
+	}
+
+	/**
+	 * Um registro incompleto no fim do log e descartado e o log e truncado,
+	 * de modo que os registros seguintes sao lidos na proxima recuperacao.
+	 */
+	@Test
+	public void testeRegistroIncompletoNoFimDoLog() throws Exception {
+		contas.inserir(new Conta("1", 10));
+		contas.inserir(new Conta("2", 20));
+		contas.fechar();
+		long valido = log.length();
+		try (FileOutputStream fos = new FileOutputStream(log, true)) {
+			// tamanho de um registro de 40 bytes, mas so 3 deles gravados
+			fos.write(new byte[] { 0, 0, 0, 40, 'A', 0, 1 });
+		}
+		contas = new RepositorioContasArquivoJournal(diretorio);
+		assertEquals(valido, log.length());
+		assertEquals(2, contas.stream().count());
+		assertEquals(20, contas.procurar("2").getSaldo(), 0);
+
+		contas.inserir(new Conta("3", 30));
+		reabrir();
+		assertEquals(3, contas.stream().count());
+		assertEquals(30, contas.procurar("3").getSaldo(), 0);
+	}
+
+	/**
+	 * Um prefixo de tamanho incompleto tambem e descartado.
+	 */
+	@Test
+	public void testeTamanhoIncompletoNoFimDoLog() throws Exception {
+		contas.inserir(new Conta("1", 10));
+		contas.fechar();
+		long valido = log.length();
+		try (FileOutputStream fos = new FileOutputStream(log, true)) {
+			fos.write(new byte[] { 0, 0 });
+		}
+		contas = new RepositorioContasArquivoJournal(diretorio);
+		assertEquals(valido, log.length());
+		assertEquals(10, contas.procurar("1").getSaldo(), 0);
+	}
+
+	/**
+	 * A compactacao substitui o snapshot, esvazia o log e apaga o log antigo,
+	 * sem mudar o estado recuperado.
+	 */
+	@Test
+	public void testeCompactacao() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			contas.inserir(new Conta(String.valueOf(i), i));
+		}
+		for (int i = 0; i < 100; i += 2) {
+			contas.remover(String.valueOf(i));
+		}
+		long antes = log.length();
+		contas.compactar();
+		reabrir();
+		assertEquals(0, log.length());
+		assertFalse(new File(log.getPath() + ".antigo").exists());
+		assertFalse(new File(snapshot.getPath() + ".tmp").exists());
+		assertTrue(snapshot.length() < antes);
+		assertEquals(50, contas.stream().count());
+		assertEquals(99, contas.procurar("99").getSaldo(), 0);
+		assertNull(contas.procurar("98"));
+
+		// uma segunda compactacao substitui o snapshot anterior
+		contas.remover("99");
+		contas.compactar();
+		reabrir();
+		assertEquals(49, contas.stream().count());
+		assertNull(contas.procurar("99"));
+	}
+
+	/**
+	 * Se a queda ocorre antes do fim da gravacao do snapshot, o log antigo
+	 * ainda existe e e lido depois do snapshot anterior.
+	 */
+	@Test
+	public void testeCompactacaoInterrompida() throws Exception {
+		contas.inserir(new Conta("1", 10));
+		contas.compactar();
+		reabrir();
+		ContaAbstrata c = contas.procurar("1");
+		c.creditar(5);
+		contas.atualizar(c);
+		contas.inserir(new Conta("2", 20));
+		contas.fechar();
+		// simula a troca do log feita pela compactacao, sem o snapshot novo
+		assertTrue(log.renameTo(new File(log.getPath() + ".antigo")));
+
+		contas = new RepositorioContasArquivoJournal(diretorio);
+		assertEquals(15, contas.procurar("1").getSaldo(), 0);
+		assertEquals(20, contas.procurar("2").getSaldo(), 0);
+		contas.compactar();
+		reabrir();
+		assertFalse(new File(log.getPath() + ".antigo").exists());
+		assertEquals(15, contas.procurar("1").getSaldo(), 0);
+		assertEquals(2, contas.stream().count());
+	}
+
+	/**
+	 * Um registro incompleto no fim do log antigo tambem e truncado, porque a
+	 * proxima compactacao acrescenta o log atual ao fim dele.
+	 */
+	@Test
+	public void testeRegistroIncompletoNoFimDoLogAntigo() throws Exception {
+		File antigo = new File(log.getPath() + ".antigo");
+		contas.inserir(new Conta("1", 10));
+		contas.fechar();
+		long valido = log.length();
+		try (FileOutputStream fos = new FileOutputStream(log, true)) {
+			fos.write(new byte[] { 0, 0, 0, 40, 'A', 0, 1 });
+		}
+		assertTrue(log.renameTo(antigo));
+
+		contas = new RepositorioContasArquivoJournal(diretorio);
+		assertEquals(valido, antigo.length());
+		contas.inserir(new Conta("2", 20));
+		contas.fechar();
+		// simula a compactacao que acrescenta o log ao antigo e cai antes do
+		// snapshot
+		try (FileOutputStream fos = new FileOutputStream(antigo, true)) {
+			Files.copy(log.toPath(), fos);
+		}
+		assertTrue(log.delete());
+
+		contas = new RepositorioContasArquivoJournal(diretorio);
+		assertEquals(10, contas.procurar("1").getSaldo(), 0);
+		assertEquals(20, contas.procurar("2").getSaldo(), 0);
+	}
+
+	/**
+	 * Um erro na gravacao do snapshot em segundo plano nao e levantado pelas
+	 * escritas e compactacoes seguintes, so por <code>fechar</code>, e os
+	 * registros continuam no log antigo.
+	 */
+	@Test
+	public void testeErroDaCompactacaoNaoFalhaEscritas() throws Exception {
+		contas.fechar();
+		contas = null;
+		JournalArquivo journal = new JournalArquivo(snapshot, log);
+		journal.recuperar(r -> {
+		});
+		gravar(journal, "1", 10);
+		// um diretorio com conteudo no lugar do snapshot impede a troca
+		assertTrue(snapshot.mkdir());
+		File bloqueio = new File(snapshot, "bloqueio");
+		try {
+			assertTrue(bloqueio.createNewFile());
+			assertTrue(journal.compactar(semRegistros()));
+			while (journal.isCompactando())
+				Thread.sleep(10);
+			assertNotNull(journal.getErroCompactacao());
+
+			gravar(journal, "2", 20);
+			assertTrue(journal.compactar(semRegistros()));
+			gravar(journal, "3", 30);
+			try {
+				journal.fechar();
+				fail();
+			} catch (RepositorioException e) {
+			}
+		} finally {
+			bloqueio.delete();
+			snapshot.delete();
+		}
+		contas = new RepositorioContasArquivoJournal(diretorio);
+		assertEquals(3, contas.stream().count());
+		assertEquals(30, contas.procurar("3").getSaldo(), 0);
+	}
+
+	private static void gravar(JournalArquivo journal, String numero,
+			double saldo) throws Exception {
+		DataOutputStream registro = journal.novoRegistro();
+		registro.writeByte('I');
+		registro.writeUTF(numero);
+		registro.writeByte(TiposConta.CONTA);
+		registro.writeDouble(saldo);
+		registro.writeDouble(0);
+		journal.gravarRegistro();
+	}
+
+	private static JournalArquivo.EscritorSnapshot semRegistros() {
+		return new JournalArquivo.EscritorSnapshot() {
+
+			@Override
+			public int total() {
+				return 0;
+			}
+
+			@Override
+			public void escrever(int i, DataOutputStream registro) {
+			}
+		};
+	}
+}
@@ -0,0 +1,147 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoMapeado;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+
+public class TesteRepositorioContasArquivoMapeado {
+
+	private File arquivo = new File("teste-contas.map");
+
+	private RepositorioContasArquivoMapeado contas;
+
+	@After
+	public void apagarArquivo() throws Exception {
+		if (contas != null)
+			contas.fechar();
+		contas = null;
+		arquivo.delete();
+	}
+
+	private void reabrir() throws Exception {
+		contas.fechar();
+		contas = new RepositorioContasArquivoMapeado(arquivo);
+	}
+
+	private void abrirInvalido(byte[] conteudo) throws Exception {
+		try (FileOutputStream fos = new FileOutputStream(arquivo)) {
+			fos.write(conteudo);
+		}
+		try {
+			new RepositorioContasArquivoMapeado(arquivo);
+			fail();
+		} catch (RepositorioException e) {
+		}
+		// o arquivo invalido nao e estendido nem alterado
+		assertArrayEquals(conteudo, Files.readAllBytes(arquivo.toPath()));
+	}
+
+	@Test
+	public void testeArquivoMenorQueCabecalho() throws Exception {
+		abrirInvalido("contas".getBytes("UTF-8"));
+	}
+
+	@Test
+	public void testeAssinaturaInvalida() throws Exception {
+		byte[] conteudo = new byte[16 + 56];
+		conteudo[0] = 'x';
+		abrirInvalido(conteudo);
+	}
+
+	@Test
+	public void testeGravacaoERecuperacao() throws Exception {
+		contas = new RepositorioContasArquivoMapeado(arquivo);
+		contas.inserir(new Conta("1", 10));
+		contas.inserir(new Poupanca("2", 20));
+		contas.inserir(new ContaEspecial("3", 30));
+		contas.inserir(new ContaImposto("4", 40));
+		ContaAbstrata c = contas.procurar("3");
+		c.creditar(100);
+		contas.atualizar(c);
+		contas.remover("1");
+		reabrir();
+
+		assertNull(contas.procurar("1"));
+		assertEquals(Poupanca.class, contas.procurar("2").getClass());
+		assertEquals(20, contas.procurar("2").getSaldo(), 0);
+		assertEquals(130, contas.procurar("3").getSaldo(), 0);
+		assertEquals(1, ((ContaEspecial) contas.procurar("3")).getBonus(), 0);
+		assertEquals(ContaImposto.class, contas.procurar("4").getClass());
+
+		// o registro removido e reutilizado sem aumentar o contador
+		long tamanho = arquivo.length();
+		contas.inserir(new Conta("5", 50));
+		reabrir();
+		assertEquals(tamanho, arquivo.length());
+		assertEquals(50, contas.procurar("5").getSaldo(), 0);
+		assertEquals(4, contas.stream().count());
+		try (RandomAccessFile raf = new RandomAccessFile(arquivo, "r")) {
+			raf.seek(8);
+			assertEquals(4, raf.readInt());
+		}
+	}
+
+	/**
+	 * Um numero longo demais nao deixa registro contado no cabecalho.
+	 */
+	@Test
+	public void testeInsercaoRecusadaNaoContaRegistro() throws Exception {
+		contas = new RepositorioContasArquivoMapeado(arquivo);
+		contas.inserir(new Conta("1", 10));
+		try {
+			contas.inserir(new Conta("123456789012345678901234567890123", 1));
+			fail();
+		} catch (RepositorioException e) {
+		}
+		reabrir();
+		try (RandomAccessFile raf = new RandomAccessFile(arquivo, "r")) {
+			raf.seek(8);
+			assertEquals(1, raf.readInt());
+		}
+		assertEquals(1, contas.stream().count());
+	}
+
+	@Test
+	public void testeIteradorPercorreRegistros() throws Exception {
+		contas = new RepositorioContasArquivoMapeado(arquivo);
+		for (int i = 0; i < 3000; i++) {
+			contas.inserir(new Conta(String.valueOf(i), i));
+		}
+		for (int i = 0; i < 3000; i += 3) {
+			contas.remover(String.valueOf(i));
+		}
+		reabrir();
+		IteratorContaAbstrata it = contas.getIterator();
+		Set<String> vistos = new HashSet<String>();
+		double soma = 0;
+		while (it.hasNext()) {
+			ContaAbstrata c = it.next();
+			assertTrue(vistos.add(c.getNumero()));
+			soma += c.getSaldo();
+			// a conta devolvida e a mesma de procurar
+			assertTrue(c == contas.procurar(c.getNumero()));
+		}
+		assertNull(it.next());
+		assertFalse(it.hasNext());
+		assertEquals(2000, vistos.size());
+		assertFalse(vistos.contains("0"));
+		assertEquals(2999L * 3000 / 2 - 2997L * 1000 / 2, soma, 0);
+	}
+}
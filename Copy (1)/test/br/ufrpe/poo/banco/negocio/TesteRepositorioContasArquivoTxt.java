@@ -0,0 +1,301 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoTxt;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteRepositorioContasArquivoTxt {
+
+	private File arquivo = new File("teste-contas.txt");
+
+	@After
+	public void apagarArquivo() {
+		arquivo.delete();
+	}
+
+	private void escrever(String conteudo) throws Exception {
+		try (FileOutputStream fos = new FileOutputStream(arquivo)) {
+			fos.write(conteudo.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testeLeituraDosQuatroTipos() throws Exception {
+		escrever("0 1 10.5\n1 2 20\r\n\n  2\t3 -0.25 \n3 4 1.0E7 2.5\n3 5 7");
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo);
+		assertEquals(Conta.class, contas.procurar("1").getClass());
+		assertEquals(10.5, contas.procurar("1").getSaldo(), 0);
+		assertEquals(Poupanca.class, contas.procurar("2").getClass());
+		assertEquals(ContaImposto.class, contas.procurar("3").getClass());
+		assertEquals(-0.25, contas.procurar("3").getSaldo(), 0);
+		ContaEspecial especial = (ContaEspecial) contas.procurar("4");
+		assertEquals(1.0E7, especial.getSaldo(), 0);
+		assertEquals(2.5, especial.getBonus(), 0);
+		assertEquals(0, ((ContaEspecial) contas.procurar("5")).getBonus(), 0);
+	}
+
+	@Test
+	public void testeGravacaoMantemTipoEBonus() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo);
+		ContaEspecial especial = new ContaEspecial("1", 100);
+		especial.creditar(50);
+		contas.inserir(especial);
+		contas.inserir(new Poupanca("2", 20));
+		contas.inserir(new ContaImpostoCentavos("3", 30.1));
+		contas.inserir(new Conta("Conta-\u00e7\u00e3o", 40));
+
+		contas = new RepositorioContasArquivoTxt(arquivo);
+		assertEquals(0.5, ((ContaEspecial) contas.procurar("1")).getBonus(), 0);
+		assertEquals(30.1, contas.procurar("3").getSaldo(), 0);
+		assertTrue(contas.procurar("3") instanceof ContaImpostoCentavos);
+		assertTrue(contas.existe("Conta-\u00e7\u00e3o"));
+
+		// atualizar regrava o arquivo inteiro
+		ContaAbstrata poupanca = contas.procurar("2");
+		poupanca.creditar(1);
+		contas.atualizar(poupanca);
+		contas = new RepositorioContasArquivoTxt(arquivo);
+		assertEquals(ContaEspecial.class, contas.procurar("1").getClass());
+		assertEquals(0.5, ((ContaEspecial) contas.procurar("1")).getBonus(), 0);
+		assertEquals(Poupanca.class, contas.procurar("2").getClass());
+		assertEquals(21, contas.procurar("2").getSaldo(), 0);
+	}
+
+	@Test
+	public void testeSaldosLidosComoParseDouble() throws Exception {
+		Random r = new Random(42);
+		StringBuilder sb = new StringBuilder();
+		double[] saldos = new double[2000];
+		for (int i = 0; i < saldos.length; i++) {
+			switch (i % 4) {
+			case 0:
+				saldos[i] = r.nextInt(10000000) / 100.0;
+				break;
+			case 1:
+				saldos[i] = r.nextDouble() * 1e12;
+				break;
+			case 2:
+				saldos[i] = r.nextLong() / 1e3;
+				break;
+			default:
+				saldos[i] = r.nextGaussian();
+			}
+			sb.append("0 ").append(i).append(' ').append(saldos[i]).append('\n');
+		}
+		escrever(sb.toString());
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo);
+		for (int i = 0; i < saldos.length; i++) {
+			assertEquals(Double.doubleToLongBits(saldos[i]),
+					Double.doubleToLongBits(contas.procurar(String.valueOf(i))
+							.getSaldo()));
+		}
+	}
+
+	@Test(expected = RepositorioException.class)
+	public void testeLinhaIncompleta() throws Exception {
+		escrever("0 1 10\n1 2\n");
+		new RepositorioContasArquivoTxt(arquivo);
+	}
+
+	@Test(expected = RepositorioException.class)
+	public void testeTipoInvalido() throws Exception {
+		escrever("x 1 10\n");
+		new RepositorioContasArquivoTxt(arquivo);
+	}
+
+	@Test
+	public void testeLarguraFixaAtualizaNoLugar() throws Exception {
+		escrever("0 1 10\n3 2 20 0.5\n1 3 30\n");
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo, true);
+		// arquivo no formato normal e convertido
+		assertEquals(3 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+
+		ContaAbstrata conta = contas.procurar("2");
+		conta.creditar(1000);
+		contas.atualizar(conta);
+		contas.remover("1");
+		assertEquals(3 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+		contas.inserir(new Poupanca("4", 40));
+		contas.inserir(new Conta("5", 50));
+		assertEquals(4 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+		contas.fechar();
+
+		// o arquivo de largura fixa tambem e lido no modo normal
+		RepositorioContasArquivoTxt normal = new RepositorioContasArquivoTxt(
+				arquivo);
+		assertEquals(1020, normal.procurar("2").getSaldo(), 0);
+		assertEquals(10.5, ((ContaEspecial) normal.procurar("2")).getBonus(),
+				0);
+		assertFalse(normal.existe("1"));
+		assertTrue(normal.procurar("4") instanceof Poupanca);
+		assertEquals(4, normal.stream().count());
+
+		contas = new RepositorioContasArquivoTxt(arquivo, true);
+		contas.remover("5");
+		contas.inserir(new Conta("6", 60));
+		assertEquals(4 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+		contas.fechar();
+		assertEquals(60, new RepositorioContasArquivoTxt(arquivo)
+				.procurar("6").getSaldo(), 0);
+	}
+
+	@Test
+	public void testeLarguraFixaCompacta() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo, true);
+		for (int i = 0; i < 3000; i++) {
+			contas.inserir(new Conta(String.valueOf(i), i));
+		}
+		for (int i = 0; i < 2000; i++) {
+			contas.remover(String.valueOf(i));
+		}
+		// compactado automaticamente quando as removidas superam as contas
+		assertTrue(arquivo.length() < 3000
+				* RepositorioContasArquivoTxt.LARGURA_LINHA);
+		contas.compactar();
+		assertEquals(1000 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+		ContaAbstrata conta = contas.procurar("2999");
+		conta.debitar(1);
+		contas.atualizar(conta);
+		contas.fechar();
+
+		contas = new RepositorioContasArquivoTxt(arquivo, true);
+		assertEquals(1000, contas.stream().count());
+		assertEquals(2998, contas.procurar("2999").getSaldo(), 0);
+		contas.fechar();
+	}
+
+	/**
+	 * Um lote com mais de uma conta regrava o arquivo por inteiro, trocando-o
+	 * de forma atomica, e o repositorio continua escrevendo no arquivo novo.
+	 */
+	@Test
+	public void testeLarguraFixaLoteRegravaArquivo() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo, true);
+		contas.inserir(new Conta("1", 10));
+		contas.inserir(new Conta("2", 20));
+		contas.inserir(new Conta("3", 30));
+		contas.remover("1");
+		assertEquals(3 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+
+		ContaAbstrata origem = contas.procurar("2");
+		ContaAbstrata destino = contas.procurar("3");
+		origem.debitar(5);
+		destino.creditar(5);
+		assertEquals(2, contas.atualizarLote(Arrays.asList(origem, destino)));
+		// a linha removida foi eliminada pela regravacao
+		assertEquals(2 * RepositorioContasArquivoTxt.LARGURA_LINHA,
+				arquivo.length());
+		assertFalse(new File(arquivo.getPath() + ".tmp").exists());
+
+		contas.inserir(new Conta("4", 40));
+		destino.creditar(1);
+		contas.atualizar(destino);
+		contas.fechar();
+
+		contas = new RepositorioContasArquivoTxt(arquivo, true);
+		assertEquals(15, contas.procurar("2").getSaldo(), 0);
+		assertEquals(36, contas.procurar("3").getSaldo(), 0);
+		assertEquals(40, contas.procurar("4").getSaldo(), 0);
+		assertEquals(3, contas.stream().count());
+		contas.fechar();
+	}
+
+	@Test(expected = RepositorioException.class)
+	public void testeLarguraFixaNumeroLongo() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo, true);
+		try {
+			contas.inserir(new Conta("123456789012345678901", 1));
+		} finally {
+			assertFalse(contas.existe("123456789012345678901"));
+			contas.fechar();
+		}
+	}
+
+	@Test
+	public void testeContasConcorrentesMantemClasse() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo);
+		ContaEspecialConcorrente especial = new ContaEspecialConcorrente("1",
+				100);
+		especial.creditar(50);
+		contas.inserir(especial);
+		contas.inserir(new PoupancaConcorrente("2", 20));
+
+		contas = new RepositorioContasArquivoTxt(arquivo);
+		assertEquals(ContaEspecialConcorrente.class, contas.procurar("1")
+				.getClass());
+		assertEquals(0.5, ((ContaEspecial) contas.procurar("1")).getBonus(), 0);
+		assertEquals(PoupancaConcorrente.class, contas.procurar("2")
+				.getClass());
+	}
+
+	/**
+	 * Os codigos 10 e 11 cabem no caractere de tipo do modo de largura fixa,
+	 * em hexadecimal, e o arquivo continua legivel nos dois modos.
+	 */
+	@Test
+	public void testeLarguraFixaContasConcorrentes() throws Exception {
+		RepositorioContasArquivoTxt contas = new RepositorioContasArquivoTxt(
+				arquivo, true);
+		contas.inserir(new ContaConcorrente("1", 10));
+		contas.inserir(new PoupancaConcorrente("2", 20));
+		contas.inserir(new ContaImpostoConcorrente("3", 30));
+		ContaEspecialConcorrente especial = new ContaEspecialConcorrente("4",
+				0);
+		especial.creditar(100);
+		contas.inserir(especial);
+		contas.fechar();
+		byte[] bytes = Files.readAllBytes(arquivo.toPath());
+		assertEquals('a', bytes[2 * RepositorioContasArquivoTxt.LARGURA_LINHA]);
+		assertEquals('b', bytes[3 * RepositorioContasArquivoTxt.LARGURA_LINHA]);
+
+		for (boolean larguraFixa : new boolean[] { true, false }) {
+			contas = new RepositorioContasArquivoTxt(arquivo, larguraFixa);
+			assertEquals(ContaConcorrente.class, contas.procurar("1")
+					.getClass());
+			assertEquals(PoupancaConcorrente.class, contas.procurar("2")
+					.getClass());
+			assertEquals(ContaImpostoConcorrente.class, contas.procurar("3")
+					.getClass());
+			assertEquals(ContaEspecialConcorrente.class, contas.procurar("4")
+					.getClass());
+			assertEquals(1, ((ContaEspecial) contas.procurar("4")).getBonus(),
+					0);
+			contas.fechar();
+		}
+		// o modo normal grava os codigos em decimal, lidos pelos dois modos
+		contas = new RepositorioContasArquivoTxt(arquivo);
+		contas.remover("1");
+		contas = new RepositorioContasArquivoTxt(arquivo, true);
+		assertEquals(ContaEspecialConcorrente.class, contas.procurar("4")
+				.getClass());
+		assertFalse(contas.existe("1"));
+		contas.fechar();
+	}
+}
@@ -0,0 +1,132 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioContasCache;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteRepositorioContasCache {
+
+	/** Conta as consultas que chegam ao repositorio decorado. */
+	private static class ContasContadas extends RepositorioContasHash {
+
+		int consultas;
+
+		@Override
+		public ContaAbstrata procurar(String numero) {
+			this.consultas++;
+			return super.procurar(numero);
+		}
+	}
+
+	private ContasContadas contas;
+
+	private RepositorioContasCache cache;
+
+	@Before
+	public void criar() throws Exception {
+		contas = new ContasContadas();
+		for (int i = 0; i < 10; i++) {
+			contas.inserir(new Conta(String.valueOf(i), i));
+		}
+		cache = new RepositorioContasCache(contas, 3);
+	}
+
+	@Test
+	public void testeAcertosEFaltas() throws Exception {
+		cache.procurar("1");
+		cache.procurar("1");
+		cache.procurar("1");
+		assertNull(cache.procurar("x"));
+		assertNull(cache.procurar("x"));
+		assertEquals(2, cache.getAcertos());
+		assertEquals(3, cache.getFaltas());
+		assertEquals(3, contas.consultas);
+		assertEquals(1, cache.getTamanho());
+	}
+
+	@Test
+	public void testeDescartaMenosRecente() throws Exception {
+		cache.procurar("1");
+		cache.procurar("2");
+		cache.procurar("3");
+		cache.procurar("1");
+		cache.procurar("4");
+		assertEquals(1, cache.getDescartes());
+		assertEquals(3, cache.getTamanho());
+
+		contas.consultas = 0;
+		cache.procurar("1");
+		cache.procurar("3");
+		cache.procurar("4");
+		assertEquals(0, contas.consultas);
+		cache.procurar("2");
+		assertEquals(1, contas.consultas);
+		assertEquals(2, cache.getDescartes());
+	}
+
+	@Test
+	public void testeEscritaAtravesDoCache() throws Exception {
+		ContaAbstrata conta = cache.procurar("5");
+		Conta nova = new Conta("5", 500);
+		assertTrue(cache.atualizar(nova));
+		assertSame(nova, contas.procurar("5"));
+		contas.consultas = 0;
+		assertSame(nova, cache.procurar("5"));
+		assertEquals(0, contas.consultas);
+		assertFalse(conta == cache.procurar("5"));
+
+		assertTrue(cache.inserir(new Conta("20", 1)));
+		assertEquals(0, contas.consultas);
+		assertEquals(1, cache.procurar("20").getSaldo(), 0);
+		assertFalse(cache.atualizar(new Conta("30", 1)));
+		assertFalse(cache.existe("30"));
+	}
+
+	@Test
+	public void testeRemocaoInvalida() throws Exception {
+		cache.procurar("6");
+		assertTrue(cache.remover("6"));
+		assertNull(cache.procurar("6"));
+		assertFalse(cache.existe("6"));
+
+		cache.procurar("7");
+		cache.atualizarLote(Arrays.asList(new Conta("7", 70)));
+		assertEquals(70, cache.procurar("7").getSaldo(), 0);
+		assertEquals(9, cache.stream().count());
+	}
+
+	/**
+	 * Uma consulta feita enquanto o lote e gravado nao deixa o valor antigo
+	 * no cache.
+	 */
+	@Test
+	public void testeConsultaDuranteLote() throws Exception {
+		final RepositorioContasCache[] cacheLento = new RepositorioContasCache[1];
+		RepositorioContasHash lento = new RepositorioContasHash() {
+
+			@Override
+			public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+					throws RepositorioException {
+				cacheLento[0].procurar("7");
+				return super.atualizarLote(contas);
+			}
+		};
+		lento.inserir(new Conta("7", 7));
+		cacheLento[0] = new RepositorioContasCache(lento, 3);
+		Conta nova = new Conta("7", 70);
+		cacheLento[0].atualizarLote(Arrays.asList(nova));
+		assertSame(nova, cacheLento[0].procurar("7"));
+	}
+}
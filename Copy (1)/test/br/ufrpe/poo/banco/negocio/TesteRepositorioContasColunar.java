@@ -0,0 +1,114 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasColunar;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+
+public class TesteRepositorioContasColunar {
+
+	private RepositorioContasColunar contas;
+
+	@Before
+	public void criarRepositorio() throws Exception {
+		contas = new RepositorioContasColunar(2);
+		contas.inserir(new Conta("1", 100));
+		contas.inserir(new Poupanca("2", 200));
+		ContaEspecial especial = new ContaEspecial("3", 300);
+		especial.creditar(100);
+		contas.inserir(especial);
+		contas.inserir(new ContaImposto("4", 400));
+	}
+
+	@Test
+	public void testeProcurarCriaContaDoTipoGuardado() {
+		assertTrue(contas.procurar("2") instanceof Poupanca);
+		assertTrue(contas.procurar("4") instanceof ContaImposto);
+		ContaEspecial especial = (ContaEspecial) contas.procurar("3");
+		assertEquals(400, especial.getSaldo(), 0);
+		assertEquals(1, especial.getBonus(), 0);
+		assertNull(contas.procurar("5"));
+	}
+
+	@Test
+	public void testeAlteracaoSoValeDepoisDeAtualizar() throws Exception {
+		ContaAbstrata conta = contas.procurar("1");
+		conta.creditar(50);
+		assertEquals(100, contas.procurar("1").getSaldo(), 0);
+		assertTrue(contas.atualizar(conta));
+		assertEquals(150, contas.procurar("1").getSaldo(), 0);
+	}
+
+	@Test
+	public void testeRemoverMantemIndice() throws Exception {
+		assertTrue(contas.remover("1"));
+		assertFalse(contas.remover("1"));
+		assertEquals(3, contas.getTamanho());
+		assertEquals(400, contas.procurar("4").getSaldo(), 0);
+		int n = 0;
+		IteratorContaAbstrata it = contas.getIterator();
+		while (it.hasNext()) {
+			it.next();
+			n++;
+		}
+		assertEquals(3, n);
+	}
+
+	@Test
+	public void testeRenderJurosEmMassa() {
+		assertEquals(1, contas.renderJuros(0.5));
+		assertEquals(300, contas.procurar("2").getSaldo(), 0);
+		assertEquals(100, contas.procurar("1").getSaldo(), 0);
+	}
+
+	/**
+	 * Os juros das poupancas em centavos sao os mesmos de
+	 * <code>PoupancaCentavos.renderJuros</code>.
+	 */
+	@Test
+	public void testeRenderJurosEmMassaCentavos() throws Exception {
+		double[] saldos = { 2.5, 3.5, 0.01, 1234.57, 99999.99 };
+		for (int i = 0; i < saldos.length; i++) {
+			contas.inserir(new PoupancaCentavos("c" + i, saldos[i]));
+		}
+		assertEquals(1 + saldos.length, contas.renderJuros(0.005));
+		for (int i = 0; i < saldos.length; i++) {
+			PoupancaCentavos esperada = new PoupancaCentavos("c" + i,
+					saldos[i]);
+			esperada.renderJuros(0.005);
+			assertEquals(esperada.getSaldoCentavos(),
+					((SaldoEmCentavos) contas.procurar("c" + i))
+							.getSaldoCentavos());
+		}
+	}
+
+	@Test
+	public void testeRenderBonusEmMassa() {
+		assertEquals(1, contas.renderBonus());
+		ContaEspecial especial = (ContaEspecial) contas.procurar("3");
+		assertEquals(401, especial.getSaldo(), 0);
+		assertEquals(0, especial.getBonus(), 0);
+		assertEquals(100 + 200 + 401 + 400, contas.somarSaldos(0,
+				contas.getTamanho()), 0);
+	}
+
+	@Test
+	public void testeBancoComRepositorioColunar() throws Exception {
+		Banco banco = new Banco(new RepositorioClientesHash(), contas);
+		banco.creditar(banco.procurarConta("1"), 10);
+		banco.debitar(banco.procurarConta("4"), 100);
+		banco.transferir(banco.procurarConta("1"), banco.procurarConta("2"), 10);
+		banco.renderJuros(banco.procurarConta("2"));
+		assertEquals(100, contas.procurar("1").getSaldo(), 0);
+		assertEquals(400 - 100 - 100 * ContaImposto.CPMF, contas.procurar("4")
+				.getSaldo(), 1e-9);
+		assertEquals(210 * 1.5, contas.procurar("2").getSaldo(), 0);
+	}
+}
@@ -0,0 +1,193 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasEscritaAtrasada;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+
+public class TesteRepositorioContasEscritaAtrasada {
+
+	/** Conta as gravacoes que chegam ao repositorio decorado. */
+	private static class ContasContadas extends RepositorioContasHash {
+
+		int gravacoes;
+
+		boolean falhar;
+
+		/** Se nao for nulo, atualizarLote espera por ele antes de gravar. */
+		CountDownLatch liberar;
+
+		final CountDownLatch gravando = new CountDownLatch(1);
+
+		@Override
+		public boolean atualizar(ContaAbstrata conta)
+				throws RepositorioException {
+			this.gravacoes++;
+			return super.atualizar(conta);
+		}
+
+		@Override
+		public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+				throws RepositorioException {
+			if (this.falhar)
+				throw new RepositorioException("disco cheio");
+			this.gravando.countDown();
+			if (this.liberar != null) {
+				try {
+					this.liberar.await();
+				} catch (InterruptedException e) {
+					throw new RepositorioException(e);
+				}
+			}
+			this.gravacoes++;
+			int n = 0;
+			for (ContaAbstrata conta : contas) {
+				if (super.atualizar(conta))
+					n++;
+			}
+			return n;
+		}
+	}
+
+	private ContasContadas contas;
+
+	@Before
+	public void criar() throws Exception {
+		contas = new ContasContadas();
+		for (int i = 0; i < 10; i++) {
+			contas.inserir(new Conta(String.valueOf(i), 1000));
+		}
+	}
+
+	@Test
+	public void testeTransferenciasAgrupadas() throws Exception {
+		RepositorioContasEscritaAtrasada atrasada = new RepositorioContasEscritaAtrasada(
+				contas, 0, 10);
+		Banco banco = new Banco(new RepositorioClientesHash(), atrasada);
+		for (int i = 0; i < 1000; i++) {
+			banco.transferir(banco.procurarConta(String.valueOf(i % 10)),
+					banco.procurarConta(String.valueOf((i + 3) % 10)), 1);
+			banco.creditar(banco.procurarConta(String.valueOf(i % 10)), 1);
+		}
+		assertEquals(3000, atrasada.getAtualizacoes());
+		// cada gravacao leva as 10 contas: bem menos de uma por transferencia
+		assertTrue(contas.gravacoes <= 300);
+		atrasada.fechar();
+		double total = 0;
+		for (int i = 0; i < 10; i++) {
+			total += contas.procurar(String.valueOf(i)).getSaldo();
+		}
+		assertEquals(11000, total, 0);
+	}
+
+	@Test
+	public void testeAtualizacoesDaMesmaContaViramUma() throws Exception {
+		RepositorioContasEscritaAtrasada atrasada = new RepositorioContasEscritaAtrasada(
+				contas, 0, 100);
+		Conta nova = null;
+		for (int i = 0; i < 50; i++) {
+			nova = new Conta("1", i);
+			assertTrue(atrasada.atualizar(nova));
+		}
+		assertFalse(atrasada.atualizar(new Conta("x", 1)));
+		assertEquals(1, atrasada.getPendentes());
+		assertEquals(0, contas.gravacoes);
+		assertSame(nova, atrasada.procurar("1"));
+		assertEquals(49, atrasada.stream().filter(c -> c.getNumero()
+				.equals("1")).findFirst().get().getSaldo(), 0);
+		assertEquals(1000, contas.procurar("1").getSaldo(), 0);
+
+		atrasada.descarregar();
+		assertEquals(1, contas.gravacoes);
+		assertSame(nova, contas.procurar("1"));
+		assertEquals(0, atrasada.getPendentes());
+	}
+
+	@Test
+	public void testeRemocaoDescartaPendente() throws Exception {
+		RepositorioContasEscritaAtrasada atrasada = new RepositorioContasEscritaAtrasada(
+				contas, 0, 100);
+		atrasada.atualizar(new Conta("2", 5));
+		assertTrue(atrasada.remover("2"));
+		assertFalse(atrasada.existe("2"));
+		atrasada.fechar();
+		assertEquals(0, contas.gravacoes);
+	}
+
+	@Test
+	public void testeFalhaMantemPendentes() throws Exception {
+		RepositorioContasEscritaAtrasada atrasada = new RepositorioContasEscritaAtrasada(
+				contas, 0, 100);
+		atrasada.atualizar(new Conta("3", 1));
+		contas.falhar = true;
+		try {
+			atrasada.descarregar();
+			fail();
+		} catch (RepositorioException e) {
+		}
+		atrasada.atualizar(new Conta("4", 2));
+		assertEquals(2, atrasada.getPendentes());
+		contas.falhar = false;
+		atrasada.fechar();
+		assertEquals(1, contas.procurar("3").getSaldo(), 0);
+		assertEquals(2, contas.procurar("4").getSaldo(), 0);
+	}
+
+	@Test(timeout = 10000)
+	public void testeGravacaoPeriodica() throws Exception {
+		RepositorioContasEscritaAtrasada atrasada = new RepositorioContasEscritaAtrasada(
+				contas, 20, 1000);
+		atrasada.atualizar(new Conta("5", 7));
+		while (atrasada.getPendentes() > 0) {
+			Thread.sleep(5);
+		}
+		assertEquals(7, contas.procurar("5").getSaldo(), 0);
+		atrasada.fechar();
+	}
+
+	/**
+	 * Enquanto o repositorio decorado grava o lote, as contas do lote
+	 * continuam visiveis com o valor novo.
+	 */
+	@Test(timeout = 10000)
+	public void testeLoteVisivelDuranteGravacao() throws Exception {
+		final RepositorioContasEscritaAtrasada atrasada = new RepositorioContasEscritaAtrasada(
+				contas, 0, 100);
+		Conta nova = new Conta("6", 5);
+		atrasada.atualizar(nova);
+		contas.liberar = new CountDownLatch(1);
+		Thread t = new Thread(() -> {
+			try {
+				atrasada.descarregar();
+			} catch (RepositorioException e) {
+			}
+		});
+		t.start();
+		contas.gravando.await();
+
+		assertSame(nova, atrasada.procurar("6"));
+		assertTrue(atrasada.existe("6"));
+		assertEquals(1, atrasada.getPendentes());
+		assertEquals(5, atrasada.stream()
+				.filter(c -> c.getNumero().equals("6")).findFirst().get()
+				.getSaldo(), 0);
+
+		contas.liberar.countDown();
+		t.join();
+		assertEquals(0, atrasada.getPendentes());
+		assertSame(nova, atrasada.procurar("6"));
+		atrasada.fechar();
+	}
+}
@@ -0,0 +1,123 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.FormatoArquivo;
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoBin;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+
+public class TesteRepositorioContasHash {
+
+	private File arquivo = new File("teste-contas-hash.dat");
+
+	@After
+	public void apagarArquivo() {
+		arquivo.delete();
+	}
+
+	/**
+	 * Aplica operacoes aleatorias ao repositorio e a um <code>HashMap</code>
+	 * e confere, a cada passo, a conta afetada e, de tempos em tempos, todas
+	 * as contas. Poucos numeros em muitas operacoes geram colisoes,
+	 * remocoes no meio das sequencias de sondagem e a troca com a ultima
+	 * conta do array.
+	 */
+	private static void operarContraModelo(IRepositorioContas contas,
+			Map<String, ContaAbstrata> modelo, Random aleatorio, int passos,
+			int numeros) throws Exception {
+		for (int passo = 0; passo < passos; passo++) {
+			String numero = String.valueOf(aleatorio.nextInt(numeros));
+			int operacao = aleatorio.nextInt(3);
+			if (operacao == 0) {
+				Conta nova = new Conta(numero, passo);
+				assertEquals(!modelo.containsKey(numero), contas.inserir(nova));
+				modelo.putIfAbsent(numero, nova);
+			} else if (operacao == 1) {
+				assertEquals(modelo.remove(numero) != null,
+						contas.remover(numero));
+			} else {
+				Conta nova = new Conta(numero, -passo);
+				boolean existe = modelo.containsKey(numero);
+				assertEquals(existe, contas.atualizar(nova));
+				if (existe)
+					modelo.put(numero, nova);
+			}
+			assertEquals(modelo.containsKey(numero), contas.existe(numero));
+			assertSaldo(modelo.get(numero), contas.procurar(numero));
+			if (passo % 500 == 0)
+				conferir(contas, modelo, numeros);
+		}
+		conferir(contas, modelo, numeros);
+	}
+
+	private static void assertSaldo(ContaAbstrata esperada,
+			ContaAbstrata conta) {
+		if (esperada == null)
+			assertNull(conta);
+		else
+			assertEquals(esperada.getSaldo(), conta.getSaldo(), 0);
+	}
+
+	private static void conferir(IRepositorioContas contas,
+			Map<String, ContaAbstrata> modelo, int numeros) {
+		for (int n = 0; n < numeros; n++) {
+			String numero = String.valueOf(n);
+			assertSaldo(modelo.get(numero), contas.procurar(numero));
+		}
+		Map<String, ContaAbstrata> iteradas = new HashMap<String, ContaAbstrata>();
+		IteratorContaAbstrata it = contas.getIterator();
+		while (it.hasNext()) {
+			ContaAbstrata c = it.next();
+			assertNull(iteradas.put(c.getNumero(), c));
+		}
+		assertEquals(modelo.keySet(), iteradas.keySet());
+	}
+
+	/**
+	 * Comeca com capacidade 1, de modo que o array e a tabela crescem varias
+	 * vezes durante o teste.
+	 */
+	@Test
+	public void testeOperacoesContraModelo() throws Exception {
+		RepositorioContasHash contas = new RepositorioContasHash(1);
+		Map<String, ContaAbstrata> modelo = new HashMap<String, ContaAbstrata>();
+		Random aleatorio = new Random(11);
+		for (int i = 0; i < 2000; i++) {
+			String numero = String.valueOf(aleatorio.nextInt(3000));
+			Conta nova = new Conta(numero, i);
+			assertEquals(modelo.putIfAbsent(numero, nova) == null,
+					contas.inserir(nova));
+		}
+		operarContraModelo(contas, modelo, aleatorio, 50000, 3000);
+		operarContraModelo(contas, modelo, aleatorio, 20000, 40);
+	}
+
+	/**
+	 * A mesma verificacao atraves do <code>RepositorioContasArquivoBin</code>,
+	 * que guarda as contas num <code>RepositorioContasHash</code>, seguida da
+	 * releitura do arquivo.
+	 */
+	@Test
+	public void testeArquivoBinDelegaAoHash() throws Exception {
+		RepositorioContasArquivoBin contas = new RepositorioContasArquivoBin(
+				new RepositorioContasHash(1), arquivo, FormatoArquivo.BINARIO,
+				0);
+		Map<String, ContaAbstrata> modelo = new HashMap<String, ContaAbstrata>();
+		operarContraModelo(contas, modelo, new Random(13), 1500, 60);
+
+		contas = new RepositorioContasArquivoBin(new RepositorioContasHash(1),
+				arquivo, null, 0);
+		conferir(contas, modelo, 60);
+	}
+}
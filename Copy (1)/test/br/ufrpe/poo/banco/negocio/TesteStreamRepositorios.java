@@ -0,0 +1,118 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.IRepositorioClientes;
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.RepositorioClientesArray;
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasArray;
+import br.ufrpe.poo.banco.dados.RepositorioContasColunar;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrata;
+import br.ufrpe.poo.banco.iterator.IteratorContaAbstrataArray;
+
+public class TesteStreamRepositorios {
+
+	private static final int N = 1000;
+
+	private static void cadastrar(IRepositorioContas contas) throws Exception {
+		for (int i = 0; i < N; i++) {
+			contas.inserir(i % 2 == 0 ? new Conta(String.valueOf(i), i)
+					: new Poupanca(String.valueOf(i), i));
+		}
+		// a remocao move a ultima conta para a posicao removida
+		contas.remover("0");
+	}
+
+	private static void verificar(IRepositorioContas contas) {
+		Spliterator<ContaAbstrata> s = contas.spliterator();
+		assertTrue(s.hasCharacteristics(Spliterator.SIZED));
+		assertTrue(s.hasCharacteristics(Spliterator.SUBSIZED));
+		assertEquals(N - 1, s.estimateSize());
+		assertNotNull(s.trySplit());
+
+		double esperado = N * (N - 1) / 2.0;
+		assertEquals(esperado, contas.stream()
+				.mapToDouble(ContaAbstrata::getSaldo).sum(), 0);
+		assertEquals(esperado, contas.parallelStream()
+				.mapToDouble(ContaAbstrata::getSaldo).sum(), 0);
+		assertEquals(N / 2, contas.parallelStream()
+				.filter(c -> c instanceof Poupanca).count());
+	}
+
+	@Test
+	public void testeStreamContasArray() throws Exception {
+		IRepositorioContas contas = new RepositorioContasArray();
+		cadastrar(contas);
+		verificar(contas);
+	}
+
+	@Test
+	public void testeStreamContasHash() throws Exception {
+		IRepositorioContas contas = new RepositorioContasHash();
+		cadastrar(contas);
+		verificar(contas);
+	}
+
+	@Test
+	public void testeStreamContasColunar() throws Exception {
+		IRepositorioContas contas = new RepositorioContasColunar();
+		cadastrar(contas);
+		verificar(contas);
+	}
+
+	@Test
+	public void testeStreamClientes() throws Exception {
+		IRepositorioClientes[] repositorios = { new RepositorioClientesArray(),
+				new RepositorioClientesHash() };
+		for (IRepositorioClientes clientes : repositorios) {
+			for (int i = 0; i < N; i++) {
+				clientes.inserir(new Cliente("Cliente " + i, String.valueOf(i)));
+			}
+			Spliterator<Cliente> s = clientes.spliterator();
+			assertTrue(s.hasCharacteristics(Spliterator.SUBSIZED));
+			assertEquals(N, s.estimateSize());
+			assertEquals(N, clientes.parallelStream().map(Cliente::getCpf)
+					.collect(Collectors.toSet()).size());
+		}
+	}
+
+	@Test
+	public void testeSpliteratorIteradorParaNoPrimeiroNull() {
+		ContaAbstrata[] contas = { new Conta("1", 1), new Conta("2", 2), null,
+				new Conta("4", 4) };
+		IteratorContaAbstrata it = new IteratorContaAbstrataArray(contas);
+		it.next();
+		Spliterator<ContaAbstrata> s = it.spliterator();
+		assertFalse(s.hasCharacteristics(Spliterator.SIZED));
+		assertTrue(s.tryAdvance(c -> assertEquals("2", c.getNumero())));
+		assertFalse(s.tryAdvance(c -> assertNull(c)));
+	}
+
+	/**
+	 * O spliterator percorre o array do repositorio: nao e IMMUTABLE e uma
+	 * remocao durante o percurso e detectada.
+	 */
+	@Test(expected = ConcurrentModificationException.class)
+	public void testeSpliteratorDetectaRemocao() throws Exception {
+		IRepositorioContas contas = new RepositorioContasHash();
+		cadastrar(contas);
+		Spliterator<ContaAbstrata> s = contas.getIterator().spliterator();
+		assertFalse(s.hasCharacteristics(Spliterator.IMMUTABLE));
+		assertEquals(N - 1, s.estimateSize());
+		assertTrue(s.tryAdvance(c -> assertNotNull(c)));
+		contas.remover("1");
+		s.forEachRemaining(c -> assertNotNull(c));
+	}
+}
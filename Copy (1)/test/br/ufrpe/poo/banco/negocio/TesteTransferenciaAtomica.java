@@ -0,0 +1,193 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.FormatoArquivo;
+import br.ufrpe.poo.banco.dados.IRepositorioContas;
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoBin;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoJournal;
+import br.ufrpe.poo.banco.dados.RepositorioContasArquivoTxt;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+
+public class TesteTransferenciaAtomica {
+
+	/**
+	 * Repositorio cuja gravacao em lote pode ser configurada para falhar.
+	 */
+	private static class RepositorioFalho extends RepositorioContasHash {
+
+		boolean falhar;
+
+		int lotes;
+
+		@Override
+		public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+				throws RepositorioException {
+			if (falhar)
+				throw new RepositorioException("Falha simulada!");
+			lotes++;
+			return super.atualizarLote(contas);
+		}
+	}
+
+	private RepositorioFalho contas;
+
+	private Banco banco;
+
+	private File snapshot = new File("teste-transferencia.snap");
+
+	private File log = new File("teste-transferencia.log");
+
+	private File arquivo = new File("teste-transferencia.dat");
+
+	@Before
+	public void criarBanco() throws Exception {
+		contas = new RepositorioFalho();
+		banco = new Banco(new RepositorioClientesHash(), contas);
+		banco.cadastrar(new Conta("1", 100));
+		banco.cadastrar(new ContaEspecial("2", 100));
+	}
+
+	@After
+	public void apagarArquivos() {
+		snapshot.delete();
+		log.delete();
+		new File(log.getPath() + ".antigo").delete();
+		arquivo.delete();
+	}
+
+	@Test
+	public void testeTransferenciaGravaContasJuntas() throws Exception {
+		banco.transferir(banco.procurarConta("1"), banco.procurarConta("2"), 30);
+
+		assertEquals(70, banco.procurarConta("1").getSaldo(), 0);
+		assertEquals(130, banco.procurarConta("2").getSaldo(), 0);
+		assertEquals(1, contas.lotes);
+	}
+
+	@Test
+	public void testeFalhaNaGravacaoDesfazTransferencia() throws Exception {
+		ContaEspecial destino = (ContaEspecial) banco.procurarConta("2");
+		double bonus = destino.getBonus();
+		contas.falhar = true;
+		try {
+			banco.transferir(banco.procurarConta("1"), destino, 30);
+			fail("Excecao RepositorioException nao levantada");
+		} catch (RepositorioException e) {
+		}
+
+		assertEquals(100, banco.procurarConta("1").getSaldo(), 0);
+		assertEquals(100, destino.getSaldo(), 0);
+		assertEquals(bonus, destino.getBonus(), 0);
+	}
+
+	@Test
+	public void testeSaldoInsuficienteNaoAlteraContas() throws Exception {
+		try {
+			banco.transferir(banco.procurarConta("1"),
+					banco.procurarConta("2"), 150);
+			fail("Excecao SaldoInsuficienteException nao levantada");
+		} catch (SaldoInsuficienteException e) {
+		}
+
+		assertEquals(100, banco.procurarConta("1").getSaldo(), 0);
+		assertEquals(100, banco.procurarConta("2").getSaldo(), 0);
+		assertEquals(0, contas.lotes);
+	}
+
+	/**
+	 * A transferencia e gravada no journal como um unico registro e
+	 * recuperada por inteiro.
+	 */
+	@Test
+	public void testeTransferenciaRecuperadaDoJournal() throws Exception {
+		RepositorioContasArquivoJournal journal = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log);
+		Banco b = new Banco(new RepositorioClientesHash(), journal);
+		b.cadastrar(new Conta("1", 100));
+		b.cadastrar(new Conta("2", 100));
+		long antes = log.length();
+		b.transferir(b.procurarConta("1"), b.procurarConta("2"), 40);
+		long registroTransferencia = log.length() - antes;
+		journal.fechar();
+
+		journal = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log);
+		assertEquals(60, journal.procurar("1").getSaldo(), 0);
+		assertEquals(140, journal.procurar("2").getSaldo(), 0);
+		journal.fechar();
+
+		// registro incompleto: a transferencia inteira e descartada
+		try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+			raf.setLength(log.length() - registroTransferencia / 2);
+		}
+		journal = new RepositorioContasArquivoJournal(
+				new RepositorioContasHash(), snapshot, log);
+		assertEquals(100, journal.procurar("1").getSaldo(), 0);
+		assertEquals(100, journal.procurar("2").getSaldo(), 0);
+		journal.fechar();
+	}
+
+	/**
+	 * A gravacao pedida por outra alteracao grava os valores da ultima
+	 * alteracao de cada conta, e nao uma transferencia em andamento que ja
+	 * debitou a origem.
+	 */
+	@Test
+	public void testeGravacaoNaoLevaTransferenciaEmAndamento()
+			throws Exception {
+		verificarTransferenciaEmAndamento(() -> new RepositorioContasArquivoBin(
+				new RepositorioContasHash(), arquivo, FormatoArquivo.BINARIO));
+		verificarTransferenciaEmAndamento(() -> new RepositorioContasArquivoBin(
+				new RepositorioContasHash(), arquivo,
+				FormatoArquivo.SERIALIZACAO));
+		verificarTransferenciaEmAndamento(() -> new RepositorioContasArquivoTxt(
+				arquivo));
+		verificarTransferenciaEmAndamento(() -> new RepositorioContasArquivoTxt(
+				arquivo, true));
+	}
+
+	private interface Abertura {
+		IRepositorioContas abrir() throws Exception;
+	}
+
+	private void verificarTransferenciaEmAndamento(Abertura abertura)
+			throws Exception {
+		arquivo.delete();
+		IRepositorioContas repositorio = abertura.abrir();
+		repositorio.inserir(new Conta("1", 100));
+		repositorio.inserir(new Conta("2", 100));
+		repositorio.inserir(new Conta("3", 100));
+		repositorio.inserir(new Conta("4", 100));
+		// origem debitada, destino ainda nao creditado
+		repositorio.procurar("1").debitar(30);
+		ContaAbstrata tres = repositorio.procurar("3");
+		ContaAbstrata quatro = repositorio.procurar("4");
+		tres.creditar(1);
+		quatro.creditar(1);
+		repositorio.remover("2");
+		repositorio.atualizarLote(Arrays.asList(tres, quatro));
+		if (repositorio instanceof RepositorioContasArquivoTxt)
+			((RepositorioContasArquivoTxt) repositorio).fechar();
+
+		repositorio = abertura.abrir();
+		assertEquals(100, repositorio.procurar("1").getSaldo(), 0);
+		assertEquals(101, repositorio.procurar("3").getSaldo(), 0);
+		assertEquals(101, repositorio.procurar("4").getSaldo(), 0);
+		if (repositorio instanceof RepositorioContasArquivoTxt)
+			((RepositorioContasArquivoTxt) repositorio).fechar();
+	}
+}
@@ -0,0 +1,127 @@
+package br.ufrpe.poo.banco.negocio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import br.ufrpe.poo.banco.dados.RepositorioClientesHash;
+import br.ufrpe.poo.banco.dados.RepositorioContasHash;
+import br.ufrpe.poo.banco.exceptions.ContaNaoEncontradaException;
+import br.ufrpe.poo.banco.exceptions.RepositorioException;
+import br.ufrpe.poo.banco.exceptions.SaldoInsuficienteException;
+import br.ufrpe.poo.banco.exceptions.ValorInvalidoException;
+
+public class TesteTransferenciaLote {
+
+	/**
+	 * Repositorio que conta as gravacoes.
+	 */
+	private static class RepositorioContador extends RepositorioContasHash {
+
+		int atualizacoes;
+
+		int lotes;
+
+		boolean falhar;
+
+		@Override
+		public boolean atualizar(ContaAbstrata conta)
+				throws RepositorioException {
+			atualizacoes++;
+			return super.atualizar(conta);
+		}
+
+		@Override
+		public int atualizarLote(Collection<? extends ContaAbstrata> contas)
+				throws RepositorioException {
+			lotes++;
+			if (falhar)
+				throw new RepositorioException("Falha simulada");
+			return contas.size();
+		}
+	}
+
+	private RepositorioContador contas;
+
+	private Banco banco;
+
+	@Before
+	public void criarBanco() throws Exception {
+		contas = new RepositorioContador();
+		banco = new Banco(new RepositorioClientesHash(), contas);
+		banco.cadastrar(new Conta("1", 100));
+		banco.cadastrar(new Conta("2", 100));
+		banco.cadastrar(new ContaImposto("3", 100));
+	}
+
+	@Test
+	public void testeLoteGravaUmaVez() throws RepositorioException {
+		List<Transferencia> lote = Arrays.asList(new Transferencia("1", "2",
+				10), new Transferencia("2", "3", 50), new Transferencia("1",
+				"3", 40));
+
+		assertEquals(3, banco.transferirLote(lote));
+
+		assertEquals(50, banco.procurarConta("1").getSaldo(), 0);
+		assertEquals(60, banco.procurarConta("2").getSaldo(), 0);
+		assertEquals(190, banco.procurarConta("3").getSaldo(), 0);
+		assertEquals(0, contas.atualizacoes);
+		assertEquals(1, contas.lotes);
+		for (Transferencia t : lote) {
+			assertNull(t.getFalha());
+		}
+	}
+
+	@Test
+	public void testeLoteRecusaSemInterromper() throws RepositorioException {
+		List<Transferencia> lote = new ArrayList<Transferencia>();
+		lote.add(new Transferencia("1", "2", 500));
+		lote.add(new Transferencia("1", "9", 10));
+		lote.add(new Transferencia("1", "2", -1));
+		lote.add(new Transferencia("3", "1", 10));
+
+		assertEquals(1, banco.transferirLote(lote));
+
+		assertTrue(lote.get(0).getFalha() instanceof SaldoInsuficienteException);
+		assertTrue(lote.get(1).getFalha() instanceof ContaNaoEncontradaException);
+		assertTrue(lote.get(2).getFalha() instanceof ValorInvalidoException);
+		assertNull(lote.get(3).getFalha());
+		assertEquals(110, banco.procurarConta("1").getSaldo(), 0);
+		assertEquals(1, contas.lotes);
+	}
+
+	@Test
+	public void testeLoteVazioNaoGrava() throws RepositorioException {
+		assertEquals(0,
+				banco.transferirLote(new ArrayList<Transferencia>()));
+		assertEquals(0, contas.lotes);
+	}
+
+	@Test
+	public void testeFalhaNaGravacaoDesfazLote() throws Exception {
+		List<Transferencia> lote = Arrays.asList(new Transferencia("1", "2",
+				10), new Transferencia("2", "3", 500), new Transferencia("3",
+				"1", 40));
+		contas.falhar = true;
+		try {
+			banco.transferirLote(lote);
+			fail();
+		} catch (RepositorioException e) {
+			assertTrue(lote.get(0).getFalha() == e);
+			assertTrue(lote.get(1).getFalha() instanceof SaldoInsuficienteException);
+			assertTrue(lote.get(2).getFalha() == e);
+		}
+		assertEquals(100, banco.procurarConta("1").getSaldo(), 0);
+		assertEquals(100, banco.procurarConta("2").getSaldo(), 0);
+		assertEquals(100, banco.procurarConta("3").getSaldo(), 0);
+	}
+}